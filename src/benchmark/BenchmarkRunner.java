@@ -0,0 +1,296 @@
+package benchmark;
+
+import execution.Execution;
+import execution.ExecutionException;
+import programs.Workload;
+import programs.Workloads;
+import server.LatencyRecorder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Runs the generated workloads and records their throughput, step latency, allocation and memory use as JSON, or
+ * compares two such reports and flags the metrics which regressed.
+ *
+ * Usage:
+ *  BenchmarkRunner run [--scale small|medium|large] [--repeat n] [--output report.json]
+ *  BenchmarkRunner compare baseline.json candidate.json [--threshold 0.10]
+ *
+ * compare exits with status 1 when any metric regressed by more than the threshold.
+ */
+public class BenchmarkRunner {
+    private static final int LATENCY_SAMPLES = 1 << 16;
+
+    /**
+     * The compared metrics, and whether larger values are better
+     */
+    private static final Map<String, Boolean> METRICS = new LinkedHashMap<>();
+    static {
+        METRICS.put("stepsPerSecond", true);
+        METRICS.put("latencyMicros.p50", false);
+        METRICS.put("latencyMicros.p90", false);
+        METRICS.put("latencyMicros.p99", false);
+        METRICS.put("allocatedBytesPerStep", false);
+        METRICS.put("peakHeapBytes", false);
+        METRICS.put("buildMillis", false);
+    }
+
+    public static void main(String[] args) throws IOException, ExecutionException {
+        if(args.length >= 1 && args[0].equals("run")) {
+            String scale = option(args, "--scale", "small");
+            int repeats = Integer.parseInt(option(args, "--repeat", "3"));
+            String output = option(args, "--output", null);
+
+            Map<String, Object> report = run(suite(scale), repeats);
+            String json = Json.write(report);
+            if(output == null) {
+                System.out.print(json);
+            } else {
+                Files.write(Paths.get(output), json.getBytes(StandardCharsets.UTF_8));
+                System.out.println("Wrote " + output);
+            }
+        } else if(args.length >= 3 && args[0].equals("compare")) {
+            double threshold = Double.parseDouble(option(args, "--threshold", "0.10"));
+            List<String> regressions = compare(load(Paths.get(args[1])), load(Paths.get(args[2])), threshold, System.out);
+            if(!regressions.isEmpty()) {
+                System.exit(1);
+            }
+        } else {
+            System.err.println("Usage: BenchmarkRunner run [--scale small|medium|large] [--repeat n] [--output file]");
+            System.err.println("       BenchmarkRunner compare baseline.json candidate.json [--threshold 0.10]");
+            System.exit(2);
+        }
+    }
+
+    private static String option(String[] args, String name, String fallback) {
+        for(int i = 0; i < args.length - 1; i++) {
+            if(args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * @param scale small, medium or large
+     * @return the standard workloads at that scale
+     */
+    public static List<Workload> suite(String scale) {
+        int factor;
+        switch (scale) {
+            case "small": factor = 1; break;
+            case "medium": factor = 10; break;
+            case "large": factor = 100; break;
+            default: throw new IllegalArgumentException("Unknown scale " + scale);
+        }
+
+        List<Workload> output = new ArrayList<>();
+        output.add(Workloads.turingMachine(100 * factor, 4, 500, 1));
+        output.add(Workloads.turingMachine(20 * factor, 16, 500, 2));
+        output.add(Workloads.incrementers(200, 10 * factor));
+        output.add(Workloads.randomDag(1000 * factor, 4, 50 * factor, 200, 5, 100, 3));
+        output.add(Workloads.randomDag(200 * factor, 32, 50 * factor, 200, 5, 100, 4));
+        output.add(Workloads.rewiring(1000 * factor, 50 * factor, 200, 5));
+        return output;
+    }
+
+    //Running ----------------------------------------------------------------------------------------------------------
+    public static Map<String, Object> run(List<Workload> workloads, int repeats) throws ExecutionException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("java", System.getProperty("java.version"));
+        report.put("processors", Runtime.getRuntime().availableProcessors());
+        report.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+
+        List<Object> results = new ArrayList<>();
+        for(Workload workload : workloads) {
+            results.add(measure(workload, repeats));
+        }
+        report.put("workloads", results);
+        return report;
+    }
+
+    /**
+     * Runs a workload once to warm up and then repeats times, measuring every step
+     * @return the metrics of the workload
+     */
+    public static Map<String, Object> measure(Workload workload, int repeats) throws ExecutionException {
+        long buildStart = System.nanoTime();
+        workload.newExecution();
+        long buildNanos = System.nanoTime() - buildStart;
+
+        workload.run(workload.newExecution());
+
+        resetPeakHeap();
+        LatencyRecorder latencies = new LatencyRecorder(LATENCY_SAMPLES);
+        long totalSteps = 0;
+        long totalNanos = 0;
+        long allocatedBefore = allocatedBytes();
+
+        for(int repeat = 0; repeat < repeats; repeat++) {
+            Execution<String> execution = workload.newExecution();
+            boolean active = true;
+            for(int step = 0; active; step++) {
+                long start = System.nanoTime();
+                active = workload.step(execution, step);
+                long elapsed = System.nanoTime() - start;
+
+                latencies.record(elapsed);
+                totalNanos += elapsed;
+                totalSteps++;
+            }
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", workload.getName() + workload.getParameters().values());
+        result.put("family", workload.getName());
+        result.put("parameters", workload.getParameters());
+        result.put("nodes", workload.getBuilder().getConnections().toMap().size());
+        result.put("buildMillis", buildNanos / 1e6);
+        result.put("steps", totalSteps);
+        result.put("stepsPerSecond", totalSteps / Math.max(totalNanos / 1e9, 1e-9));
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", latencies.percentile(50) / 1e3);
+        latency.put("p90", latencies.percentile(90) / 1e3);
+        latency.put("p99", latencies.percentile(99) / 1e3);
+        latency.put("max", latencies.percentile(100) / 1e3);
+        result.put("latencyMicros", latency);
+
+        result.put("allocatedBytesPerStep", allocated < 0 ? -1 : allocated / Math.max(totalSteps, 1));
+        result.put("allocationMBPerSecond", allocated < 0 ? -1 : allocated / 1e6 / Math.max(totalNanos / 1e9, 1e-9));
+        result.put("peakHeapBytes", peakHeap());
+        result.put("peakRssKiB", peakRss());
+        return result;
+    }
+
+    /**
+     * @return the bytes allocated by this thread so far, -1 when the JVM cannot report them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * @return the peak resident set size of the process in KiB, -1 when it is not available
+     */
+    private static long peakRss() {
+        try {
+            for(String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if(line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    //Comparing --------------------------------------------------------------------------------------------------------
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> load(Path path) throws IOException {
+        return (Map<String, Object>) Json.read(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compares the workloads present in both reports, printing every compared metric
+     * @param baseline the earlier report
+     * @param candidate the later report
+     * @param threshold the relative change beyond which a metric has regressed
+     * @param out where the comparison is printed
+     * @return a line describing each regression
+     */
+    @SuppressWarnings("unchecked")
+    public static List<String> compare(Map<String, Object> baseline, Map<String, Object> candidate, double threshold,
+                                       java.io.PrintStream out) {
+        Map<String, Map<String, Object>> baselineWorkloads = byName((List<Object>) baseline.get("workloads"));
+        Map<String, Map<String, Object>> candidateWorkloads = byName((List<Object>) candidate.get("workloads"));
+        List<String> regressions = new ArrayList<>();
+
+        for(Map.Entry<String, Map<String, Object>> entry : candidateWorkloads.entrySet()) {
+            Map<String, Object> before = baselineWorkloads.get(entry.getKey());
+            if(before == null) {
+                out.println(entry.getKey() + ": not in baseline");
+                continue;
+            }
+            for(Map.Entry<String, Boolean> metric : METRICS.entrySet()) {
+                Double old = number(before, metric.getKey());
+                Double current = number(entry.getValue(), metric.getKey());
+                if(old == null || current == null || old <= 0 || current < 0) {
+                    continue;
+                }
+                double change = (current - old) / old;
+                boolean regressed = metric.getValue() ? change < -threshold : change > threshold;
+                String line = String.format(Locale.ROOT, "%s %s: %.3f -> %.3f (%+.1f%%)%s", entry.getKey(),
+                        metric.getKey(), old, current, change * 100, regressed ? " REGRESSION" : "");
+                out.println(line);
+                if(regressed) {
+                    regressions.add(line);
+                }
+            }
+        }
+
+        out.println(regressions.isEmpty() ? "No regressions" : regressions.size() + " regressions");
+        return regressions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, Object>> byName(List<Object> workloads) {
+        Map<String, Map<String, Object>> output = new LinkedHashMap<>();
+        for(Object workload : workloads) {
+            Map<String, Object> map = (Map<String, Object>) workload;
+            output.put(map.get("name").toString(), map);
+        }
+        return output;
+    }
+
+    /**
+     * @param path a metric name, nested metrics separated by dots
+     */
+    @SuppressWarnings("unchecked")
+    private static Double number(Map<String, Object> workload, String path) {
+        Object value = workload;
+        for(String key : path.split("\\.")) {
+            if(!(value instanceof Map)) {
+                return null;
+            }
+            value = ((Map<String, Object>) value).get(key);
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+}
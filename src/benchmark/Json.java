@@ -0,0 +1,234 @@
+package benchmark;
+
+import java.util.*;
+
+/**
+ * Just enough JSON for benchmark reports: writing maps, lists, strings and numbers, and reading them back
+ */
+public final class Json {
+    private Json() {}
+
+    public static String write(Object value) {
+        StringBuilder output = new StringBuilder();
+        write(value, output, "");
+        return output.append('\n').toString();
+    }
+
+    private static void write(Object value, StringBuilder output, String indent) {
+        if(value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            if(map.isEmpty()) {
+                output.append("{}");
+                return;
+            }
+            output.append("{\n");
+            Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator();
+            while(it.hasNext()) {
+                Map.Entry<?, ?> entry = it.next();
+                output.append(indent).append("  ");
+                writeString(entry.getKey().toString(), output);
+                output.append(": ");
+                write(entry.getValue(), output, indent + "  ");
+                output.append(it.hasNext() ? ",\n" : "\n");
+            }
+            output.append(indent).append('}');
+        } else if(value instanceof List) {
+            List<?> list = (List<?>) value;
+            if(list.isEmpty()) {
+                output.append("[]");
+                return;
+            }
+            output.append("[\n");
+            for(int i = 0; i < list.size(); i++) {
+                output.append(indent).append("  ");
+                write(list.get(i), output, indent + "  ");
+                output.append(i < list.size() - 1 ? ",\n" : "\n");
+            }
+            output.append(indent).append(']');
+        } else if(value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            output.append(Double.isFinite(number) ? String.format(Locale.ROOT, "%.3f", number) : "null");
+        } else if(value instanceof Number || value instanceof Boolean) {
+            output.append(value);
+        } else if(value == null) {
+            output.append("null");
+        } else {
+            writeString(value.toString(), output);
+        }
+    }
+
+    private static void writeString(String string, StringBuilder output) {
+        output.append('"');
+        for(char c : string.toCharArray()) {
+            switch (c) {
+                case '"': output.append("\\\""); break;
+                case '\\': output.append("\\\\"); break;
+                case '\n': output.append("\\n"); break;
+                case '\t': output.append("\\t"); break;
+                default:
+                    if(c < 0x20) {
+                        output.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        output.append(c);
+                    }
+            }
+        }
+        output.append('"');
+    }
+
+    /**
+     * @param text a JSON document
+     * @return the document as nested LinkedHashMaps, ArrayLists, Strings, Doubles, Booleans and nulls
+     * @throws IllegalArgumentException when the document is not valid JSON
+     */
+    public static Object read(String text) {
+        Reader reader = new Reader(text);
+        Object value = reader.value();
+        reader.skipWhitespace();
+        if(reader.position != text.length()) {
+            throw reader.error("Unexpected trailing content");
+        }
+        return value;
+    }
+
+    private static class Reader {
+        private final String text;
+        private int position = 0;
+
+        Reader(String text) {
+            this.text = text;
+        }
+
+        Object value() {
+            skipWhitespace();
+            if(position >= text.length()) {
+                throw error("Unexpected end of document");
+            }
+            char c = text.charAt(position);
+            if(c == '{') {
+                return object();
+            } else if(c == '[') {
+                return array();
+            } else if(c == '"') {
+                return string();
+            } else if(text.startsWith("true", position)) {
+                position += 4;
+                return Boolean.TRUE;
+            } else if(text.startsWith("false", position)) {
+                position += 5;
+                return Boolean.FALSE;
+            } else if(text.startsWith("null", position)) {
+                position += 4;
+                return null;
+            }
+            return number();
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> output = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if(peek() == '}') {
+                position++;
+                return output;
+            }
+            do {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                output.put(key, value());
+                skipWhitespace();
+            } while(consume(','));
+            expect('}');
+            return output;
+        }
+
+        private List<Object> array() {
+            List<Object> output = new ArrayList<>();
+            expect('[');
+            skipWhitespace();
+            if(peek() == ']') {
+                position++;
+                return output;
+            }
+            do {
+                output.add(value());
+                skipWhitespace();
+            } while(consume(','));
+            expect(']');
+            return output;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder output = new StringBuilder();
+            while(true) {
+                if(position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if(c == '"') {
+                    return output.toString();
+                }
+                if(c != '\\') {
+                    output.append(c);
+                    continue;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n': output.append('\n'); break;
+                    case 't': output.append('\t'); break;
+                    case 'r': output.append('\r'); break;
+                    case 'b': output.append('\b'); break;
+                    case 'f': output.append('\f'); break;
+                    case 'u':
+                        output.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default: output.append(escaped);
+                }
+            }
+        }
+
+        private Double number() {
+            int start = position;
+            while(position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            try {
+                return Double.parseDouble(text.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error("Invalid value");
+            }
+        }
+
+        void skipWhitespace() {
+            while(position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() {
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        private boolean consume(char c) {
+            if(peek() == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if(!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at character " + position);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import execution.ExecutionException;
+import execution.PartitionWorker;
+import execution.Partitioner;
+import execution.SocketTransport;
+import programs.Workload;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs one partition of a standard workload in this process, connected over sockets to the processes running the
+ * other partitions. Every process builds the same workload, keeps the part of it its worker holds and executes
+ * steps until the program settles or the workload step limit is reached.
+ *
+ * Usage:
+ *  PartitionWorkerRunner index host:port,host:port... [--scale small|medium|large] [--workload n]
+ *
+ * The addresses are the listening address of every worker in index order, the same list is given to every process.
+ */
+public class PartitionWorkerRunner {
+    public static void main(String[] args) throws IOException, ExecutionException {
+        if(args.length < 2) {
+            System.err.println("Usage: PartitionWorkerRunner index host:port,host:port... [--scale small|medium|large]"
+                    + " [--workload n]");
+            System.exit(2);
+        }
+        int index = Integer.parseInt(args[0]);
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for(String address : args[1].split(",")) {
+            int separator = address.lastIndexOf(':');
+            addresses.add(new InetSocketAddress(address.substring(0, separator),
+                    Integer.parseInt(address.substring(separator + 1))));
+        }
+        String scale = option(args, "--scale", "small");
+        int selected = Integer.parseInt(option(args, "--workload", "0"));
+
+        try (SocketTransport<String> transport = SocketTransport.connect(index, addresses)) {
+            Workload workload = BenchmarkRunner.suite(scale).get(selected);
+            PartitionWorker<String> worker = new PartitionWorker<>(index, workload.getBuilder().getClassTable(),
+                    workload.getBuilder().getConnections().toMap(), Partitioner.byHash(), transport);
+            int maxSteps = workload.getMaxSteps();
+            String name = workload.getName();
+
+            long start = System.nanoTime();
+            int steps = 0;
+            while(steps < maxSteps && worker.executeStep()) {
+                steps++;
+            }
+            long millis = (System.nanoTime() - start) / 1000000;
+            System.out.println(name + " worker " + index + " of " + addresses.size() + ": " + steps + " steps in "
+                    + millis + "ms, " + worker.heldConnections() + " connections held");
+        }
+    }
+
+    private static String option(String[] args, String name, String fallback) {
+        for(int i = 0; i < args.length - 1; i++) {
+            if(args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,11 @@
+package execution;
+
+/**
+ * How an Execution resolves two assignments of a step giving the same node different connections. Every policy gives
+ * the same result whatever order the assignments are evaluated in.
+ */
+public enum AssignmentConflict {
+    UNION,      //The node is connected to the union of the assigned sets
+    ERROR,      //The step fails with a NonDeterministicExecution
+    PRIORITY;   //The assignment ordered last by the Executions assignment priority wins
+}
@@ -0,0 +1,126 @@
+package execution;
+
+import sets.Set;
+import sets.SetBuilder;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The messages one partition worker sends another at a sub-step barrier
+ *
+ * @param <T> The type of the nodes
+ */
+public class Batch<T> {
+    /**
+     * Value changes of nodes owned by the sender that the receiver reads
+     */
+    final Map<T, Set<T>> values = new LinkedHashMap<>();
+    /**
+     * Within a step the connections of the nodes the receiver requested, after the assignments the connections of
+     * rewired nodes and shared nodes
+     */
+    final Map<T, Set<T>> connections = new LinkedHashMap<>();
+    /**
+     * The nodes altered by each assignment the sender evaluated at the end of the step
+     */
+    final Map<T, Set<T>> assignmentTargets = new LinkedHashMap<>();
+    /**
+     * The connections each of those assignments gives the nodes it alters
+     */
+    final Map<T, Set<T>> assignmentValues = new LinkedHashMap<>();
+    /**
+     * Assignment nodes owned by the receiver which the sender found to be triggered
+     */
+    final SetBuilder<T> assignments = new SetBuilder<>();
+    /**
+     * Nodes owned by the receiver whose connections an operator of the sender read
+     */
+    final SetBuilder<T> requests = new SetBuilder<>();
+    /**
+     * Whether the sender has further work, every worker keeps iterating while any worker is active
+     */
+    boolean active;
+
+    public boolean isEmpty() {
+        return values.isEmpty() && connections.isEmpty() && assignmentTargets.isEmpty() && assignments.size() == 0
+                && requests.size() == 0;
+    }
+
+    /**
+     * Serializes the batch, the nodes must be serializable by the given stream
+     * @param out the stream being written
+     * @throws IOException when the stream fails
+     */
+    public void writeTo(ObjectOutput out) throws IOException {
+        out.writeBoolean(active);
+        writeMap(out, values);
+        writeMap(out, connections);
+        writeMap(out, assignmentTargets);
+        writeMap(out, assignmentValues);
+        writeSet(out, assignments.toSet());
+        writeSet(out, requests.toSet());
+    }
+
+    /**
+     * Reads a batch written by {@link #writeTo(ObjectOutput)}
+     * @param in the stream being read
+     * @return the batch
+     * @throws IOException when the stream fails or holds something other than a batch
+     */
+    public static <U> Batch<U> readFrom(ObjectInput in) throws IOException {
+        Batch<U> batch = new Batch<>();
+        try {
+            batch.active = in.readBoolean();
+            readMap(in, batch.values);
+            readMap(in, batch.connections);
+            readMap(in, batch.assignmentTargets);
+            readMap(in, batch.assignmentValues);
+            batch.assignments.addAll(readSet(in));
+            batch.requests.addAll(readSet(in));
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        return batch;
+    }
+
+    private static <U> void writeMap(ObjectOutput out, Map<U, Set<U>> map) throws IOException {
+        out.writeInt(map.size());
+        for(Map.Entry<U, Set<U>> entry : map.entrySet()) {
+            out.writeObject(entry.getKey());
+            writeSet(out, entry.getValue());
+        }
+    }
+
+    private static <U> void writeSet(ObjectOutput out, Set<U> set) throws IOException {
+        out.writeInt(set.size());
+        for(U element : set) {
+            out.writeObject(element);
+        }
+    }
+
+    private static <U> void readMap(ObjectInput in, Map<U, Set<U>> map) throws IOException, ClassNotFoundException {
+        int size = in.readInt();
+        for(int i = 0; i < size; i++) {
+            U key = readElement(in);
+            map.put(key, readSet(in));
+        }
+    }
+
+    private static <U> Set<U> readSet(ObjectInput in) throws IOException, ClassNotFoundException {
+        int size = in.readInt();
+        SetBuilder<U> builder = new SetBuilder<>();
+        for(int i = 0; i < size; i++) {
+            builder.add(readElement(in));
+        }
+        return builder.toSet();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <U> U readElement(ObjectInput in) throws IOException, ClassNotFoundException {
+        return (U) in.readObject();
+    }
+}
@@ -0,0 +1,610 @@
+package execution;
+
+import sets.EmptySet;
+import sets.Set;
+import execution.ExecutionException.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs up to 64 instances of one program in lockstep, each instance a lane of a bit mask. Every connection and value
+ * set is a LaneSet mapping its elements to the lanes holding them, so UNION is an OR of the masks of the inputs,
+ * INTERSECT an AND and DIFFERENCE keeps the lanes in which an element was seen exactly once, for all lanes at once.
+ *
+ * A node is queued in the lanes whose frontier holds it. It is evaluated once for all of them and its value only
+ * changes in those lanes, so every lane goes through the sub-steps and assignments an Execution of it would. Lanes
+ * whose assignments rewire nodes differently simply hold different connection masks from then on. Custom operators
+ * are evaluated lane by lane. Operation classes must be the same in every lane.
+ *
+ * DIFFERENCE counts its inputs, an Execution counts their distinct value sets, which only differ when two inputs
+ * share one value set instance.
+ *
+ * @param <T> The type of the nodes
+ */
+public class BitSlicedExecution<T> {
+    public static final int MAX_LANES = 64;
+
+    /**
+     * Shared by every node without connections or a value, never written to
+     */
+    private static final LaneSet<Object> EMPTY = new LaneSet<>();
+
+    private final NodeClassTable<T> classTable;
+    private final int lanes;
+    private final long allLanes;
+
+    private final Map<T, LaneSet<T>> connections = new HashMap<>();
+    private final Map<T, LaneSet<T>> connectionsTo = new HashMap<>();
+    private final Map<T, LaneSet<T>> values = new HashMap<>();
+    private final Map<T, LaneSet<T>> valuesTo = new HashMap<>();
+
+    private final Map<T, NodeClass> classes = new HashMap<>();
+    private final Map<T, T> classNodes = new HashMap<>();
+    private boolean classesStale = true;
+
+    private LaneSet<T> nextUpdate = new LaneSet<>();
+    private LaneSet<T> nextAssignments = new LaneSet<>();
+    private AssignmentConflict assignmentConflict = AssignmentConflict.PRIORITY;
+    private Comparator<? super T> assignmentPriority = Execution.DEFAULT_PRIORITY;
+    private long step = 0;
+    private long evaluations = 0;
+
+    /**
+     * @param classTable the operation classes of the program
+     * @param program the connections every lane starts from
+     * @param lanes the number of instances, at most MAX_LANES
+     */
+    public BitSlicedExecution(NodeClassTable<T> classTable, Digraph<T> program, int lanes) {
+        if(lanes < 1 || lanes > MAX_LANES) {
+            throw new IllegalArgumentException("Lanes must be between 1 and " + MAX_LANES + ", not " + lanes);
+        }
+        this.classTable = classTable;
+        this.lanes = lanes;
+        this.allLanes = lanes == MAX_LANES ? -1L : (1L << lanes) - 1;
+
+        for(Map.Entry<T, Set<T>> entry : program.toMap().entrySet()) {
+            setConnections(entry.getKey(), LaneSet.of(entry.getValue(), allLanes));
+        }
+        LaneSet<T> literals = connections.get(classTable.nodeFor(NodeClass.LITERAL));
+        if(literals != null) {
+            for(int slot = 0; slot < literals.capacity(); slot++) {
+                if(literals.keyAt(slot) != null) {
+                    nextUpdate.or(literals.keyAt(slot), literals.maskAt(slot));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a step in every lane with queued nodes
+     * @return whether any lane has nodes queued for the next step
+     */
+    public synchronized boolean executeStep() throws ExecutionException {
+        loadClasses();
+        LaneSet<T> updateSet = nextUpdate;
+        nextUpdate = new LaneSet<>();
+
+        while(updateSet.lanes() != 0) {
+            List<T> changedNodes = new ArrayList<>();
+            List<LaneSet<T>> changedValues = new ArrayList<>();
+            List<Long> changedLanes = new ArrayList<>();
+            for(int slot = 0; slot < updateSet.capacity(); slot++) {
+                T node = updateSet.keyAt(slot);
+                long queued = updateSet.maskAt(slot);
+                if(node == null || queued == 0) {
+                    continue;
+                }
+                LaneSet<T> value = evaluate(node, queued);
+                if(value != null) {
+                    changedNodes.add(node);
+                    changedValues.add(value);
+                    changedLanes.add(queued);
+                }
+            }
+
+            for(int i = 0; i < changedNodes.size(); i++) {
+                T node = changedNodes.get(i);
+                long changed = setValues(node, changedValues.get(i), changedLanes.get(i));
+                queueReaders(nextUpdate, node, changed);
+            }
+            updateSet = nextUpdate;
+            nextUpdate = new LaneSet<>();
+        }
+
+        finishStep();
+        step++;
+        return nextUpdate.lanes() != 0;
+    }
+
+    /**
+     * Replaces the connections of a node in one lane between steps, queueing what an Execution update would
+     * @param lane the instance
+     * @param node the node being updated
+     * @param newConnections the nodes new connections
+     * @return whether the connection set changed
+     */
+    public synchronized boolean update(int lane, T node, Set<T> newConnections) {
+        checkLane(lane);
+        loadClasses();
+        return rewire(node, LaneSet.of(newConnections, 1L << lane), 1L << lane) != 0;
+    }
+
+    /**
+     * @param lane the instance
+     * @param node the given node
+     * @return the connection set of the node in the lane
+     */
+    public synchronized Set<T> queryNode(int lane, T node) {
+        checkLane(lane);
+        return lane(connections, node, lane);
+    }
+
+    /**
+     * @param lane the instance
+     * @param node the given node
+     * @return the value the node was last evaluated to in the lane
+     */
+    public synchronized Set<T> queryValue(int lane, T node) {
+        checkLane(lane);
+        return lane(values, node, lane);
+    }
+
+    public synchronized void setAssignmentConflict(AssignmentConflict policy) {
+        this.assignmentConflict = policy;
+    }
+
+    public synchronized void setAssignmentPriority(Comparator<? super T> priority) {
+        this.assignmentPriority = priority;
+        this.assignmentConflict = AssignmentConflict.PRIORITY;
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public synchronized long getStep() {
+        return step;
+    }
+
+    /**
+     * @return the node evaluations so far, each covering every lane the node was queued in
+     */
+    public synchronized long getEvaluations() {
+        return evaluations;
+    }
+
+    //Evaluation -------------------------------------------------------------------------------------------------------
+    /**
+     * @return the new value of the node, null for nodes without one
+     */
+    private LaneSet<T> evaluate(T node, long queued) throws ExecutionException {
+        NodeClass nodeClass = classOf(node);
+        switch (nodeClass) {
+            case ASSIGNMENT:
+                nextAssignments.or(node, queued);
+                return null;
+
+            case ASSIGNMENT_VALUE:
+                LaneSet<T> readers = connectionsTo.get(node);
+                if(readers != null) {
+                    for(int slot = 0; slot < readers.capacity(); slot++) {
+                        T reader = readers.keyAt(slot);
+                        if(reader != null && classOf(reader) == NodeClass.ASSIGNMENT) {
+                            nextAssignments.or(reader, queued & readers.maskAt(slot));
+                        }
+                    }
+                }
+                return null;
+
+            case OPERATION:
+            case SIMPLE:
+                return null;
+
+            case INVALID:
+                throw new InvalidOperation("Invalid Operation Type Evaluated");
+        }
+
+        evaluations++;
+        LaneSet<T> inputs = connectionsOf(node);
+        switch (nodeClass) {
+            case UNION:
+                return union(inputs);
+            case INTERSECT:
+                return intersect(inputs);
+            case DIFFERENCE:
+                return difference(inputs);
+            case LITERAL:
+                return inputs;
+            case CONNECTIONS_OF:
+                LaneSet<T> dereferenced = union(inputs);
+                LaneSet<T> output = new LaneSet<>();
+                for(int slot = 0; slot < dereferenced.capacity(); slot++) {
+                    T element = dereferenced.keyAt(slot);
+                    long mask = dereferenced.maskAt(slot);
+                    if(element != null && mask != 0) {
+                        orAll(output, connectionsOf(element), mask);
+                    }
+                }
+                return output;
+            default:
+                return custom(node, queued);
+        }
+    }
+
+    private LaneSet<T> union(LaneSet<T> inputs) {
+        LaneSet<T> output = new LaneSet<>();
+        for(int slot = 0; slot < inputs.capacity(); slot++) {
+            T input = inputs.keyAt(slot);
+            if(input != null && inputs.maskAt(slot) != 0) {
+                orAll(output, valuesOf(input), inputs.maskAt(slot));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * An element stays in a lane while every input of the lane holds it, lanes without inputs hold nothing
+     */
+    private LaneSet<T> intersect(LaneSet<T> inputs) {
+        LaneSet<T> candidates = union(inputs);
+        long withInputs = inputs.lanes();
+        LaneSet<T> output = new LaneSet<>();
+        for(int slot = 0; slot < candidates.capacity(); slot++) {
+            T element = candidates.keyAt(slot);
+            if(element == null) {
+                continue;
+            }
+            long mask = withInputs & candidates.maskAt(slot);
+            for(int input = 0; input < inputs.capacity() && mask != 0; input++) {
+                if(inputs.keyAt(input) != null) {
+                    mask &= valuesOf(inputs.keyAt(input)).get(element) | ~inputs.maskAt(input);
+                }
+            }
+            output.or(element, mask);
+        }
+        return output;
+    }
+
+    /**
+     * Tracks the lanes which saw an element once and those which saw it again, the value is the first less the second
+     */
+    private LaneSet<T> difference(LaneSet<T> inputs) {
+        LaneSet<T> once = new LaneSet<>();
+        LaneSet<T> again = new LaneSet<>();
+        for(int slot = 0; slot < inputs.capacity(); slot++) {
+            T input = inputs.keyAt(slot);
+            long inputLanes = inputs.maskAt(slot);
+            if(input == null || inputLanes == 0) {
+                continue;
+            }
+            LaneSet<T> value = valuesOf(input);
+            for(int element = 0; element < value.capacity(); element++) {
+                T key = value.keyAt(element);
+                long mask = value.maskAt(element) & inputLanes;
+                if(key != null && mask != 0) {
+                    again.or(key, once.get(key) & mask);
+                    once.or(key, mask);
+                }
+            }
+        }
+        LaneSet<T> output = new LaneSet<>();
+        for(int slot = 0; slot < once.capacity(); slot++) {
+            T key = once.keyAt(slot);
+            if(key != null) {
+                output.or(key, once.maskAt(slot) & ~again.get(key));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Evaluates a custom operator in each queued lane on its own
+     */
+    private LaneSet<T> custom(T node, long queued) {
+        Operator<T> operator = classTable.operatorOf(classNodes.get(node));
+        LaneSet<T> output = new LaneSet<>();
+        if(operator == null) {
+            return output;
+        }
+        for(int lane = 0; lane < lanes; lane++) {
+            if((queued & (1L << lane)) == 0) {
+                continue;
+            }
+            int current = lane;
+            OperatorContext<T> context = new OperatorContext<T>() {
+                @Override
+                public Set<T> getValues(T input) {
+                    return lane(values, input, current);
+                }
+
+                @Override
+                public Set<T> getConnections(T input) {
+                    return lane(connections, input, current);
+                }
+            };
+            for(T element : operator.evaluate(node, lane(connections, node, lane), context)) {
+                output.or(element, 1L << lane);
+            }
+        }
+        return output;
+    }
+
+    //Assignments ------------------------------------------------------------------------------------------------------
+    /**
+     * Evaluates the queued assignments in every lane against the state left by the sub-steps, resolves conflicts lane
+     * by lane with the conflict policy and applies them at once
+     */
+    private void finishStep() throws ExecutionException {
+        List<T> assignments = new ArrayList<>();
+        for(int slot = 0; slot < nextAssignments.capacity(); slot++) {
+            if(nextAssignments.keyAt(slot) != null && nextAssignments.maskAt(slot) != 0) {
+                assignments.add(nextAssignments.keyAt(slot));
+            }
+        }
+        //Ascending priority, so the greatest assignment writes each lane last
+        assignments.sort(assignmentPriority);
+
+        Map<T, LaneSet<T>> assigned = new LinkedHashMap<>();
+        Map<T, Long> written = new HashMap<>();
+        for(T assignment : assignments) {
+            long assignmentLanes = nextAssignments.get(assignment);
+            LaneSet<T> targets = new LaneSet<>();
+            LaneSet<T> value = new LaneSet<>();
+            LaneSet<T> inputs = connectionsOf(assignment);
+            for(int slot = 0; slot < inputs.capacity(); slot++) {
+                T input = inputs.keyAt(slot);
+                long inputLanes = inputs.maskAt(slot) & assignmentLanes;
+                if(input == null || inputLanes == 0) {
+                    continue;
+                }
+                if(classOf(input) == NodeClass.ASSIGNMENT_VALUE) {
+                    orAll(value, union(connectionsOf(input)), inputLanes);
+                } else {
+                    orAll(targets, valuesOf(input), inputLanes);
+                }
+            }
+
+            for(int slot = 0; slot < targets.capacity(); slot++) {
+                T target = targets.keyAt(slot);
+                long targetLanes = targets.maskAt(slot);
+                if(target == null || targetLanes == 0) {
+                    continue;
+                }
+                LaneSet<T> previous = assigned.computeIfAbsent(target, key -> new LaneSet<>());
+                long overlap = written.getOrDefault(target, 0L) & targetLanes;
+                if(assignmentConflict == AssignmentConflict.ERROR && overlap != 0
+                        && (differingLanes(previous, value) & overlap) != 0) {
+                    throw new NonDeterministicExecution("Assignments give " + target
+                            + " different connections in lanes " + Long.toBinaryString(overlap));
+                }
+                if(assignmentConflict == AssignmentConflict.PRIORITY) {
+                    clearLanes(previous, targetLanes);
+                }
+                orAll(previous, value, targetLanes);
+                written.merge(target, targetLanes, (first, second) -> first | second);
+            }
+        }
+        nextAssignments = new LaneSet<>();
+
+        for(Map.Entry<T, LaneSet<T>> entry : assigned.entrySet()) {
+            rewire(entry.getKey(), entry.getValue(), written.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * Changes the connections of a node in some lanes and queues, in the lanes which changed, the literal it may be
+     * and the connectionsOf nodes whose value holds it
+     * @return the lanes whose connections changed
+     */
+    private long rewire(T node, LaneSet<T> newConnections, long rewired) {
+        LaneSet<T> old = connectionsOf(node);
+        LaneSet<T> merged = merge(old, newConnections, rewired);
+        long changed = differingLanes(old, merged);
+        if(changed == 0) {
+            return 0;
+        }
+        setConnections(node, merged);
+        if(classes.containsKey(node) && classes.get(node) == NodeClass.OPERATION) {
+            classesStale = true;
+        }
+
+        if(classOf(node) == NodeClass.LITERAL) {
+            nextUpdate.or(node, changed);
+        }
+        LaneSet<T> holders = valuesTo.get(node);
+        if(holders != null) {
+            for(int slot = 0; slot < holders.capacity(); slot++) {
+                T holder = holders.keyAt(slot);
+                if(holder != null && classOf(holder) == NodeClass.CONNECTIONS_OF) {
+                    nextUpdate.or(holder, holders.maskAt(slot) & changed);
+                }
+            }
+        }
+        return changed;
+    }
+
+    //State ------------------------------------------------------------------------------------------------------------
+    /**
+     * Sets the value of a node in some lanes, keeping the reverse index of values up to date
+     * @return the lanes whose value changed
+     */
+    private long setValues(T node, LaneSet<T> newValues, long lanesSet) {
+        LaneSet<T> old = valuesOf(node);
+        LaneSet<T> merged = merge(old, newValues, lanesSet);
+        long changed = differingLanes(old, merged);
+        if(changed != 0) {
+            values.put(node, merged);
+            updateReverse(valuesTo, node, old, merged);
+        }
+        return changed;
+    }
+
+    private void setConnections(T node, LaneSet<T> newConnections) {
+        LaneSet<T> old = connectionsOf(node);
+        connections.put(node, newConnections);
+        updateReverse(connectionsTo, node, old, newConnections);
+    }
+
+    private void queueReaders(LaneSet<T> queue, T node, long changed) {
+        if(changed == 0) {
+            return;
+        }
+        LaneSet<T> readers = connectionsTo.get(node);
+        if(readers != null) {
+            for(int slot = 0; slot < readers.capacity(); slot++) {
+                if(readers.keyAt(slot) != null) {
+                    queue.or(readers.keyAt(slot), readers.maskAt(slot) & changed);
+                }
+            }
+        }
+    }
+
+    private static <T> void updateReverse(Map<T, LaneSet<T>> reverse, T node, LaneSet<T> old, LaneSet<T> updated) {
+        for(int slot = 0; slot < old.capacity(); slot++) {
+            T element = old.keyAt(slot);
+            if(element != null && updated.get(element) != old.maskAt(slot)) {
+                reverse.computeIfAbsent(element, key -> new LaneSet<>()).put(node, updated.get(element));
+            }
+        }
+        for(int slot = 0; slot < updated.capacity(); slot++) {
+            T element = updated.keyAt(slot);
+            if(element != null && old.get(element) == 0 && updated.maskAt(slot) != 0) {
+                reverse.computeIfAbsent(element, key -> new LaneSet<>()).put(node, updated.maskAt(slot));
+            }
+        }
+    }
+
+    /**
+     * @return old in the lanes outside replaced and updated in those inside it, without elements no lane holds
+     */
+    private static <T> LaneSet<T> merge(LaneSet<T> old, LaneSet<T> updated, long replaced) {
+        LaneSet<T> output = new LaneSet<>();
+        for(int slot = 0; slot < old.capacity(); slot++) {
+            if(old.keyAt(slot) != null) {
+                output.or(old.keyAt(slot), old.maskAt(slot) & ~replaced);
+            }
+        }
+        orAll(output, updated, replaced);
+        return output;
+    }
+
+    private static <T> long differingLanes(LaneSet<T> first, LaneSet<T> second) {
+        long output = 0;
+        for(int slot = 0; slot < first.capacity(); slot++) {
+            if(first.keyAt(slot) != null) {
+                output |= first.maskAt(slot) ^ second.get(first.keyAt(slot));
+            }
+        }
+        for(int slot = 0; slot < second.capacity(); slot++) {
+            if(second.keyAt(slot) != null && first.get(second.keyAt(slot)) == 0) {
+                output |= second.maskAt(slot);
+            }
+        }
+        return output;
+    }
+
+    private static <T> void orAll(LaneSet<T> output, LaneSet<T> input, long lanes) {
+        for(int slot = 0; slot < input.capacity(); slot++) {
+            if(input.keyAt(slot) != null) {
+                output.or(input.keyAt(slot), input.maskAt(slot) & lanes);
+            }
+        }
+    }
+
+    private static <T> void clearLanes(LaneSet<T> set, long lanes) {
+        for(int slot = 0; slot < set.capacity(); slot++) {
+            if(set.keyAt(slot) != null) {
+                set.put(set.keyAt(slot), set.maskAt(slot) & ~lanes);
+            }
+        }
+    }
+
+    private LaneSet<T> connectionsOf(T node) {
+        LaneSet<T> output = connections.get(node);
+        return output == null ? empty() : output;
+    }
+
+    private LaneSet<T> valuesOf(T node) {
+        LaneSet<T> output = values.get(node);
+        return output == null ? empty() : output;
+    }
+
+    @SuppressWarnings("unchecked")
+    private LaneSet<T> empty() {
+        return (LaneSet<T>) EMPTY;
+    }
+
+    private static <T> Set<T> lane(Map<T, LaneSet<T>> map, T node, int lane) {
+        LaneSet<T> set = map.get(node);
+        return set == null ? EmptySet.instance() : set.lane(lane);
+    }
+
+    private void checkLane(int lane) {
+        if(lane < 0 || lane >= lanes) {
+            throw new IndexOutOfBoundsException("Lane " + lane + " of " + lanes);
+        }
+    }
+
+    //Classes ----------------------------------------------------------------------------------------------------------
+    /**
+     * Finds the class of every member of an operation class, requiring every lane to agree on the classes
+     */
+    private void loadClasses() {
+        if(!classesStale) {
+            return;
+        }
+        classes.clear();
+        classNodes.clear();
+        T operation = classTable.nodeFor(NodeClass.OPERATION);
+        classes.put(operation, NodeClass.OPERATION);
+        LaneSet<T> classSet = uniform(operation);
+        for(int slot = 0; slot < classSet.capacity(); slot++) {
+            T classNode = classSet.keyAt(slot);
+            if(classNode == null || classSet.maskAt(slot) == 0) {
+                continue;
+            }
+            classes.put(classNode, NodeClass.OPERATION);
+        }
+        for(int slot = 0; slot < classSet.capacity(); slot++) {
+            T classNode = classSet.keyAt(slot);
+            if(classNode == null || classSet.maskAt(slot) == 0) {
+                continue;
+            }
+            NodeClass nodeClass = classTable.classOf(classNode);
+            LaneSet<T> members = uniform(classNode);
+            for(int member = 0; member < members.capacity(); member++) {
+                T node = members.keyAt(member);
+                if(node == null || members.maskAt(member) == 0 || classes.get(node) == NodeClass.OPERATION) {
+                    continue;
+                }
+                //Members of several classes are never evaluated
+                NodeClass previous = classes.putIfAbsent(node, nodeClass);
+                if(previous != null) {
+                    classes.put(node, NodeClass.INVALID);
+                }
+                classNodes.put(node, classNode);
+            }
+        }
+        classesStale = false;
+    }
+
+    private LaneSet<T> uniform(T classNode) {
+        LaneSet<T> set = connectionsOf(classNode);
+        for(int slot = 0; slot < set.capacity(); slot++) {
+            if(set.keyAt(slot) != null && set.maskAt(slot) != 0 && set.maskAt(slot) != allLanes) {
+                throw new IllegalStateException("Lanes disagree on the members of " + classNode);
+            }
+        }
+        return set;
+    }
+
+    private NodeClass classOf(T node) {
+        NodeClass output = classes.get(node);
+        return output == null ? NodeClass.SIMPLE : output;
+    }
+}
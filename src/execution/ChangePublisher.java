@@ -0,0 +1,229 @@
+package execution;
+
+import sets.Set;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+
+/**
+ * Publishes the value and connection changes of watched nodes once per step. The step thread only files each change
+ * with the subscriptions watching its node, delivery happens on an Executor as subscribers request it. When a
+ * subscriber falls behind its pending changes are merged into one NodeChanges covering several steps, so a slow
+ * subscriber never blocks the step loop and never holds more than one pending item per step it has not requested.
+ *
+ * @param <T> The type of the nodes
+ */
+public class ChangePublisher<T> implements StepListener<T>, AutoCloseable {
+    /**
+     * Pending items beyond which a subscribers changes are merged
+     */
+    private static final int BUFFER_SIZE = 16;
+
+    private final Execution<T> execution;
+    private final Executor executor;
+
+    private final Map<T, List<NodeSubscription>> watchers = new ConcurrentHashMap<>();
+    private final java.util.Set<NodeSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The changes of the running step per subscription, only touched while holding the Execution
+     */
+    private final Map<NodeSubscription, Map<T, Set<T>>> stepValues = new IdentityHashMap<>();
+    private final Map<NodeSubscription, Map<T, Set<T>>> stepConnections = new IdentityHashMap<>();
+
+    public ChangePublisher(Execution<T> execution) {
+        this(execution, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param execution the execution being watched
+     * @param executor the executor subscribers are called on
+     */
+    public ChangePublisher(Execution<T> execution, Executor executor) {
+        this.execution = execution;
+        this.executor = executor;
+        execution.addListener(this);
+    }
+
+    public Flow.Publisher<NodeChanges<T>> watch(T node) {
+        return watch(Collections.singleton(node));
+    }
+
+    /**
+     * @param nodes the watched nodes
+     * @return a publisher which gives each subscriber the changes to the watched nodes, every step with a change
+     * produces one item
+     */
+    public Flow.Publisher<NodeChanges<T>> watch(Collection<T> nodes) {
+        List<T> watched = new ArrayList<>(nodes);
+        return subscriber -> {
+            NodeSubscription subscription = new NodeSubscription(subscriber, watched);
+            subscriptions.add(subscription);
+            for(T node : watched) {
+                watchers.computeIfAbsent(node, key -> new CopyOnWriteArrayList<>()).add(subscription);
+            }
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    //StepListener -----------------------------------------------------------------------------------------------------
+    @Override
+    public void valueChanged(T node, Set<T> newValues) {
+        file(node, newValues, stepValues);
+    }
+
+    @Override
+    public void connectionsChanged(T node, Set<T> newConnections) {
+        file(node, newConnections, stepConnections);
+    }
+
+    private void file(T node, Set<T> change, Map<NodeSubscription, Map<T, Set<T>>> step) {
+        List<NodeSubscription> nodeWatchers = watchers.get(node);
+        if(nodeWatchers == null) {
+            return;
+        }
+        for(NodeSubscription subscription : nodeWatchers) {
+            step.computeIfAbsent(subscription, key -> new HashMap<>()).put(node, change);
+        }
+    }
+
+    @Override
+    public void stepCompleted(long step) {
+        java.util.Set<NodeSubscription> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        changed.addAll(stepValues.keySet());
+        changed.addAll(stepConnections.keySet());
+
+        for(NodeSubscription subscription : changed) {
+            subscription.offer(new NodeChanges<>(step, step,
+                    stepValues.getOrDefault(subscription, Collections.emptyMap()),
+                    stepConnections.getOrDefault(subscription, Collections.emptyMap())));
+        }
+        stepValues.clear();
+        stepConnections.clear();
+    }
+
+    /**
+     * Stops publishing and completes every subscriber
+     */
+    @Override
+    public void close() {
+        execution.removeListener(this);
+        for(NodeSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    private void remove(NodeSubscription subscription) {
+        subscriptions.remove(subscription);
+        for(T node : subscription.nodes) {
+            List<NodeSubscription> nodeWatchers = watchers.get(node);
+            if(nodeWatchers != null) {
+                nodeWatchers.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * The state of one subscriber, guarded by its own monitor. At most one drain runs on the executor at a time.
+     */
+    private class NodeSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super NodeChanges<T>> subscriber;
+        private final List<T> nodes;
+
+        private final Deque<NodeChanges<T>> buffer = new ArrayDeque<>();
+        private long demand = 0;
+        private boolean draining = false;
+        private boolean cancelled = false;
+        private boolean completed = false;
+
+        NodeSubscription(Flow.Subscriber<? super NodeChanges<T>> subscriber, List<T> nodes) {
+            this.subscriber = subscriber;
+            this.nodes = nodes;
+        }
+
+        synchronized void offer(NodeChanges<T> changes) {
+            if(cancelled || completed) {
+                return;
+            }
+            if(buffer.size() >= BUFFER_SIZE) {
+                buffer.addLast(buffer.removeLast().merge(changes));
+            } else {
+                buffer.addLast(changes);
+            }
+            schedule();
+        }
+
+        synchronized void complete() {
+            completed = true;
+            schedule();
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if(n <= 0) {
+                cancelled = true;
+                remove(this);
+                executor.execute(() -> subscriber.onError(
+                        new IllegalArgumentException("Subscribers must request a positive number of items")));
+                return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            schedule();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            buffer.clear();
+            remove(this);
+        }
+
+        private void schedule() {
+            if(!draining && !cancelled && ((demand > 0 && !buffer.isEmpty()) || completed)) {
+                draining = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while(true) {
+                NodeChanges<T> next;
+                boolean finish;
+                synchronized (this) {
+                    if(cancelled) {
+                        draining = false;
+                        return;
+                    }
+                    next = demand > 0 ? buffer.pollFirst() : null;
+                    finish = next == null && completed && buffer.isEmpty();
+                    if(next == null && !finish) {
+                        draining = false;
+                        return;
+                    }
+                    if(next != null) {
+                        demand--;
+                    } else {
+                        cancelled = true;
+                    }
+                }
+
+                try {
+                    if(finish) {
+                        remove(this);
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(next);
+                } catch (RuntimeException e) {
+                    cancel();
+                    subscriber.onError(e);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package execution;
+
+import sets.Set;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded least recently used cache of connectionsOf results. Entries are keyed by the contents of the set whose
+ * connections were united, so every connectionsOf node dereferencing the same nodes shares one entry, and are dropped
+ * as soon as the connections of any of those nodes change.
+ *
+ * @param <T> The type of the nodes
+ */
+public class ConnectionsCache<T> {
+    /**
+     * The bytes of an entry besides its result: the map entry, its key and the dependent entries of its nodes
+     */
+    private static final long ENTRY_BYTES = 2 * Footprint.entryBytes() + 16;
+    private static final long DEPENDENT_BYTES = Footprint.entryBytes();
+
+    private final int capacity;
+    private final LinkedHashMap<Key<T>, Set<T>> entries;
+    /**
+     * The keys of the entries reading the connections of each node
+     */
+    private final Map<T, java.util.Set<Key<T>>> dependents = new HashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+    private long bytes = 0;
+
+    /**
+     * @param capacity the most results held
+     */
+    public ConnectionsCache(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, not " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, .75f, true);
+    }
+
+    /**
+     * @param nodes the nodes whose connections are united
+     * @param context the connections the union is computed from on a miss
+     * @return the union of the connection sets of the nodes
+     */
+    synchronized Set<T> connectionsOf(Set<T> nodes, OperatorContext<T> context) {
+        Key<T> key = new Key<>(nodes);
+        Set<T> result = entries.get(key);
+        if(result != null) {
+            hits++;
+            return result;
+        }
+
+        misses++;
+        result = Set.unionAll(context.getConnections(nodes));
+        entries.put(key, result);
+        bytes += ENTRY_BYTES + result.estimatedBytes();
+        for(T node : nodes) {
+            dependents.computeIfAbsent(node, k -> new HashSet<>()).add(key);
+            bytes += DEPENDENT_BYTES;
+        }
+
+        if(entries.size() > capacity) {
+            Iterator<Map.Entry<Key<T>, Set<T>>> eldest = entries.entrySet().iterator();
+            Map.Entry<Key<T>, Set<T>> entry = eldest.next();
+            eldest.remove();
+            forget(entry.getKey(), entry.getValue());
+            evictions++;
+        }
+        return result;
+    }
+
+    /**
+     * Drops every entry reading the connections of a node, called when they change
+     */
+    synchronized void invalidate(T node) {
+        java.util.Set<Key<T>> keys = dependents.get(node);
+        if(keys == null) {
+            return;
+        }
+        for(Key<T> key : new ArrayList<>(keys)) {
+            Set<T> result = entries.remove(key);
+            if(result != null) {
+                forget(key, result);
+                invalidations++;
+            }
+        }
+    }
+
+    private void forget(Key<T> key, Set<T> result) {
+        bytes -= ENTRY_BYTES + result.estimatedBytes();
+        for(T node : key.nodes) {
+            java.util.Set<Key<T>> keys = dependents.get(node);
+            keys.remove(key);
+            if(keys.isEmpty()) {
+                dependents.remove(node);
+            }
+            bytes -= DEPENDENT_BYTES;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        dependents.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Adds the results not already counted as values, and the bookkeeping of the entries
+     */
+    synchronized void measure(Footprint footprint) {
+        long results = 0;
+        for(Set<T> result : entries.values()) {
+            results += result.estimatedBytes();
+            footprint.add(Footprint.Structure.CACHE, null, footprint.bytesOf(result));
+        }
+        footprint.add(Footprint.Structure.CACHE, null, bytes - results);
+    }
+
+    //Statistics -------------------------------------------------------------------------------------------------------
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the fraction of lookups answered from the cache, 0 before the first lookup
+     */
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * @return the number of entries dropped to stay within the capacity
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries dropped because the connections they read changed
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return an estimate of the heap held by the entries, including results also held as values
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries, %d bytes, hit rate %.3f, %d evictions, %d invalidations", entries.size(),
+                bytes, getHitRate(), evictions, invalidations);
+    }
+
+    /**
+     * A set compared by its contents
+     */
+    private static final class Key<T> {
+        private final Set<T> nodes;
+        private final int hash;
+
+        Key(Set<T> nodes) {
+            this.nodes = nodes;
+            this.hash = nodes.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            }
+            if(!(other instanceof Key)) {
+                return false;
+            }
+            @SuppressWarnings("unchecked")
+            Key<T> key = (Key<T>) other;
+            return hash == key.hash && nodes.equals(key.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -3,8 +3,13 @@ package execution;
 import sets.EmptySet;
 import sets.Set;
 import sets.SetBuilder;
+import sets.SetImp;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,7 +21,7 @@ public class Digraph<T> {
     /**
      * An Immutable empty set
      */
-    private final Set<T> EMPTY = new EmptySet<>();
+    private final Set<T> EMPTY = EmptySet.instance();
 
     /**
      * A mapping from a node represented by type T, to the Set of nodes it connects to
@@ -27,6 +32,16 @@ public class Digraph<T> {
      */
     private final Map<T, SetBuilder<T>> backwardConnections = new HashMap<>();
 
+    /**
+     * Whether empty entries are dropped and shrunken reverse sets trimmed as connections are removed
+     */
+    private boolean compact = false;
+
+    /**
+     * The log every update is appended to before it is applied, if any
+     */
+    private WriteAheadLog<T> log;
+
     /**
      * Empty Digraph Constructor
      */
@@ -53,6 +68,52 @@ public class Digraph<T> {
         }
     }
 
+    private Digraph(int expectedNodes) {
+        this.forwardConnections = new HashMap<>(Math.max(16, (int) (expectedNodes / .75f) + 1));
+    }
+
+    /**
+     * Builds the Digraph of the nodes 0 to nodeCount-1 directly from adjacency arrays, without an intermediate map
+     * @param nodeCount the number of nodes
+     * @param offsets the index in targets of the first connection of each node
+     * @param lengths the number of connections of each node
+     * @param targets the connections of every node
+     * @return the Digraph
+     */
+    public static Digraph<Integer> fromArrays(int nodeCount, int[] offsets, int[] lengths, int[] targets) {
+        Digraph<Integer> digraph = new Digraph<>(nodeCount);
+        List<Set<Integer>> forward = new ArrayList<>(nodeCount);
+        int[] inDegree = new int[nodeCount];
+
+        for(int node = 0; node < nodeCount; node++) {
+            Set<Integer> connections = SetImp.ofRange(targets, offsets[node], offsets[node] + lengths[node]);
+            forward.add(connections);
+            if(lengths[node] != 0) {
+                digraph.forwardConnections.put(node, connections);
+            }
+            for(int target : connections) {
+                inDegree[target]++;
+            }
+        }
+
+        List<SetBuilder<Integer>> reverse = new ArrayList<>(nodeCount);
+        for(int node = 0; node < nodeCount; node++) {
+            reverse.add(inDegree[node] == 0 ? null : new SetBuilder<>(inDegree[node]));
+        }
+        for(int node = 0; node < nodeCount; node++) {
+            for(int target : forward.get(node)) {
+                reverse.get(target).add(node);
+            }
+        }
+        for(int node = 0; node < nodeCount; node++) {
+            if(reverse.get(node) != null) {
+                digraph.backwardConnections.put(node, reverse.get(node));
+            }
+        }
+
+        return digraph;
+    }
+
     /**
      * Updates the connection set of the given node to be the new connection set
      * @param node the given node
@@ -60,8 +121,9 @@ public class Digraph<T> {
      * @return change indicator
      */
     public synchronized boolean update(T node, Set<T> newConnections) {
+        logUpdate(node, newConnections);
         Set<T> oldConnections = get(node);              //Replaces null values with EmptySet
-        forwardConnections.put(node, newConnections);
+        putForward(node, newConnections);
         boolean changed = false;
 
         SetBuilder<T> temp;
@@ -79,7 +141,7 @@ public class Digraph<T> {
 
         for(T oldConnection : oldConnections) {
             if(!newConnections.contains(oldConnection)) {
-                backwardConnections.get(oldConnection).remove(node);
+                removeReverse(oldConnection, node);
                 changed = true;
             }
         }
@@ -88,8 +150,9 @@ public class Digraph<T> {
     }
 
     public synchronized SetBuilder<T> updateWithDiff(T node, Set<T> newConnections) {
+        logUpdate(node, newConnections);
         Set<T> oldConnections = get(node);              //Replaces null values with EmptySet
-        forwardConnections.put(node, newConnections);
+        putForward(node, newConnections);
 
         SetBuilder<T> output = new SetBuilder<>();
         SetBuilder<T> temp;
@@ -107,7 +170,7 @@ public class Digraph<T> {
 
         for(T oldConnection : oldConnections) {
             if(!newConnections.contains(oldConnection)) {
-                backwardConnections.get(oldConnection).remove(node);
+                removeReverse(oldConnection, node);
                 output.add(node);
             }
         }
@@ -115,6 +178,134 @@ public class Digraph<T> {
         return output;
     }
 
+    /**
+     * @param log the log updates are appended to before they are applied, null to stop logging
+     */
+    public synchronized void setLog(WriteAheadLog<T> log) {
+        this.log = log;
+    }
+
+    /**
+     * Appends an update to the log, if there is one. Subclasses call this before applying an update.
+     */
+    protected void logUpdate(T node, Set<T> newConnections) {
+        if(log == null) {
+            return;
+        }
+        try {
+            log.append(node, newConnections);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void putForward(T node, Set<T> newConnections) {
+        if(compact && newConnections.isEmpty()) {
+            forwardConnections.remove(node);
+        } else {
+            forwardConnections.put(node, newConnections);
+        }
+    }
+
+    private void removeReverse(T target, T node) {
+        SetBuilder<T> readers = backwardConnections.get(target);
+        if(readers == null) {
+            //The target was removed before the node connecting to it
+            return;
+        }
+        readers.remove(node);
+        if(compact) {
+            if(readers.size() == 0) {
+                backwardConnections.remove(target);
+            } else {
+                readers.trim();
+            }
+        }
+    }
+
+    /**
+     * Drops a node nothing live connects to any more: its connection set, its place in the reverse sets of its
+     * targets and its own reverse set. The removal is logged as an update to the empty set.
+     * @param node the node being removed
+     */
+    public synchronized void remove(T node) {
+        logUpdate(node, EMPTY);
+        for(T target : get(node)) {
+            removeReverse(target, node);
+        }
+        forwardConnections.remove(node);
+        backwardConnections.remove(node);
+    }
+
+    /**
+     * @param node the given node
+     * @return whether the Digraph holds a connection or reverse entry for the node
+     */
+    synchronized boolean holds(T node) {
+        return forwardConnections.containsKey(node) || backwardConnections.containsKey(node);
+    }
+
+    /**
+     * @return every node the Digraph holds an entry for, nodes with both entries may appear twice
+     */
+    synchronized List<T> nodes() {
+        List<T> output = new ArrayList<>(forwardConnections.size() + backwardConnections.size());
+        output.addAll(forwardConnections.keySet());
+        output.addAll(backwardConnections.keySet());
+        return output;
+    }
+
+    /**
+     * In compact mode empty connection and reverse sets are dropped rather than kept, and reverse sets which removals
+     * have left mostly empty are copied into smaller tables. Enabling it sweeps the existing entries.
+     * @param compact whether the Digraph should be compact
+     */
+    public synchronized void setCompact(boolean compact) {
+        this.compact = compact;
+        if(compact) {
+            forwardConnections.values().removeIf(Set::isEmpty);
+            backwardConnections.values().removeIf(readers -> readers.size() == 0);
+            for(SetBuilder<T> readers : backwardConnections.values()) {
+                readers.trim();
+            }
+        }
+    }
+
+    protected boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Adds the estimated size of the Digraph to a Footprint
+     * @param footprint the footprint
+     * @param forward the structure the forward connections are counted against
+     * @param reverse the structure the reverse connections are counted against
+     * @param classes the class of each node, SIMPLE when missing
+     */
+    synchronized void measure(Footprint footprint, Footprint.Structure forward, Footprint.Structure reverse,
+                              Map<T, NodeClass> classes) {
+        measureForward(footprint, forward, classes, forwardConnections);
+        measureReverse(footprint, reverse, classes, backwardConnections);
+    }
+
+    static <U> void measureForward(Footprint footprint, Footprint.Structure structure, Map<U, NodeClass> classes,
+                                   Map<U, Set<U>> sets) {
+        footprint.add(structure, null, Footprint.mapBytes(sets.size(), sets.size()));
+        for(Map.Entry<U, Set<U>> entry : sets.entrySet()) {
+            footprint.add(structure, classes.getOrDefault(entry.getKey(), NodeClass.SIMPLE),
+                    Footprint.entryBytes() + footprint.bytesOf(entry.getValue()));
+        }
+    }
+
+    static <U> void measureReverse(Footprint footprint, Footprint.Structure structure, Map<U, NodeClass> classes,
+                                   Map<U, SetBuilder<U>> builders) {
+        footprint.add(structure, null, Footprint.mapBytes(builders.size(), builders.size()));
+        for(Map.Entry<U, SetBuilder<U>> entry : builders.entrySet()) {
+            footprint.add(structure, classes.getOrDefault(entry.getKey(), NodeClass.SIMPLE),
+                    Footprint.entryBytes() + footprint.bytesOf(entry.getValue()));
+        }
+    }
+
     /**
      * Queries the nodes that the given node connects to
      * @param node the given node
@@ -134,6 +325,29 @@ public class Digraph<T> {
      * @return the set of all nodes who connect to the given node
      */
     public synchronized Set<T> getReverse(T node) {
-        return backwardConnections.get(node).toSet();
+        SetBuilder<T> connections = backwardConnections.get(node);
+        if(connections == null) {
+            return EMPTY;
+        }
+        return connections.toSet();
+    }
+
+    /**
+     * @param set a connection set which may be missing
+     * @return the set, or the immutable empty set in place of null
+     */
+    protected Set<T> orEmpty(Set<T> set) {
+        if(set == null) {
+            return EMPTY;
+        }
+        return set;
+    }
+
+    /**
+     * Copies the forward connections of the Digraph, the connection sets themselves are immutable and shared
+     * @return a mapping from each node to its connection set
+     */
+    public synchronized Map<T, Set<T>> toMap() {
+        return new HashMap<>(forwardConnections);
     }
 }
@@ -3,19 +3,54 @@ package execution;
 import sets.*;
 import execution.ExecutionException.*;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 //TODO: Ensure nodes whose NodeClass have changed are queued for update
 //TODO: Queue connectionsOf operations for update that operate on modified nodes
 //TODO: Make value updates within a step parallel to ensure Determinism (WIP)
-//TODO: Handle multi-assignment case
 
 public class Execution<T> {
     private static final boolean DEBUG = false;
 
-    private final Set<T> emptySet = new EmptySet<>();
+    /**
+     * Steps with at least this many assignments evaluate them in parallel
+     */
+    private static final int PARALLEL_ASSIGNMENTS = 256;
+
+    /**
+     * The nodes executeFor evaluates between releasing the Execution
+     */
+    public static final int SLICE_NODES = 1024;
+
+    /**
+     * An arbitrary order of the assignment nodes which does not depend on the order they were evaluated in
+     */
+    static final Comparator<Object> DEFAULT_PRIORITY =
+            Comparator.comparingInt(Object::hashCode).thenComparing(Object::toString);
+
+    private final Set<T> emptySet = EmptySet.instance();
 
     private final NodeClassTable<T> classTable;
     private Set<T> opNodes;
@@ -27,8 +62,61 @@ public class Execution<T> {
     private final Digraph<T> values;
 
     private final SetBuilder<T> nextUpdate = new SetBuilder<>();
-    private final Map<T, Set<T>> valueChanges = new HashMap<>();
+    private Map<T, Set<T>> valueChanges = new HashMap<>();
+    private int largestValueChanges = 0;
     private final SetBuilder<T> nextAssignments = new SetBuilder<>();
+    private AssignmentConflict assignmentConflict = AssignmentConflict.PRIORITY;
+    private Comparator<? super T> assignmentPriority = DEFAULT_PRIORITY;
+
+    private ConnectionsCache<T> connectionsCache;
+
+    /**
+     * Updates from producer threads waiting for the next step boundary, and the writes dropped for a later write to
+     * the same node
+     */
+    private final ConcurrentLinkedQueue<Map.Entry<T, Set<T>>> ingested = new ConcurrentLinkedQueue<>();
+    private long coalesced = 0;
+
+    /**
+     * Demand-driven mode: only the cone of the nodes of interest is evaluated by steps, operators outside it are
+     * brought up to date when demanded. Null interest evaluates every node. The cone's expanded nodes are those whose
+     * connections are its edges, rewiring one of them or a class node recomputes the cone.
+     */
+    private java.util.Set<T> interest;
+    private java.util.Set<T> cone;
+    private java.util.Set<T> coneExpanded;
+    private java.util.Set<T> coneEntering = new HashSet<>();
+    private boolean coneStale = false;
+    private final java.util.Set<T> dirty = new HashSet<>();
+    private final Map<T, Long> changedAt = new HashMap<>();
+    private final Map<T, Long> verifiedAt = new HashMap<>();
+    private long clock = 0;
+    private long lazySince = 0;
+    private boolean cyclicRefresh = false;
+    private long evaluations = 0;
+
+    /**
+     * Asynchronous mode: sub-steps whose frontier only holds monotone operators are propagated to quiescence by
+     * worker threads pulling from a shared queue, without a barrier between evaluations. The monotone class nodes are
+     * found from the declared operator properties at the start of every step.
+     */
+    private ExecutorService asyncThreads;
+    private int asyncWorkers = 0;
+    private Set<T> monotoneClasses = emptySet;
+    private long asyncEvaluations = 0;
+
+    private final List<StepListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private long step = 0;
+
+    /**
+     * The state of a step paused by executeNodes, and the updates made while it is paused
+     */
+    private boolean stepInProgress = false;
+    private Set<T> updateSet = emptySet;
+    private Iterator<T> updateIterator;
+    private int subStep = 0;
+    private final Map<T, Set<T>> deferredUpdates = new LinkedHashMap<>();
+    private boolean compact = false;
 
     public Execution(NodeClassTable<T> classTable, Digraph<T> connections, Digraph<T> values) {
         this.classTable = classTable;
@@ -39,92 +127,908 @@ public class Execution<T> {
     }
 
     public synchronized boolean executeStep() throws ExecutionException {
+        executeNodes(Long.MAX_VALUE);
+        return nextUpdate.size() != 0 || !ingested.isEmpty();
+    }
+
+    /**
+     * Runs the current step for at most a period of time, releasing the Execution between slices of SLICE_NODES
+     * node evaluations so queries and updates can interleave. The assignment phase ending a step is not divided.
+     * @param period the time to run for
+     * @return whether the step completed, otherwise the next call resumes it
+     */
+    public boolean executeFor(Duration period) throws ExecutionException {
+        long deadline = System.nanoTime() + period.toNanos();
+        do {
+            if(executeNodes(SLICE_NODES)) {
+                return true;
+            }
+        } while(System.nanoTime() - deadline < 0);
+        return false;
+    }
+
+    /**
+     * Evaluates at most budget nodes of the current step, starting a step if none is in progress. A step paused
+     * between evaluations holds its frontier and pending value changes and completes exactly as it would have
+     * without pausing. Queries made while it is paused see the values of its completed sub-steps, updates are
+     * deferred until it completes.
+     * @param budget the most nodes to evaluate, at least 1
+     * @return whether the step completed
+     */
+    public synchronized boolean executeNodes(long budget) throws ExecutionException {
+        if(budget < 1) {
+            throw new IllegalArgumentException("Budget must be positive, not " + budget);
+        }
+        if(!stepInProgress) {
+            beginStep();
+        }
+        //A propagation cannot stop part way, so only unbounded steps propagate asynchronously
+        boolean asynchronous = asyncWorkers > 0 && cone == null && budget == Long.MAX_VALUE;
+
+        try {
+            while(updateSet.hasContents()) {
+                if(updateIterator == null && asynchronous && isMonotone(updateSet)) {
+                    propagate(updateSet);
+                    continue;
+                }
+                if(updateIterator == null) {
+                    if(DEBUG) System.out.println("> Loop cycle " + subStep++ + "");
+                    if(DEBUG) System.out.println();
+                    updateIterator = updateSet.iterator();
+                }
+                while(updateIterator.hasNext()) {
+                    if(budget-- <= 0) {
+                        return false;
+                    }
+                    evaluate(updateIterator.next());
+                }
+                updateIterator = null;
+                applyValueChanges();
+            }
+            finishStep();
+        } catch (ExecutionException | RuntimeException e) {
+            abortStep();
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether a step was paused before completing
+     */
+    public synchronized boolean isStepInProgress() {
+        return stepInProgress;
+    }
+
+    private void beginStep() throws ExecutionException {
+        loadClasses();
+        if(applyIngested()) {
+            loadClasses();
+        }
+        ensureCone();
+        if(asyncWorkers > 0) {
+            monotoneClasses = findMonotoneClasses();
+        }
+
+        updateSet = nextUpdate.toSet();
+        nextUpdate.clear();
+        subStep = 0;
+        stepInProgress = true;
+    }
+
+    private void loadClasses() {
         opNodes = getConnectionsFrom(classTable.nodeFor(NodeClass.OPERATION));
         literalNodes = getConnectionsFrom(classTable.nodeFor(NodeClass.LITERAL));
         connectionsOfNodes = getConnectionsFrom(classTable.nodeFor(NodeClass.CONNECTIONS_OF));
         assignmentNodes = getConnectionsFrom(classTable.nodeFor(NodeClass.ASSIGNMENT));
+    }
+
+    private void evaluate(T currentNode) throws ExecutionException {
+        Set<T> classNodes = getClassNodes(currentNode);
+        NodeClass currentNodeClass = getNodeClass(currentNode, classNodes);
+
+        switch (currentNodeClass) {
+            case ASSIGNMENT:
+                nextAssignments.add(currentNode);
+                return;
+
+            case ASSIGNMENT_VALUE:
+                nextAssignments.addAll(getConnectionsTo(currentNode).intersect(assignmentNodes));
+                return;
+
+            case OPERATION:
+            case SIMPLE:
+                return;
+
+            case INVALID:
+                throw new InvalidOperation("Invalid Operation Type Evaluated");
+        }
+
+        if(cone != null && !cone.contains(currentNode)) {
+            dirty.add(currentNode);
+            return;
+        }
+        evaluations++;
+        valueChanges.put(currentNode, processNode(currentNode, classNodes.iterator().next()));
+    }
+
+    /**
+     * Applies the values evaluated by a sub-step and moves to the nodes they affect
+     */
+    private void applyValueChanges() {
+        largestValueChanges = Math.max(largestValueChanges, valueChanges.size());
+
+        Iterator<Map.Entry<T,Set<T>>> it = valueChanges.entrySet().iterator();
+        Map.Entry<T,Set<T>> entry;
+
+        while(it.hasNext()) {
+            entry = it.next();
+            if (updateValuesAt(entry.getKey(), entry.getValue())) {
+                nextUpdate.addAll(getConnectionsTo(entry.getKey()));
+            }
+            it.remove();
+        }
 
-        Set<T> updateSet = nextUpdate.toSet();
+        updateSet = nextUpdate.toSet();
         nextUpdate.clear();
+    }
 
-        NodeClass currentNodeClass;
-        int count = 0;
+    /**
+     * Drops the partial work of a step which failed, keeping the updates it deferred
+     */
+    private void abortStep() {
+        stepInProgress = false;
+        updateSet = emptySet;
+        updateIterator = null;
+        valueChanges.clear();
+        nextAssignments.clear();
+        applyDeferredUpdates();
+    }
 
-        while(updateSet.hasContents()) {
-            if(DEBUG) System.out.println("> Loop cycle " + count++ + "");
-            if(DEBUG) System.out.println();
+    private void applyDeferredUpdates() {
+        for(Map.Entry<T, Set<T>> entry : deferredUpdates.entrySet()) {
+            update(entry.getKey(), entry.getValue());
+        }
+        deferredUpdates.clear();
+    }
 
-            //TODO: Add queueing system to push updates to the value sets at the end of each sub-step
-            for(T currentNode : updateSet) {
-                currentNodeClass = getNodeClass(currentNode);
+    private void finishStep() throws ExecutionException {
+        stepInProgress = false;
 
-                switch (currentNodeClass) {
-                    case ASSIGNMENT:
-                        nextAssignments.add(currentNode);
-                        continue;
+        //A HashMap never shrinks, a step which changed many values would leave a large empty table behind
+        if(compact && largestValueChanges > 1024) {
+            valueChanges = new HashMap<>();
+            largestValueChanges = 0;
+        }
 
-                    case ASSIGNMENT_VALUE:
-                        nextAssignments.addAll(getConnectionsTo(currentNode).intersect(assignmentNodes));
-                        continue;
+        //*** Process the Queued Assignments ***
+        //Every assignment is evaluated against the state left by the sub-steps, then all of them are applied at once
+        List<T> pendingAssignments = new ArrayList<>(nextAssignments.size());
+        for(T currentAssignment : nextAssignments.toSet()) {
+            pendingAssignments.add(currentAssignment);
+        }
+        nextAssignments.clear();
 
-                    case OPERATION:
-                    case SIMPLE:
-                        continue;
+        List<Assignment<T>> evaluated = (pendingAssignments.size() >= PARALLEL_ASSIGNMENTS
+                ? pendingAssignments.parallelStream() : pendingAssignments.stream())
+                .map(this::evaluateAssignment)
+                .collect(Collectors.toList());
+
+        for(Map.Entry<T, Set<T>> entry : resolveAssignments(evaluated, assignmentConflict, assignmentPriority).entrySet()) {
+            rewire(entry.getKey(), entry.getValue());
+        }
+
+        step++;
+        for(StepListener<T> listener : listeners) {
+            listener.stepCompleted(step);
+        }
+        applyDeferredUpdates();
+    }
+
+    /**
+     * Finds the nodes an assignment alters and the connections it gives them, without changing anything. Called
+     * concurrently for large steps, so it only reads.
+     */
+    private Assignment<T> evaluateAssignment(T assignment) {
+        SetBuilder<T> assignmentValues = new SetBuilder<>();
+        SetBuilder<T> alteredNodes = new SetBuilder<>();
+
+        for (T currentInput : getConnectionsFrom(assignment)) {
+            if(getNodeClass(currentInput) == NodeClass.ASSIGNMENT_VALUE) {
+                assignmentValues.addAll(Set.unionAll(getValues(getConnectionsFrom(currentInput))));
+            } else {
+                alteredNodes.addAll(getValues(currentInput));
+            }
+        }
 
-                    case INVALID:
-                        throw new InvalidOperation("Invalid Operation Type Evaluated");
+        if(DEBUG) System.out.println("Assign: " + alteredNodes.toSet() + " = " + assignmentValues.toSet());
+        return new Assignment<>(assignment, alteredNodes.toSet(), assignmentValues.toSet());
+    }
+
+    /**
+     * Merges the evaluated assignments into the new connections of every altered node, resolving nodes given
+     * different connections by different assignments with the conflict policy. Shared with PartitionWorker, which
+     * resolves the assignments of every worker the same way.
+     */
+    static <T> Map<T, Set<T>> resolveAssignments(List<Assignment<T>> evaluated, AssignmentConflict assignmentConflict,
+                                                 Comparator<? super T> assignmentPriority) throws ExecutionException {
+        Map<T, Set<T>> output = new LinkedHashMap<>();
+        Map<T, T> writers = new HashMap<>();
+        Map<T, SetBuilder<Set<T>>> unions = new HashMap<>();
+
+        for(Assignment<T> assignment : evaluated) {
+            for(T target : assignment.targets) {
+                Set<T> previous = output.get(target);
+                if(previous == null) {
+                    output.put(target, assignment.value);
+                    writers.put(target, assignment.node);
+                    continue;
+                }
+                if(previous == assignment.value) {
+                    continue;
                 }
 
-                valueChanges.put(currentNode, processNode(currentNode, currentNodeClass));
+                switch (assignmentConflict) {
+                    case UNION:
+                        unions.computeIfAbsent(target, key -> {
+                            SetBuilder<Set<T>> values = new SetBuilder<>();
+                            values.add(previous);
+                            return values;
+                        }).add(assignment.value);
+                        break;
+                    case ERROR:
+                        if(!previous.equals(assignment.value)) {
+                            throw new NonDeterministicExecution("Assignments " + writers.get(target) + " and "
+                                    + assignment.node + " give " + target + " different connections");
+                        }
+                        break;
+                    case PRIORITY:
+                        if(assignmentPriority.compare(assignment.node, writers.get(target)) > 0) {
+                            output.put(target, assignment.value);
+                            writers.put(target, assignment.node);
+                        }
+                        break;
+                }
+            }
+        }
+
+        for(Map.Entry<T, SetBuilder<Set<T>>> entry : unions.entrySet()) {
+            output.put(entry.getKey(), Set.unionAll(entry.getValue().toSet()));
+        }
+        return output;
+    }
+
+    /**
+     * @param policy how assignments giving the same node different connections in one step are resolved, by default
+     *               PRIORITY over an arbitrary fixed order of the assignment nodes
+     */
+    public synchronized void setAssignmentConflict(AssignmentConflict policy) {
+        this.assignmentConflict = policy;
+    }
+
+    /**
+     * Resolves conflicting assignments by priority from now on
+     * @param priority a total order of the assignment nodes, the greatest of the conflicting assignments wins
+     */
+    public synchronized void setAssignmentPriority(Comparator<? super T> priority) {
+        this.assignmentPriority = priority;
+        this.assignmentConflict = AssignmentConflict.PRIORITY;
+    }
+
+    /**
+     * Replaces the connections of a node between steps, queueing the same updates an assignment to it would. While
+     * a step is paused the update is deferred until it completes.
+     *
+     * @param node the node being updated
+     * @param newConnections the nodes new connections
+     * @return whether the connection set changed, true for a deferred update
+     */
+    public synchronized boolean update(T node, Set<T> newConnections) {
+        if(stepInProgress) {
+            deferredUpdates.put(node, newConnections);
+            return true;
+        }
+        literalNodes = getConnectionsFrom(classTable.nodeFor(NodeClass.LITERAL));
+        connectionsOfNodes = getConnectionsFrom(classTable.nodeFor(NodeClass.CONNECTIONS_OF));
+        return rewire(node, newConnections);
+    }
+
+    /**
+     * Queues new connections for a node, to be applied with every other update queued before the next step starts.
+     * Safe to call from any thread without holding the Execution, a later update to the same node replaces an earlier
+     * one still waiting.
+     * @param node the node being updated
+     * @param newConnections the nodes new connections
+     */
+    public void ingest(T node, Set<T> newConnections) {
+        ingested.add(Map.entry(node, newConnections));
+    }
+
+    /**
+     * @return the ingested updates dropped because a later one to the same node arrived before they were applied
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Applies the updates ingested so far as one batch, keeping the last write to each node, which queues the
+     * literals and connectionsOf nodes they affect. Updates ingested while it drains wait for the next step.
+     * @return whether any update was applied
+     */
+    private boolean applyIngested() {
+        Map<T, Set<T>> batch = new LinkedHashMap<>();
+        int writes = 0;
+        for(Map.Entry<T, Set<T>> entry = ingested.poll(); entry != null; entry = ingested.poll()) {
+            batch.put(entry.getKey(), entry.getValue());
+            writes++;
+        }
+        coalesced += writes - batch.size();
+        for(Map.Entry<T, Set<T>> entry : batch.entrySet()) {
+            rewire(entry.getKey(), entry.getValue());
+        }
+        return !batch.isEmpty();
+    }
+
+    /**
+     * Changes the connections of a node and queues the literal it may be and the connectionsOf nodes reading it
+     */
+    private boolean rewire(T node, Set<T> newConnections) {
+        if(!updateConnectionsFrom(node, newConnections)) {
+            return false;
+        }
+        if(cone != null && (coneExpanded.contains(node) || isClassNode(node))) {
+            coneStale = true;
+        }
+
+        if(literalNodes.contains(node)) {
+            nextUpdate.add(node);
+        }
+        nextUpdate.addAll(values.getReverse(node).intersect(connectionsOfNodes));
+        return true;
+    }
+
+    private boolean isClassNode(T node) {
+        T operation = classTable.nodeFor(NodeClass.OPERATION);
+        return node.equals(operation) || getConnectionsFrom(operation).contains(node);
+    }
+
+    //Demand-driven mode -----------------------------------------------------------------------------------------------
+    /**
+     * Limits the evaluation of steps to the nodes of interest and the nodes they and the assignments depend on.
+     * Operators outside that cone are marked dirty instead of being evaluated, queryValue returns what they were last
+     * evaluated to and demandValue brings them up to date. Must be called between steps.
+     * @param nodes the nodes of interest, null or empty to evaluate every node again, which first brings every node
+     *              outside the cone up to date
+     */
+    public synchronized void setInterest(Collection<T> nodes) throws ExecutionException {
+        if(stepInProgress) {
+            throw new IllegalStateException("Cannot change the nodes of interest while a step is paused");
+        }
+        loadClasses();
+        if(nodes == null || nodes.isEmpty()) {
+            if(cone != null) {
+                pull(outsideCone());
             }
+            interest = null;
+            cone = null;
+            coneExpanded = null;
+            dirty.clear();
+            changedAt.clear();
+            verifiedAt.clear();
+            return;
+        }
+        interest = new HashSet<>(nodes);
+        if(cone == null) {
+            lazySince = clock;
+            cone = computeCone();
+        } else {
+            coneStale = true;
+            ensureCone();
+        }
+    }
+
+    /**
+     * Brings a node up to date, evaluating the operators outside the cone it depends on which are not
+     * @param node the given node
+     * @return the value of the node
+     */
+    public synchronized Set<T> demandValue(T node) throws ExecutionException {
+        if(cone == null) {
+            return getValues(node);
+        }
+        if(stepInProgress) {
+            throw new IllegalStateException("Cannot demand values while a step is paused");
+        }
+        loadClasses();
+        ensureCone();
+        if(!cone.contains(node)) {
+            pull(List.of(node));
+        }
+        return getValues(node);
+    }
+
+    /**
+     * @return the nodes evaluated so far, by steps and on demand
+     */
+    public synchronized long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return the nodes steps evaluate in demand-driven mode, null when every node is evaluated
+     */
+    public synchronized java.util.Set<T> getCone() {
+        return cone == null ? null : new HashSet<>(cone);
+    }
 
-            Iterator<Map.Entry<T,Set<T>>> it = valueChanges.entrySet().iterator();
-            Map.Entry<T,Set<T>> entry;
+    /**
+     * Recomputes a stale cone. Nodes entering it are brought up to date and the readers of those which changed are
+     * queued, nodes leaving it are current until their inputs change.
+     */
+    private void ensureCone() throws ExecutionException {
+        if(cone == null || !coneStale) {
+            return;
+        }
+        coneStale = false;
+        java.util.Set<T> previous = cone;
+        cone = computeCone();
+
+        for(T node : previous) {
+            if(!cone.contains(node)) {
+                verifiedAt.put(node, clock);
+            }
+        }
+        for(T node : cone) {
+            if(!previous.contains(node)) {
+                coneEntering.add(node);
+            }
+        }
+        try {
+            for(T changed : pull(coneEntering)) {
+                nextUpdate.addAll(getConnectionsTo(changed));
+            }
+        } finally {
+            coneEntering.clear();
+        }
+    }
 
-            while(it.hasNext()) {
-                entry = it.next();
-                if (updateValuesAt(entry.getKey(), entry.getValue())) {
-                    nextUpdate.addAll(getConnectionsTo(entry.getKey()));
+    /**
+     * @return the backward closure of the nodes of interest and the assignments over the inputs of operators
+     */
+    private java.util.Set<T> computeCone() {
+        java.util.Set<T> output = new HashSet<>(interest);
+        output.addAll(collect(getConnectionsFrom(classTable.nodeFor(NodeClass.ASSIGNMENT))));
+        ArrayDeque<T> frontier = new ArrayDeque<>(output);
+        coneExpanded = new HashSet<>();
+        while(!frontier.isEmpty()) {
+            T node = frontier.poll();
+            //Literals and simple nodes do not read the values of their connections
+            if(literalNodes.contains(node) || getClassNodes(node).isEmpty()) {
+                continue;
+            }
+            coneExpanded.add(node);
+            for(T input : getConnectionsFrom(node)) {
+                if(output.add(input)) {
+                    frontier.add(input);
                 }
-                it.remove();
             }
+        }
+        return output;
+    }
 
-            updateSet = nextUpdate.toSet();
-            nextUpdate.clear();
+    private java.util.Set<T> collect(Set<T> nodes) {
+        java.util.Set<T> output = new HashSet<>();
+        for(T node : nodes) {
+            output.add(node);
+        }
+        return output;
+    }
 
+    /**
+     * @return the operators outside the cone
+     */
+    private List<T> outsideCone() {
+        List<T> output = new ArrayList<>();
+        for(T classNode : opNodes) {
+            for(T member : getConnectionsFrom(classNode)) {
+                if(!cone.contains(member)) {
+                    output.add(member);
+                }
+            }
         }
+        return output;
+    }
 
-        //*** Process the Queued Assignments ***
-        Set<T> inputNodes;
-        SetBuilder<T> assignmentValues;
-        SetBuilder<T> alteredNodes;
+    /**
+     * Brings nodes up to date, repeating while a cycle among them keeps changing values
+     * @return the nodes whose value changed
+     */
+    private List<T> pull(Collection<T> nodes) throws ExecutionException {
+        List<T> changed = new ArrayList<>();
+        do {
+            cyclicRefresh = false;
+            Map<T, Boolean> visited = new HashMap<>();
+            int before = changed.size();
+            for(T node : nodes) {
+                refresh(node, visited, changed);
+            }
+            if(changed.size() == before) {
+                break;
+            }
+        } while(cyclicRefresh);
+        return changed;
+    }
 
-        for(T currentAssignment : nextAssignments.toSet()) {
-            inputNodes = getConnectionsFrom(currentAssignment);
-            assignmentValues = new SetBuilder<>();
-            alteredNodes = new SetBuilder<>();
-
-            for (T currentInput : inputNodes) {
-                if(getNodeClass(currentInput) == NodeClass.ASSIGNMENT_VALUE) {
-                    assignmentValues.addAll(Set.unionAll(getValues(getConnectionsFrom(currentInput))));
-                } else {
-                    alteredNodes.addAll(getValues(currentInput));
+    /**
+     * Brings a node not maintained by steps up to date, first bringing up to date the inputs it reads which are not
+     * maintained either. The node is evaluated when it was marked dirty or an input changed since it was verified.
+     */
+    private void refresh(T node, Map<T, Boolean> visited, List<T> changed) throws ExecutionException {
+        if(visited.containsKey(node)) {
+            cyclicRefresh |= !visited.get(node);
+            return;
+        }
+        Set<T> classNodes = getClassNodes(node);
+        NodeClass nodeClass = getNodeClass(node, classNodes);
+        switch (nodeClass) {
+            case ASSIGNMENT:
+            case ASSIGNMENT_VALUE:
+            case OPERATION:
+            case SIMPLE:
+            case INVALID:
+                return;
+        }
+        visited.put(node, false);
+
+        long verified = verifiedAt.getOrDefault(node, lazySince);
+        boolean stale = dirty.remove(node);
+        if(nodeClass != NodeClass.LITERAL) {
+            for(T input : getConnectionsFrom(node)) {
+                if(!cone.contains(input) || coneEntering.contains(input)) {
+                    refresh(input, visited, changed);
+                }
+                stale |= changedAt.getOrDefault(input, 0L) > verified;
+            }
+        }
+        if(stale) {
+            evaluations++;
+            if(updateValuesAt(node, processNode(node, classNodes.iterator().next()))) {
+                changed.add(node);
+            }
+        }
+        verifiedAt.put(node, clock);
+        visited.put(node, true);
+    }
+
+    //Asynchronous mode -----------------------------------------------------------------------------------------------
+    /**
+     * Propagates sub-steps made only of monotone operators, LITERAL, UNION, CONNECTIONS_OF and custom operators
+     * declaring MONOTONIC, with worker threads instead of synchronous sub-steps. Their fixpoint does not depend on the
+     * order of evaluation, readers outside that set are evaluated synchronously once the workers are quiescent.
+     * Listeners see the net change of each node a propagation changed. Only executeStep propagates asynchronously,
+     * executeNodes and executeFor keep to their budget by evaluating synchronously, and so does demand-driven mode.
+     * @param workers the number of worker threads, 0 to evaluate every sub-step synchronously
+     */
+    public synchronized void setAsynchronous(int workers) {
+        if(workers < 0) {
+            throw new IllegalArgumentException("Workers must not be negative, not " + workers);
+        }
+        if(asyncThreads != null) {
+            asyncThreads.shutdown();
+            asyncThreads = null;
+        }
+        asyncWorkers = workers;
+        if(workers > 0) {
+            asyncThreads = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "async-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            loadClasses();
+            monotoneClasses = findMonotoneClasses();
+        }
+    }
+
+    /**
+     * @return the nodes evaluated by asynchronous propagation so far
+     */
+    public synchronized long getAsynchronousEvaluations() {
+        return asyncEvaluations;
+    }
+
+    /**
+     * INTERSECT declares MONOTONIC but, like DIFFERENCE, is kept synchronous: values may shrink within a step and
+     * only the union-like operators are known to settle the same way under any order then
+     */
+    private Set<T> findMonotoneClasses() {
+        SetBuilder<T> output = new SetBuilder<>();
+        for(T classNode : opNodes) {
+            NodeClass nodeClass = classTable.classOf(classNode);
+            Operator<T> operator = classTable.operatorOf(classNode);
+            if(nodeClass == NodeClass.LITERAL || nodeClass == NodeClass.UNION || nodeClass == NodeClass.CONNECTIONS_OF
+                    || (nodeClass == NodeClass.CUSTOM && operator != null
+                        && operator.has(OperatorProperty.MONOTONIC))) {
+                output.add(classNode);
+            }
+        }
+        return output.toSet();
+    }
+
+    private boolean isMonotone(T node) {
+        Set<T> classNodes = getClassNodes(node);
+        return classNodes.size() == 1 && monotoneClasses.contains(classNodes.iterator().next());
+    }
+
+    private boolean isMonotone(Set<T> nodes) {
+        for(T node : nodes) {
+            if(!isMonotone(node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates monotone nodes from a frontier until none of them changes. The new values are applied once the
+     * workers are done and the readers which are not monotone become the next synchronous sub-step.
+     */
+    private void propagate(Set<T> frontier) throws ExecutionException {
+        Propagation propagation = new Propagation();
+        for(T node : frontier) {
+            propagation.schedule(node);
+        }
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for(int i = 0; i < asyncWorkers; i++) {
+            workers.add(propagation::work);
+        }
+        try {
+            for(Future<Void> future : asyncThreads.invokeAll(workers)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while propagating asynchronously", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IllegalStateException("Asynchronous propagation failed", e.getCause());
+        }
+        if(propagation.failure.get() != null) {
+            throw propagation.failure.get();
+        }
+
+        evaluations += propagation.evaluated.get();
+        asyncEvaluations += propagation.evaluated.get();
+        for(Map.Entry<T, Set<T>> entry : propagation.changed.entrySet()) {
+            updateValuesAt(entry.getKey(), entry.getValue());
+        }
+        SetBuilder<T> next = new SetBuilder<>();
+        for(T node : propagation.fallback) {
+            next.add(node);
+        }
+        updateSet = next.toSet();
+    }
+
+    /**
+     * One asynchronous propagation. A node is in the queue at most once and is evaluated by one worker at a time, an
+     * input changing while it is evaluated marks it to be evaluated again by the worker holding it, so its last
+     * evaluation reads the final values of its inputs. Idle workers block on the queue until the worker finishing the
+     * last node releases them.
+     */
+    private final class Propagation implements OperatorContext<T> {
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int RERUN = 2;
+
+        private final Object done = new Object();
+        private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        private final Map<T, Integer> states = new ConcurrentHashMap<>();
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        final Map<T, Set<T>> changed = new ConcurrentHashMap<>();
+        final java.util.Set<T> fallback = ConcurrentHashMap.newKeySet();
+        final AtomicLong evaluated = new AtomicLong();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        @Override
+        public Set<T> getValues(T node) {
+            Set<T> value = changed.get(node);
+            return value == null ? Execution.this.getValues(node) : value;
+        }
+
+        @Override
+        public Set<T> getConnections(T node) {
+            return getConnectionsFrom(node);
+        }
+
+        void schedule(T node) {
+            boolean[] enqueue = new boolean[1];
+            states.compute(node, (key, state) -> {
+                if(state == null) {
+                    enqueue[0] = true;
+                    return QUEUED;
                 }
+                return state == RUNNING ? RERUN : state;
+            });
+            //The worker scheduling a reader still counts its own node, so outstanding cannot reach 0 in between
+            if(enqueue[0]) {
+                outstanding.incrementAndGet();
+                queue.add(node);
             }
+        }
 
-            if(DEBUG) System.out.println("Assign: " + alteredNodes.toSet() + " = " + assignmentValues.toSet());
+        @SuppressWarnings("unchecked")
+        Void work() throws InterruptedException {
+            while(true) {
+                Object next = queue.take();
+                if(next == done) {
+                    return null;
+                }
+                T node = (T) next;
+                states.put(node, RUNNING);
+                boolean again = true;
+                while(again) {
+                    if(failure.get() == null) {
+                        evaluate(node);
+                    }
+                    again = states.compute(node, (key, state) -> state == RERUN ? RUNNING : null) != null;
+                }
+                if(outstanding.decrementAndGet() == 0) {
+                    for(int i = 0; i < asyncWorkers; i++) {
+                        queue.add(done);
+                    }
+                }
+            }
+        }
 
-            for(T alteredNode : alteredNodes.toSet()) {
-                if(updateConnectionsFrom(alteredNode, assignmentValues.toSet())) {
-                    if(literalNodes.contains(alteredNode)) {
-                        nextUpdate.add(alteredNode);
+        private void evaluate(T node) {
+            try {
+                Set<T> value = processNode(node, getClassNodes(node).iterator().next(), this);
+                evaluated.incrementAndGet();
+                if(!value.equals(getValues(node))) {
+                    changed.put(node, value);
+                    for(T reader : getConnectionsTo(node)) {
+                        if(isMonotone(reader)) {
+                            schedule(reader);
+                        } else {
+                            fallback.add(reader);
+                        }
                     }
-                    nextUpdate.addAll(values.getReverse(alteredNode).intersect(connectionsOfNodes));
                 }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
             }
         }
-        nextAssignments.clear();
-        return nextUpdate.size() != 0;
+    }
+
+    public void addListener(StepListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(StepListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * In compact mode empty connection, value and reverse entries are dropped, reverse sets left mostly empty by an
+     * assignment are copied into smaller tables and so is the table of pending value changes after a large step
+     * @param compact whether the Execution should be compact
+     */
+    public synchronized void setCompact(boolean compact) {
+        this.compact = compact;
+        connections.setCompact(compact);
+        values.setCompact(compact);
+    }
+
+    /**
+     * @return an estimate of the heap used by the connections, values and pending updates of this Execution
+     */
+    public synchronized Footprint footprint() {
+        Map<T, NodeClass> classes = new HashMap<>();
+        T operation = classTable.nodeFor(NodeClass.OPERATION);
+        classes.put(operation, NodeClass.OPERATION);
+        for(T classNode : getConnectionsFrom(operation)) {
+            classes.put(classNode, NodeClass.OPERATION);
+        }
+        for(T classNode : getConnectionsFrom(operation)) {
+            NodeClass nodeClass = classTable.classOf(classNode);
+            for(T member : getConnectionsFrom(classNode)) {
+                //Members of several classes are never evaluated
+                classes.merge(member, nodeClass, (first, second) -> first == second ? first : NodeClass.INVALID);
+            }
+        }
+
+        Footprint footprint = new Footprint();
+        connections.measure(footprint, Footprint.Structure.CONNECTIONS, Footprint.Structure.REVERSE_CONNECTIONS, classes);
+        values.measure(footprint, Footprint.Structure.VALUES, Footprint.Structure.REVERSE_VALUES, classes);
+        if(connectionsCache != null) {
+            connectionsCache.measure(footprint);
+        }
+
+        footprint.add(Footprint.Structure.PENDING, null, footprint.bytesOf(nextUpdate)
+                + footprint.bytesOf(nextAssignments)
+                + Footprint.mapBytes(valueChanges.size(), largestValueChanges));
+        return footprint;
+    }
+
+    /**
+     * Memoizes the unions computed by connectionsOf nodes, so nodes dereferencing the same nodes share them. Cached
+     * unions are dropped when the connections of a node they read change.
+     * @param capacity the most unions held, 0 to stop caching
+     */
+    public synchronized void setConnectionsCache(int capacity) {
+        connectionsCache = capacity == 0 ? null : new ConnectionsCache<>(capacity);
+    }
+
+    /**
+     * @return the cache of connectionsOf unions, null when there is none
+     */
+    public synchronized ConnectionsCache<T> getConnectionsCache() {
+        return connectionsCache;
+    }
+
+    /**
+     * @return the nodes queued for the next step
+     */
+    synchronized Set<T> getPendingUpdates() {
+        return nextUpdate.toSet();
+    }
+
+    /**
+     * Moves the Execution to the state a run of steps is known to reach without running them. Listeners see the net
+     * changes and a single stepCompleted.
+     * @param changedConnections the final connections of the nodes the steps rewired
+     * @param changedValues the final values of the nodes the steps evaluated
+     * @param pending the nodes queued after the last of the steps
+     * @param steps the number of steps
+     */
+    synchronized void advance(Map<T, Set<T>> changedConnections, Map<T, Set<T>> changedValues, Set<T> pending,
+                              long steps) {
+        if(stepInProgress) {
+            throw new IllegalStateException("Cannot advance while a step is paused");
+        }
+        for(Map.Entry<T, Set<T>> entry : changedConnections.entrySet()) {
+            updateConnectionsFrom(entry.getKey(), entry.getValue());
+        }
+        for(Map.Entry<T, Set<T>> entry : changedValues.entrySet()) {
+            updateValuesAt(entry.getKey(), entry.getValue());
+        }
+        nextUpdate.clear();
+        nextUpdate.addAll(pending);
+        coneStale |= cone != null;
+
+        step += steps;
+        for(StepListener<T> listener : listeners) {
+            listener.stepCompleted(step);
+        }
+    }
+
+    /**
+     * Forgets what the Execution derived from a node which was removed from its Digraphs
+     */
+    void nodeReclaimed(T node) {
+        if(connectionsCache != null) {
+            connectionsCache.invalidate(node);
+        }
+    }
+
+    Digraph<T> getConnectionGraph() {
+        return connections;
+    }
+
+    Digraph<T> getValueGraph() {
+        return values;
+    }
+
+    NodeClassTable<T> getClassTable() {
+        return classTable;
+    }
+
+    /**
+     * @return the number of steps executed so far
+     */
+    public synchronized long getStep() {
+        return step;
     }
 
     /**
@@ -134,18 +1038,19 @@ public class Execution<T> {
      * @return the NodeClass of that node
      */
     private NodeClass getNodeClass(T node) {
-        if(opNodes.contains(node) || node.equals(classTable.nodeFor(NodeClass.OPERATION))) {
-            return NodeClass.OPERATION;
-        }
+        return getNodeClass(node, getClassNodes(node));
+    }
 
-        Set<T> potentialClasses = getConnectionsTo(node).intersect(opNodes);
-        if(potentialClasses.size() == 0) {
-            return NodeClass.SIMPLE;
-        } else if(potentialClasses.size() == 1) {
-            return classTable.classOf(potentialClasses.iterator().next());
-        } else {
-            return NodeClass.INVALID;
-        }
+    private NodeClass getNodeClass(T node, Set<T> classNodes) {
+        return classTable.classOf(node, opNodes, classNodes);
+    }
+
+    /**
+     * @param node the given node
+     * @return the operation class nodes which connect to the node
+     */
+    private Set<T> getClassNodes(T node) {
+        return getConnectionsTo(node).intersect(opNodes);
     }
 
     /**
@@ -153,30 +1058,39 @@ public class Execution<T> {
      * determine the new value of that node
      *
      * @param node the node being processed
+     * @param classNode the operation class the node is a member of
      * @return the new value that node should have
      */
-    private Set<T> processNode(T node, NodeClass nodeClass) throws ExecutionException {
-        Set<T> inputNodes = getConnectionsFrom(node);
-
-        switch (nodeClass) {
-            case UNION:
-                return Set.unionAll(getValues(inputNodes));
-
-            case INTERSECT:
-                return Set.intersectAll(getValues(inputNodes));
+    private Set<T> processNode(T node, T classNode) throws ExecutionException {
+        return processNode(node, classNode, context);
+    }
 
-            case DIFFERENCE:
-                return Set.differenceAll(getValues(inputNodes));
+    private Set<T> processNode(T node, T classNode, OperatorContext<T> context) {
+        return classTable.evaluate(node, classNode, getConnectionsFrom(node), context);
+    }
 
-            case LITERAL:
-                return getConnectionsFrom(node);
+    /**
+     * The view of this Execution handed to operators
+     */
+    private final OperatorContext<T> context = new OperatorContext<T>() {
+        @Override
+        public Set<T> getValues(T node) {
+            return Execution.this.getValues(node);
+        }
 
-            case CONNECTIONS_OF:
-                return Set.unionAll(getConnectionsFrom(Set.unionAll(getValues(inputNodes))));
+        @Override
+        public Set<T> getConnections(T node) {
+            return getConnectionsFrom(node);
         }
 
-        return emptySet;
-    }
+        @Override
+        public Set<T> connectionsOfAll(Set<T> nodes) {
+            if(connectionsCache == null || nodes.size() < 2) {
+                return OperatorContext.super.connectionsOfAll(nodes);
+            }
+            return connectionsCache.connectionsOf(nodes, this);
+        }
+    };
 
     //Values -----------------------------------------------------------------------------------------------------------
     private boolean updateValuesAt(T node, Set<T> newValues) {
@@ -187,6 +1101,12 @@ public class Execution<T> {
             return false;
         } else {
             values.update(node, newValues);
+            if(cone != null) {
+                changedAt.put(node, ++clock);
+            }
+            for(StepListener<T> listener : listeners) {
+                listener.valueChanged(node, newValues);
+            }
             return true;
         }
     }
@@ -195,6 +1115,28 @@ public class Execution<T> {
         return getConnectionsFrom(node);
     }
 
+    /**
+     * @param node the given node
+     * @return the value the node was last evaluated to, which may be stale outside the cone in demand-driven mode
+     */
+    public synchronized Set<T> queryValue(T node) {
+        return getValues(node);
+    }
+
+    /**
+     * @return a copy of the connections of every node
+     */
+    public synchronized Map<T, Set<T>> queryAll() {
+        return connections.toMap();
+    }
+
+    /**
+     * @return a copy of the value of every node with one
+     */
+    public synchronized Map<T, Set<T>> queryAllValues() {
+        return values.toMap();
+    }
+
     private Set<T> getValues(T node) {
         Set<T> nodeValues = values.get(node);
         if(nodeValues == null) {
@@ -225,7 +1167,16 @@ public class Execution<T> {
      * @return whether the connection set changed
      */
     private boolean updateConnectionsFrom(T node, Set<T> newConnections) {
-        return connections.update(node, newConnections);
+        if(!connections.update(node, newConnections)) {
+            return false;
+        }
+        if(connectionsCache != null) {
+            connectionsCache.invalidate(node);
+        }
+        for(StepListener<T> listener : listeners) {
+            listener.connectionsChanged(node, newConnections);
+        }
+        return true;
     }
 
     /**
@@ -275,4 +1226,19 @@ public class Execution<T> {
 
         return outputBuilder.toSet();
     }
+
+    /**
+     * The nodes an assignment alters and the connections it gives them
+     */
+    static class Assignment<T> {
+        final T node;
+        final Set<T> targets;
+        final Set<T> value;
+
+        Assignment(T node, Set<T> targets, Set<T> value) {
+            this.node = node;
+            this.targets = targets;
+            this.value = value;
+        }
+    }
 }
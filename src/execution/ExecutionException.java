@@ -11,7 +11,17 @@ public class ExecutionException extends Exception {
         }
     }
 
+    static class TransportFailure extends ExecutionException {
+        private static final long serialVersionUID = 1L;
+
+        TransportFailure(String desc, Throwable cause) {
+            super(desc);
+            initCause(cause);
+        }
+    }
+
     static class NonDeterministicExecution extends ExecutionException {
         NonDeterministicExecution() { super("Graph Execution has become Non-Deterministic"); }
+        NonDeterministicExecution(String desc) { super(desc); }
     }
 }
@@ -0,0 +1,106 @@
+package execution;
+
+import sets.Set;
+import sets.SetBuilder;
+import sets.SizeModel;
+
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An estimate of the heap an Execution uses, broken down by structure and by the class of the node each entry
+ * belongs to. Sets shared between structures, such as a literal's connections which are also its value, are counted
+ * once against the first structure measured. Nodes themselves are not counted.
+ */
+public class Footprint {
+    public enum Structure {
+        CONNECTIONS,            //The connection set of every node
+        REVERSE_CONNECTIONS,    //The nodes connecting to every node
+        VALUES,                 //The value of every node
+        REVERSE_VALUES,         //The nodes holding every node in their value
+        PENDING,                //Queued updates, value changes and assignments
+        CACHE                   //Memoized connectionsOf results
+    }
+
+    private final Map<Structure, Long> structures = new EnumMap<>(Structure.class);
+    private final Map<NodeClass, Long> classes = new EnumMap<>(NodeClass.class);
+    private final Map<Object, Boolean> seen = new IdentityHashMap<>();
+
+    Footprint() {
+        for(Structure structure : Structure.values()) {
+            structures.put(structure, 0L);
+        }
+        for(NodeClass nodeClass : NodeClass.values()) {
+            classes.put(nodeClass, 0L);
+        }
+    }
+
+    /**
+     * @param structure the structure the bytes belong to
+     * @param nodeClass the class of the node the bytes belong to, null for the overhead of the structure itself
+     * @param bytes the bytes
+     */
+    void add(Structure structure, NodeClass nodeClass, long bytes) {
+        structures.merge(structure, bytes, Long::sum);
+        if(nodeClass != null) {
+            classes.merge(nodeClass, bytes, Long::sum);
+        }
+    }
+
+    /**
+     * @return the bytes of the set, or 0 when it has already been counted
+     */
+    long bytesOf(Set<?> set) {
+        if(seen.put(set, Boolean.TRUE) != null) {
+            return 0;
+        }
+        return set.estimatedBytes();
+    }
+
+    long bytesOf(SetBuilder<?> builder) {
+        if(seen.put(builder, Boolean.TRUE) != null) {
+            return 0;
+        }
+        return builder.estimatedBytes();
+    }
+
+    static long mapBytes(int size, int largestSize) {
+        return SizeModel.hashMap(size, largestSize) - size * SizeModel.hashMapEntry();
+    }
+
+    static long entryBytes() {
+        return SizeModel.hashMapEntry();
+    }
+
+    public long getBytes(Structure structure) {
+        return structures.get(structure);
+    }
+
+    public long getBytes(NodeClass nodeClass) {
+        return classes.get(nodeClass);
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for(long bytes : structures.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        output.append("Total ").append(getTotal()).append(" bytes");
+        for(Map.Entry<Structure, Long> entry : structures.entrySet()) {
+            output.append(", ").append(entry.getKey()).append(" ").append(entry.getValue());
+        }
+        output.append(" |");
+        for(Map.Entry<NodeClass, Long> entry : classes.entrySet()) {
+            if(entry.getValue() != 0) {
+                output.append(" ").append(entry.getKey()).append(" ").append(entry.getValue());
+            }
+        }
+        return output.toString();
+    }
+}
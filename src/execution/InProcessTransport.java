@@ -0,0 +1,67 @@
+package execution;
+
+import execution.ExecutionException.TransportFailure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * A Transport for workers running as threads of the same process, batches are handed over by reference
+ *
+ * @param <T> The type of the nodes
+ */
+public class InProcessTransport<T> implements Transport<T> {
+    private final int workers;
+    /**
+     * The batches in flight indexed by [receiver][sender]
+     */
+    private final List<List<Batch<T>>> mailboxes = new ArrayList<>();
+    private final CyclicBarrier barrier;
+
+    public InProcessTransport(int workers) {
+        this.workers = workers;
+        this.barrier = new CyclicBarrier(workers);
+
+        for(int i = 0; i < workers; i++) {
+            List<Batch<T>> mailbox = new ArrayList<>();
+            for(int j = 0; j < workers; j++) {
+                mailbox.add(null);
+            }
+            mailboxes.add(mailbox);
+        }
+    }
+
+    @Override
+    public int workers() {
+        return workers;
+    }
+
+    @Override
+    public List<Batch<T>> exchange(int worker, List<Batch<T>> outgoing) throws ExecutionException {
+        for(int receiver = 0; receiver < workers; receiver++) {
+            mailboxes.get(receiver).set(worker, outgoing.get(receiver));
+        }
+
+        await();
+        List<Batch<T>> incoming = new ArrayList<>(mailboxes.get(worker));
+        //The second barrier keeps fast workers from overwriting a mailbox before it has been read
+        await();
+
+        return incoming;
+    }
+
+    private void await() throws ExecutionException {
+        try {
+            barrier.await();
+        } catch (InterruptedException | BrokenBarrierException e) {
+            throw new TransportFailure("Partition worker barrier was broken", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        barrier.reset();
+    }
+}
@@ -0,0 +1,144 @@
+package execution;
+
+import sets.EmptySet;
+import sets.Set;
+import sets.SetBuilder;
+
+/**
+ * A set held by up to 64 lanes at once, each element mapped to the mask of the lanes whose set holds it. Elements
+ * are kept in an open addressing table and stay in it with a mask of 0 once every lane drops them, copying leaves
+ * them out.
+ *
+ * @param <T> The type of the elements
+ */
+final class LaneSet<T> {
+    private Object[] keys;
+    private long[] masks;
+    private int size = 0;
+
+    LaneSet() {
+        this(8);
+    }
+
+    LaneSet(int expected) {
+        int capacity = 8;
+        while(capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        keys = new Object[capacity];
+        masks = new long[capacity];
+    }
+
+    /**
+     * @param set a set held by every lane in a mask
+     * @param lanes the mask
+     */
+    static <T> LaneSet<T> of(Set<T> set, long lanes) {
+        LaneSet<T> output = new LaneSet<>(set.size());
+        for(T element : set) {
+            output.or(element, lanes);
+        }
+        return output;
+    }
+
+    long get(Object key) {
+        int slot = find(key);
+        return keys[slot] == null ? 0 : masks[slot];
+    }
+
+    void or(T key, long mask) {
+        if(mask == 0) {
+            return;
+        }
+        int slot = find(key);
+        if(keys[slot] == null) {
+            insert(slot, key, mask);
+        } else {
+            masks[slot] |= mask;
+        }
+    }
+
+    void put(T key, long mask) {
+        int slot = find(key);
+        if(keys[slot] == null) {
+            if(mask != 0) {
+                insert(slot, key, mask);
+            }
+        } else {
+            masks[slot] = mask;
+        }
+    }
+
+    /**
+     * @return the lanes holding any element
+     */
+    long lanes() {
+        long output = 0;
+        for(long mask : masks) {
+            output |= mask;
+        }
+        return output;
+    }
+
+    /**
+     * Iteration is by slot, slots without a key return null
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    T keyAt(int slot) {
+        return (T) keys[slot];
+    }
+
+    long maskAt(int slot) {
+        return masks[slot];
+    }
+
+    /**
+     * @return the set held by one lane
+     */
+    Set<T> lane(int lane) {
+        long bit = 1L << lane;
+        SetBuilder<T> output = new SetBuilder<>();
+        for(int slot = 0; slot < keys.length; slot++) {
+            if(keys[slot] != null && (masks[slot] & bit) != 0) {
+                output.add(keyAt(slot));
+            }
+        }
+        return output.size() == 0 ? EmptySet.instance() : output.toSet();
+    }
+
+    private int find(Object key) {
+        int mask = keys.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while(keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, T key, long mask) {
+        keys[slot] = key;
+        masks[slot] = mask;
+        if(++size * 2 > keys.length) {
+            Object[] oldKeys = keys;
+            long[] oldMasks = masks;
+            keys = new Object[oldKeys.length * 2];
+            masks = new long[oldKeys.length * 2];
+            for(int i = 0; i < oldKeys.length; i++) {
+                if(oldKeys[i] != null) {
+                    int target = find(oldKeys[i]);
+                    keys[target] = oldKeys[i];
+                    masks[target] = oldMasks[i];
+                }
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
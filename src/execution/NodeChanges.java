@@ -0,0 +1,69 @@
+package execution;
+
+import sets.Set;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The changes to a watched set of nodes over one or more consecutive steps, only the latest value and connection
+ * set of each node is kept
+ *
+ * @param <T> The type of the nodes
+ */
+public class NodeChanges<T> {
+    private final long firstStep;
+    private final long lastStep;
+    private final Map<T, Set<T>> values;
+    private final Map<T, Set<T>> connections;
+
+    NodeChanges(long firstStep, long lastStep, Map<T, Set<T>> values, Map<T, Set<T>> connections) {
+        this.firstStep = firstStep;
+        this.lastStep = lastStep;
+        this.values = Collections.unmodifiableMap(values);
+        this.connections = Collections.unmodifiableMap(connections);
+    }
+
+    /**
+     * Combines these changes with the changes of the steps that followed them
+     * @param later the later changes
+     * @return the changes of both, the later ones winning
+     */
+    NodeChanges<T> merge(NodeChanges<T> later) {
+        Map<T, Set<T>> mergedValues = new HashMap<>(values);
+        mergedValues.putAll(later.values);
+        Map<T, Set<T>> mergedConnections = new HashMap<>(connections);
+        mergedConnections.putAll(later.connections);
+        return new NodeChanges<>(firstStep, later.lastStep, mergedValues, mergedConnections);
+    }
+
+    /**
+     * @return the first step covered, equal to getLastStep() unless a slow subscriber had steps merged
+     */
+    public long getFirstStep() {
+        return firstStep;
+    }
+
+    public long getLastStep() {
+        return lastStep;
+    }
+
+    /**
+     * @return the new value of each watched node whose value changed
+     */
+    public Map<T, Set<T>> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the new connection set of each watched node whose connections changed
+     */
+    public Map<T, Set<T>> getConnections() {
+        return connections;
+    }
+
+    public String toString() {
+        return "Steps " + firstStep + "-" + lastStep + " values=" + values + " connections=" + connections;
+    }
+}
@@ -6,5 +6,7 @@ public enum NodeClass {
     SIMPLE,     //Nodes that are members of no operation classes
 
     //Nodes that are members of exactly one operation class
-    ASSIGNMENT, ASSIGNMENT_VALUE, UNION, INTERSECT, DIFFERENCE, LITERAL, CONNECTIONS_OF;
+    ASSIGNMENT, ASSIGNMENT_VALUE, UNION, INTERSECT, DIFFERENCE, LITERAL, CONNECTIONS_OF,
+
+    CUSTOM;     //Nodes that are members of exactly one operation class registered through NodeClassTable.with
 }
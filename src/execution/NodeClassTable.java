@@ -1,5 +1,11 @@
 package execution;
 
+import sets.EmptySet;
+import sets.Set;
+
+import java.util.*;
+import java.util.function.Function;
+
 import static execution.NodeClass.*;
 
 /**
@@ -30,6 +36,15 @@ public class NodeClassTable<T> {
         );
     }
 
+    /**
+     * Creates a table for programs whose nodes are not Strings
+     */
+    public static <U> NodeClassTable<U> of(U operation, U union, U intersect, U difference, U assignment,
+                                           U assignmentValue, U literal, U connectionsOf) {
+        return new NodeClassTable<>(operation, union, intersect, difference, assignment, assignmentValue, literal,
+                connectionsOf);
+    }
+
     /**
      *
      * @param operation
@@ -50,8 +65,85 @@ public class NodeClassTable<T> {
         this.assignmentValue = assignmentValue;
         this.literal = literal;
         this.connectionsOf = connectionsOf;
+
+        register(operation, OPERATION, null);
+        register(union, UNION, Operators.union());
+        register(intersect, INTERSECT, Operators.intersect());
+        register(difference, DIFFERENCE, Operators.difference());
+        register(assignment, ASSIGNMENT, null);
+        register(assignmentValue, ASSIGNMENT_VALUE, null);
+        register(literal, LITERAL, Operators.literal());
+        register(connectionsOf, CONNECTIONS_OF, Operators.connectionsOf());
+    }
+
+    /**
+     * The index of each class node in classes and operators
+     */
+    private final Map<T, Integer> indexes = new HashMap<>();
+    private final List<NodeClass> classes = new ArrayList<>();
+    private final List<Operator<T>> operators = new ArrayList<>();
+    private final List<T> customClassNodes = new ArrayList<>();
+
+    private void register(T classNode, NodeClass nodeClass, Operator<T> operator) {
+        Integer index = indexes.get(classNode);
+        if(index == null) {
+            indexes.put(classNode, classes.size());
+            classes.add(nodeClass);
+            operators.add(operator);
+        } else {
+            classes.set(index, nodeClass);
+            operators.set(index, operator);
+        }
     }
 
+    /**
+     * Creates a table which also holds an additional operation class
+     * @param classNode the class node the members of the class connect from
+     * @param operator the operator evaluating the members of the class
+     * @return the extended table
+     */
+    public NodeClassTable<T> with(T classNode, Operator<T> operator) {
+        if(indexes.containsKey(classNode)) {
+            throw new IllegalArgumentException(classNode + " is already an operation class");
+        }
+        NodeClassTable<T> output = map(Function.identity());
+        output.register(classNode, CUSTOM, operator);
+        output.customClassNodes.add(classNode);
+        return output;
+    }
+
+    /**
+     * Creates the table of the same classes for a program whose nodes have been renamed
+     * @param mapping the new name of each node
+     * @return the renamed table
+     */
+    public <U> NodeClassTable<U> map(Function<T, U> mapping) {
+        NodeClassTable<U> output = new NodeClassTable<>(
+                mapping.apply(operation),
+                mapping.apply(union),
+                mapping.apply(intersect),
+                mapping.apply(difference),
+                mapping.apply(assignment),
+                mapping.apply(assignmentValue),
+                mapping.apply(literal),
+                mapping.apply(connectionsOf)
+        );
+        for(T classNode : customClassNodes) {
+            U mapped = mapping.apply(classNode);
+            @SuppressWarnings("unchecked")
+            Operator<U> operator = (Operator<U>) operatorOf(classNode);
+            output.register(mapped, CUSTOM, operator);
+            output.customClassNodes.add(mapped);
+        }
+        return output;
+    }
+
+    /**
+     * @return the class node of every operation class, custom ones included
+     */
+    Collection<T> classNodes() {
+        return new ArrayList<>(indexes.keySet());
+    }
 
     public T nodeFor(NodeClass type) {
         switch (type) {
@@ -75,25 +167,70 @@ public class NodeClassTable<T> {
         return operation;
     }
 
+    /**
+     * @return the class nodes registered through with, in registration order
+     */
+    public List<T> customClassNodes() {
+        return Collections.unmodifiableList(customClassNodes);
+    }
+
     public NodeClass classOf(T node) {
-        //TODO: Address possible performance problems
-        if (node.equals(operation)) {
+        Integer index = indexes.get(node);
+        if(index == null) {
+            return SIMPLE;
+        }
+        return classes.get(index);
+    }
+
+    /**
+     * Determines the NodeClass of a node, shared by every engine so that they classify nodes alike
+     *
+     * @param node the node being checked
+     * @param opNodes the operation class nodes of the program, the connections of the operation node
+     * @param classNodes the operation class nodes which connect to the node
+     * @return the NodeClass of that node
+     */
+    NodeClass classOf(T node, Set<T> opNodes, Set<T> classNodes) {
+        if(opNodes.contains(node) || node.equals(operation)) {
             return OPERATION;
-        } else if (node.equals(union)) {
-            return UNION;
-        } else if (node.equals(intersect)) {
-            return INTERSECT;
-        } else if (node.equals(difference)) {
-            return DIFFERENCE;
-        } else if (node.equals(assignment)) {
-            return ASSIGNMENT;
-        } else if (node.equals(assignmentValue)) {
-            return ASSIGNMENT_VALUE;
-        } else if (node.equals(literal)) {
-            return LITERAL;
-        } else if (node.equals(connectionsOf)) {
-            return CONNECTIONS_OF;
         }
-        return SIMPLE;
+
+        if(classNodes.size() == 0) {
+            return SIMPLE;
+        } else if(classNodes.size() == 1) {
+            return classOf(classNodes.iterator().next());
+        } else {
+            return INVALID;
+        }
+    }
+
+    /**
+     * Performs the operation a node represents on its inputs
+     *
+     * @param node the node being processed
+     * @param classNode the operation class the node is a member of
+     * @param inputs the connections of the node
+     * @param context the values and connections the operator reads
+     * @return the new value of the node, empty for classes without an operator
+     */
+    Set<T> evaluate(T node, T classNode, Set<T> inputs, OperatorContext<T> context) {
+        Operator<T> operator = operatorOf(classNode);
+        if(operator == null) {
+            return EmptySet.instance();
+        }
+        return operator.evaluate(node, inputs, context);
+    }
+
+    /**
+     * @param classNode an operation class node
+     * @return the operator evaluating the members of the class, null for the operation, assignment and assignment
+     * value classes and for nodes which are not class nodes
+     */
+    public Operator<T> operatorOf(T classNode) {
+        Integer index = indexes.get(classNode);
+        if(index == null) {
+            return null;
+        }
+        return operators.get(index);
     }
 }
@@ -0,0 +1,80 @@
+package execution;
+
+import sets.Set;
+import sets.SetBuilder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes nodes to and reads them from binary logs
+ *
+ * @param <T> The type of the nodes
+ */
+public interface NodeCodec<T> {
+    void write(DataOutput out, T node) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    static NodeCodec<String> strings() {
+        return new NodeCodec<String>() {
+            @Override
+            public void write(DataOutput out, String node) throws IOException {
+                out.writeUTF(node);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                return in.readUTF();
+            }
+        };
+    }
+
+    static NodeCodec<Integer> integers() {
+        return new NodeCodec<Integer>() {
+            @Override
+            public void write(DataOutput out, Integer node) throws IOException {
+                out.writeInt(node);
+            }
+
+            @Override
+            public Integer read(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+    }
+
+    default void writeSet(DataOutput out, Set<T> set) throws IOException {
+        out.writeInt(set.size());
+        for(T element : set) {
+            write(out, element);
+        }
+    }
+
+    default Set<T> readSet(DataInput in) throws IOException {
+        int size = in.readInt();
+        SetBuilder<T> builder = new SetBuilder<>(size);
+        for(int i = 0; i < size; i++) {
+            builder.add(read(in));
+        }
+        return builder.toSet();
+    }
+
+    default void writeMap(DataOutput out, Map<T, Set<T>> map) throws IOException {
+        out.writeInt(map.size());
+        for(Map.Entry<T, Set<T>> entry : map.entrySet()) {
+            write(out, entry.getKey());
+            writeSet(out, entry.getValue());
+        }
+    }
+
+    default void readMap(DataInput in, Map<T, Set<T>> map) throws IOException {
+        int size = in.readInt();
+        for(int i = 0; i < size; i++) {
+            T key = read(in);
+            map.put(key, readSet(in));
+        }
+    }
+}
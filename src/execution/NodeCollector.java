@@ -0,0 +1,261 @@
+package execution;
+
+import sets.Set;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reclaims the nodes of an Execution which can no longer affect it. A node is live when it can be reached from the
+ * operation class nodes, which reach every literal and operation, or from a pinned node, following both connections
+ * and values. Every other node loses its connection, reverse and value entries, and is handed to the reclaim
+ * listener so its id can be reused.
+ *
+ * Collection is incremental: collect(budget) marks or sweeps at most budget nodes between steps, so a cycle over a
+ * large graph is spread over many short pauses. Changes made by steps while a cycle is marking shade the changed
+ * node and its new targets, so nothing reachable at the end of the cycle is reclaimed. A node which was reclaimed
+ * must not be referenced again unless its id is handed out anew.
+ *
+ * @param <T> The type of the nodes
+ */
+public class NodeCollector<T> implements StepListener<T>, AutoCloseable {
+    private enum Phase { IDLE, MARK, SWEEP }
+
+    private final Execution<T> execution;
+    private final Digraph<T> connections;
+    private final Digraph<T> values;
+
+    private final java.util.Set<T> pinned = new HashSet<>();
+    private Consumer<? super T> reclaimListener = node -> {};
+
+    private Phase phase = Phase.IDLE;
+    private final java.util.Set<T> marked = new HashSet<>();
+    private final ArrayDeque<T> grey = new ArrayDeque<>();
+    /**
+     * The nodes held when the cycle started, nodes created during the cycle are never swept by it
+     */
+    private List<T> candidates = new ArrayList<>();
+    private int sweepIndex = 0;
+
+    private long reclaimed = 0;
+    private long cycles = 0;
+
+    /**
+     * Creates a collector listening to the changes of an Execution
+     * @param execution the execution whose nodes are collected
+     */
+    public NodeCollector(Execution<T> execution) {
+        this.execution = execution;
+        this.connections = execution.getConnectionGraph();
+        this.values = execution.getValueGraph();
+        execution.addListener(this);
+    }
+
+    /**
+     * Keeps a node and everything it reaches alive, for nodes the program does not reach but the caller still uses
+     */
+    public void pin(T node) {
+        synchronized (execution) {
+            if(pinned.add(node)) {
+                shade(node);
+            }
+        }
+    }
+
+    public void unpin(T node) {
+        synchronized (execution) {
+            pinned.remove(node);
+        }
+    }
+
+    /**
+     * @param listener called with every reclaimed node, while the Execution is held
+     */
+    public void setReclaimListener(Consumer<? super T> listener) {
+        synchronized (execution) {
+            this.reclaimListener = listener;
+        }
+    }
+
+    //Collection -------------------------------------------------------------------------------------------------------
+    /**
+     * Marks or sweeps at most budget nodes, starting a cycle if none is in progress. Does nothing while a step is
+     * paused.
+     * @param budget the most nodes to visit, at least 1
+     * @return whether a cycle completed
+     */
+    public boolean collect(long budget) {
+        if(budget < 1) {
+            throw new IllegalArgumentException("Budget must be positive, not " + budget);
+        }
+        synchronized (execution) {
+            if(execution.isStepInProgress()) {
+                return false;
+            }
+            if(phase == Phase.IDLE) {
+                beginCycle();
+            }
+            if(phase == Phase.MARK) {
+                budget = mark(budget);
+                if(grey.isEmpty()) {
+                    phase = Phase.SWEEP;
+                }
+            }
+            if(phase == Phase.SWEEP && budget > 0) {
+                sweep(budget);
+                if(sweepIndex == candidates.size()) {
+                    finishCycle();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Collects for at most a period of time, in slices of Execution.SLICE_NODES between which the Execution is
+     * released
+     * @param period the time to collect for
+     * @return whether a cycle completed
+     */
+    public boolean collectFor(Duration period) {
+        long deadline = System.nanoTime() + period.toNanos();
+        do {
+            if(collect(Execution.SLICE_NODES)) {
+                return true;
+            }
+        } while(System.nanoTime() - deadline < 0);
+        return false;
+    }
+
+    /**
+     * Runs a whole cycle in one pause
+     */
+    public void collectAll() {
+        while(!collect(Long.MAX_VALUE)) {
+            if(execution.isStepInProgress()) {
+                throw new IllegalStateException("Cannot collect while a step is paused");
+            }
+        }
+    }
+
+    private void beginCycle() {
+        candidates = connections.nodes();
+        candidates.addAll(values.nodes());
+        sweepIndex = 0;
+        phase = Phase.MARK;
+
+        NodeClassTable<T> classTable = execution.getClassTable();
+        for(T classNode : classTable.classNodes()) {
+            shade(classNode);
+        }
+        shade(classTable.nodeFor(NodeClass.OPERATION));
+        for(T node : pinned) {
+            shade(node);
+        }
+    }
+
+    private long mark(long budget) {
+        while(budget > 0 && !grey.isEmpty()) {
+            T node = grey.poll();
+            for(T target : connections.get(node)) {
+                shade(target);
+            }
+            for(T element : values.get(node)) {
+                shade(element);
+            }
+            budget--;
+        }
+        return budget;
+    }
+
+    private void sweep(long budget) {
+        while(budget > 0 && sweepIndex < candidates.size()) {
+            T node = candidates.get(sweepIndex++);
+            if(!marked.contains(node) && (connections.holds(node) || values.holds(node))) {
+                connections.remove(node);
+                values.remove(node);
+                execution.nodeReclaimed(node);
+                reclaimed++;
+                reclaimListener.accept(node);
+            }
+            budget--;
+        }
+    }
+
+    private void finishCycle() {
+        marked.clear();
+        candidates = new ArrayList<>();
+        sweepIndex = 0;
+        phase = Phase.IDLE;
+        cycles++;
+    }
+
+    private void shade(T node) {
+        if(phase != Phase.IDLE && marked.add(node) && phase == Phase.MARK) {
+            grey.add(node);
+        }
+    }
+
+    //Write barrier ----------------------------------------------------------------------------------------------------
+    @Override
+    public void connectionsChanged(T node, Set<T> newConnections) {
+        shadeChange(node, newConnections);
+    }
+
+    @Override
+    public void valueChanged(T node, Set<T> newValues) {
+        shadeChange(node, newValues);
+    }
+
+    /**
+     * While marking, a changed node and the nodes it now refers to are kept by this cycle. While sweeping, nodes
+     * referred to again are kept rather than traced, as everything they reach was already marked or is new.
+     */
+    private void shadeChange(T node, Set<T> targets) {
+        if(phase == Phase.IDLE) {
+            return;
+        }
+        shade(node);
+        for(T target : targets) {
+            shade(target);
+        }
+    }
+
+    //Statistics -------------------------------------------------------------------------------------------------------
+    /**
+     * @return the number of nodes reclaimed so far
+     */
+    public long getReclaimed() {
+        synchronized (execution) {
+            return reclaimed;
+        }
+    }
+
+    /**
+     * @return the number of completed cycles
+     */
+    public long getCycles() {
+        synchronized (execution) {
+            return cycles;
+        }
+    }
+
+    /**
+     * Stops listening to the Execution, abandoning any cycle in progress
+     */
+    @Override
+    public void close() {
+        synchronized (execution) {
+            execution.removeListener(this);
+            marked.clear();
+            grey.clear();
+            candidates = new ArrayList<>();
+            phase = Phase.IDLE;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package execution;
+
+import sets.Set;
+
+import java.util.EnumSet;
+
+/**
+ * The computation performed by every node of an operation class. Operators are registered with a NodeClassTable
+ * under the class node their nodes connect from.
+ *
+ * @param <T> The type of the nodes
+ */
+public interface Operator<T> {
+    /**
+     * Computes the new value of a node
+     *
+     * @param node the node being evaluated
+     * @param inputNodes the connection set of the node
+     * @param context the values and connections of the Execution
+     * @return the new value of the node
+     */
+    Set<T> evaluate(T node, Set<T> inputNodes, OperatorContext<T> context);
+
+    /**
+     * @return the properties of the operator which optimizations and evaluation strategies may rely on, the set may
+     *         be shared and must not be modified
+     */
+    default EnumSet<OperatorProperty> properties() {
+        return EnumSet.noneOf(OperatorProperty.class);
+    }
+
+    default boolean has(OperatorProperty property) {
+        return properties().contains(property);
+    }
+}
@@ -0,0 +1,59 @@
+package execution;
+
+import sets.Set;
+import sets.SetBuilder;
+
+/**
+ * The state of an Execution which an Operator may read while evaluating a node
+ *
+ * @param <T> The type of the nodes
+ */
+public interface OperatorContext<T> {
+    /**
+     * @param node the given node
+     * @return the value the node had at the end of the previous sub-step
+     */
+    Set<T> getValues(T node);
+
+    /**
+     * @param node the given node
+     * @return the connection set of the node
+     */
+    Set<T> getConnections(T node);
+
+    /**
+     * @param nodes the given nodes
+     * @return the distinct value sets of the nodes
+     */
+    default Set<Set<T>> getValues(Set<T> nodes) {
+        SetBuilder<Set<T>> outputBuilder = new SetBuilder<>();
+
+        for (T node : nodes) {
+            outputBuilder.add(getValues(node));
+        }
+
+        return outputBuilder.toSet();
+    }
+
+    /**
+     * @param nodes the given nodes
+     * @return the distinct connection sets of the nodes
+     */
+    default Set<Set<T>> getConnections(Set<T> nodes) {
+        SetBuilder<Set<T>> outputBuilder = new SetBuilder<>();
+
+        for (T node : nodes) {
+            outputBuilder.add(getConnections(node));
+        }
+
+        return outputBuilder.toSet();
+    }
+
+    /**
+     * @param nodes the given nodes
+     * @return the union of the connection sets of the nodes
+     */
+    default Set<T> connectionsOfAll(Set<T> nodes) {
+        return Set.unionAll(getConnections(nodes));
+    }
+}
@@ -0,0 +1,11 @@
+package execution;
+
+/**
+ * Algebraic properties an Operator can declare about the value it computes from the values of its inputs
+ */
+public enum OperatorProperty {
+    MONOTONIC,      //Adding elements to an input never removes elements from the result
+    IDEMPOTENT,     //Repeating an input does not change the result
+    COMMUTATIVE,    //The order of the inputs does not matter
+    ASSOCIATIVE;    //Nested applications over disjoint inputs can be flattened into one
+}
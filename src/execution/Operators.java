@@ -0,0 +1,221 @@
+package execution;
+
+import sets.Set;
+import sets.SetBuilder;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static execution.OperatorProperty.*;
+
+/**
+ * The built in operators and additional set operators which can be registered with a NodeClassTable
+ */
+public final class Operators {
+    private Operators() {}
+
+    public static <T> Operator<T> union() {
+        return new Union<>();
+    }
+
+    public static <T> Operator<T> intersect() {
+        return new Intersect<>();
+    }
+
+    public static <T> Operator<T> difference() {
+        return new Difference<>();
+    }
+
+    public static <T> Operator<T> literal() {
+        return new Literal<>();
+    }
+
+    public static <T> Operator<T> connectionsOf() {
+        return new ConnectionsOf<>();
+    }
+
+    /**
+     * @return an operator whose value holds the elements present in an odd number of its inputs
+     */
+    public static <T> Operator<T> symmetricDifference() {
+        return new SymmetricDifference<>();
+    }
+
+    /**
+     * @param threshold the minimum number of inputs
+     * @return an operator whose value holds the elements present in at least threshold of its inputs
+     */
+    public static <T> Operator<T> atLeast(int threshold) {
+        return new AtLeast<>(threshold);
+    }
+
+    /**
+     * @param hops the maximum number of connections followed
+     * @return an operator whose value holds the nodes reachable from the elements of its inputs by following
+     * between 1 and hops connections, connectionsWithin(1) is equivalent to connectionsOf
+     */
+    public static <T> Operator<T> connectionsWithin(int hops) {
+        return new ConnectionsWithin<>(hops);
+    }
+
+    static final class Union<T> implements Operator<T> {
+        private static final EnumSet<OperatorProperty> PROPERTIES =
+                EnumSet.of(MONOTONIC, IDEMPOTENT, COMMUTATIVE, ASSOCIATIVE);
+
+        @Override
+        public Set<T> evaluate(T node, Set<T> inputNodes, OperatorContext<T> context) {
+            return Set.unionAll(context.getValues(inputNodes));
+        }
+
+        @Override
+        public EnumSet<OperatorProperty> properties() {
+            return PROPERTIES;
+        }
+    }
+
+    static final class Intersect<T> implements Operator<T> {
+        private static final EnumSet<OperatorProperty> PROPERTIES =
+                EnumSet.of(MONOTONIC, IDEMPOTENT, COMMUTATIVE, ASSOCIATIVE);
+
+        @Override
+        public Set<T> evaluate(T node, Set<T> inputNodes, OperatorContext<T> context) {
+            return Set.intersectAll(context.getValues(inputNodes));
+        }
+
+        @Override
+        public EnumSet<OperatorProperty> properties() {
+            return PROPERTIES;
+        }
+    }
+
+    static final class Difference<T> implements Operator<T> {
+        private static final EnumSet<OperatorProperty> PROPERTIES = EnumSet.of(COMMUTATIVE);
+
+        @Override
+        public Set<T> evaluate(T node, Set<T> inputNodes, OperatorContext<T> context) {
+            return Set.differenceAll(context.getValues(inputNodes));
+        }
+
+        @Override
+        public EnumSet<OperatorProperty> properties() {
+            return PROPERTIES;
+        }
+    }
+
+    static final class Literal<T> implements Operator<T> {
+        private static final EnumSet<OperatorProperty> PROPERTIES = EnumSet.noneOf(OperatorProperty.class);
+
+        @Override
+        public Set<T> evaluate(T node, Set<T> inputNodes, OperatorContext<T> context) {
+            return inputNodes;
+        }
+
+        @Override
+        public EnumSet<OperatorProperty> properties() {
+            return PROPERTIES;
+        }
+    }
+
+    static final class ConnectionsOf<T> implements Operator<T> {
+        private static final EnumSet<OperatorProperty> PROPERTIES = EnumSet.of(MONOTONIC, IDEMPOTENT, COMMUTATIVE);
+
+        @Override
+        public Set<T> evaluate(T node, Set<T> inputNodes, OperatorContext<T> context) {
+            return context.connectionsOfAll(Set.unionAll(context.getValues(inputNodes)));
+        }
+
+        @Override
+        public EnumSet<OperatorProperty> properties() {
+            return PROPERTIES;
+        }
+    }
+
+    static final class SymmetricDifference<T> implements Operator<T> {
+        private static final EnumSet<OperatorProperty> PROPERTIES = EnumSet.of(COMMUTATIVE, ASSOCIATIVE);
+
+        @Override
+        public Set<T> evaluate(T node, Set<T> inputNodes, OperatorContext<T> context) {
+            List<Set<T>> inputValues = new ArrayList<>();
+            for(T input : inputNodes) {
+                inputValues.add(context.getValues(input));
+            }
+            return Set.oddAll(inputValues);
+        }
+
+        @Override
+        public EnumSet<OperatorProperty> properties() {
+            return PROPERTIES;
+        }
+    }
+
+    static final class AtLeast<T> implements Operator<T> {
+        private static final EnumSet<OperatorProperty> PROPERTIES = EnumSet.of(MONOTONIC, COMMUTATIVE);
+
+        private final int threshold;
+
+        AtLeast(int threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public Set<T> evaluate(T node, Set<T> inputNodes, OperatorContext<T> context) {
+            Map<T, Integer> counts = new HashMap<>();
+            SetBuilder<T> outputBuilder = new SetBuilder<>();
+
+            for(T input : inputNodes) {
+                for(T element : context.getValues(input)) {
+                    int count = counts.merge(element, 1, Integer::sum);
+                    if(count == threshold) {
+                        outputBuilder.add(element);
+                    }
+                }
+            }
+
+            return outputBuilder.toSet();
+        }
+
+        @Override
+        public EnumSet<OperatorProperty> properties() {
+            return PROPERTIES;
+        }
+    }
+
+    static final class ConnectionsWithin<T> implements Operator<T> {
+        private static final EnumSet<OperatorProperty> PROPERTIES = EnumSet.of(MONOTONIC, IDEMPOTENT, COMMUTATIVE);
+
+        private final int hops;
+
+        ConnectionsWithin(int hops) {
+            this.hops = hops;
+        }
+
+        @Override
+        public Set<T> evaluate(T node, Set<T> inputNodes, OperatorContext<T> context) {
+            SetBuilder<T> reached = new SetBuilder<>();
+            Set<T> frontier = Set.unionAll(context.getValues(inputNodes));
+
+            for(int hop = 0; hop < hops && frontier.hasContents(); hop++) {
+                SetBuilder<T> next = new SetBuilder<>();
+                for(T current : frontier) {
+                    for(T connection : context.getConnections(current)) {
+                        if(!reached.contains(connection)) {
+                            reached.add(connection);
+                            next.add(connection);
+                        }
+                    }
+                }
+                frontier = next.toSet();
+            }
+
+            return reached.toSet();
+        }
+
+        @Override
+        public EnumSet<OperatorProperty> properties() {
+            return PROPERTIES;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package execution;
+
+import sets.Set;
+import sets.SetBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Digraph layered over an immutable base which many Digraphs may share. Only the nodes whose connections are
+ * updated are copied into the overlay, along with the reverse sets of the nodes they gained or lost, so memory scales
+ * with the nodes an execution actually rewires rather than with the program.
+ *
+ * @param <T> The type of the nodes
+ */
+public class OverlayDigraph<T> extends Digraph<T> {
+    private final Map<T, Set<T>> baseForward;
+    private final Map<T, Set<T>> baseReverse;
+
+    /**
+     * Connection sets which differ from the base
+     */
+    private final Map<T, Set<T>> forwardOverlay = new HashMap<>();
+    /**
+     * Reverse sets copied from the base the first time they change
+     */
+    private final Map<T, SetBuilder<T>> reverseOverlay = new HashMap<>();
+
+    /**
+     * @param baseForward the connection set of every node, never modified
+     * @param baseReverse the nodes connecting to every node, never modified
+     */
+    public OverlayDigraph(Map<T, Set<T>> baseForward, Map<T, Set<T>> baseReverse) {
+        this.baseForward = baseForward;
+        this.baseReverse = baseReverse;
+    }
+
+    @Override
+    public synchronized boolean update(T node, Set<T> newConnections) {
+        return updateWithDiff(node, newConnections).size() != 0;
+    }
+
+    @Override
+    public synchronized SetBuilder<T> updateWithDiff(T node, Set<T> newConnections) {
+        logUpdate(node, newConnections);
+        Set<T> oldConnections = get(node);
+        forwardOverlay.put(node, newConnections);
+
+        SetBuilder<T> output = new SetBuilder<>();
+        for(T newConnection : newConnections) {
+            if(!oldConnections.contains(newConnection)) {
+                reverseFor(newConnection).add(node);
+                output.add(node);
+            }
+        }
+
+        for(T oldConnection : oldConnections) {
+            if(!newConnections.contains(oldConnection)) {
+                SetBuilder<T> readers = reverseFor(oldConnection);
+                readers.remove(node);
+                if(isCompact()) {
+                    //An empty entry still hides the base, so it is only trimmed
+                    readers.trim();
+                }
+                output.add(node);
+            }
+        }
+
+        return output;
+    }
+
+    private SetBuilder<T> reverseFor(T node) {
+        SetBuilder<T> reverse = reverseOverlay.get(node);
+        if(reverse == null) {
+            reverse = SetBuilder.fromSet(orEmpty(baseReverse.get(node)));
+            reverseOverlay.put(node, reverse);
+        }
+        return reverse;
+    }
+
+    @Override
+    public synchronized Set<T> get(T node) {
+        Set<T> connections = forwardOverlay.get(node);
+        if(connections == null) {
+            connections = baseForward.get(node);
+        }
+        return orEmpty(connections);
+    }
+
+    @Override
+    public synchronized Set<T> getReverse(T node) {
+        SetBuilder<T> reverse = reverseOverlay.get(node);
+        if(reverse != null) {
+            return reverse.toSet();
+        }
+        return orEmpty(baseReverse.get(node));
+    }
+
+    @Override
+    public synchronized Map<T, Set<T>> toMap() {
+        Map<T, Set<T>> output = new HashMap<>(baseForward);
+        output.putAll(forwardOverlay);
+        return output;
+    }
+
+    /**
+     * Only the overlay is reclaimed, the node keeps an empty entry hiding its connections in the shared base
+     */
+    @Override
+    public synchronized void remove(T node) {
+        updateWithDiff(node, orEmpty(null));
+        reverseOverlay.put(node, new SetBuilder<>());
+    }
+
+    @Override
+    synchronized boolean holds(T node) {
+        return get(node).hasContents() || getReverse(node).hasContents()
+                || (!forwardOverlay.containsKey(node) && baseForward.containsKey(node));
+    }
+
+    @Override
+    synchronized List<T> nodes() {
+        List<T> output = new ArrayList<>(baseForward.keySet());
+        output.addAll(baseReverse.keySet());
+        output.addAll(forwardOverlay.keySet());
+        return output;
+    }
+
+    @Override
+    public synchronized void setCompact(boolean compact) {
+        super.setCompact(compact);
+        if(compact) {
+            for(SetBuilder<T> readers : reverseOverlay.values()) {
+                readers.trim();
+            }
+        }
+    }
+
+    /**
+     * Only the overlay is measured, the base is shared by every Digraph built from the same image
+     */
+    @Override
+    synchronized void measure(Footprint footprint, Footprint.Structure forward, Footprint.Structure reverse,
+                              Map<T, NodeClass> classes) {
+        measureForward(footprint, forward, classes, forwardOverlay);
+        measureReverse(footprint, reverse, classes, reverseOverlay);
+    }
+
+    /**
+     * @return the number of forward and reverse entries held by the overlay rather than the base
+     */
+    public synchronized int overlaySize() {
+        return forwardOverlay.size() + reverseOverlay.size();
+    }
+}
@@ -0,0 +1,490 @@
+package execution;
+
+import sets.*;
+import execution.ExecutionException.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the Execution sub-step loop over the nodes owned by one partition. Every worker holds the connections of the
+ * nodes it owns, the connections of other nodes into the nodes it owns so that it knows every reader of them, and
+ * the assignment nodes and assignment value nodes of the program, which every worker needs to route values to
+ * assignments. Connections of other nodes read by operators are requested from their owners as they are needed.
+ * Each worker also holds the values of the nodes it owns together with replicas of the values its owned nodes read.
+ * Value changes are sent to the owners of their readers at each sub-step barrier, evaluated assignments are broadcast
+ * to every worker, which resolves conflicting assignments with the same policy as an Execution.
+ *
+ * @param <T> The type of the nodes
+ */
+public class PartitionWorker<T> {
+    private final int index;
+    private final NodeClassTable<T> classTable;
+    private final Partitioner<T> partitioner;
+    private final Transport<T> transport;
+    private final int partitions;
+
+    private final T operation;
+    private final T assignmentClass;
+    private final T assignmentValueClass;
+
+    private Set<T> opNodes;
+    private Set<T> literalNodes;
+    private Set<T> connectionsOfNodes;
+    private Set<T> assignmentNodes;
+
+    private final Digraph<T> connections = new Digraph<>();
+    private final Digraph<T> values = new Digraph<>();
+
+    /**
+     * Nodes owned by other workers whose connections have been received in full
+     */
+    private final java.util.Set<T> mirrored = new HashSet<>();
+    /**
+     * Nodes whose connections an operator read during the current evaluation without them being held
+     */
+    private final List<T> missing = new ArrayList<>();
+    /**
+     * Requested connections which have not been received yet
+     */
+    private final java.util.Set<T> awaiting = new HashSet<>();
+    /**
+     * Nodes evaluated without all the connections they read, evaluated again once the connections are received
+     */
+    private final SetBuilder<T> deferred = new SetBuilder<>();
+    /**
+     * Requests received at the last barrier, indexed by the requesting worker
+     */
+    private final List<Set<T>> requested = new ArrayList<>();
+
+    private final SetBuilder<T> nextUpdate = new SetBuilder<>();
+    private final SetBuilder<T> nextAssignments = new SetBuilder<>();
+    private AssignmentConflict assignmentConflict = AssignmentConflict.PRIORITY;
+    private Comparator<? super T> assignmentPriority = Execution.DEFAULT_PRIORITY;
+
+    /**
+     * @param index the partition owned by this worker
+     * @param classTable the node class table of the program
+     * @param program the program connections, the worker copies the part it holds
+     * @param partitioner the assignment of nodes to partitions, shared by every worker
+     * @param transport the channel to the other workers
+     */
+    public PartitionWorker(int index, NodeClassTable<T> classTable, Map<T, Set<T>> program,
+                           Partitioner<T> partitioner, Transport<T> transport) {
+        this.index = index;
+        this.classTable = classTable;
+        this.partitioner = partitioner;
+        this.transport = transport;
+        this.partitions = transport.workers();
+        this.operation = classTable.nodeFor(NodeClass.OPERATION);
+        this.assignmentClass = classTable.nodeFor(NodeClass.ASSIGNMENT);
+        this.assignmentValueClass = classTable.nodeFor(NodeClass.ASSIGNMENT_VALUE);
+
+        for(T classNode : List.of(operation, assignmentClass, assignmentValueClass)) {
+            if(program.containsKey(classNode)) {
+                connections.update(classNode, program.get(classNode));
+            }
+        }
+        for(Map.Entry<T, Set<T>> entry : program.entrySet()) {
+            hold(entry.getKey(), entry.getValue());
+        }
+
+        for(T literal : connections.get(classTable.nodeFor(NodeClass.LITERAL))) {
+            if(owns(literal)) {
+                nextUpdate.add(literal);
+            }
+        }
+        for(int i = 0; i < partitions; i++) {
+            requested.add(EmptySet.instance());
+        }
+    }
+
+    /**
+     * @see Execution#setAssignmentConflict
+     */
+    public void setAssignmentConflict(AssignmentConflict policy) {
+        this.assignmentConflict = policy;
+    }
+
+    /**
+     * @see Execution#setAssignmentPriority
+     */
+    public void setAssignmentPriority(Comparator<? super T> priority) {
+        this.assignmentPriority = priority;
+        this.assignmentConflict = AssignmentConflict.PRIORITY;
+    }
+
+    public boolean owns(T node) {
+        return partitioner.partitionOf(node, partitions) == index;
+    }
+
+    /**
+     * @return whether the worker holds every connection of the node
+     */
+    private boolean holdsAll(T node) {
+        return owns(node) || isShared(node) || mirrored.contains(node);
+    }
+
+    /**
+     * @return whether every worker holds the connections of the node
+     */
+    private boolean isShared(T node) {
+        return node.equals(operation) || node.equals(assignmentClass) || node.equals(assignmentValueClass)
+                || connections.get(assignmentClass).contains(node)
+                || connections.get(assignmentValueClass).contains(node);
+    }
+
+    /**
+     * Updates the connections the worker holds of a node
+     * @return whether the held connections changed
+     */
+    private boolean hold(T node, Set<T> newConnections) {
+        if(holdsAll(node)) {
+            return connections.update(node, newConnections);
+        }
+
+        SetBuilder<T> owned = new SetBuilder<>();
+        for(T target : newConnections) {
+            if(owns(target)) {
+                owned.add(target);
+            }
+        }
+        if(owned.size() == 0 && connections.get(node).isEmpty()) {
+            return false;
+        }
+        return connections.update(node, owned.toSet());
+    }
+
+    /**
+     * Executes one step on this partition, every worker must execute the step concurrently
+     * @return whether any worker has updates queued for the next step
+     * @throws ExecutionException when an invalid node is evaluated or the transport fails
+     */
+    public boolean executeStep() throws ExecutionException {
+        opNodes = connections.get(operation);
+        literalNodes = connections.get(classTable.nodeFor(NodeClass.LITERAL));
+        connectionsOfNodes = connections.get(classTable.nodeFor(NodeClass.CONNECTIONS_OF));
+        assignmentNodes = connections.get(assignmentClass);
+
+        Set<T> updateSet = nextUpdate.toSet();
+        nextUpdate.clear();
+
+        boolean active = true;
+        while(active) {
+            List<Batch<T>> outgoing = newBatches();
+            Map<T, Set<T>> valueChanges = new HashMap<>();
+
+            for(int worker = 0; worker < partitions; worker++) {
+                for(T node : requested.get(worker)) {
+                    outgoing.get(worker).connections.put(node, connections.get(node));
+                }
+                requested.set(worker, EmptySet.instance());
+            }
+
+            for(T currentNode : updateSet) {
+                Set<T> classNodes = getClassNodes(currentNode);
+                NodeClass currentNodeClass = getNodeClass(currentNode, classNodes);
+
+                switch (currentNodeClass) {
+                    case ASSIGNMENT:
+                        nextAssignments.add(currentNode);
+                        continue;
+
+                    case ASSIGNMENT_VALUE:
+                        for(T assignment : connections.getReverse(currentNode).intersect(assignmentNodes)) {
+                            outgoing.get(ownerOf(assignment)).assignments.add(assignment);
+                        }
+                        continue;
+
+                    case OPERATION:
+                    case SIMPLE:
+                        continue;
+
+                    case INVALID:
+                        throw new InvalidOperation("Invalid Operation Type Evaluated");
+                }
+
+                Set<T> value = processNode(currentNode, classNodes.iterator().next());
+                if(missing.isEmpty()) {
+                    valueChanges.put(currentNode, value);
+                    continue;
+                }
+                for(T node : missing) {
+                    if(awaiting.add(node)) {
+                        outgoing.get(ownerOf(node)).requests.add(node);
+                    }
+                }
+                missing.clear();
+                deferred.add(currentNode);
+            }
+
+            SetBuilder<T> changed = new SetBuilder<>();
+            for(Map.Entry<T, Set<T>> entry : valueChanges.entrySet()) {
+                if(!entry.getValue().equals(getValues(entry.getKey()))) {
+                    values.update(entry.getKey(), entry.getValue());
+                    changed.add(entry.getKey());
+                    send(entry.getKey(), entry.getValue(), outgoing);
+                }
+            }
+            for(Batch<T> batch : outgoing) {
+                batch.active = changed.size() != 0 || deferred.size() != 0;
+            }
+
+            active = false;
+            List<Batch<T>> incoming = transport.exchange(index, outgoing);
+            for(int worker = 0; worker < partitions; worker++) {
+                Batch<T> batch = incoming.get(worker);
+                active |= batch.active;
+                nextAssignments.addAll(batch.assignments.toSet());
+                if(worker == index) {
+                    continue;
+                }
+                requested.set(worker, batch.requests.toSet());
+                for(Map.Entry<T, Set<T>> entry : batch.values.entrySet()) {
+                    values.update(entry.getKey(), entry.getValue());
+                    changed.add(entry.getKey());
+                }
+                for(Map.Entry<T, Set<T>> entry : batch.connections.entrySet()) {
+                    mirrored.add(entry.getKey());
+                    connections.update(entry.getKey(), entry.getValue());
+                    awaiting.remove(entry.getKey());
+                }
+            }
+
+            SetBuilder<T> updateBuilder = new SetBuilder<>();
+            for(T changedNode : changed.toSet()) {
+                for(T reader : connections.getReverse(changedNode)) {
+                    if(owns(reader)) {
+                        updateBuilder.add(reader);
+                    }
+                }
+            }
+            if(awaiting.isEmpty()) {
+                updateBuilder.addAll(deferred.toSet());
+                deferred.clear();
+            }
+            updateSet = updateBuilder.toSet();
+        }
+
+        return applyAssignments();
+    }
+
+    /**
+     * Evaluates the assignments owned by this worker and sends them to every worker, which then resolves the
+     * assignments of all of them with the conflict policy exactly as an Execution would
+     * @return whether any worker has updates queued for the next step
+     */
+    private boolean applyAssignments() throws ExecutionException {
+        List<Batch<T>> outgoing = newBatches();
+        for(T currentAssignment : nextAssignments.toSet()) {
+            SetBuilder<T> assignmentValues = new SetBuilder<>();
+            SetBuilder<T> alteredNodes = new SetBuilder<>();
+
+            for(T currentInput : connections.get(currentAssignment)) {
+                if(getNodeClass(currentInput) == NodeClass.ASSIGNMENT_VALUE) {
+                    assignmentValues.addAll(Set.unionAll(getValues(connections.get(currentInput))));
+                } else {
+                    alteredNodes.addAll(getValues(currentInput));
+                }
+            }
+
+            for(Batch<T> batch : outgoing) {
+                batch.assignmentTargets.put(currentAssignment, alteredNodes.toSet());
+                batch.assignmentValues.put(currentAssignment, assignmentValues.toSet());
+            }
+        }
+        nextAssignments.clear();
+
+        List<Execution.Assignment<T>> evaluated = new ArrayList<>();
+        for(Batch<T> batch : transport.exchange(index, outgoing)) {
+            for(Map.Entry<T, Set<T>> entry : batch.assignmentTargets.entrySet()) {
+                evaluated.add(new Execution.Assignment<>(entry.getKey(), entry.getValue(),
+                        batch.assignmentValues.get(entry.getKey())));
+            }
+        }
+        Map<T, Set<T>> effects = Execution.resolveAssignments(evaluated, assignmentConflict, assignmentPriority);
+
+        SetBuilder<T> rewired = new SetBuilder<>();
+        boolean classesChanged = false;
+        for(Map.Entry<T, Set<T>> effect : effects.entrySet()) {
+            T alteredNode = effect.getKey();
+            classesChanged |= alteredNode.equals(operation) || opNodes.contains(alteredNode);
+            //Only the connections into owned nodes are held for most nodes, a change to the rest is not seen
+            boolean partial = !holdsAll(alteredNode);
+            if(hold(alteredNode, effect.getValue())) {
+                rewired.add(alteredNode);
+                if(owns(alteredNode) && literalNodes.contains(alteredNode)) {
+                    nextUpdate.add(alteredNode);
+                }
+            } else if(!partial) {
+                continue;
+            }
+            for(T reader : values.getReverse(alteredNode).intersect(connectionsOfNodes)) {
+                if(owns(reader)) {
+                    nextUpdate.add(reader);
+                }
+            }
+        }
+
+        return refreshReaders(rewired.toSet(), classesChanged);
+    }
+
+    /**
+     * Rewiring can give a node readers on other workers which never received its value, so the owners of the
+     * inputs of rewired nodes send their current values to every reader before the next step. Rewiring a class
+     * node can make nodes assignments, whose owners then send their connections to every worker.
+     * @return whether any worker has updates queued for the next step
+     */
+    private boolean refreshReaders(Set<T> rewired, boolean classesChanged) throws ExecutionException {
+        List<Batch<T>> outgoing = newBatches();
+
+        for(T rewiredNode : rewired) {
+            SetBuilder<T> inputs = SetBuilder.fromSet(connections.get(rewiredNode));
+            if(getNodeClass(rewiredNode) == NodeClass.ASSIGNMENT) {
+                for(T input : connections.get(rewiredNode)) {
+                    if(getNodeClass(input) == NodeClass.ASSIGNMENT_VALUE) {
+                        inputs.addAll(connections.get(input));
+                    }
+                }
+            }
+
+            for(T input : inputs.toSet()) {
+                if(owns(input) && getValues(input).hasContents()) {
+                    send(input, getValues(input), outgoing);
+                }
+            }
+        }
+
+        if(classesChanged) {
+            for(T shared : connections.get(assignmentClass).union(connections.get(assignmentValueClass))) {
+                if(owns(shared)) {
+                    for(Batch<T> batch : outgoing) {
+                        batch.connections.put(shared, connections.get(shared));
+                    }
+                }
+            }
+        }
+
+        for(Batch<T> batch : outgoing) {
+            batch.active = nextUpdate.size() != 0;
+        }
+
+        boolean active = false;
+        for(Batch<T> batch : transport.exchange(index, outgoing)) {
+            active |= batch.active;
+            if(batch == outgoing.get(index)) {
+                continue;
+            }
+            for(Map.Entry<T, Set<T>> entry : batch.values.entrySet()) {
+                values.update(entry.getKey(), entry.getValue());
+            }
+            for(Map.Entry<T, Set<T>> entry : batch.connections.entrySet()) {
+                connections.update(entry.getKey(), entry.getValue());
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Queues the new value of an owned node for every other worker owning a node which reads it. Operators read
+     * their inputs and assignments read their targets directly, assignments also read the inputs of their
+     * assignment value nodes.
+     */
+    private void send(T node, Set<T> newValues, List<Batch<T>> outgoing) {
+        for(T reader : connections.getReverse(node)) {
+            outgoing.get(ownerOf(reader)).values.put(node, newValues);
+
+            if(getNodeClass(reader) == NodeClass.ASSIGNMENT_VALUE) {
+                for(T assignment : connections.getReverse(reader)) {
+                    outgoing.get(ownerOf(assignment)).values.put(node, newValues);
+                }
+            }
+        }
+        outgoing.get(index).values.remove(node);
+    }
+
+    private int ownerOf(T node) {
+        return partitioner.partitionOf(node, partitions);
+    }
+
+    private List<Batch<T>> newBatches() {
+        List<Batch<T>> batches = new ArrayList<>();
+        for(int i = 0; i < partitions; i++) {
+            batches.add(new Batch<>());
+        }
+        return batches;
+    }
+
+    /**
+     * @see Execution#getNodeClass
+     */
+    private NodeClass getNodeClass(T node) {
+        return getNodeClass(node, getClassNodes(node));
+    }
+
+    private NodeClass getNodeClass(T node, Set<T> classNodes) {
+        return classTable.classOf(node, opNodes, classNodes);
+    }
+
+    private Set<T> getClassNodes(T node) {
+        return connections.getReverse(node).intersect(opNodes);
+    }
+
+    /**
+     * @see Execution#processNode
+     */
+    private Set<T> processNode(T node, T classNode) {
+        return classTable.evaluate(node, classNode, connections.get(node), context);
+    }
+
+    private final OperatorContext<T> context = new OperatorContext<T>() {
+        @Override
+        public Set<T> getValues(T node) {
+            return PartitionWorker.this.getValues(node);
+        }
+
+        @Override
+        public Set<T> getConnections(T node) {
+            if(!holdsAll(node)) {
+                missing.add(node);
+            }
+            return connections.get(node);
+        }
+    };
+
+    /**
+     * @return the connections of a node owned by this worker
+     */
+    Set<T> queryNode(T node) {
+        return connections.get(node);
+    }
+
+    /**
+     * @return the number of connections held by this worker
+     */
+    public long heldConnections() {
+        long output = 0;
+        for(Set<T> targets : connections.toMap().values()) {
+            output += targets.size();
+        }
+        return output;
+    }
+
+    Set<T> getValues(T node) {
+        return values.get(node);
+    }
+
+    private Set<Set<T>> getValues(Set<T> nodes) {
+        SetBuilder<Set<T>> outputBuilder = new SetBuilder<>();
+
+        for (T node : nodes) {
+            outputBuilder.add(getValues(node));
+        }
+
+        return outputBuilder.toSet();
+    }
+}
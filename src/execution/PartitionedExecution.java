@@ -0,0 +1,118 @@
+package execution;
+
+import execution.ExecutionException.TransportFailure;
+import sets.Set;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executes a program split across the workers of a Transport in bulk synchronous sub-steps. Every worker runs
+ * in its own thread of this process, producing the same results as a single Execution of the program with the same
+ * assignment conflict policy. Workers hosted by other processes run a PartitionWorker of
+ * their own, see {@link benchmark.PartitionWorkerRunner}.
+ *
+ * @param <T> The type of the nodes
+ */
+public class PartitionedExecution<T> implements AutoCloseable {
+    private final Transport<T> transport;
+    private final Partitioner<T> partitioner;
+    private final List<PartitionWorker<T>> workers = new ArrayList<>();
+    private final ExecutorService threads;
+
+    /**
+     * @param classTable the node class table of the program
+     * @param connections the program, each worker copies the part it holds
+     * @param partitioner the assignment of nodes to workers
+     * @param transport the channel between the workers, all of which must be hosted by this process
+     */
+    public PartitionedExecution(NodeClassTable<T> classTable, Digraph<T> connections,
+                                Partitioner<T> partitioner, Transport<T> transport) {
+        this.transport = transport;
+        this.partitioner = partitioner;
+        this.threads = Executors.newFixedThreadPool(transport.workers(), runnable -> {
+            Thread thread = new Thread(runnable, "partition-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<T, Set<T>> program = connections.toMap();
+        for(int i = 0; i < transport.workers(); i++) {
+            workers.add(new PartitionWorker<>(i, classTable, program, partitioner, transport));
+        }
+    }
+
+    public synchronized boolean executeStep() throws ExecutionException {
+        //Results are taken in completion order so a failing worker is seen while the others wait at a barrier
+        CompletionService<Boolean> results = new ExecutorCompletionService<>(threads);
+        for(PartitionWorker<T> worker : workers) {
+            results.submit(worker::executeStep);
+        }
+
+        boolean active = false;
+        try {
+            for(int i = 0; i < workers.size(); i++) {
+                active |= results.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new TransportFailure("Interrupted while executing a step", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            close();
+            if(e.getCause() instanceof ExecutionException) {
+                throw (ExecutionException) e.getCause();
+            }
+            throw new TransportFailure("Partition worker failed", e.getCause());
+        }
+        return active;
+    }
+
+    /**
+     * @see Execution#setAssignmentConflict
+     */
+    public synchronized void setAssignmentConflict(AssignmentConflict policy) {
+        for(PartitionWorker<T> worker : workers) {
+            worker.setAssignmentConflict(policy);
+        }
+    }
+
+    /**
+     * @see Execution#setAssignmentPriority
+     */
+    public synchronized void setAssignmentPriority(Comparator<? super T> priority) {
+        for(PartitionWorker<T> worker : workers) {
+            worker.setAssignmentPriority(priority);
+        }
+    }
+
+    /**
+     * Answered by the worker owning the node
+     */
+    public synchronized Set<T> queryNode(T node) {
+        return workers.get(partitioner.partitionOf(node, workers.size())).queryNode(node);
+    }
+
+    /**
+     * @return the number of connections held by each worker
+     */
+    public synchronized List<Long> getHeldConnections() {
+        List<Long> output = new ArrayList<>();
+        for(PartitionWorker<T> worker : workers) {
+            output.add(worker.heldConnections());
+        }
+        return output;
+    }
+
+    @Override
+    public void close() {
+        transport.close();
+        threads.shutdownNow();
+    }
+}
@@ -0,0 +1,22 @@
+package execution;
+
+/**
+ * Assigns each node to the partition that owns it
+ *
+ * @param <T> The type of the nodes
+ */
+public interface Partitioner<T> {
+    /**
+     * @param node the node being placed
+     * @param partitions the number of partitions
+     * @return the index of the owning partition, between 0 and partitions-1
+     */
+    int partitionOf(T node, int partitions);
+
+    /**
+     * @return a partitioner spreading nodes by their hash code
+     */
+    static <U> Partitioner<U> byHash() {
+        return (node, partitions) -> Math.floorMod(node.hashCode(), partitions);
+    }
+}
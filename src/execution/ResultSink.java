@@ -0,0 +1,307 @@
+package execution;
+
+import sets.Set;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the changes of a set of output nodes to files as an Execution runs. The step thread only files the latest
+ * change of each output and hands the step to a StepWriter, whose thread encodes queued steps and appends them
+ * with one gathering write per batch, starting a new file whenever the current one would grow past the rotation
+ * size. The first record holds the state of the outputs when the sink was created.
+ *
+ * Binary layout: magic, version, then records of [step long][change count int] and for each change
+ *  [kind byte][node][set], which replay() reads back.
+ * CSV layout: a header, then a line of step,node,kind,elements per change with the elements separated by spaces.
+ *
+ * @param <T> The type of the nodes
+ */
+public class ResultSink<T> implements StepListener<T>, AutoCloseable {
+    public enum Format { BINARY, CSV }
+
+    static final int MAGIC = 0x52534E4B;
+    static final int VERSION = 1;
+    static final byte VALUE = 0;
+    static final byte CONNECTIONS = 1;
+    private static final String CSV_HEADER = "step,node,kind,elements\n";
+
+    /**
+     * Steps which may wait for the writer before the step thread blocks
+     */
+    private static final int QUEUE_SIZE = 1024;
+
+    private final Execution<T> execution;
+    private final java.util.Set<T> outputs;
+    private final Path directory;
+    private final Format format;
+    private final NodeCodec<T> codec;
+    private final long rotateBytes;
+
+    private final StepWriter<T> writer = new StepWriter<>("result-writer", QUEUE_SIZE, false, this::write);
+    private boolean closed = false;
+
+    /**
+     * The file being written and what was written so far, only touched by the writer
+     */
+    private FileChannel channel;
+    private long fileBytes = 0;
+    private final List<Path> files = new ArrayList<>();
+    private long steps = 0;
+
+    /**
+     * Starts exporting the outputs of an execution
+     * @param execution the execution, which must not be stepped while the sink is created
+     * @param outputs the nodes whose value and connection changes are exported
+     * @param directory the directory the files are created in, as results-00000.bin or .csv onwards
+     * @param format the encoding of the files
+     * @param codec the encoding of the nodes in BINARY files, unused for CSV
+     * @param rotateBytes the size past which a new file is started
+     */
+    public ResultSink(Execution<T> execution, Collection<T> outputs, Path directory, Format format,
+                      NodeCodec<T> codec, long rotateBytes) throws IOException {
+        this.execution = execution;
+        this.outputs = new HashSet<>(outputs);
+        this.directory = directory;
+        this.format = format;
+        this.codec = codec;
+        this.rotateBytes = rotateBytes;
+        rotate();
+
+        StepWriter.Step<T> initial;
+        synchronized (execution) {
+            Map<T, Set<T>> values = new LinkedHashMap<>();
+            Map<T, Set<T>> connections = new LinkedHashMap<>();
+            for(T output : outputs) {
+                values.put(output, execution.queryValue(output));
+                connections.put(output, execution.queryNode(output));
+            }
+            initial = new StepWriter.Step<>(execution.getStep(), values, connections);
+            execution.addListener(this);
+        }
+        write(List.of(initial));
+        writer.start();
+    }
+
+    //StepListener -----------------------------------------------------------------------------------------------------
+    @Override
+    public void valueChanged(T node, Set<T> newValues) {
+        if(outputs.contains(node)) {
+            writer.valueChanged(node, newValues);
+        }
+    }
+
+    @Override
+    public void connectionsChanged(T node, Set<T> newConnections) {
+        if(outputs.contains(node)) {
+            writer.connectionsChanged(node, newConnections);
+        }
+    }
+
+    @Override
+    public void stepCompleted(long step) {
+        writer.stepCompleted(step);
+    }
+
+    /**
+     * Stops exporting, writes the steps still queued and closes the current file
+     * @throws IOException when writing any step failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (execution) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            execution.removeListener(this);
+        }
+        try {
+            writer.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return the files written so far, in order, safe to read once the sink is closed
+     */
+    public synchronized List<Path> getFiles() {
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * @return the number of records written, including the initial state
+     */
+    public synchronized long getSteps() {
+        return steps;
+    }
+
+    //Writing ----------------------------------------------------------------------------------------------------------
+    /**
+     * Encodes steps and writes them with a gathering write per file they go to
+     */
+    private void write(List<StepWriter.Step<T>> batch) throws IOException {
+        List<ByteBuffer> pending = new ArrayList<>();
+        long pendingBytes = 0;
+        for(StepWriter.Step<T> step : batch) {
+            ByteBuffer record = encode(step);
+            if(fileBytes + pendingBytes + record.remaining() > rotateBytes && fileBytes + pendingBytes > headerBytes()) {
+                gather(pending);
+                pending.clear();
+                pendingBytes = 0;
+                rotate();
+            }
+            pending.add(record);
+            pendingBytes += record.remaining();
+        }
+        gather(pending);
+        synchronized (this) {
+            steps += batch.size();
+        }
+    }
+
+    private void gather(List<ByteBuffer> buffers) throws IOException {
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+        int first = 0;
+        while(first < array.length) {
+            fileBytes += channel.write(array, first, array.length - first);
+            while(first < array.length && !array[first].hasRemaining()) {
+                first++;
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        if(channel != null) {
+            channel.close();
+        }
+        Path path = directory.resolve(String.format("results-%05d.%s", files.size(),
+                format == Format.BINARY ? "bin" : "csv"));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        synchronized (this) {
+            files.add(path);
+        }
+
+        ByteBuffer header;
+        if(format == Format.BINARY) {
+            header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip();
+        } else {
+            header = ByteBuffer.wrap(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+        fileBytes = 0;
+        gather(List.of(header));
+    }
+
+    private int headerBytes() {
+        return format == Format.BINARY ? 8 : CSV_HEADER.length();
+    }
+
+    private ByteBuffer encode(StepWriter.Step<T> step) throws IOException {
+        if(format == Format.CSV) {
+            StringBuilder out = new StringBuilder();
+            appendCsv(out, step.step, step.values, "value");
+            appendCsv(out, step.step, step.connections, "connections");
+            return ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(raw);
+        out.writeLong(step.step);
+        out.writeInt(step.values.size() + step.connections.size());
+        writeChanges(out, VALUE, step.values);
+        writeChanges(out, CONNECTIONS, step.connections);
+        out.flush();
+        return ByteBuffer.wrap(raw.toByteArray());
+    }
+
+    private void writeChanges(DataOutputStream out, byte kind, Map<T, Set<T>> changes) throws IOException {
+        for(Map.Entry<T, Set<T>> entry : changes.entrySet()) {
+            out.writeByte(kind);
+            codec.write(out, entry.getKey());
+            codec.writeSet(out, entry.getValue());
+        }
+    }
+
+    private void appendCsv(StringBuilder out, long step, Map<T, Set<T>> changes, String kind) {
+        for(Map.Entry<T, Set<T>> entry : changes.entrySet()) {
+            out.append(step).append(',');
+            appendField(out, String.valueOf(entry.getKey()));
+            out.append(',').append(kind).append(',');
+            StringBuilder elements = new StringBuilder();
+            for(T element : entry.getValue()) {
+                if(elements.length() != 0) {
+                    elements.append(' ');
+                }
+                elements.append(element);
+            }
+            appendField(out, elements.toString());
+            out.append('\n');
+        }
+    }
+
+    private static void appendField(StringBuilder out, String field) {
+        if(field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+            out.append(field);
+        } else {
+            out.append('"').append(field.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    //Reading ----------------------------------------------------------------------------------------------------------
+    /**
+     * Reads BINARY files back in order, reporting every change and then the step it belongs to
+     * @param files the files of a sink, in the order they were written
+     * @param codec the encoding of the nodes
+     * @param listener receives the changes
+     */
+    public static <T> void replay(List<Path> files, NodeCodec<T> codec, StepListener<T> listener)
+            throws IOException {
+        for(Path file : files) {
+            try(InputStream stream = new BufferedInputStream(Channels.newInputStream(FileChannel.open(file)))) {
+                DataInputStream in = new DataInputStream(stream);
+                if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException(file + " is not a result file");
+                }
+                while(true) {
+                    long step;
+                    try {
+                        step = in.readLong();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    int count = in.readInt();
+                    for(int i = 0; i < count; i++) {
+                        byte kind = in.readByte();
+                        T node = codec.read(in);
+                        Set<T> set = codec.readSet(in);
+                        if(kind == VALUE) {
+                            listener.valueChanged(node, set);
+                        } else {
+                            listener.connectionsChanged(node, set);
+                        }
+                    }
+                    listener.stepCompleted(step);
+                }
+            }
+        }
+    }
+}
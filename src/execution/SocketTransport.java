@@ -0,0 +1,254 @@
+package execution;
+
+import execution.ExecutionException.TransportFailure;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A Transport connecting workers over TCP sockets. Every pair of workers shares a connection in each direction
+ * and incoming batches are read by a background thread so that large batches can not deadlock a barrier.
+ * Workers can live in separate processes, see {@link #connect(int, List)}, or in this process for testing,
+ * see {@link #local(int)}.
+ *
+ * @param <T> The type of the nodes, which must be Serializable
+ */
+public class SocketTransport<T> implements Transport<T> {
+    private static final int CONNECT_ATTEMPTS = 50;
+    private static final long CONNECT_RETRY_MILLIS = 100;
+
+    private final int workers;
+    /**
+     * The endpoints hosted by this process indexed by worker, null for workers hosted elsewhere
+     */
+    private final List<Endpoint> endpoints = new ArrayList<>();
+
+    private SocketTransport(int workers) {
+        this.workers = workers;
+        for(int i = 0; i < workers; i++) {
+            endpoints.add(null);
+        }
+    }
+
+    /**
+     * Hosts every worker in this process, connected through the loopback interface
+     * @param workers the number of workers
+     * @return the transport
+     * @throws IOException when the sockets can not be opened
+     */
+    public static <U> SocketTransport<U> local(int workers) throws IOException {
+        SocketTransport<U> transport = new SocketTransport<>(workers);
+        List<ServerSocket> servers = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+
+        for(int i = 0; i < workers; i++) {
+            ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress());
+            servers.add(server);
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()));
+        }
+
+        for(int i = 0; i < workers; i++) {
+            transport.endpoints.set(i, transport.new Endpoint(i, servers.get(i), addresses));
+        }
+        return transport;
+    }
+
+    /**
+     * Hosts a single worker in this process, the other workers are reached at the given addresses
+     * @param worker the index of the hosted worker
+     * @param addresses the listening address of every worker, including the hosted one
+     * @return the transport
+     * @throws IOException when the connections can not be established
+     */
+    public static <U> SocketTransport<U> connect(int worker, List<InetSocketAddress> addresses) throws IOException {
+        SocketTransport<U> transport = new SocketTransport<>(addresses.size());
+        ServerSocket server = new ServerSocket();
+        server.bind(addresses.get(worker), addresses.size());
+        transport.endpoints.set(worker, transport.new Endpoint(worker, server, addresses));
+        return transport;
+    }
+
+    @Override
+    public int workers() {
+        return workers;
+    }
+
+    @Override
+    public List<Batch<T>> exchange(int worker, List<Batch<T>> outgoing) throws ExecutionException {
+        Endpoint endpoint = endpoints.get(worker);
+        if(endpoint == null) {
+            throw new TransportFailure("Worker " + worker + " is not hosted by this transport", null);
+        }
+        return endpoint.exchange(outgoing);
+    }
+
+    @Override
+    public void close() {
+        for(Endpoint endpoint : endpoints) {
+            if(endpoint != null) {
+                endpoint.close();
+            }
+        }
+    }
+
+    /**
+     * The sockets belonging to one worker
+     */
+    private class Endpoint {
+        private final int index;
+        private final ServerSocket server;
+        private final List<Socket> sockets = new ArrayList<>();
+        private final List<ObjectOutputStream> outputs = new ArrayList<>();
+        /**
+         * Received batches indexed by sender, an IOException is queued when the connection fails
+         */
+        private final List<BlockingQueue<Object>> inputs = new ArrayList<>();
+
+        Endpoint(int index, ServerSocket server, List<InetSocketAddress> addresses) throws IOException {
+            this.index = index;
+            this.server = server;
+
+            for(int i = 0; i < workers; i++) {
+                outputs.add(null);
+                inputs.add(new LinkedBlockingQueue<>());
+            }
+
+            //Peers are accepted in the background since they may connect after this endpoint does
+            Thread acceptor = new Thread(this::acceptPeers, "transport-accept-" + index);
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            for(int peer = 0; peer < workers; peer++) {
+                if(peer == index) {
+                    continue;
+                }
+                Socket socket = open(addresses.get(peer));
+                socket.setTcpNoDelay(true);
+                synchronized (sockets) {
+                    sockets.add(socket);
+                }
+                DataOutputStream handshake = new DataOutputStream(socket.getOutputStream());
+                handshake.writeInt(index);
+                handshake.flush();
+                outputs.set(peer, new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+            }
+        }
+
+        private Socket open(InetSocketAddress address) throws IOException {
+            IOException failure = null;
+            for(int attempt = 0; attempt < CONNECT_ATTEMPTS; attempt++) {
+                try {
+                    return new Socket(address.getAddress(), address.getPort());
+                } catch (IOException e) {
+                    failure = e;
+                }
+                try {
+                    Thread.sleep(CONNECT_RETRY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            throw failure;
+        }
+
+        private void acceptPeers() {
+            for(int i = 0; i < workers - 1; i++) {
+                try {
+                    Socket socket = server.accept();
+                    socket.setTcpNoDelay(true);
+                    synchronized (sockets) {
+                        sockets.add(socket);
+                    }
+                    int peer = new DataInputStream(socket.getInputStream()).readInt();
+                    Thread reader = new Thread(() -> read(socket, inputs.get(peer)), "transport-read-" + index + "-" + peer);
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    for(BlockingQueue<Object> input : inputs) {
+                        input.add(e);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void read(Socket socket, BlockingQueue<Object> input) {
+            try (ObjectInputStream stream = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while(true) {
+                    input.add(Batch.readFrom(stream));
+                }
+            } catch (IOException e) {
+                input.add(e);
+            }
+        }
+
+        List<Batch<T>> exchange(List<Batch<T>> outgoing) throws ExecutionException {
+            List<Batch<T>> incoming = new ArrayList<>();
+
+            try {
+                for(int peer = 0; peer < workers; peer++) {
+                    if(peer == index) {
+                        continue;
+                    }
+                    ObjectOutputStream output = outputs.get(peer);
+                    outgoing.get(peer).writeTo(output);
+                    output.reset();
+                    output.flush();
+                }
+
+                for(int peer = 0; peer < workers; peer++) {
+                    if(peer == index) {
+                        incoming.add(outgoing.get(index));
+                        continue;
+                    }
+                    incoming.add(take(peer));
+                }
+            } catch (IOException e) {
+                throw new TransportFailure("Partition worker " + index + " lost a connection", e);
+            }
+
+            return incoming;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Batch<T> take(int peer) throws IOException, ExecutionException {
+            Object received;
+            try {
+                received = inputs.get(peer).take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TransportFailure("Interrupted while waiting on worker " + peer, e);
+            }
+            if(received instanceof IOException) {
+                throw (IOException) received;
+            }
+            return (Batch<T>) received;
+        }
+
+        void close() {
+            try {
+                server.close();
+            } catch (IOException ignored) {
+            }
+            synchronized (sockets) {
+                for(Socket socket : sockets) {
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+            for(BlockingQueue<Object> input : inputs) {
+                input.add(new EOFException("Transport closed"));
+            }
+        }
+    }
+}
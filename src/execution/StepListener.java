@@ -0,0 +1,31 @@
+package execution;
+
+import sets.Set;
+
+/**
+ * Receives the changes an Execution makes, on the thread executing the step and while it holds the Execution.
+ * Listeners must return quickly and must not call back into the Execution.
+ *
+ * @param <T> The type of the nodes
+ */
+public interface StepListener<T> {
+    /**
+     * Called when a sub-step changes the value of a node
+     * @param node the node
+     * @param newValues the new value of the node
+     */
+    default void valueChanged(T node, Set<T> newValues) {}
+
+    /**
+     * Called when an assignment or an external update changes the connections of a node
+     * @param node the node
+     * @param newConnections the new connection set of the node
+     */
+    default void connectionsChanged(T node, Set<T> newConnections) {}
+
+    /**
+     * Called once at the end of every step
+     * @param step the number of steps executed so far, starting at 1
+     */
+    default void stepCompleted(long step) {}
+}
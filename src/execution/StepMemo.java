@@ -0,0 +1,318 @@
+package execution;
+
+import sets.Set;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs an Execution while memoizing what runs of steps do, for deterministic programs which revisit states. The
+ * state between steps, connections, values and queued nodes, is kept as a 64 bit fingerprint updated from the
+ * changes the Execution reports.
+ *
+ * Every run of stride steps is recorded as the net changes it made, keyed by the fingerprint it started from, along
+ * with a copy of the state it started from. When a state with a recorded run comes back and matches that copy exactly
+ * the changes are applied instead of executing the steps. The copies share the sets of the Execution, so each costs
+ * a map entry per node rather than a copy of the program. A fingerprint
+ * seen twice is also checked for an exact cycle: the state is copied and, if the same state is reached again, the
+ * rest of the run skips every whole period without applying anything.
+ *
+ * Listeners see the net changes and a single stepCompleted for a memoized run, and a single stepCompleted for the
+ * skipped periods. The Execution is held for the whole of run(), updates made between runs are picked up by the
+ * fingerprint but end the search for a cycle.
+ *
+ * @param <T> The type of the nodes
+ */
+public class StepMemo<T> implements StepListener<T> {
+    private static final long CONNECTIONS_SALT = 0x9E3779B97F4A7C15L;
+    private static final long VALUES_SALT = 0xC2B2AE3D27D4EB4FL;
+    private static final long PENDING_SALT = 0x165667B19E3779F9L;
+
+    private final Execution<T> execution;
+    private final int stride;
+    private final int capacity;
+
+    /**
+     * The contribution of the connections and of the value of each node to the fingerprint
+     */
+    private final Map<T, Long> connectionHashes = new HashMap<>();
+    private final Map<T, Long> valueHashes = new HashMap<>();
+    private long stateHash = 0;
+
+    private final LinkedHashMap<Long, Run<T>> runs;
+    private Map<T, Set<T>> recordedConnections;
+    private Map<T, Set<T>> recordedValues;
+    private boolean running = false;
+
+    /**
+     * The step each fingerprint was seen at since the last update from outside a run
+     */
+    private final Map<Long, Long> seen = new HashMap<>();
+    private State<T> candidate;
+    private long period = 0;
+
+    private long memoized = 0;
+    private long skipped = 0;
+
+    /**
+     * Creates a memo listening to an Execution, which must be between steps
+     * @param execution the execution
+     * @param stride the number of steps a memoized run covers
+     * @param capacity the most runs kept, the least recently used are dropped, and the most fingerprints remembered
+     *                 while looking for a cycle
+     */
+    public StepMemo(Execution<T> execution, int stride, int capacity) {
+        if(stride < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Stride and capacity must be positive");
+        }
+        this.execution = execution;
+        this.stride = stride;
+        this.capacity = capacity;
+        this.runs = new LinkedHashMap<>(16, .75f, true);
+
+        synchronized (execution) {
+            for(Map.Entry<T, Set<T>> entry : execution.queryAll().entrySet()) {
+                connectionsChanged(entry.getKey(), entry.getValue());
+            }
+            for(Map.Entry<T, Set<T>> entry : execution.queryAllValues().entrySet()) {
+                valueChanged(entry.getKey(), entry.getValue());
+            }
+            execution.addListener(this);
+        }
+    }
+
+    /**
+     * Advances the Execution by up to a number of steps, stopping early once nothing is queued
+     * @param steps the number of steps
+     * @return the number of steps the Execution advanced by
+     */
+    public long run(long steps) throws ExecutionException {
+        synchronized (execution) {
+            running = true;
+            try {
+                return runSteps(steps);
+            } finally {
+                running = false;
+            }
+        }
+    }
+
+    private long runSteps(long steps) throws ExecutionException {
+        long advanced = 0;
+        while(advanced < steps) {
+            Set<T> pending = execution.getPendingUpdates();
+            if(pending.isEmpty()) {
+                break;
+            }
+            long fingerprint = fingerprint(pending);
+
+            if(candidate != null && candidate.fingerprint == fingerprint) {
+                if(candidate.matches(execution, pending)) {
+                    period = execution.getStep() - candidate.step;
+                    long periods = (steps - advanced) / period;
+                    if(periods > 0) {
+                        execution.advance(new HashMap<>(), new HashMap<>(), pending, periods * period);
+                        skipped += periods * period;
+                        advanced += periods * period;
+                    }
+                    seen.clear();
+                }
+                //Otherwise two states shared a fingerprint
+                candidate = null;
+                if(advanced == steps) {
+                    break;
+                }
+            }
+            Long previous = seen.put(fingerprint, execution.getStep());
+            if(previous != null && candidate == null) {
+                candidate = new State<>(fingerprint, execution.getStep(), execution, pending);
+            }
+            if(seen.size() > capacity) {
+                seen.clear();
+            }
+
+            //A run whose start state differs only shares the fingerprint, the steps are executed and recorded over it
+            Run<T> run = runs.get(fingerprint);
+            if(run != null && run.steps <= steps - advanced && run.start.matches(execution, pending)) {
+                execution.advance(run.connections, run.values, run.pending, run.steps);
+                advanced += run.steps;
+                memoized += run.steps;
+                continue;
+            }
+
+            State<T> start = new State<>(fingerprint, execution.getStep(), execution, pending);
+            recordedConnections = new LinkedHashMap<>();
+            recordedValues = new LinkedHashMap<>();
+            int executed = 0;
+            boolean active = true;
+            try {
+                while(executed < stride && advanced < steps && active) {
+                    active = execution.executeStep();
+                    executed++;
+                    advanced++;
+                }
+            } finally {
+                if(executed == stride) {
+                    runs.put(fingerprint, new Run<>(start, recordedConnections, recordedValues,
+                            execution.getPendingUpdates(), executed));
+                    if(runs.size() > capacity) {
+                        runs.remove(runs.keySet().iterator().next());
+                    }
+                }
+                recordedConnections = null;
+                recordedValues = null;
+            }
+        }
+        return advanced;
+    }
+
+    //Fingerprint ------------------------------------------------------------------------------------------------------
+    @Override
+    public void connectionsChanged(T node, Set<T> newConnections) {
+        stateHash += replace(connectionHashes, node, newConnections, CONNECTIONS_SALT);
+        if(recordedConnections != null) {
+            recordedConnections.put(node, newConnections);
+        }
+        if(!running) {
+            //An update from outside breaks any cycle seen so far
+            seen.clear();
+            candidate = null;
+        }
+    }
+
+    @Override
+    public void valueChanged(T node, Set<T> newValues) {
+        stateHash += replace(valueHashes, node, newValues, VALUES_SALT);
+        if(recordedValues != null) {
+            recordedValues.put(node, newValues);
+        }
+    }
+
+    /**
+     * @return the change to the fingerprint
+     */
+    private static <T> long replace(Map<T, Long> hashes, T node, Set<T> set, long salt) {
+        long hash = set.isEmpty() ? 0 : mix(mix(node.hashCode() ^ salt) + hashOf(set));
+        Long old = hash == 0 ? hashes.remove(node) : hashes.put(node, hash);
+        return hash - (old == null ? 0 : old);
+    }
+
+    private long fingerprint(Set<T> pending) {
+        return stateHash + mix(hashOf(pending) ^ PENDING_SALT);
+    }
+
+    /**
+     * A hash of the contents of a set, stronger than the sum of the element hashes
+     */
+    private static <T> long hashOf(Set<T> set) {
+        long output = 0;
+        for(T element : set) {
+            output += mix(element.hashCode());
+        }
+        return output;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+
+    //Statistics -------------------------------------------------------------------------------------------------------
+    /**
+     * @return the number of steps replaced by recorded runs
+     */
+    public long getMemoized() {
+        synchronized (execution) {
+            return memoized;
+        }
+    }
+
+    /**
+     * @return the number of steps skipped as whole periods of a cycle
+     */
+    public long getSkipped() {
+        synchronized (execution) {
+            return skipped;
+        }
+    }
+
+    /**
+     * @return the length of the last cycle found, 0 if none was
+     */
+    public long getPeriod() {
+        synchronized (execution) {
+            return period;
+        }
+    }
+
+    public int getRuns() {
+        synchronized (execution) {
+            return runs.size();
+        }
+    }
+
+    public void close() {
+        execution.removeListener(this);
+    }
+
+    /**
+     * The net changes of a run of steps
+     */
+    private static final class Run<T> {
+        private final State<T> start;
+        private final Map<T, Set<T>> connections;
+        private final Map<T, Set<T>> values;
+        private final Set<T> pending;
+        private final int steps;
+
+        Run(State<T> start, Map<T, Set<T>> connections, Map<T, Set<T>> values, Set<T> pending, int steps) {
+            this.start = start;
+            this.connections = connections;
+            this.values = values;
+            this.pending = pending;
+            this.steps = steps;
+        }
+    }
+
+    /**
+     * A copy of the state at a step, compared exactly to confirm a cycle or a recorded run
+     */
+    private static final class State<T> {
+        private final long fingerprint;
+        private final long step;
+        private final Map<T, Set<T>> connections;
+        private final Map<T, Set<T>> values;
+        private final Set<T> pending;
+
+        State(long fingerprint, long step, Execution<T> execution, Set<T> pending) {
+            this.fingerprint = fingerprint;
+            this.step = step;
+            this.connections = execution.queryAll();
+            this.values = execution.queryAllValues();
+            this.pending = pending;
+        }
+
+        boolean matches(Execution<T> execution, Set<T> currentPending) {
+            return pending.equals(currentPending) && same(connections, execution.queryAll())
+                    && same(values, execution.queryAllValues());
+        }
+
+        private static <T> boolean same(Map<T, Set<T>> first, Map<T, Set<T>> second) {
+            for(Map.Entry<T, Set<T>> entry : first.entrySet()) {
+                Set<T> other = second.get(entry.getKey());
+                if(other == null ? entry.getValue().hasContents()
+                        : other != entry.getValue() && !entry.getValue().equals(other)) {
+                    return false;
+                }
+            }
+            for(Map.Entry<T, Set<T>> entry : second.entrySet()) {
+                if(!first.containsKey(entry.getKey()) && entry.getValue().hasContents()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package execution;
+
+import sets.Set;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands the changes of completed steps from the step thread to a writer thread. The step thread only files the
+ * latest change of each node and queues the step in a bounded queue, blocking once the writer falls that far behind.
+ * The writer takes every queued step at once and passes them to the output. Once the output fails the remaining steps
+ * are dropped, and the failure is thrown by close.
+ *
+ * @param <T> The type of the nodes
+ */
+final class StepWriter<T> {
+    /**
+     * Writes steps on the writer thread
+     */
+    interface Output<T> {
+        void write(List<Step<T>> steps) throws IOException;
+    }
+
+    private final Output<T> output;
+    private final boolean emptySteps;
+    private final BlockingQueue<Step<T>> queue;
+    private final Thread thread;
+    private volatile IOException failure;
+
+    /**
+     * The changes of the running step, only touched while holding the Execution
+     */
+    private Map<T, Set<T>> stepValues = new LinkedHashMap<>();
+    private Map<T, Set<T>> stepConnections = new LinkedHashMap<>();
+
+    /**
+     * @param name the name of the writer thread
+     * @param capacity the steps which may wait for the writer before the step thread blocks
+     * @param emptySteps whether steps without changes are written
+     * @param output writes the steps
+     */
+    StepWriter(String name, int capacity, boolean emptySteps, Output<T> output) {
+        this.output = output;
+        this.emptySteps = emptySteps;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the writer thread, steps completed before are queued
+     */
+    void start() {
+        thread.start();
+    }
+
+    void valueChanged(T node, Set<T> newValues) {
+        stepValues.put(node, newValues);
+    }
+
+    void connectionsChanged(T node, Set<T> newConnections) {
+        stepConnections.put(node, newConnections);
+    }
+
+    void stepCompleted(long step) {
+        if(!emptySteps && stepValues.isEmpty() && stepConnections.isEmpty()) {
+            return;
+        }
+        Step<T> completed = new Step<>(step, stepValues, stepConnections);
+        stepValues = new LinkedHashMap<>();
+        stepConnections = new LinkedHashMap<>();
+        try {
+            queue.put(completed);
+        } catch (InterruptedException e) {
+            failure = new IOException("Interrupted while queueing step " + step, e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the steps still queued and stops the writer, no step may be completed afterwards
+     * @throws IOException when writing any step failed
+     */
+    void close() throws IOException {
+        try {
+            queue.put(new Step<>(-1, null, null));
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    private void run() {
+        List<Step<T>> batch = new ArrayList<>();
+        try {
+            while(true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                boolean end = batch.get(batch.size() - 1).values == null;
+                if(end) {
+                    batch.remove(batch.size() - 1);
+                }
+                if(failure == null && !batch.isEmpty()) {
+                    try {
+                        output.write(batch);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                batch.clear();
+                if(end) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = new IOException(thread.getName() + " interrupted", e);
+        }
+    }
+
+    /**
+     * The changes of one step handed to the writer, null values end the writer
+     */
+    static final class Step<T> {
+        final long step;
+        final Map<T, Set<T>> values;
+        final Map<T, Set<T>> connections;
+
+        Step(long step, Map<T, Set<T>> values, Map<T, Set<T>> connections) {
+            this.step = step;
+            this.values = values;
+            this.connections = connections;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package execution;
+
+import sets.Set;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Records the value and connection changes of every step of an Execution to an append-only trace which a
+ * TraceReplayer can seek through without evaluating any operators.
+ *
+ * The step thread only files the latest change of each node and hands the step to a StepWriter, whose thread keeps
+ * its own copy of the state to write a keyframe holding every value and connection every keyframeInterval steps. Each
+ * record is deflated on its own, and the offset of every keyframe is appended to an index next to the trace.
+ *
+ * Trace layout: magic, version, keyframe interval, then records of
+ *  [kind byte][step long][raw length int][compressed length int][deflated payload]
+ * A delta record holds the changes made up to the end of its step, a keyframe the whole state at the end of it.
+ *
+ * @param <T> The type of the nodes
+ */
+public class TraceRecorder<T> implements StepListener<T>, AutoCloseable {
+    static final int MAGIC = 0x53545243;
+    static final int VERSION = 1;
+    static final byte DELTA = 0;
+    static final byte KEYFRAME = 1;
+    static final int HEADER_BYTES = 12;
+    static final int RECORD_HEADER_BYTES = 17;
+
+    /**
+     * Steps which may wait for the writer before the step thread blocks
+     */
+    private static final int QUEUE_SIZE = 256;
+
+    private final Execution<T> execution;
+    private final NodeCodec<T> codec;
+    private final int keyframeInterval;
+    private final long firstStep;
+
+    private final FileChannel trace;
+    private final FileChannel index;
+
+    private final StepWriter<T> writer = new StepWriter<>("trace-writer", QUEUE_SIZE, true, this::write);
+    private boolean closed = false;
+
+    /**
+     * The state at the end of the last written step, only touched by the writer
+     */
+    private final Map<T, Set<T>> values;
+    private final Map<T, Set<T>> connections;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[4096];
+
+    /**
+     * Starts recording from the current state of an execution, replacing any trace at the path
+     * @param execution the recorded execution, which must not be stepped while the recorder is created
+     * @param path the trace, its index is written next to it
+     * @param codec the encoding of the nodes
+     * @param keyframeInterval the number of steps between keyframes, bounding the deltas a seek applies
+     */
+    public TraceRecorder(Execution<T> execution, Path path, NodeCodec<T> codec, int keyframeInterval)
+            throws IOException {
+        if(keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be positive, not " + keyframeInterval);
+        }
+        this.execution = execution;
+        this.codec = codec;
+        this.keyframeInterval = keyframeInterval;
+
+        trace = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        index = FileChannel.open(indexPath(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(keyframeInterval).flip();
+        writeFully(trace, header);
+
+        synchronized (execution) {
+            firstStep = execution.getStep();
+            values = withoutEmpty(execution.queryAllValues());
+            connections = withoutEmpty(execution.queryAll());
+            writeKeyframe(firstStep);
+            execution.addListener(this);
+        }
+
+        writer.start();
+    }
+
+    static Path indexPath(Path trace) {
+        Path name = trace.getFileName();
+        return trace.resolveSibling(Paths.get(name + ".index"));
+    }
+
+    private static <T> Map<T, Set<T>> withoutEmpty(Map<T, Set<T>> map) {
+        map.values().removeIf(set -> !set.hasContents());
+        return map;
+    }
+
+    //StepListener -----------------------------------------------------------------------------------------------------
+    @Override
+    public void valueChanged(T node, Set<T> newValues) {
+        writer.valueChanged(node, newValues);
+    }
+
+    @Override
+    public void connectionsChanged(T node, Set<T> newConnections) {
+        writer.connectionsChanged(node, newConnections);
+    }
+
+    @Override
+    public void stepCompleted(long step) {
+        writer.stepCompleted(step);
+    }
+
+    /**
+     * Stops recording, writes the steps still queued and closes the trace
+     * @throws IOException when writing any step failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (execution) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            execution.removeListener(this);
+        }
+        try {
+            writer.close();
+        } finally {
+            deflater.end();
+            trace.close();
+            index.close();
+        }
+    }
+
+    //Writing ----------------------------------------------------------------------------------------------------------
+    private void write(List<StepWriter.Step<T>> steps) throws IOException {
+        for(StepWriter.Step<T> step : steps) {
+            apply(step.values, values);
+            apply(step.connections, connections);
+            writeRecord(DELTA, step.step, step.values, step.connections);
+            if((step.step - firstStep) % keyframeInterval == 0) {
+                writeKeyframe(step.step);
+            }
+        }
+    }
+
+    private static <T> void apply(Map<T, Set<T>> changes, Map<T, Set<T>> state) {
+        for(Map.Entry<T, Set<T>> entry : changes.entrySet()) {
+            if(entry.getValue().hasContents()) {
+                state.put(entry.getKey(), entry.getValue());
+            } else {
+                state.remove(entry.getKey());
+            }
+        }
+    }
+
+    private void writeKeyframe(long step) throws IOException {
+        long offset = trace.position();
+        writeRecord(KEYFRAME, step, values, connections);
+
+        ByteBuffer entry = ByteBuffer.allocate(16);
+        entry.putLong(step).putLong(offset).flip();
+        writeFully(index, entry);
+    }
+
+    private void writeRecord(byte kind, long step, Map<T, Set<T>> stepValues, Map<T, Set<T>> stepConnections)
+            throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(raw);
+        codec.writeMap(out, stepValues);
+        codec.writeMap(out, stepConnections);
+        out.flush();
+        byte[] payload = raw.toByteArray();
+
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        int length = 0;
+        while(!deflater.finished()) {
+            if(length == compressed.length) {
+                compressed = java.util.Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+        record.put(kind).putLong(step).putInt(payload.length).putInt(length).put(compressed, 0, length).flip();
+        writeFully(trace, record);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
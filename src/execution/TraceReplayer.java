@@ -0,0 +1,252 @@
+package execution;
+
+import sets.EmptySet;
+import sets.Set;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reconstructs the state of a recorded Execution at any step of a trace written by a TraceRecorder. A seek loads the
+ * nearest keyframe at or before the step and applies the deltas after it, so it reads at most one keyframe interval
+ * of records whatever the length of the trace. Seeking forward from the current step only applies the deltas between.
+ *
+ * A trace whose last record was cut short, by a crash during recording, ends at the last complete step.
+ *
+ * @param <T> The type of the nodes
+ */
+public class TraceReplayer<T> implements AutoCloseable {
+    private final NodeCodec<T> codec;
+    private final FileChannel trace;
+    private final int keyframeInterval;
+
+    /**
+     * The offset of each keyframe by its step
+     */
+    private final TreeMap<Long, Long> keyframes = new TreeMap<>();
+    private long lastStep;
+    private long end;
+
+    private final Map<T, Set<T>> values = new HashMap<>();
+    private final Map<T, Set<T>> connections = new HashMap<>();
+    private long step = -1;
+    private long position;
+
+    private final ByteBuffer recordHeader = ByteBuffer.allocate(TraceRecorder.RECORD_HEADER_BYTES);
+    private final Inflater inflater = new Inflater();
+
+    public TraceReplayer(Path path, NodeCodec<T> codec) throws IOException {
+        this.codec = codec;
+        trace = FileChannel.open(path, StandardOpenOption.READ);
+
+        ByteBuffer header = ByteBuffer.allocate(TraceRecorder.HEADER_BYTES);
+        if(!readFully(header, 0) || header.getInt() != TraceRecorder.MAGIC) {
+            trace.close();
+            throw new IOException(path + " is not a trace");
+        }
+        if(header.getInt() != TraceRecorder.VERSION) {
+            trace.close();
+            throw new IOException(path + " was written by an unsupported version");
+        }
+        keyframeInterval = header.getInt();
+
+        loadIndex(TraceRecorder.indexPath(path));
+        if(keyframes.isEmpty()) {
+            trace.close();
+            throw new IOException(path + " holds no keyframe");
+        }
+        seek(keyframes.firstKey());
+    }
+
+    /**
+     * Reads the keyframe index, then scans the record headers after the last indexed keyframe for the end of the
+     * trace. Without an index every record header is scanned.
+     */
+    private void loadIndex(Path indexPath) throws IOException {
+        long scanFrom = TraceRecorder.HEADER_BYTES;
+        if(Files.exists(indexPath)) {
+            ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            while(entries.remaining() >= 16) {
+                long keyframeStep = entries.getLong();
+                long offset = entries.getLong();
+                keyframes.put(keyframeStep, offset);
+                scanFrom = offset;
+            }
+        }
+
+        long offset = scanFrom;
+        long size = trace.size();
+        lastStep = keyframes.isEmpty() ? -1 : keyframes.lastKey();
+        while(readFully(recordHeader, offset)) {
+            byte kind = recordHeader.get();
+            long recordStep = recordHeader.getLong();
+            recordHeader.getInt();
+            long next = offset + TraceRecorder.RECORD_HEADER_BYTES + recordHeader.getInt();
+            if(next > size) {
+                break;
+            }
+            if(kind == TraceRecorder.KEYFRAME) {
+                keyframes.putIfAbsent(recordStep, offset);
+            }
+            lastStep = Math.max(lastStep, recordStep);
+            offset = next;
+        }
+        end = offset;
+    }
+
+    public long getFirstStep() {
+        return keyframes.firstKey();
+    }
+
+    public long getLastStep() {
+        return lastStep;
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * @return the step whose end state is loaded
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Loads the state at the end of a step
+     * @param target a step between the first and last step of the trace
+     */
+    public void seek(long target) throws IOException {
+        if(target < getFirstStep() || target > lastStep) {
+            throw new IllegalArgumentException("Step " + target + " is outside the trace [" + getFirstStep() + ", "
+                    + lastStep + "]");
+        }
+
+        Map.Entry<Long, Long> keyframe = keyframes.floorEntry(target);
+        if(step < 0 || target < step || keyframe.getKey() > step) {
+            values.clear();
+            connections.clear();
+            position = keyframe.getValue();
+            readRecord(TraceRecorder.KEYFRAME);
+        }
+        while(step < target) {
+            readRecord(TraceRecorder.DELTA);
+        }
+    }
+
+    /**
+     * Moves to the end of the next step
+     * @return false when the current step is the last one
+     */
+    public boolean next() throws IOException {
+        if(step >= lastStep) {
+            return false;
+        }
+        seek(step + 1);
+        return true;
+    }
+
+    /**
+     * Applies the next record of a kind at or after the current position, skipping records of the other kind
+     */
+    private void readRecord(byte wanted) throws IOException {
+        while(position < end) {
+            readFully(recordHeader, position);
+            byte kind = recordHeader.get();
+            long recordStep = recordHeader.getLong();
+            int rawLength = recordHeader.getInt();
+            int compressedLength = recordHeader.getInt();
+            long payloadOffset = position + TraceRecorder.RECORD_HEADER_BYTES;
+            position = payloadOffset + compressedLength;
+            if(kind != wanted) {
+                continue;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(compressedLength);
+            readFully(payload, payloadOffset);
+            byte[] raw = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(payload.array());
+            try {
+                int length = 0;
+                while(length < rawLength && !inflater.finished()) {
+                    length += inflater.inflate(raw, length, rawLength - length);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt record for step " + recordStep, e);
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            apply(in, values);
+            apply(in, connections);
+            step = recordStep;
+            return;
+        }
+        throw new IOException("Trace ends before step " + (step + 1));
+    }
+
+    private void apply(DataInputStream in, Map<T, Set<T>> state) throws IOException {
+        Map<T, Set<T>> changes = new HashMap<>();
+        codec.readMap(in, changes);
+        for(Map.Entry<T, Set<T>> entry : changes.entrySet()) {
+            if(entry.getValue().hasContents()) {
+                state.put(entry.getKey(), entry.getValue());
+            } else {
+                state.remove(entry.getKey());
+            }
+        }
+    }
+
+    private boolean readFully(ByteBuffer buffer, long offset) throws IOException {
+        buffer.clear();
+        while(buffer.hasRemaining()) {
+            if(trace.read(buffer, offset + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    //State ------------------------------------------------------------------------------------------------------------
+    public Set<T> getValues(T node) {
+        return values.getOrDefault(node, EmptySet.instance());
+    }
+
+    public Set<T> getConnections(T node) {
+        return connections.getOrDefault(node, EmptySet.instance());
+    }
+
+    /**
+     * @return every non empty value at the current step
+     */
+    public Map<T, Set<T>> getAllValues() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * @return every non empty connection set at the current step
+     */
+    public Map<T, Set<T>> getAllConnections() {
+        return Collections.unmodifiableMap(connections);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        trace.close();
+    }
+}
@@ -0,0 +1,32 @@
+package execution;
+
+import java.util.List;
+
+/**
+ * The channel partition workers use to exchange batches at sub-step barriers
+ *
+ * @param <T> The type of the nodes
+ */
+public interface Transport<T> extends AutoCloseable {
+    /**
+     * @return the number of workers connected by the transport
+     */
+    int workers();
+
+    /**
+     * Sends one batch to every worker and waits until a batch from every worker has been received. Every worker
+     * must call exchange the same number of times, the call acts as a barrier between sub-steps.
+     *
+     * @param worker the index of the calling worker
+     * @param outgoing the batches to send indexed by receiving worker, including the caller
+     * @return the batches received indexed by sending worker
+     * @throws ExecutionException when the transport fails or is closed
+     */
+    List<Batch<T>> exchange(int worker, List<Batch<T>> outgoing) throws ExecutionException;
+
+    /**
+     * Releases the transport, workers blocked in exchange fail
+     */
+    @Override
+    void close();
+}
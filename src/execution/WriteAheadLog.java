@@ -0,0 +1,257 @@
+package execution;
+
+import sets.Set;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Makes the connection updates of a Digraph durable. Every update is appended to the log before the Digraph applies
+ * it, and appended updates are forced to disk together by a group commit: once per step when the log listens to an
+ * Execution, once per batch window when one is given, or on commit(). Only committed updates survive a crash.
+ *
+ * Opening a log replays it over the Digraph, which must hold the program the log was started on, and cuts off any
+ * record a crash left incomplete. Values are not logged, a recovered Execution recomputes them from its literals.
+ *
+ * Record layout: [payload length int][crc32 of payload int][node][connection set]
+ *
+ * @param <T> The type of the nodes
+ */
+public class WriteAheadLog<T> implements StepListener<T>, AutoCloseable {
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /**
+     * Appended bytes beyond which they are written to the channel before the next commit
+     */
+    private static final int WRITE_THRESHOLD = 1 << 20;
+
+    private final FileChannel channel;
+    private final NodeCodec<T> codec;
+    private final Digraph<T> digraph;
+    private final ScheduledExecutorService window;
+
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    private boolean dirty = false;
+
+    private final long recovered;
+    private long appended = 0;
+    private long commits = 0;
+
+    private WriteAheadLog(FileChannel channel, NodeCodec<T> codec, Digraph<T> digraph, long recovered,
+                          long windowMillis) {
+        this.channel = channel;
+        this.codec = codec;
+        this.digraph = digraph;
+        this.recovered = recovered;
+
+        if(windowMillis > 0) {
+            window = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            window.scheduleWithFixedDelay(this::commitQuietly, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        } else {
+            window = null;
+        }
+    }
+
+    public static <T> WriteAheadLog<T> open(Path path, NodeCodec<T> codec, Digraph<T> digraph) throws IOException {
+        return open(path, codec, digraph, 0);
+    }
+
+    /**
+     * Replays the log at a path over a Digraph and starts logging its updates
+     * @param path the log, created when missing
+     * @param codec the encoding of the nodes
+     * @param digraph the Digraph holding the program the log was started on
+     * @param windowMillis the time between commits made on a background thread, 0 to only commit per step and on
+     *                     commit()
+     * @return the log, already set on the Digraph
+     */
+    public static <T> WriteAheadLog<T> open(Path path, NodeCodec<T> codec, Digraph<T> digraph, long windowMillis)
+            throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long recovered;
+        try {
+            recovered = replay(channel, codec, digraph);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        WriteAheadLog<T> log = new WriteAheadLog<>(channel, codec, digraph, recovered, windowMillis);
+        digraph.setLog(log);
+        return log;
+    }
+
+    /**
+     * Applies every complete record and truncates the channel after the last one
+     * @return the number of records applied
+     */
+    private static <T> long replay(FileChannel channel, NodeCodec<T> codec, Digraph<T> digraph) throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        long count = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+
+        while(offset + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(channel, header, offset);
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if(length < 0 || offset + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, offset + RECORD_HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+            T node = codec.read(in);
+            digraph.update(node, codec.readSet(in));
+            offset += RECORD_HEADER_BYTES + length;
+            count++;
+        }
+
+        channel.truncate(offset);
+        channel.position(offset);
+        return count;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of log");
+            }
+        }
+        buffer.flip();
+    }
+
+    //Logging ----------------------------------------------------------------------------------------------------------
+    /**
+     * Appends an update, called by the Digraph before applying it
+     */
+    synchronized void append(T node, Set<T> newConnections) throws IOException {
+        record.reset();
+        codec.write(recordOut, node);
+        codec.writeSet(recordOut, newConnections);
+        recordOut.flush();
+
+        crc.reset();
+        crc.update(record.toByteArray());
+        DataOutputStream out = new DataOutputStream(pending);
+        out.writeInt(record.size());
+        out.writeInt((int) crc.getValue());
+        record.writeTo(pending);
+        appended++;
+        dirty = true;
+
+        if(pending.size() >= WRITE_THRESHOLD) {
+            writePending();
+        }
+    }
+
+    private void writePending() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        pending.reset();
+    }
+
+    /**
+     * Writes every appended update and forces them to disk with a single force, unless nothing was appended since
+     * the last commit
+     */
+    public synchronized void commit() throws IOException {
+        if(!dirty) {
+            return;
+        }
+        writePending();
+        channel.force(false);
+        dirty = false;
+        commits++;
+    }
+
+    private void commitQuietly() {
+        try {
+            commit();
+        } catch (IOException e) {
+            //The next commit on the step thread reports the failure
+        }
+    }
+
+    /**
+     * Commits the updates of every step, a failed commit fails the step
+     */
+    @Override
+    public void stepCompleted(long step) {
+        try {
+            commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not commit step " + step, e);
+        }
+    }
+
+    /**
+     * @return the number of records replayed when the log was opened
+     */
+    public long getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * @return the number of updates appended since the log was opened
+     */
+    public synchronized long getAppended() {
+        return appended;
+    }
+
+    /**
+     * @return the number of forces made since the log was opened
+     */
+    public synchronized long getCommits() {
+        return commits;
+    }
+
+    /**
+     * Commits, stops logging the Digraph and closes the log
+     */
+    @Override
+    public void close() throws IOException {
+        if(window != null) {
+            window.shutdown();
+        }
+        digraph.setLog(null);
+        synchronized (this) {
+            try {
+                commit();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package programs;
+
+import execution.Digraph;
+import execution.Execution;
+import execution.NodeClass;
+import execution.NodeClassTable;
+import sets.Set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ProgramBuilder for programs with millions of nodes. Nodes are numbered sequentially from 0, connections are
+ * appended to primitive arrays and getExecution() builds the Digraph straight from those arrays. Names can be kept
+ * for debugging, at the cost of a map from each name to its node.
+ */
+public class IntProgramBuilder implements ProgramBuilder<Integer> {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    //The operation class nodes take the first ids
+    private static final int OPERATION = 0, UNION = 1, INTERSECT = 2, DIFFERENCE = 3,
+            ASSIGNMENT = 4, ASSIGNMENT_VALUE = 5, LITERAL = 6, CONNECTIONS_OF = 7;
+    private static final int CLASS_NODES = 8;
+
+    private static final NodeClassTable<Integer> CLASS_TABLE = NodeClassTable.of(
+            OPERATION, UNION, INTERSECT, DIFFERENCE, ASSIGNMENT, ASSIGNMENT_VALUE, LITERAL, CONNECTIONS_OF);
+
+    private int nodeCount = CLASS_NODES;
+    /**
+     * The connections of node i are targets[offsets[i]] to targets[offsets[i] + lengths[i] - 1]
+     */
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int[] targets = new int[INITIAL_CAPACITY];
+    private int edgeCount = 0;
+
+    /**
+     * The members of each operation class, indexed by class node
+     */
+    private final IntList[] members = new IntList[CLASS_NODES];
+
+    private final boolean keepNames;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    public IntProgramBuilder() {
+        this(false);
+    }
+
+    /**
+     * @param keepNames whether the builder should remember the names given to nodes
+     */
+    public IntProgramBuilder(boolean keepNames) {
+        this.keepNames = keepNames;
+        for(int i = 0; i < CLASS_NODES; i++) {
+            members[i] = new IntList();
+        }
+    }
+
+    //Nodes ------------------------------------------------------------------------------------------------------------
+    /**
+     * Reserves the id of a node whose connections are set later
+     * @return the id of the new node
+     */
+    public int newNode() {
+        if(nodeCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, nodeCount * 2);
+            lengths = Arrays.copyOf(lengths, nodeCount * 2);
+        }
+        return nodeCount++;
+    }
+
+    /**
+     * Reserves the id of a node and names it, the name is only kept when the builder keeps names
+     * @param name the name of the node
+     * @return the id of the new node
+     */
+    public int newNode(String name) {
+        int node = newNode();
+        if(keepNames) {
+            while(names.size() < node) {
+                names.add(null);
+            }
+            names.add(name);
+            ids.put(name, node);
+        }
+        return node;
+    }
+
+    /**
+     * Replaces the connections of a node
+     * @param node the node
+     * @param connections the nodes it connects to
+     * @return the node
+     */
+    public int node(int node, int... connections) {
+        if(node >= nodeCount) {
+            throw new IllegalArgumentException("Node " + node + " has not been created");
+        }
+        for(int target : connections) {
+            if(target < 0 || target >= nodeCount) {
+                throw new IllegalArgumentException("Node " + target + " has not been created");
+            }
+        }
+        reserve(connections.length);
+
+        offsets[node] = edgeCount;
+        lengths[node] = connections.length;
+        System.arraycopy(connections, 0, targets, edgeCount, connections.length);
+        edgeCount += connections.length;
+        return node;
+    }
+
+    /**
+     * Grows targets to hold a number of connections after the last one
+     */
+    private void reserve(int count) {
+        if(edgeCount + count > targets.length) {
+            targets = Arrays.copyOf(targets, Math.max(targets.length * 2, edgeCount + count));
+        }
+    }
+
+    @Override
+    public Integer node(Integer node, Set<Integer> connections) {
+        return node(node.intValue(), toArray(connections));
+    }
+
+    private static int[] toArray(Set<Integer> set) {
+        int[] array = new int[set.size()];
+        int i = 0;
+        for(int element : set) {
+            array[i++] = element;
+        }
+        return array;
+    }
+
+    private int operator(int classNode, int... inputs) {
+        int node = node(newNode(), inputs);
+        members[classNode].add(node);
+        return node;
+    }
+
+    //Operators --------------------------------------------------------------------------------------------------------
+    public int assignment(int[] targetNodes, int[] valueNodes) {
+        int valueNode = operator(ASSIGNMENT_VALUE, valueNodes);
+
+        int[] connections = Arrays.copyOf(targetNodes, targetNodes.length + 1);
+        connections[targetNodes.length] = valueNode;
+        return operator(ASSIGNMENT, connections);
+    }
+
+    public int assignment(int targetNode, int valueNode) {
+        return assignment(new int[]{ targetNode }, new int[]{ valueNode });
+    }
+
+    public int union(int... inputs) {
+        return operator(UNION, inputs);
+    }
+
+    public int intersect(int... inputs) {
+        return operator(INTERSECT, inputs);
+    }
+
+    public int difference(int... inputs) {
+        return operator(DIFFERENCE, inputs);
+    }
+
+    public int literal(int... inputs) {
+        return operator(LITERAL, inputs);
+    }
+
+    public int connectionsOf(int... inputs) {
+        return operator(CONNECTIONS_OF, inputs);
+    }
+
+    @Override
+    public Integer assignment(Set<Integer> targetNodes, Set<Integer> valueNodes) {
+        return assignment(toArray(targetNodes), toArray(valueNodes));
+    }
+
+    @Override
+    public Integer union(Set<Integer> inputs) {
+        return union(toArray(inputs));
+    }
+
+    @Override
+    public Integer intersect(Set<Integer> inputs) {
+        return intersect(toArray(inputs));
+    }
+
+    @Override
+    public Integer difference(Set<Integer> inputs) {
+        return difference(toArray(inputs));
+    }
+
+    @Override
+    public Integer literal(Set<Integer> inputs) {
+        return literal(toArray(inputs));
+    }
+
+    @Override
+    public Integer connectionsOf(Set<Integer> inputs) {
+        return connectionsOf(toArray(inputs));
+    }
+
+    //Output -----------------------------------------------------------------------------------------------------------
+    @Override
+    public Execution<Integer> getExecution() {
+        return new Execution<>(CLASS_TABLE, getConnections(), new Digraph<>());
+    }
+
+    /**
+     * Builds the connection Digraph of the program including the operation class nodes. The class node connections
+     * are written after the last connection without being counted, so building again, or adding nodes and then
+     * building again, overwrites them rather than appending another copy.
+     * @return a new Digraph holding the program
+     */
+    public Digraph<Integer> getConnections() {
+        int classEdges = CLASS_NODES - 1;
+        for(int classNode = UNION; classNode < CLASS_NODES; classNode++) {
+            classEdges += members[classNode].size;
+        }
+        reserve(classEdges);
+
+        int edge = edgeCount;
+        for(int classNode = UNION; classNode < CLASS_NODES; classNode++) {
+            IntList classMembers = members[classNode];
+            offsets[classNode] = edge;
+            lengths[classNode] = classMembers.size;
+            System.arraycopy(classMembers.elements, 0, targets, edge, classMembers.size);
+            edge += classMembers.size;
+        }
+        offsets[OPERATION] = edge;
+        lengths[OPERATION] = CLASS_NODES - 1;
+        for(int classNode = UNION; classNode < CLASS_NODES; classNode++) {
+            targets[edge++] = classNode;
+        }
+
+        return Digraph.fromArrays(nodeCount, offsets, lengths, targets);
+    }
+
+    public NodeClassTable<Integer> getClassTable() {
+        return CLASS_TABLE;
+    }
+
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * @return an allocator for the nodes created once the program runs, starting after the nodes of the builder
+     */
+    public NodeIds getNodeIds() {
+        return new NodeIds(nodeCount);
+    }
+
+    /**
+     * @param node the given node
+     * @return the name of the node, or its id when names are not kept or it has none
+     */
+    public String nameOf(int node) {
+        if(node < names.size() && names.get(node) != null) {
+            return names.get(node);
+        }
+        return Integer.toString(node);
+    }
+
+    /**
+     * @param name the name of a node
+     * @return the node, or -1 when no node has the name or names are not kept
+     */
+    public int idOf(String name) {
+        Integer node = ids.get(name);
+        return node == null ? -1 : node;
+    }
+
+    /**
+     * A growable array of ints
+     */
+    private static class IntList {
+        private int[] elements = new int[16];
+        private int size = 0;
+
+        void add(int element) {
+            if(size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = element;
+        }
+
+    }
+}
@@ -0,0 +1,432 @@
+package programs;
+
+import execution.Digraph;
+import execution.NodeClass;
+import execution.NodeClassTable;
+import execution.Partitioner;
+import sets.EmptySet;
+import sets.Set;
+import sets.SetBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A numbering of the nodes of a built program which places operator inputs and their consumers close together.
+ * Nodes are ordered by Reverse Cuthill-McKee, split into contiguous shards of equal size and then refined by
+ * greedily moving boundary nodes to the shard holding most of their neighbours. Node ids are contiguous within
+ * each shard, so the layout doubles as a Partitioner for PartitionedExecution.
+ *
+ * The operation class nodes connect to every operator of their class and are ignored when ordering and when
+ * counting edges, every node reads them.
+ *
+ * @param <T> The type of the nodes
+ */
+public class LocalityLayout<T> implements Partitioner<T> {
+    private static final int REFINEMENT_PASSES = 4;
+    private static final double IMBALANCE = 0.03;
+    /**
+     * Edges spanning at most this many ids are counted as local
+     */
+    private static final int LOCAL_SPAN = 64;
+
+    private final List<T> nodes;
+    private final Map<T, Integer> ids;
+    private final int[] shards;
+    private final int shardCount;
+    private final Statistics before;
+    private final Statistics after;
+
+    private LocalityLayout(List<T> nodes, int[] shards, int shardCount, Statistics before, Statistics after) {
+        this.nodes = nodes;
+        this.shards = shards;
+        this.shardCount = shardCount;
+        this.before = before;
+        this.after = after;
+        this.ids = new HashMap<>();
+        for(int i = 0; i < nodes.size(); i++) {
+            ids.put(nodes.get(i), i);
+        }
+    }
+
+    /**
+     * Computes the layout of a program
+     * @param connections the program, as built by StringProgramBuilder.getConnections()
+     * @param classTable the node class table of the program
+     * @param shardCount the number of balanced shards to produce
+     * @return the layout
+     */
+    public static <U> LocalityLayout<U> of(Digraph<U> connections, NodeClassTable<U> classTable, int shardCount) {
+        //Gathers every node in the order the Digraph happens to store them
+        Map<U, Set<U>> forward = connections.toMap();
+        SetBuilder<U> seen = new SetBuilder<>();
+        List<U> original = new ArrayList<>();
+        for(Map.Entry<U, Set<U>> entry : forward.entrySet()) {
+            addNode(entry.getKey(), seen, original);
+            for(U target : entry.getValue()) {
+                addNode(target, seen, original);
+            }
+        }
+
+        Map<U, Integer> originalIds = new HashMap<>();
+        for(int i = 0; i < original.size(); i++) {
+            originalIds.put(original.get(i), i);
+        }
+
+        int[][] edges = directedEdges(originalIds, forward, classTable);
+        int[][] adjacency = undirected(original.size(), edges);
+
+        int[] order = reverseCuthillMcKee(adjacency);
+        int[] rank = new int[order.length];
+        for(int i = 0; i < order.length; i++) {
+            rank[order[i]] = i;
+        }
+
+        int[] shardOf = new int[order.length];
+        for(int i = 0; i < order.length; i++) {
+            shardOf[order[i]] = contiguousShard(i, order.length, shardCount);
+        }
+        refine(adjacency, shardOf, shardCount);
+
+        //Final ids run through the shards in order, keeping the RCM order within each shard
+        Integer[] byShard = new Integer[order.length];
+        for(int i = 0; i < order.length; i++) {
+            byShard[i] = order[i];
+        }
+        Arrays.sort(byShard, Comparator.comparingInt((Integer node) -> shardOf[node]).thenComparingInt(node -> rank[node]));
+
+        List<U> nodes = new ArrayList<>();
+        int[] newIds = new int[order.length];
+        int[] shards = new int[order.length];
+        for(int i = 0; i < byShard.length; i++) {
+            nodes.add(original.get(byShard[i]));
+            newIds[byShard[i]] = i;
+            shards[i] = shardOf[byShard[i]];
+        }
+
+        int[] identity = new int[order.length];
+        int[] contiguous = new int[order.length];
+        for(int i = 0; i < order.length; i++) {
+            identity[i] = i;
+            contiguous[i] = contiguousShard(i, order.length, shardCount);
+        }
+
+        return new LocalityLayout<>(nodes, shards, shardCount,
+                Statistics.of(edges, identity, contiguous, shardCount),
+                Statistics.of(edges, newIds, shardOf, shardCount));
+    }
+
+    private static <U> void addNode(U node, SetBuilder<U> seen, List<U> nodes) {
+        if(!seen.contains(node)) {
+            seen.add(node);
+            nodes.add(node);
+        }
+    }
+
+    private static int contiguousShard(int position, int size, int shardCount) {
+        return (int) ((long) position * shardCount / Math.max(size, 1));
+    }
+
+    private static <U> boolean isClassNode(U node, NodeClassTable<U> classTable) {
+        return classTable.classOf(node) != NodeClass.SIMPLE;
+    }
+
+    private static int[][] undirected(int size, int[][] edges) {
+        List<List<Integer>> neighbours = new ArrayList<>();
+        for(int i = 0; i < size; i++) {
+            neighbours.add(new ArrayList<>());
+        }
+
+        for(int[] edge : edges) {
+            neighbours.get(edge[0]).add(edge[1]);
+            neighbours.get(edge[1]).add(edge[0]);
+        }
+
+        int[][] adjacency = new int[size][];
+        for(int i = 0; i < size; i++) {
+            adjacency[i] = neighbours.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return adjacency;
+    }
+
+    private static <U> int[][] directedEdges(Map<U, Integer> ids, Map<U, Set<U>> forward,
+                                             NodeClassTable<U> classTable) {
+        List<int[]> edges = new ArrayList<>();
+        for(Map.Entry<U, Set<U>> entry : forward.entrySet()) {
+            if(isClassNode(entry.getKey(), classTable)) {
+                continue;
+            }
+            int source = ids.get(entry.getKey());
+            for(U target : entry.getValue()) {
+                if(!isClassNode(target, classTable)) {
+                    edges.add(new int[]{ source, ids.get(target) });
+                }
+            }
+        }
+        return edges.toArray(new int[0][]);
+    }
+
+    /**
+     * Orders the nodes breadth first from a minimum degree node of each component, visiting neighbours in
+     * increasing degree, then reverses the order
+     */
+    private static int[] reverseCuthillMcKee(int[][] adjacency) {
+        int size = adjacency.length;
+        Integer[] byDegree = new Integer[size];
+        for(int i = 0; i < size; i++) {
+            byDegree[i] = i;
+        }
+        Arrays.sort(byDegree, Comparator.comparingInt(node -> adjacency[node].length));
+
+        boolean[] visited = new boolean[size];
+        int[] order = new int[size];
+        int head = 0, tail = 0;
+
+        for(int start : byDegree) {
+            if(visited[start]) {
+                continue;
+            }
+            visited[start] = true;
+            order[tail++] = start;
+
+            while(head < tail) {
+                int current = order[head++];
+                int levelStart = tail;
+                for(int neighbour : adjacency[current]) {
+                    if(!visited[neighbour]) {
+                        visited[neighbour] = true;
+                        order[tail++] = neighbour;
+                    }
+                }
+                sortByDegree(order, levelStart, tail, adjacency);
+            }
+        }
+
+        for(int i = 0, j = size - 1; i < j; i++, j--) {
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+        return order;
+    }
+
+    private static void sortByDegree(int[] order, int from, int to, int[][] adjacency) {
+        for(int i = from + 1; i < to; i++) {
+            int node = order[i];
+            int j = i - 1;
+            while(j >= from && adjacency[order[j]].length > adjacency[node].length) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = node;
+        }
+    }
+
+    /**
+     * Moves nodes to the shard holding most of their neighbours while every shard stays within the imbalance
+     */
+    private static void refine(int[][] adjacency, int[] shardOf, int shardCount) {
+        int size = adjacency.length;
+        double average = (double) size / shardCount;
+        int maximum = (int) Math.ceil(average * (1 + IMBALANCE));
+        int minimum = (int) Math.floor(average * (1 - IMBALANCE));
+
+        int[] shardSizes = new int[shardCount];
+        for(int shard : shardOf) {
+            shardSizes[shard]++;
+        }
+
+        int[] counts = new int[shardCount];
+        for(int pass = 0; pass < REFINEMENT_PASSES; pass++) {
+            boolean moved = false;
+
+            for(int node = 0; node < size; node++) {
+                int current = shardOf[node];
+                for(int neighbour : adjacency[node]) {
+                    counts[shardOf[neighbour]]++;
+                }
+
+                int best = current;
+                for(int neighbour : adjacency[node]) {
+                    int shard = shardOf[neighbour];
+                    if(counts[shard] > counts[best] && shardSizes[shard] < maximum) {
+                        best = shard;
+                    }
+                }
+
+                if(best != current && shardSizes[current] > minimum) {
+                    shardOf[node] = best;
+                    shardSizes[current]--;
+                    shardSizes[best]++;
+                    moved = true;
+                }
+
+                for(int neighbour : adjacency[node]) {
+                    counts[shardOf[neighbour]] = 0;
+                }
+                counts[current] = 0;
+            }
+
+            if(!moved) {
+                break;
+            }
+        }
+    }
+
+    //Numbering --------------------------------------------------------------------------------------------------------
+    /**
+     * @param node the given node
+     * @return the id of the node, or -1 when the node was not part of the program
+     */
+    public int idOf(T node) {
+        Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    public T nodeAt(int id) {
+        return nodes.get(id);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Copies the program with every node replaced by its id, the connections are gathered in id order and built with
+     * Digraph.fromArrays
+     * @param connections the program the layout was computed from
+     * @return the renumbered program
+     */
+    public Digraph<Integer> renumber(Digraph<T> connections) {
+        Map<T, Set<T>> forward = connections.toMap();
+        int[] offsets = new int[nodes.size()];
+        int[] lengths = new int[nodes.size()];
+        int edgeCount = 0;
+        for(Set<T> targets : forward.values()) {
+            edgeCount += targets.size();
+        }
+
+        int[] targets = new int[edgeCount];
+        int edge = 0;
+        for(int id = 0; id < nodes.size(); id++) {
+            offsets[id] = edge;
+            for(T target : forward.getOrDefault(nodes.get(id), EmptySet.instance())) {
+                int targetId = idOf(target);
+                if(targetId == -1) {
+                    throw new IllegalArgumentException("Node " + target + " is not part of the layout");
+                }
+                targets[edge++] = targetId;
+            }
+            lengths[id] = edge - offsets[id];
+        }
+        if(edge != edgeCount) {
+            throw new IllegalArgumentException("The program holds nodes which are not part of the layout");
+        }
+        return Digraph.fromArrays(nodes.size(), offsets, lengths, targets);
+    }
+
+    public NodeClassTable<Integer> renumber(NodeClassTable<T> classTable) {
+        return classTable.map(this::idOf);
+    }
+
+    //Partitioning -----------------------------------------------------------------------------------------------------
+    public int shardOf(T node) {
+        Integer id = ids.get(node);
+        return id == null ? -1 : shards[id];
+    }
+
+    public int shards() {
+        return shardCount;
+    }
+
+    /**
+     * Uses the computed shards when the partition counts match, contiguous id ranges otherwise. Nodes outside the
+     * layout fall back to their hash code.
+     */
+    @Override
+    public int partitionOf(T node, int partitions) {
+        Integer id = ids.get(node);
+        if(id == null) {
+            return Math.floorMod(node.hashCode(), partitions);
+        }
+        if(partitions == shardCount) {
+            return shards[id];
+        }
+        return contiguousShard(id, nodes.size(), partitions);
+    }
+
+    //Statistics -------------------------------------------------------------------------------------------------------
+    /**
+     * @return the locality of the order the Digraph stored the nodes in, split into contiguous shards
+     */
+    public Statistics before() {
+        return before;
+    }
+
+    /**
+     * @return the locality of this layout
+     */
+    public Statistics after() {
+        return after;
+    }
+
+    /**
+     * Edge cut and locality of a numbering, edges touching operation class nodes are not counted
+     */
+    public static class Statistics {
+        public final int edges;
+        public final int cutEdges;
+        public final double averageSpan;
+        public final int maximumSpan;
+        public final int localEdges;
+        public final int smallestShard;
+        public final int largestShard;
+
+        private Statistics(int edges, int cutEdges, double averageSpan, int maximumSpan, int localEdges,
+                           int smallestShard, int largestShard) {
+            this.edges = edges;
+            this.cutEdges = cutEdges;
+            this.averageSpan = averageSpan;
+            this.maximumSpan = maximumSpan;
+            this.localEdges = localEdges;
+            this.smallestShard = smallestShard;
+            this.largestShard = largestShard;
+        }
+
+        private static Statistics of(int[][] edges, int[] ids, int[] shardOf, int shardCount) {
+            int cut = 0, maximumSpan = 0, local = 0;
+            long totalSpan = 0;
+
+            for(int[] edge : edges) {
+                int span = Math.abs(ids[edge[0]] - ids[edge[1]]);
+                totalSpan += span;
+                maximumSpan = Math.max(maximumSpan, span);
+                if(span <= LOCAL_SPAN) {
+                    local++;
+                }
+                if(shardOf[edge[0]] != shardOf[edge[1]]) {
+                    cut++;
+                }
+            }
+
+            int[] shardSizes = new int[shardCount];
+            for(int shard : shardOf) {
+                shardSizes[shard]++;
+            }
+
+            return new Statistics(edges.length, cut, edges.length == 0 ? 0 : (double) totalSpan / edges.length,
+                    maximumSpan, local, Arrays.stream(shardSizes).min().orElse(0),
+                    Arrays.stream(shardSizes).max().orElse(0));
+        }
+
+        public String toString() {
+            return String.format("edges=%d cut=%d (%.1f%%) avgSpan=%.1f maxSpan=%d local=%.1f%% shards=[%d..%d]",
+                    edges, cutEdges, edges == 0 ? 0 : 100.0 * cutEdges / edges, averageSpan, maximumSpan,
+                    edges == 0 ? 0 : 100.0 * localEdges / edges, smallestShard, largestShard);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package programs;
+
+import java.util.BitSet;
+
+/**
+ * Hands out the ids of nodes created while a program runs, reusing the ids of reclaimed nodes before new ones. The
+ * lowest free id is always taken first so ids stay dense and bitmap sets of them stay small.
+ */
+public class NodeIds {
+    private final BitSet free = new BitSet();
+    /**
+     * No id below this one is free
+     */
+    private int lowestFree = Integer.MAX_VALUE;
+    private int limit;
+
+    /**
+     * @param limit the first id never handed out, every id below it is in use
+     */
+    public NodeIds(int limit) {
+        this.limit = limit;
+    }
+
+    public synchronized int allocate() {
+        if(lowestFree >= limit) {
+            return limit++;
+        }
+        int id = free.nextSetBit(lowestFree);
+        free.clear(id);
+        int next = free.nextSetBit(id + 1);
+        lowestFree = next < 0 ? Integer.MAX_VALUE : next;
+        return id;
+    }
+
+    /**
+     * Makes the id of a reclaimed node available again
+     * @param id the id, which must be in use
+     */
+    public synchronized void release(int id) {
+        if(id < 0 || id >= limit || free.get(id)) {
+            throw new IllegalArgumentException("Id " + id + " is not in use");
+        }
+        free.set(id);
+        lowestFree = Math.min(lowestFree, id);
+    }
+
+    /**
+     * @return the number of released ids waiting to be reused
+     */
+    public synchronized int getFree() {
+        return free.cardinality();
+    }
+
+    /**
+     * @return the first id never handed out
+     */
+    public synchronized int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,72 @@
+package programs;
+
+import execution.*;
+import sets.Set;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable built program which any number of Executions can share. Each Execution created from the image reads
+ * the shared connections through an OverlayDigraph and only copies the connections its assignments rewrite.
+ *
+ * @param <T> The type of the nodes
+ */
+public class ProgramImage<T> {
+    private final NodeClassTable<T> classTable;
+    private final Map<T, Set<T>> forward;
+    private final Map<T, Set<T>> reverse;
+
+    private ProgramImage(NodeClassTable<T> classTable, Map<T, Set<T>> forward, Map<T, Set<T>> reverse) {
+        this.classTable = classTable;
+        this.forward = forward;
+        this.reverse = reverse;
+    }
+
+    /**
+     * Captures a program, later changes to the Digraph do not affect the image
+     * @param classTable the node class table of the program
+     * @param connections the program
+     * @return the image
+     */
+    public static <U> ProgramImage<U> of(NodeClassTable<U> classTable, Digraph<U> connections) {
+        Map<U, Set<U>> forward = connections.toMap();
+        Map<U, Set<U>> reverse = new HashMap<>();
+
+        for(Set<U> targets : forward.values()) {
+            for(U target : targets) {
+                if(!reverse.containsKey(target)) {
+                    reverse.put(target, connections.getReverse(target));
+                }
+            }
+        }
+
+        return new ProgramImage<>(classTable, Collections.unmodifiableMap(forward), Collections.unmodifiableMap(reverse));
+    }
+
+    /**
+     * @return a new Execution of the program starting from its initial state
+     */
+    public Execution<T> newExecution() {
+        return new Execution<>(classTable, newConnections(), new Digraph<>());
+    }
+
+    /**
+     * @return a private view of the program connections for a single execution
+     */
+    public OverlayDigraph<T> newConnections() {
+        return new OverlayDigraph<>(forward, reverse);
+    }
+
+    public NodeClassTable<T> getClassTable() {
+        return classTable;
+    }
+
+    /**
+     * @return the number of nodes with a connection set
+     */
+    public int size() {
+        return forward.size();
+    }
+}
@@ -0,0 +1,628 @@
+package programs;
+
+import execution.*;
+import sets.EmptySet;
+import sets.Set;
+import sets.SetBuilder;
+
+import java.util.*;
+
+/**
+ * Rewrites a built program before it is executed so that fewer nodes are evaluated, without changing the value of
+ * any node that can be observed. The passes are run repeatedly until none of them changes the program:
+ *
+ *  - FOLD_CONSTANTS turns operators whose inputs never change into literals of their value
+ *  - FLATTEN splices the inputs of a union or intersect read by a node of the same class into that node
+ *  - ELIMINATE_COMMON makes the readers of operators with the same class and inputs share one of them
+ *  - ELIMINATE_DEAD removes operators which no assignment, pinned node or value can reach
+ *
+ * Nodes which may appear in a value are never rewritten or removed, since values name them and connectionsOf reads
+ * their connections. When the program holds assignments those are also the only nodes an assignment can rewire, so
+ * everything the passes rewrite keeps its connections for the whole execution. Nodes a caller queries or updates
+ * through the Execution must be pinned.
+ *
+ * Folding and flattening shorten the paths values take through the program, which changes the values nodes hold
+ * before a step settles. Cycles and assignments see those values, so nothing a cycle or an assignment reads, directly
+ * or through other nodes, is folded or flattened. Nodes on cycles are not merged either.
+ *
+ * @param <T> The type of the nodes
+ */
+public class ProgramOptimizer<T> {
+    public enum Pass {
+        FOLD_CONSTANTS, FLATTEN, ELIMINATE_COMMON, ELIMINATE_DEAD
+    }
+
+    private static final int MAXIMUM_ROUNDS = 16;
+
+    private final NodeClassTable<T> classTable;
+    private final java.util.Set<T> pinned = new HashSet<>();
+    private final EnumSet<Pass> passes = EnumSet.allOf(Pass.class);
+
+    private Statistics statistics = new Statistics();
+
+    //The program being optimized
+    private Map<T, LinkedHashSet<T>> forward;
+    private Map<T, LinkedHashSet<T>> reverse;
+    private T operationNode;
+    private java.util.Set<T> classNodes;
+    private java.util.Set<T> rewritable;
+    private java.util.Set<T> preserved;
+    private java.util.Set<T> cyclic;
+    private java.util.Set<T> observed;
+
+    public ProgramOptimizer(NodeClassTable<T> classTable) {
+        this.classTable = classTable;
+    }
+
+    /**
+     * Keeps nodes the caller will query or update unchanged
+     * @param nodes the nodes
+     * @return this optimizer
+     */
+    public ProgramOptimizer<T> pin(Collection<T> nodes) {
+        pinned.addAll(nodes);
+        return this;
+    }
+
+    @SafeVarargs
+    public final ProgramOptimizer<T> pin(T... nodes) {
+        for(T node : nodes) {
+            pinned.add(node);
+        }
+        return this;
+    }
+
+    /**
+     * @param enabled the passes to run, all of them by default
+     * @return this optimizer
+     */
+    public ProgramOptimizer<T> passes(Pass... enabled) {
+        passes.clear();
+        passes.addAll(Arrays.asList(enabled));
+        return this;
+    }
+
+    /**
+     * Optimizes a program, the given Digraph is not modified
+     * @param connections the program, as built by StringProgramBuilder.getConnections()
+     * @return a new Digraph holding the optimized program
+     */
+    public Digraph<T> optimize(Digraph<T> connections) {
+        statistics = new Statistics();
+        forward = new HashMap<>();
+        reverse = new HashMap<>();
+        for(Map.Entry<T, Set<T>> entry : connections.toMap().entrySet()) {
+            for(T target : entry.getValue()) {
+                connect(entry.getKey(), target);
+            }
+        }
+        statistics.nodesBefore = nodeCount();
+
+        operationNode = classTable.nodeFor(NodeClass.OPERATION);
+        classNodes = new HashSet<>(connectionsOf(operationNode));
+        findPreserved();
+
+        boolean safe = !rewritable.contains(operationNode);
+        for(T classNode : classNodes) {
+            safe &= !rewritable.contains(classNode);
+        }
+
+        //Changing the members of a class mid execution is not supported by Execution, nothing can be assumed
+        if(safe) {
+            for(int round = 0; round < MAXIMUM_ROUNDS; round++) {
+                findCycles();
+                findObserved();
+                boolean changed = false;
+                if(passes.contains(Pass.FOLD_CONSTANTS)) changed |= foldConstants();
+                if(passes.contains(Pass.FLATTEN)) changed |= flatten();
+                if(passes.contains(Pass.ELIMINATE_COMMON)) changed |= eliminateCommon();
+                if(passes.contains(Pass.ELIMINATE_DEAD)) changed |= eliminateDead();
+                statistics.rounds++;
+                if(!changed) {
+                    break;
+                }
+            }
+        }
+        statistics.nodesAfter = nodeCount();
+
+        Map<T, Set<T>> output = new HashMap<>();
+        for(Map.Entry<T, LinkedHashSet<T>> entry : forward.entrySet()) {
+            if(!entry.getValue().isEmpty()) {
+                output.put(entry.getKey(), toSet(entry.getValue()));
+            }
+        }
+        forward = null;
+        reverse = null;
+        return new Digraph<>(output);
+    }
+
+    /**
+     * @return the changes made by the last call to optimize
+     */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    //Analysis ---------------------------------------------------------------------------------------------------------
+    /**
+     * Finds every node which may appear in a value: the connections of literals and custom operators, which may
+     * return their inputs, and the connections of any node found, which connectionsOf may return
+     */
+    private void findPreserved() {
+        java.util.Set<T> universe = new HashSet<>();
+        Deque<T> queue = new ArrayDeque<>();
+        for(T classNode : classNodes) {
+            NodeClass nodeClass = classTable.classOf(classNode);
+            if(nodeClass == NodeClass.LITERAL || nodeClass == NodeClass.CUSTOM) {
+                for(T member : connectionsOf(classNode)) {
+                    queue.addAll(connectionsOf(member));
+                }
+            }
+        }
+        while(!queue.isEmpty()) {
+            T node = queue.poll();
+            if(universe.add(node)) {
+                queue.addAll(connectionsOf(node));
+            }
+        }
+
+        boolean hasAssignments = !connectionsOf(classTable.nodeFor(NodeClass.ASSIGNMENT)).isEmpty();
+        rewritable = new HashSet<>(pinned);
+        if(hasAssignments) {
+            rewritable.addAll(universe);
+        }
+
+        preserved = new HashSet<>(universe);
+        preserved.addAll(pinned);
+        preserved.addAll(classNodes);
+        preserved.add(operationNode);
+    }
+
+    /**
+     * @return the class node of a node, null when it is a member of no class or of several
+     */
+    private T classNodeOf(T node) {
+        T found = null;
+        for(T reader : readersOf(node)) {
+            if(classNodes.contains(reader)) {
+                if(found != null) {
+                    return null;
+                }
+                found = reader;
+            }
+        }
+        return found;
+    }
+
+    private boolean memberOfSeveral(T node) {
+        int count = 0;
+        for(T reader : readersOf(node)) {
+            if(classNodes.contains(reader)) {
+                count++;
+            }
+        }
+        return count > 1;
+    }
+
+    private NodeClass classOf(T node) {
+        if(node.equals(operationNode) || classNodes.contains(node)) {
+            return NodeClass.OPERATION;
+        }
+        T classNode = classNodeOf(node);
+        if(classNode == null) {
+            return memberOfSeveral(node) ? NodeClass.INVALID : NodeClass.SIMPLE;
+        }
+        return classTable.classOf(classNode);
+    }
+
+    /**
+     * @return whether the node is evaluated by an operator, and so could be folded, merged or removed
+     */
+    private boolean isOperator(T node) {
+        T classNode = classNodeOf(node);
+        return classNode != null && classTable.operatorOf(classNode) != null && !preserved.contains(node);
+    }
+
+    /**
+     * Finds the nodes on cycles of the program with Tarjan's algorithm, ignoring the class nodes. The strongly
+     * connected components are also recorded in the order they complete, inputs before the nodes reading them.
+     */
+    private final List<T> topologicalOrder = new ArrayList<>();
+
+    private void findCycles() {
+        cyclic = new HashSet<>();
+        topologicalOrder.clear();
+
+        Map<T, Integer> index = new HashMap<>();
+        Map<T, Integer> lowLink = new HashMap<>();
+        Deque<T> stack = new ArrayDeque<>();
+        java.util.Set<T> onStack = new HashSet<>();
+
+        for(T root : new ArrayList<>(forward.keySet())) {
+            if(index.containsKey(root) || isClassNode(root)) {
+                continue;
+            }
+
+            Deque<Iterator<T>> iterators = new ArrayDeque<>();
+            Deque<T> path = new ArrayDeque<>();
+            visit(root, index, lowLink, stack, onStack, iterators, path);
+
+            while(!path.isEmpty()) {
+                T node = path.peek();
+                Iterator<T> it = iterators.peek();
+                if(it.hasNext()) {
+                    T next = it.next();
+                    if(isClassNode(next)) {
+                        continue;
+                    }
+                    if(!index.containsKey(next)) {
+                        visit(next, index, lowLink, stack, onStack, iterators, path);
+                    } else if(onStack.contains(next)) {
+                        lowLink.put(node, Math.min(lowLink.get(node), index.get(next)));
+                    }
+                    continue;
+                }
+
+                path.pop();
+                iterators.pop();
+                if(!path.isEmpty()) {
+                    T parent = path.peek();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(node)));
+                }
+
+                if(lowLink.get(node).equals(index.get(node))) {
+                    List<T> component = new ArrayList<>();
+                    T member;
+                    do {
+                        member = stack.pop();
+                        onStack.remove(member);
+                        component.add(member);
+                    } while(!member.equals(node));
+
+                    if(component.size() > 1 || connectionsOf(node).contains(node)) {
+                        cyclic.addAll(component);
+                    }
+                    topologicalOrder.addAll(component);
+                }
+            }
+        }
+    }
+
+    private void visit(T node, Map<T, Integer> index, Map<T, Integer> lowLink, Deque<T> stack,
+                       java.util.Set<T> onStack, Deque<Iterator<T>> iterators, Deque<T> path) {
+        index.put(node, index.size());
+        lowLink.put(node, index.get(node));
+        stack.push(node);
+        onStack.add(node);
+        iterators.push(connectionsOf(node).iterator());
+        path.push(node);
+    }
+
+    /**
+     * Finds the nodes whose values within a step are seen by a cycle or an assignment: the nodes on cycles, assignments,
+     * assignment values and everything they read
+     */
+    private void findObserved() {
+        observed = new HashSet<>();
+        Deque<T> queue = new ArrayDeque<>(cyclic);
+        queue.addAll(connectionsOf(classTable.nodeFor(NodeClass.ASSIGNMENT)));
+        queue.addAll(connectionsOf(classTable.nodeFor(NodeClass.ASSIGNMENT_VALUE)));
+        while(!queue.isEmpty()) {
+            T node = queue.poll();
+            if(isClassNode(node) || !observed.add(node)) {
+                continue;
+            }
+            queue.addAll(connectionsOf(node));
+        }
+    }
+
+    private boolean isClassNode(T node) {
+        return node.equals(operationNode) || classNodes.contains(node);
+    }
+
+    //Passes -----------------------------------------------------------------------------------------------------------
+    /**
+     * Thrown by the folding context when an operator reads something which may change
+     */
+    private static class NotConstant extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        NotConstant() {
+            super(null, null, false, false);
+        }
+    }
+
+    private boolean foldConstants() {
+        Map<T, Set<T>> constants = new HashMap<>();
+        OperatorContext<T> context = new OperatorContext<T>() {
+            @Override
+            public Set<T> getValues(T node) {
+                Set<T> value = constants.get(node);
+                if(value == null) {
+                    throw new NotConstant();
+                }
+                return value;
+            }
+
+            @Override
+            public Set<T> getConnections(T node) {
+                if(rewritable.contains(node)) {
+                    throw new NotConstant();
+                }
+                return toSet(connectionsOf(node));
+            }
+        };
+
+        T literalClass = classTable.nodeFor(NodeClass.LITERAL);
+        boolean changed = false;
+
+        //Inputs are visited before their readers, so one pass finds every constant
+        for(T node : topologicalOrder) {
+            if(rewritable.contains(node) || cyclic.contains(node)) {
+                continue;
+            }
+
+            switch (classOf(node)) {
+                case SIMPLE:
+                case OPERATION:
+                case ASSIGNMENT:
+                case ASSIGNMENT_VALUE:
+                    //Never evaluated, their value stays empty
+                    constants.put(node, EmptySet.instance());
+                    continue;
+
+                case LITERAL:
+                    constants.put(node, toSet(connectionsOf(node)));
+                    continue;
+
+                case INVALID:
+                    continue;
+            }
+
+            T classNode = classNodeOf(node);
+            Set<T> inputs = toSet(connectionsOf(node));
+            Set<T> value;
+            try {
+                boolean evaluated = false;
+                for(T input : inputs) {
+                    evaluated |= context.getValues(input).hasContents();
+                }
+                //An operator is only evaluated once one of its inputs changes
+                value = evaluated ? classTable.operatorOf(classNode).evaluate(node, inputs, context) : EmptySet.instance();
+            } catch (NotConstant e) {
+                continue;
+            }
+            constants.put(node, value);
+
+            if(!preserved.contains(node) && !observed.contains(node)) {
+                disconnect(classNode, node);
+                connect(literalClass, node);
+                setConnections(node, value);
+                statistics.folded++;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean flatten() {
+        boolean changed = false;
+
+        for(T node : new ArrayList<>(forward.keySet())) {
+            NodeClass nodeClass = classOf(node);
+            if((nodeClass != NodeClass.UNION && nodeClass != NodeClass.INTERSECT)
+                    || !isOperator(node) || observed.contains(node)) {
+                continue;
+            }
+            T classNode = classNodeOf(node);
+
+            LinkedHashSet<T> inputs = new LinkedHashSet<>(connectionsOf(node));
+            boolean spliced = false;
+            for(T input : connectionsOf(node)) {
+                //An input without inputs is never evaluated, and is not the same as no input to an intersect
+                if(!isOperator(input) || cyclic.contains(input) || !classNode.equals(classNodeOf(input))
+                        || connectionsOf(input).isEmpty()) {
+                    continue;
+                }
+                inputs.remove(input);
+                inputs.addAll(connectionsOf(input));
+                spliced = true;
+            }
+
+            if(spliced) {
+                setConnections(node, inputs);
+                statistics.flattened++;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean eliminateCommon() {
+        Map<T, Map<java.util.Set<T>, T>> canonical = new HashMap<>();
+        boolean changed = false;
+
+        for(T node : new ArrayList<>(forward.keySet())) {
+            if(!isOperator(node) || cyclic.contains(node) || classOf(node) == NodeClass.CUSTOM) {
+                continue;
+            }
+
+            //Copied so that later rewrites of the node do not change the key
+            java.util.Set<T> key = new HashSet<>(connectionsOf(node));
+            Map<java.util.Set<T>, T> byInputs = canonical.computeIfAbsent(classNodeOf(node), k -> new HashMap<>());
+            T original = byInputs.get(key);
+            if(original == null) {
+                byInputs.put(key, node);
+                continue;
+            }
+
+            if(redirectReaders(node, original)) {
+                statistics.merged++;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Makes every reader of a node read an equivalent node instead
+     * @return whether the readers were redirected, they are not when a reader must keep both inputs distinct
+     */
+    private boolean redirectReaders(T duplicate, T original) {
+        List<T> readers = new ArrayList<>();
+        for(T reader : readersOf(duplicate)) {
+            if(isClassNode(reader)) {
+                continue;
+            }
+            if(preserved.contains(reader)) {
+                return false;
+            }
+            //Reading two equal values is not the same as reading one for operators such as difference
+            if(connectionsOf(reader).contains(original) && !isIdempotent(reader)) {
+                return false;
+            }
+            readers.add(reader);
+        }
+        if(readers.isEmpty()) {
+            return false;
+        }
+
+        for(T reader : readers) {
+            LinkedHashSet<T> inputs = new LinkedHashSet<>();
+            for(T input : connectionsOf(reader)) {
+                inputs.add(input.equals(duplicate) ? original : input);
+            }
+            setConnections(reader, inputs);
+        }
+        return true;
+    }
+
+    private boolean isIdempotent(T node) {
+        T classNode = classNodeOf(node);
+        if(classNode == null) {
+            return true;
+        }
+        Operator<T> operator = classTable.operatorOf(classNode);
+        //Assignments gather the union of their inputs
+        return operator == null || operator.has(OperatorProperty.IDEMPOTENT);
+    }
+
+    private boolean eliminateDead() {
+        java.util.Set<T> live = new HashSet<>();
+        Deque<T> queue = new ArrayDeque<>();
+
+        for(T node : forward.keySet()) {
+            if(!isOperator(node)) {
+                queue.add(node);
+            }
+        }
+        for(T node : reverse.keySet()) {
+            if(!isOperator(node)) {
+                queue.add(node);
+            }
+        }
+
+        while(!queue.isEmpty()) {
+            T node = queue.poll();
+            if(!live.add(node) || isClassNode(node)) {
+                continue;
+            }
+            queue.addAll(connectionsOf(node));
+        }
+
+        List<T> dead = new ArrayList<>();
+        for(T node : forward.keySet()) {
+            if(!live.contains(node)) {
+                dead.add(node);
+            }
+        }
+        for(T node : reverse.keySet()) {
+            if(!live.contains(node) && !forward.containsKey(node)) {
+                dead.add(node);
+            }
+        }
+
+        for(T node : dead) {
+            remove(node);
+        }
+        statistics.removed += dead.size();
+        return !dead.isEmpty();
+    }
+
+    //Program ----------------------------------------------------------------------------------------------------------
+    private java.util.Set<T> connectionsOf(T node) {
+        java.util.Set<T> connections = forward.get(node);
+        return connections == null ? Collections.emptySet() : connections;
+    }
+
+    private java.util.Set<T> readersOf(T node) {
+        java.util.Set<T> readers = reverse.get(node);
+        return readers == null ? Collections.emptySet() : readers;
+    }
+
+    private void connect(T node, T target) {
+        forward.computeIfAbsent(node, k -> new LinkedHashSet<>()).add(target);
+        reverse.computeIfAbsent(target, k -> new LinkedHashSet<>()).add(node);
+    }
+
+    private void disconnect(T node, T target) {
+        connectionsOf(node).remove(target);
+        readersOf(target).remove(node);
+    }
+
+    private void setConnections(T node, Iterable<T> targets) {
+        List<T> newTargets = new ArrayList<>();
+        for(T target : targets) {
+            newTargets.add(target);
+        }
+        for(T target : new ArrayList<>(connectionsOf(node))) {
+            disconnect(node, target);
+        }
+        for(T target : newTargets) {
+            connect(node, target);
+        }
+    }
+
+    private void remove(T node) {
+        for(T target : new ArrayList<>(connectionsOf(node))) {
+            disconnect(node, target);
+        }
+        for(T reader : new ArrayList<>(readersOf(node))) {
+            disconnect(reader, node);
+        }
+        forward.remove(node);
+        reverse.remove(node);
+    }
+
+    private int nodeCount() {
+        java.util.Set<T> nodes = new HashSet<>(forward.keySet());
+        nodes.addAll(reverse.keySet());
+        return nodes.size();
+    }
+
+    private static <U> Set<U> toSet(Collection<U> elements) {
+        SetBuilder<U> builder = new SetBuilder<>();
+        for(U element : elements) {
+            builder.add(element);
+        }
+        return builder.toSet();
+    }
+
+    public static class Statistics {
+        public int nodesBefore;
+        public int nodesAfter;
+        public int folded;
+        public int flattened;
+        public int merged;
+        public int removed;
+        public int rounds;
+
+        public String toString() {
+            return "Nodes " + nodesBefore + " => " + nodesAfter + " (folded " + folded + ", flattened " + flattened
+                    + ", merged " + merged + ", removed " + removed + " in " + rounds + " rounds)";
+        }
+    }
+}
@@ -20,6 +20,7 @@ public class StringProgramBuilder implements ProgramBuilder<String> {
     private final SetBuilder<String> differenceBuilder = new SetBuilder<>();
     private final SetBuilder<String> literalBuilder = new SetBuilder<>();
     private final SetBuilder<String> connectionsOfBuilder = new SetBuilder<>();
+    private final Map<String, SetBuilder<String>> customBuilders = new HashMap<>();
 
     public StringProgramBuilder() {
         this(NodeClassTable.getDefault());
@@ -126,8 +127,31 @@ public class StringProgramBuilder implements ProgramBuilder<String> {
         return connectionsOf(new SetImp<>(onlyInput));
     }
 
+    /**
+     * Creates a node of an operation class registered with the class table through NodeClassTable.with
+     * @param classNode the class node of the operation
+     * @param inputs the inputs of the new node
+     * @return the new node
+     */
+    public String operator(String classNode, Set<String> inputs) {
+        if(classTable.classOf(classNode) != NodeClass.CUSTOM) {
+            throw new IllegalArgumentException(classNode + " is not a registered operation class");
+        }
+        String operatorNodeName = node(getUniqueString(classNode), inputs);
+        customBuilders.computeIfAbsent(classNode, key -> new SetBuilder<>()).add(operatorNodeName);
+        return operatorNodeName;
+    }
+
     @Override
     public Execution<String> getExecution() {
+        return new Execution<>(classTable, getConnections(), new Digraph<>());
+    }
+
+    /**
+     * Builds the connection Digraph of the program including the operation class nodes
+     * @return a new Digraph holding the program
+     */
+    public Digraph<String> getConnections() {
         Digraph<String> connectionMap = new Digraph<>(connections);
         connectionMap.update(classTable.nodeFor(NodeClass.ASSIGNMENT), assignmentBuilder.toSet());
         connectionMap.update(classTable.nodeFor(NodeClass.ASSIGNMENT_VALUE), assignmentValueBuilder.toSet());
@@ -137,7 +161,8 @@ public class StringProgramBuilder implements ProgramBuilder<String> {
         connectionMap.update(classTable.nodeFor(NodeClass.LITERAL), literalBuilder.toSet());
         connectionMap.update(classTable.nodeFor(NodeClass.CONNECTIONS_OF), connectionsOfBuilder.toSet());
 
-        connectionMap.update(classTable.nodeFor(NodeClass.OPERATION), new SetImp<>(
+
+        SetBuilder<String> operationBuilder = SetBuilder.fromSet(new SetImp<>(
                 classTable.nodeFor(NodeClass.ASSIGNMENT),
                 classTable.nodeFor(NodeClass.ASSIGNMENT_VALUE),
                 classTable.nodeFor(NodeClass.UNION),
@@ -146,7 +171,24 @@ public class StringProgramBuilder implements ProgramBuilder<String> {
                 classTable.nodeFor(NodeClass.LITERAL),
                 classTable.nodeFor(NodeClass.CONNECTIONS_OF)
         ));
+        for(String classNode : classTable.customClassNodes()) {
+            SetBuilder<String> members = customBuilders.get(classNode);
+            connectionMap.update(classNode, members == null ? new SetBuilder<String>().toSet() : members.toSet());
+            operationBuilder.add(classNode);
+        }
+        connectionMap.update(classTable.nodeFor(NodeClass.OPERATION), operationBuilder.toSet());
+
+        return connectionMap;
+    }
+
+    /**
+     * @return an immutable image of the program from which many executions can be created cheaply
+     */
+    public ProgramImage<String> getImage() {
+        return ProgramImage.of(classTable, getConnections());
+    }
 
-        return new Execution<>(classTable, connectionMap, new Digraph<>());
+    public NodeClassTable<String> getClassTable() {
+        return classTable;
     }
 }
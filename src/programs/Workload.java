@@ -0,0 +1,109 @@
+package programs;
+
+import execution.Execution;
+import execution.ExecutionException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A generated program together with how it is driven: the number of steps it is run for and the updates made to it
+ * between steps. Every execution of a workload behaves identically, so runs can be compared.
+ */
+public class Workload {
+    /**
+     * Updates an execution before each of its steps, from the step number alone
+     */
+    public interface Driver {
+        void beforeStep(Execution<String> execution, int step) throws ExecutionException;
+    }
+
+    private final String name;
+    private final Map<String, Object> parameters;
+    private final StringProgramBuilder builder;
+    private final int maxSteps;
+    private final Driver driver;
+    private final List<String> observed;
+
+    /**
+     * Workloads with no driver end early when an execution stops changing
+     */
+    Workload(String name, Map<String, Object> parameters, StringProgramBuilder builder, int maxSteps,
+             List<String> observed) {
+        this(name, parameters, builder, maxSteps, null, observed);
+    }
+
+    /**
+     * Workloads with a driver always run for maxSteps, the driver changes the execution between steps
+     */
+    Workload(String name, Map<String, Object> parameters, StringProgramBuilder builder, int maxSteps, Driver driver,
+             List<String> observed) {
+        this.name = name;
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(parameters));
+        this.builder = builder;
+        this.maxSteps = maxSteps;
+        this.driver = driver;
+        this.observed = Collections.unmodifiableList(observed);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the parameters the workload was generated from, in the order they were given
+     */
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    public StringProgramBuilder getBuilder() {
+        return builder;
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * @return nodes whose values summarise the state of an execution
+     */
+    public List<String> getObserved() {
+        return observed;
+    }
+
+    public Execution<String> newExecution() {
+        return builder.getExecution();
+    }
+
+    /**
+     * Makes the driver's updates for a step and executes it
+     * @param execution an execution of this workload
+     * @param step the number of the step, from 0
+     * @return whether the workload continues with another step
+     */
+    public boolean step(Execution<String> execution, int step) throws ExecutionException {
+        if(driver != null) {
+            driver.beforeStep(execution, step);
+        }
+        boolean active = execution.executeStep();
+        return step + 1 < maxSteps && (active || driver != null);
+    }
+
+    /**
+     * Runs an execution until it stops changing or reaches the step limit
+     * @param execution an execution of this workload
+     * @return the number of steps executed
+     */
+    public int run(Execution<String> execution) throws ExecutionException {
+        int step = 0;
+        while(step(execution, step++)) {}
+        return step;
+    }
+
+    public String toString() {
+        return name + parameters;
+    }
+}
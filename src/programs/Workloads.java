@@ -0,0 +1,269 @@
+package programs;
+
+import sets.EmptySet;
+import sets.Set;
+import sets.SetBuilder;
+import sets.SetImp;
+
+import java.util.*;
+
+/**
+ * Generators for families of programs of any size. Each generator is deterministic in its parameters, including the
+ * seed of any random choices, so the same parameters always produce the same program and the same run.
+ */
+public final class Workloads {
+    private static final String[] SYMBOLS = { "Symbol(_)", "Symbol(0)", "Symbol(1)" };
+
+    private Workloads() {}
+
+    //Turing machines --------------------------------------------------------------------------------------------------
+    /**
+     * A Turing machine with a random transition table, built as in TuringMachineTest. The head starts in the middle
+     * of a blank tape, the machine stops when it halts or runs off either end of the tape.
+     * @param cells the length of the tape
+     * @param states the number of states besides the halting state
+     * @param maxSteps the step limit, random machines need not halt
+     * @param seed the seed of the transition table
+     */
+    public static Workload turingMachine(int cells, int states, int maxSteps, long seed) {
+        Random random = new Random(seed);
+        StringProgramBuilder b = new StringProgramBuilder();
+
+        //Tape
+        SetBuilder<String> valueBuilder = new SetBuilder<>();
+        SetBuilder<String> incrementerBuilder = new SetBuilder<>();
+        SetBuilder<String> decrementerBuilder = new SetBuilder<>();
+        List<String> observed = new ArrayList<>();
+        for(int i = 0; i < cells; i++) {
+            SetBuilder<String> connections = SetBuilder.fromSet(new SetImp<>("val" + i));
+            if(i < cells - 1) {
+                connections.add("inc" + i);
+                incrementerBuilder.add(b.addNode("inc" + i, "I" + (i + 1)));
+            }
+            if(i > 0) {
+                connections.add("dec" + i);
+                decrementerBuilder.add(b.addNode("dec" + i, "I" + (i - 1)));
+            }
+            b.node("I" + i, connections.toSet());
+            valueBuilder.add(b.addNode("val" + i, SYMBOLS[0]));
+            observed.add("val" + i);
+        }
+
+        String val = b.literal(valueBuilder.toSet());
+        String inc = b.literal(incrementerBuilder.toSet());
+        String dec = b.literal(decrementerBuilder.toSet());
+        String shift = b.literal(new SetImp<>(inc, dec));
+
+        //Transition table, the last state halts
+        String[] state = new String[states + 1];
+        for(int s = 0; s <= states; s++) {
+            state[s] = "State(" + s + ")";
+        }
+        String[][] event = new String[states + 1][SYMBOLS.length];
+        for(int s = 0; s <= states; s++) {
+            for(int symbol = 0; symbol < SYMBOLS.length; symbol++) {
+                event[s][symbol] = "Event(" + s + "," + symbol + ")";
+                if(s == states) {
+                    b.node(event[s][symbol], EmptySet.instance());
+                } else {
+                    b.node(event[s][symbol], new SetImp<>(
+                            state[random.nextInt(states + 1)],
+                            SYMBOLS[random.nextInt(SYMBOLS.length)],
+                            random.nextBoolean() ? inc : dec));
+                }
+            }
+        }
+
+        for(int s = 0; s <= states; s++) {
+            b.node(state[s], new SetImp<>(event[s]));
+        }
+        for(int symbol = 0; symbol < SYMBOLS.length; symbol++) {
+            String[] symbolEvents = new String[states + 1];
+            for(int s = 0; s <= states; s++) {
+                symbolEvents[s] = event[s][symbol];
+            }
+            b.node(SYMBOLS[symbol], new SetImp<>(symbolEvents));
+        }
+        String stateNode = b.literal(new SetImp<>(state));
+        String symbolNode = b.literal(new SetImp<>(SYMBOLS));
+
+        //Logic
+        String cState = b.literal(state[0]);
+        String cIndex = b.literal("I" + cells / 2);
+
+        String cValue = b.intersect(new SetImp<>(b.connectionsOf(cIndex), val));
+        String cSymbol = b.connectionsOf(cValue);
+        String cEvent = b.intersect(new SetImp<>(b.connectionsOf(cState), b.connectionsOf(cSymbol)));
+
+        String decision = b.connectionsOf(cEvent);
+        String dNextState = b.intersect(new SetImp<>(decision, stateNode));
+        String dWriteSymbol = b.intersect(new SetImp<>(decision, symbolNode));
+        String dShift = b.intersect(new SetImp<>(decision, shift));
+
+        b.addAssignment(b.literal(cState), dNextState);
+        b.addAssignment(cValue, dWriteSymbol);
+        b.addAssignment(
+                b.literal(cIndex),
+                b.connectionsOf(b.intersect(new SetImp<>(b.connectionsOf(cIndex), b.connectionsOf(dShift))))
+        );
+        observed.add(0, cIndex);
+        observed.add(1, cState);
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("cells", cells);
+        parameters.put("states", states);
+        parameters.put("seed", seed);
+        return new Workload("turing-machine", parameters, b, maxSteps, observed);
+    }
+
+    //Incrementers -----------------------------------------------------------------------------------------------------
+    /**
+     * Independent copies of the incrementer of IncrementerTest, every index walking from the start of its chain to
+     * the end, one node per step
+     * @param length the number of indexes of each chain
+     * @param chains the number of chains
+     */
+    public static Workload incrementers(int length, int chains) {
+        StringProgramBuilder b = new StringProgramBuilder();
+        List<String> observed = new ArrayList<>();
+
+        for(int c = 0; c < chains; c++) {
+            String prefix = "c" + c + ".";
+            SetBuilder<String> incrementerBuilder = new SetBuilder<>();
+            for(int i = 0; i < length; i++) {
+                SetBuilder<String> connections = new SetBuilder<>();
+                if(i < length - 1) {
+                    connections.add(prefix + "inc" + i);
+                    incrementerBuilder.add(b.addNode(prefix + "inc" + i, prefix + "I" + (i + 1)));
+                }
+                if(i > 0) {
+                    connections.add(prefix + "dec" + i);
+                    b.addNode(prefix + "dec" + i, prefix + "I" + (i - 1));
+                }
+                b.node(prefix + "I" + i, connections.toSet());
+            }
+
+            String inc = b.literal(incrementerBuilder.toSet());
+            String cIndex = b.literal(prefix + "I0");
+            b.addAssignment(
+                    b.literal(cIndex),
+                    b.connectionsOf(b.intersect(new SetImp<>(b.connectionsOf(cIndex), inc)))
+            );
+            observed.add(cIndex);
+        }
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("length", length);
+        parameters.put("chains", chains);
+        return new Workload("incrementers", parameters, b, length + 1, observed);
+    }
+
+    //Random operator DAGs ---------------------------------------------------------------------------------------------
+    /**
+     * Union, intersect and difference operators over literals holding random subsets of a universe of elements.
+     * Each operator reads fanIn nodes created before it, so the program is acyclic. Before every step a number of
+     * literals are given new random values.
+     * @param operators the number of operators
+     * @param fanIn the number of inputs of each operator
+     * @param literals the number of literals
+     * @param universe the number of elements the literals choose from
+     * @param updatesPerStep the number of literals changed before each step
+     * @param steps the number of steps
+     * @param seed the seed of the program and of the updates
+     */
+    public static Workload randomDag(int operators, int fanIn, int literals, int universe, int updatesPerStep,
+                                     int steps, long seed) {
+        Random random = new Random(seed);
+        StringProgramBuilder b = new StringProgramBuilder();
+
+        List<String> nodes = new ArrayList<>();
+        List<String> literalNodes = new ArrayList<>();
+        for(int i = 0; i < literals; i++) {
+            String literal = b.literal(randomSubset(random, universe));
+            literalNodes.add(literal);
+            nodes.add(literal);
+        }
+
+        List<String> observed = new ArrayList<>();
+        for(int i = 0; i < operators; i++) {
+            SetBuilder<String> inputs = new SetBuilder<>();
+            //Inputs are drawn mostly from recent nodes so the program is deep as well as wide
+            while(inputs.size() < Math.min(fanIn, nodes.size())) {
+                int window = Math.min(nodes.size(), 4 * fanIn + literals);
+                inputs.add(nodes.get(nodes.size() - 1 - random.nextInt(window)));
+            }
+            String operator;
+            switch (random.nextInt(3)) {
+                case 0:
+                    operator = b.union(inputs.toSet());
+                    break;
+                case 1:
+                    operator = b.intersect(inputs.toSet());
+                    break;
+                default:
+                    operator = b.difference(inputs.toSet());
+            }
+            nodes.add(operator);
+            if(i >= operators - 8) {
+                observed.add(operator);
+            }
+        }
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("operators", operators);
+        parameters.put("fanIn", fanIn);
+        parameters.put("literals", literals);
+        parameters.put("universe", universe);
+        parameters.put("updatesPerStep", updatesPerStep);
+        parameters.put("seed", seed);
+        return new Workload("random-dag", parameters, b, steps, (execution, step) -> {
+            Random stepRandom = new Random(seed * 31 + step);
+            for(int i = 0; i < updatesPerStep; i++) {
+                String literal = literalNodes.get(stepRandom.nextInt(literalNodes.size()));
+                execution.update(literal, randomSubset(stepRandom, universe));
+            }
+        }, observed);
+    }
+
+    private static Set<String> randomSubset(Random random, int universe) {
+        SetBuilder<String> elements = new SetBuilder<>();
+        int size = 1 + random.nextInt(Math.max(1, universe / 2));
+        for(int i = 0; i < size; i++) {
+            elements.add("e" + random.nextInt(universe));
+        }
+        return elements.toSet();
+    }
+
+    //Rewiring ---------------------------------------------------------------------------------------------------------
+    /**
+     * Pointers walking a ring of cells while rewiring it. Every step each pointer moves to the cell its current cell
+     * connects to and then redirects the cell it left to a fixed random cell, so every step performs two assignments
+     * per pointer and the ring is reshaped continuously.
+     * @param cells the number of cells
+     * @param pointers the number of pointers
+     * @param steps the number of steps
+     * @param seed the seed of the start cells and redirections
+     */
+    public static Workload rewiring(int cells, int pointers, int steps, long seed) {
+        Random random = new Random(seed);
+        StringProgramBuilder b = new StringProgramBuilder();
+
+        for(int i = 0; i < cells; i++) {
+            b.addNode("cell" + i, "cell" + (i + 1) % cells);
+        }
+
+        List<String> observed = new ArrayList<>();
+        for(int p = 0; p < pointers; p++) {
+            String pointer = b.literal("cell" + random.nextInt(cells));
+            b.addAssignment(b.literal(pointer), b.connectionsOf(pointer));
+            b.addAssignment(pointer, b.literal("cell" + random.nextInt(cells)));
+            observed.add(pointer);
+        }
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("cells", cells);
+        parameters.put("pointers", pointers);
+        parameters.put("seed", seed);
+        return new Workload("rewiring", parameters, b, steps, observed);
+    }
+}
@@ -0,0 +1,369 @@
+package server;
+
+import execution.Execution;
+import execution.ExecutionException;
+import execution.StepListener;
+import sets.EmptySet;
+import sets.Set;
+import sets.SetBuilder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * Serves an Execution over a line protocol on the loopback interface. Each request is one line of whitespace
+ * separated words and receives one line starting with OK or ERR:
+ *
+ * <pre>
+ * GET node...                   the connections of each node as of the last completed step
+ * VALUE node...                 the value of each node as of the last completed step
+ * SET node element...           replaces the connections of a node at the next step boundary
+ * ASSIGN target... = value...   performs an assignment at the next step boundary
+ * STEP [count]                  executes steps, applying the queued writes before each one
+ * STATS                         the request count, p50 and p99 latency of each command
+ * QUIT                          closes the connection
+ * </pre>
+ *
+ * Every connection is handled by its own virtual thread when the JVM provides them and by a pooled platform
+ * thread otherwise. Reads are served from a copy of the state published at the end of each step so they never wait
+ * for a running step. Writes from every client are coalesced, the last SET of a node wins, and applied as one batch
+ * before the next step.
+ *
+ * @param <T> The type of the nodes
+ */
+public class ExecutionServer<T> implements StepListener<T>, AutoCloseable {
+    private static final int LATENCY_SAMPLES = 1 << 16;
+    private static final String[] COMMANDS = new String[]{ "GET", "VALUE", "SET", "ASSIGN", "STEP" };
+
+    private final Set<T> EMPTY = EmptySet.instance();
+
+    private final Execution<T> execution;
+    private final Function<String, T> parser;
+
+    /**
+     * The state of the last completed step. Publishing takes the write lock of publishLock, reads are optimistic so
+     * that thousands of readers can not starve the step thread.
+     */
+    private final Map<T, Set<T>> publishedConnections;
+    private final Map<T, Set<T>> publishedValues;
+    private final StampedLock publishLock = new StampedLock();
+    private volatile long publishedStep;
+
+    /**
+     * The changes of the running step, only touched while holding the Execution
+     */
+    private final Map<T, Set<T>> stepConnections = new HashMap<>();
+    private final Map<T, Set<T>> stepValues = new HashMap<>();
+
+    /**
+     * Writes waiting for the next step boundary, guarded by pendingLock
+     */
+    private final Object pendingLock = new Object();
+    private Map<T, Set<T>> pendingUpdates = new LinkedHashMap<>();
+    private List<List<Set<T>>> pendingAssignments = new ArrayList<>();
+
+    private final Object stepLock = new Object();
+
+    private final Map<String, LatencyRecorder> latencies = new ConcurrentHashMap<>();
+
+    private ServerSocket serverSocket;
+    private ExecutorService handlers;
+
+    /**
+     * @param execution the execution being served, no other thread may execute steps while the server runs
+     * @param parser the node named by a word of the protocol
+     */
+    public ExecutionServer(Execution<T> execution, Function<String, T> parser) {
+        this.execution = execution;
+        this.parser = parser;
+
+        synchronized (execution) {
+            this.publishedConnections = new ConcurrentHashMap<>(execution.queryAll());
+            this.publishedValues = new ConcurrentHashMap<>(execution.queryAllValues());
+            this.publishedStep = execution.getStep();
+            execution.addListener(this);
+        }
+
+        for(String command : COMMANDS) {
+            latencies.put(command, new LatencyRecorder(LATENCY_SAMPLES));
+        }
+    }
+
+    /**
+     * Starts accepting connections
+     * @param port the port to listen on, 0 picks a free port
+     * @return the port being listened on
+     * @throws IOException when the port can not be bound
+     */
+    public int start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 4096, InetAddress.getLoopbackAddress());
+        handlers = newHandlerExecutor();
+
+        Thread acceptor = new Thread(this::accept, "execution-server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        return serverSocket.getLocalPort();
+    }
+
+    private static ExecutorService newHandlerExecutor() {
+        try {
+            Method virtualExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "execution-server-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void accept() {
+        while(!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                handlers.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = in.readLine()) != null) {
+                String[] words = line.trim().split("\\s+");
+                if(words[0].equalsIgnoreCase("QUIT")) {
+                    return;
+                }
+                out.write(handle(words));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            //The client disconnected
+        }
+    }
+
+    /**
+     * Executes one request
+     * @param words the words of the request line
+     * @return the response line
+     */
+    public String handle(String[] words) {
+        long start = System.nanoTime();
+        String command = words[0].toUpperCase();
+        String response;
+
+        try {
+            switch (command) {
+                case "GET":
+                    response = read(words, publishedConnections);
+                    break;
+                case "VALUE":
+                    response = read(words, publishedValues);
+                    break;
+                case "SET":
+                    response = set(words);
+                    break;
+                case "ASSIGN":
+                    response = assign(words);
+                    break;
+                case "STEP":
+                    response = step(words.length > 1 ? Integer.parseInt(words[1]) : 1);
+                    break;
+                case "STATS":
+                    return "OK " + statistics();
+                default:
+                    return "ERR unknown command " + words[0];
+            }
+        } catch (ExecutionException | RuntimeException e) {
+            //A failed request only fails its own response, the connection keeps serving
+            response = "ERR " + (e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+
+        latencies.get(command).record(System.nanoTime() - start);
+        return response;
+    }
+
+    private String read(String[] words, Map<T, Set<T>> published) {
+        long stamp = publishLock.tryOptimisticRead();
+        String response = read(words, published, publishedStep);
+        if(publishLock.validate(stamp)) {
+            return response;
+        }
+
+        //A step was published during the read, which may have seen nodes from both steps
+        stamp = publishLock.readLock();
+        try {
+            return read(words, published, publishedStep);
+        } finally {
+            publishLock.unlockRead(stamp);
+        }
+    }
+
+    private String read(String[] words, Map<T, Set<T>> published, long step) {
+        StringBuilder response = new StringBuilder("OK ");
+        response.append(step);
+        for(int i = 1; i < words.length; i++) {
+            response.append(' ').append(published.getOrDefault(parser.apply(words[i]), EMPTY));
+        }
+        return response.toString();
+    }
+
+    private String set(String[] words) {
+        if(words.length < 2) {
+            throw new IllegalArgumentException("SET requires a node");
+        }
+        Set<T> newConnections = parse(words, 2, words.length);
+        synchronized (pendingLock) {
+            pendingUpdates.put(parser.apply(words[1]), newConnections);
+        }
+        return "OK";
+    }
+
+    private String assign(String[] words) {
+        int separator = Arrays.asList(words).indexOf("=");
+        if(separator < 0) {
+            throw new IllegalArgumentException("ASSIGN requires targets = values");
+        }
+        List<Set<T>> assignment = Arrays.asList(parse(words, 1, separator), parse(words, separator + 1, words.length));
+        synchronized (pendingLock) {
+            pendingAssignments.add(assignment);
+        }
+        return "OK";
+    }
+
+    private Set<T> parse(String[] words, int from, int to) {
+        SetBuilder<T> builder = new SetBuilder<>();
+        for(int i = from; i < to; i++) {
+            builder.add(parser.apply(words[i]));
+        }
+        return builder.toSet();
+    }
+
+    private String step(int count) throws ExecutionException {
+        boolean active = false;
+        synchronized (stepLock) {
+            for(int i = 0; i < count; i++) {
+                applyPendingWrites();
+                active = execution.executeStep();
+            }
+        }
+        return "OK " + publishedStep + " " + active;
+    }
+
+    /**
+     * Applies the coalesced SETs and then the assignments queued since the last step, assignment targets and values
+     * are resolved against the values of the last completed step
+     */
+    private void applyPendingWrites() {
+        Map<T, Set<T>> updates;
+        List<List<Set<T>>> assignments;
+        synchronized (pendingLock) {
+            updates = pendingUpdates;
+            assignments = pendingAssignments;
+            pendingUpdates = new LinkedHashMap<>();
+            pendingAssignments = new ArrayList<>();
+        }
+
+        synchronized (execution) {
+            for(Map.Entry<T, Set<T>> update : updates.entrySet()) {
+                execution.update(update.getKey(), update.getValue());
+            }
+
+            for(List<Set<T>> assignment : assignments) {
+                SetBuilder<T> alteredNodes = new SetBuilder<>();
+                for(T target : assignment.get(0)) {
+                    alteredNodes.addAll(execution.queryValue(target));
+                }
+                SetBuilder<T> assignmentValues = new SetBuilder<>();
+                for(T value : assignment.get(1)) {
+                    assignmentValues.addAll(execution.queryValue(value));
+                }
+                for(T alteredNode : alteredNodes.toSet()) {
+                    execution.update(alteredNode, assignmentValues.toSet());
+                }
+            }
+        }
+    }
+
+    //StepListener -----------------------------------------------------------------------------------------------------
+    @Override
+    public void valueChanged(T node, Set<T> newValues) {
+        stepValues.put(node, newValues);
+    }
+
+    @Override
+    public void connectionsChanged(T node, Set<T> newConnections) {
+        stepConnections.put(node, newConnections);
+    }
+
+    @Override
+    public void stepCompleted(long step) {
+        long stamp = publishLock.writeLock();
+        try {
+            publishedConnections.putAll(stepConnections);
+            publishedValues.putAll(stepValues);
+            publishedStep = step;
+        } finally {
+            publishLock.unlockWrite(stamp);
+        }
+        stepConnections.clear();
+        stepValues.clear();
+    }
+
+    //Statistics -------------------------------------------------------------------------------------------------------
+    public LatencyRecorder latency(String command) {
+        return latencies.get(command.toUpperCase());
+    }
+
+    public String statistics() {
+        StringBuilder output = new StringBuilder();
+        for(String command : COMMANDS) {
+            if(output.length() > 0) {
+                output.append(" | ");
+            }
+            output.append(command).append(' ').append(latencies.get(command));
+        }
+        return output.toString();
+    }
+
+    @Override
+    public void close() {
+        execution.removeListener(this);
+        try {
+            if(serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException ignored) {
+        }
+        if(handlers != null) {
+            handlers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package server;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples of one kind of request and reports their percentiles
+ */
+public class LatencyRecorder {
+    private final long[] samples;
+    private long count = 0;
+
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[(int) (count % samples.length)] = nanos;
+        count++;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in nanoseconds at that percentile of the retained samples, 0 when there are none
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+        if(sorted.length == 0) {
+            return 0;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public String toString() {
+        return String.format("count=%d p50=%.1fus p99=%.1fus", count(), percentile(50) / 1000.0, percentile(99) / 1000.0);
+    }
+}
@@ -0,0 +1,129 @@
+package sets;
+
+import java.util.Arrays;
+
+/**
+ * Multi-way set operations over bitmaps held as arrays of 64 bit words. The inputs are processed a block of words
+ * at a time so the accumulators stay in L1 while every input streams through once, and the inner loops are plain
+ * word loops which the JIT compiles to SIMD instructions.
+ */
+public final class Bitmaps {
+    /**
+     * Words processed per block, 512 bytes of each accumulator
+     */
+    static final int BLOCK = 64;
+
+    private Bitmaps() {}
+
+    /**
+     * @param inputs the bitmaps
+     * @return the words holding every bit set in any input
+     */
+    public static long[] union(long[][] inputs) {
+        long[] output = new long[maximumLength(inputs)];
+        for(long[] input : inputs) {
+            for(int i = 0; i < input.length; i++) {
+                output[i] |= input[i];
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Intersects the inputs a block at a time, abandoning a block as soon as every word of it is zero
+     * @param inputs the bitmaps
+     * @return the words holding every bit set in all inputs, empty when there are no inputs
+     */
+    public static long[] intersect(long[][] inputs) {
+        if(inputs.length == 0) {
+            return new long[0];
+        }
+        long[] output = new long[minimumLength(inputs)];
+
+        for(int from = 0; from < output.length; from += BLOCK) {
+            int to = Math.min(from + BLOCK, output.length);
+            System.arraycopy(inputs[0], from, output, from, to - from);
+
+            for(int k = 1; k < inputs.length; k++) {
+                long[] input = inputs[k];
+                long any = 0;
+                for(int i = from; i < to; i++) {
+                    output[i] &= input[i];
+                    any |= output[i];
+                }
+                if(any == 0) {
+                    break;
+                }
+            }
+        }
+        return output;
+    }
+
+    /**
+     * @param inputs the bitmaps
+     * @return the words holding every bit set in exactly one input
+     */
+    public static long[] exactlyOnce(long[][] inputs) {
+        long[] once = new long[maximumLength(inputs)];
+        long[] more = new long[BLOCK];
+
+        for(int from = 0; from < once.length; from += BLOCK) {
+            int to = Math.min(from + BLOCK, once.length);
+            Arrays.fill(more, 0);
+
+            for(long[] input : inputs) {
+                int end = Math.min(to, input.length);
+                for(int i = from; i < end; i++) {
+                    more[i - from] |= once[i] & input[i];
+                    once[i] |= input[i];
+                }
+            }
+            for(int i = from; i < to; i++) {
+                once[i] &= ~more[i - from];
+            }
+        }
+        return once;
+    }
+
+    /**
+     * @param inputs the bitmaps
+     * @return the words holding every bit set in an odd number of inputs
+     */
+    public static long[] odd(long[][] inputs) {
+        long[] output = new long[maximumLength(inputs)];
+        for(long[] input : inputs) {
+            for(int i = 0; i < input.length; i++) {
+                output[i] ^= input[i];
+            }
+        }
+        return output;
+    }
+
+    /**
+     * @param words a bitmap
+     * @return the number of words up to and including the last non zero word
+     */
+    static int trimmedLength(long[] words) {
+        int length = words.length;
+        while(length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+
+    private static int maximumLength(long[][] inputs) {
+        int length = 0;
+        for(long[] input : inputs) {
+            length = Math.max(length, input.length);
+        }
+        return length;
+    }
+
+    private static int minimumLength(long[][] inputs) {
+        int length = Integer.MAX_VALUE;
+        for(long[] input : inputs) {
+            length = Math.min(length, input.length);
+        }
+        return length;
+    }
+}
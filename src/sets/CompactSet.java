@@ -0,0 +1,101 @@
+package sets;
+
+/**
+ * The set algebra shared by the compact representations chosen by Representations. Results are collected into a
+ * plain array and handed back to Representations, so no intermediate HashSet is built. Operations which leave one of
+ * their inputs unchanged return that input.
+ *
+ * @param <T> The type of the elements of the set
+ */
+abstract class CompactSet<T> extends Set<T> {
+    @Override
+    public Set<T> union(Set<T> other) {
+        if(other.isEmpty() || other == this) {
+            return this;
+        }
+        if(other.size() <= size() && containsAll(this, other)) {
+            return this;
+        }
+        if(other.size() > size() && containsAll(other, this)) {
+            return other;
+        }
+
+        Object[] output = new Object[size() + other.size()];
+        int count = 0;
+        for(T element : this) {
+            output[count++] = element;
+        }
+        for(T element : other) {
+            if(!contains(element)) {
+                output[count++] = element;
+            }
+        }
+        return Representations.of(output, count);
+    }
+
+    @Override
+    public Set<T> intersect(Set<T> other) {
+        if(other.isEmpty()) {
+            return EmptySet.instance();
+        }
+        if(other == this) {
+            return this;
+        }
+
+        Set<T> smaller = size() <= other.size() ? this : other;
+        Set<T> larger = smaller == this ? other : this;
+        Object[] output = new Object[smaller.size()];
+        int count = 0;
+        for(T element : smaller) {
+            if(larger.contains(element)) {
+                output[count++] = element;
+            }
+        }
+        return count == smaller.size() ? smaller : Representations.of(output, count);
+    }
+
+    @Override
+    public Set<T> difference(Set<T> other) {
+        if(other.isEmpty()) {
+            return this;
+        }
+
+        Object[] output = new Object[size() + other.size()];
+        int count = 0;
+        for(T element : this) {
+            if(!other.contains(element)) {
+                output[count++] = element;
+            }
+        }
+        for(T element : other) {
+            if(!contains(element)) {
+                output[count++] = element;
+            }
+        }
+        return Representations.of(output, count);
+    }
+
+    @Override
+    public boolean equals(Set<T> other) {
+        return other != null && other.size() == size() && containsAll(other, this);
+    }
+
+    private static <T> boolean containsAll(Set<T> container, Set<T> elements) {
+        for(T element : elements) {
+            if(!container.contains(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        //Matches the hash of a SetImp holding the same elements
+        int hash = 0;
+        for(T element : this) {
+            hash += element.hashCode();
+        }
+        return hash;
+    }
+}
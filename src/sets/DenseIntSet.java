@@ -0,0 +1,213 @@
+package sets;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of non negative integers held as a bitmap, suited to the dense node ids of programs built by
+ * IntProgramBuilder. The multi-way operations of Set use the Bitmaps kernels when all of their inputs are dense.
+ */
+public class DenseIntSet extends Set<Integer> {
+    private final long[] words;
+    private final int size;
+
+    DenseIntSet(long[] words) {
+        this.words = Arrays.copyOf(words, Bitmaps.trimmedLength(words));
+        int count = 0;
+        for(long word : this.words) {
+            count += Long.bitCount(word);
+        }
+        this.size = count;
+    }
+
+    public static DenseIntSet of(int... elements) {
+        int maximum = -1;
+        for(int element : elements) {
+            if(element < 0) {
+                throw new IllegalArgumentException("Dense sets hold non negative integers, not " + element);
+            }
+            maximum = Math.max(maximum, element);
+        }
+
+        long[] words = new long[(maximum >> 6) + 1];
+        for(int element : elements) {
+            words[element >> 6] |= 1L << element;
+        }
+        return new DenseIntSet(words);
+    }
+
+    public static DenseIntSet fromSet(Set<Integer> set) {
+        if(set instanceof DenseIntSet) {
+            return (DenseIntSet) set;
+        }
+        int[] elements = new int[set.size()];
+        int i = 0;
+        for(int element : set) {
+            elements[i++] = element;
+        }
+        return of(elements);
+    }
+
+    //Multi-way operations ---------------------------------------------------------------------------------------------
+    static DenseIntSet unionOf(Iterable<? extends Set<?>> sets) {
+        return new DenseIntSet(Bitmaps.union(wordsOf(sets)));
+    }
+
+    static DenseIntSet intersectionOf(Iterable<? extends Set<?>> sets) {
+        return new DenseIntSet(Bitmaps.intersect(wordsOf(sets)));
+    }
+
+    static DenseIntSet exactlyOnceOf(Iterable<? extends Set<?>> sets) {
+        return new DenseIntSet(Bitmaps.exactlyOnce(wordsOf(sets)));
+    }
+
+    static DenseIntSet oddOf(Iterable<? extends Set<?>> sets) {
+        return new DenseIntSet(Bitmaps.odd(wordsOf(sets)));
+    }
+
+    /**
+     * @return whether at least one of the sets is dense and the others are dense or empty
+     */
+    static boolean allDense(Iterable<? extends Set<?>> sets) {
+        boolean any = false;
+        for(Set<?> set : sets) {
+            if(set instanceof DenseIntSet) {
+                any = true;
+            } else if(!(set instanceof EmptySet)) {
+                return false;
+            }
+        }
+        return any;
+    }
+
+    private static long[][] wordsOf(Iterable<? extends Set<?>> sets) {
+        int count = 0;
+        for(Set<?> ignored : sets) {
+            count++;
+        }
+        long[][] output = new long[count][];
+        int i = 0;
+        for(Set<?> set : sets) {
+            output[i++] = set instanceof DenseIntSet ? ((DenseIntSet) set).words : new long[0];
+        }
+        return output;
+    }
+
+    //Set --------------------------------------------------------------------------------------------------------------
+    @Override
+    public Set<Integer> union(Set<Integer> other) {
+        if(other instanceof DenseIntSet) {
+            return new DenseIntSet(Bitmaps.union(new long[][]{ words, ((DenseIntSet) other).words }));
+        }
+        SetBuilder<Integer> outputBuilder = SetBuilder.fromSet(this);
+        outputBuilder.addAll(other);
+        return outputBuilder.toSet();
+    }
+
+    @Override
+    public Set<Integer> intersect(Set<Integer> other) {
+        if(other instanceof DenseIntSet) {
+            return new DenseIntSet(Bitmaps.intersect(new long[][]{ words, ((DenseIntSet) other).words }));
+        }
+        SetBuilder<Integer> outputBuilder = new SetBuilder<>();
+        for(Integer element : other) {
+            if(contains(element)) {
+                outputBuilder.add(element);
+            }
+        }
+        return outputBuilder.toSet();
+    }
+
+    @Override
+    public Set<Integer> difference(Set<Integer> other) {
+        if(other instanceof DenseIntSet) {
+            return new DenseIntSet(Bitmaps.odd(new long[][]{ words, ((DenseIntSet) other).words }));
+        }
+        SetBuilder<Integer> outputBuilder = new SetBuilder<>();
+        for(Integer element : this) {
+            if(!other.contains(element)) {
+                outputBuilder.add(element);
+            }
+        }
+        for(Integer element : other) {
+            if(!contains(element)) {
+                outputBuilder.add(element);
+            }
+        }
+        return outputBuilder.toSet();
+    }
+
+    @Override
+    public boolean contains(Integer other) {
+        if(other == null || other < 0 || (other >> 6) >= words.length) {
+            return false;
+        }
+        return (words[other >> 6] & (1L << other)) != 0;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int index = 0;
+            private long word = words.length == 0 ? 0 : words[0];
+
+            @Override
+            public boolean hasNext() {
+                while(word == 0) {
+                    if(++index >= words.length) {
+                        return false;
+                    }
+                    word = words[index];
+                }
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int element = (index << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return element;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Set<Integer> other) {
+        if(other instanceof DenseIntSet) {
+            return Arrays.equals(words, ((DenseIntSet) other).words);
+        }
+        if(other == null || other.size() != size) {
+            return false;
+        }
+        for(Integer element : other) {
+            if(!contains(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return SizeModel.object(1) + 4 + SizeModel.longArray(words.length);
+    }
+
+    @Override
+    public int hashCode() {
+        //Matches the hash of a SetImp holding the same elements
+        int hash = 0;
+        for(int element : this) {
+            hash += element;
+        }
+        return hash;
+    }
+}
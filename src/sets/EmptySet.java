@@ -4,6 +4,17 @@ import java.util.Collections;
 import java.util.Iterator;
 
 public class EmptySet<T> extends Set<T> {
+    @SuppressWarnings("rawtypes")
+    private static final EmptySet INSTANCE = new EmptySet();
+
+    /**
+     * @return the empty set shared by every structure which needs one
+     */
+    @SuppressWarnings("unchecked")
+    public static <U> EmptySet<U> instance() {
+        return (EmptySet<U>) INSTANCE;
+    }
+
     @Override
     public Set<T> intersect(Set<T> other) {
         return this;
@@ -38,4 +49,14 @@ public class EmptySet<T> extends Set<T> {
     public int size() {
         return 0;
     }
+
+    @Override
+    public int hashCode() {
+        return 0;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return SizeModel.object(0);
+    }
 }
@@ -0,0 +1,103 @@
+package sets;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A small set held as an array sorted by element hash, searched by binary search over the hashes. It works for
+ * elements of any type, needing no ordering of the elements themselves.
+ *
+ * @param <T> The type of the elements of the set
+ */
+class HashArraySet<T> extends CompactSet<T> {
+    static final int CAPACITY = 16;
+
+    private final Object[] elements;
+    private final int[] hashes;
+    private int hash = 0;
+
+    /**
+     * @param elements distinct elements
+     */
+    HashArraySet(Object[] elements, int size) {
+        //Each hash is sorted together with the index of its element
+        long[] order = new long[size];
+        for(int i = 0; i < size; i++) {
+            order[i] = ((long) elements[i].hashCode() << 32) | i;
+        }
+        Arrays.sort(order, 0, size);
+
+        this.elements = new Object[size];
+        this.hashes = new int[size];
+        for(int i = 0; i < size; i++) {
+            this.elements[i] = elements[(int) order[i]];
+            this.hashes[i] = (int) (order[i] >> 32);
+        }
+    }
+
+    @Override
+    public boolean contains(T other) {
+        if(other == null) {
+            return false;
+        }
+        int hash = other.hashCode();
+        int index = Arrays.binarySearch(hashes, hash);
+        if(index < 0) {
+            return false;
+        }
+        //Equal hashes are adjacent, the search may land on any of them
+        for(int i = index; i >= 0 && hashes[i] == hash; i--) {
+            if(other.equals(elements[i])) {
+                return true;
+            }
+        }
+        for(int i = index + 1; i < hashes.length && hashes[i] == hash; i++) {
+            if(other.equals(elements[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < elements.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if(index >= elements.length) {
+                    throw new NoSuchElementException();
+                }
+                return (T) elements[index++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public int hashCode() {
+        if(hash == 0) {
+            for(int elementHash : hashes) {
+                hash += elementHash;
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return SizeModel.align(SizeModel.HEADER + 2 * SizeModel.REFERENCE + 4) + SizeModel.referenceArray(elements.length) + SizeModel.intArray(hashes.length);
+    }
+}
@@ -0,0 +1,143 @@
+package sets;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set held in one open addressing table with linear probing, at most half full. Unlike a HashSet it allocates no
+ * entry per element.
+ *
+ * @param <T> The type of the elements of the set
+ */
+class OpenHashSet<T> extends CompactSet<T> {
+    private final Object[] table;
+    private final int mask;
+    private final int size;
+    private int hash = 0;
+
+    /**
+     * @param table an open addressing table holding size elements, which is kept
+     */
+    private OpenHashSet(Object[] table, int size) {
+        this.table = table;
+        this.mask = table.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * @param elements distinct elements
+     */
+    static <T> OpenHashSet<T> of(Object[] elements, int size) {
+        Object[] table = new Object[capacityFor(size)];
+        for(int i = 0; i < size; i++) {
+            insert(table, elements[i]);
+        }
+        return new OpenHashSet<>(table, size);
+    }
+
+    /**
+     * @param elements distinct elements
+     */
+    static <T> OpenHashSet<T> copyOf(Iterable<?> elements, int size) {
+        Object[] table = new Object[capacityFor(size)];
+        for(Object element : elements) {
+            insert(table, element);
+        }
+        return new OpenHashSet<>(table, size);
+    }
+
+    /**
+     * @param table an open addressing table filled by OpenTable, which is kept
+     */
+    static <T> OpenHashSet<T> wrap(Object[] table, int size) {
+        return new OpenHashSet<>(table, size);
+    }
+
+    private static void insert(Object[] table, Object element) {
+        int mask = table.length - 1;
+        int slot = spread(element.hashCode()) & mask;
+        while(table[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = element;
+    }
+
+    /**
+     * @return the power of two table size keeping that many elements at most half full
+     */
+    static int capacityFor(int size) {
+        return Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+    }
+
+    private void insert(Object element) {
+        int slot = spread(element.hashCode()) & mask;
+        while(table[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = element;
+    }
+
+    static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+    }
+
+    @Override
+    public boolean contains(T other) {
+        if(other == null) {
+            return false;
+        }
+        int slot = spread(other.hashCode()) & mask;
+        Object element;
+        while((element = table[slot]) != null) {
+            if(other.equals(element)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int slot = 0;
+            private int remaining = size;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if(remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                while(table[slot] == null) {
+                    slot++;
+                }
+                remaining--;
+                return (T) table[slot++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int hashCode() {
+        if(hash == 0) {
+            hash = super.hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return SizeModel.align(SizeModel.HEADER + SizeModel.REFERENCE + 12) + SizeModel.referenceArray(table.length);
+    }
+}
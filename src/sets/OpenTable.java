@@ -0,0 +1,109 @@
+package sets;
+
+/**
+ * An open addressing table counting how many times each element was added, used by the multi-way operations of Set
+ * in place of HashSets. It starts sized for an expected number of distinct elements and doubles when half full. When
+ * enough of the table is used it becomes the table of the resulting OpenHashSet without being copied.
+ */
+final class OpenTable {
+    private Object[] table;
+    private int[] counts;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * @param expected the number of distinct elements expected to be added
+     */
+    OpenTable(int expected) {
+        int capacity = OpenHashSet.capacityFor(expected);
+        table = new Object[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return the number of times the element has been added, including this time
+     */
+    int add(Object element) {
+        int slot = OpenHashSet.spread(element.hashCode()) & mask;
+        Object current;
+        while((current = table[slot]) != null) {
+            if(current.equals(element)) {
+                return ++counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = element;
+        counts[slot] = 1;
+        if(++size * 2 > table.length) {
+            grow();
+        }
+        return 1;
+    }
+
+    private void grow() {
+        Object[] oldTable = table;
+        int[] oldCounts = counts;
+        table = new Object[oldTable.length * 2];
+        counts = new int[table.length];
+        mask = table.length - 1;
+
+        for(int i = 0; i < oldTable.length; i++) {
+            if(oldTable[i] != null) {
+                int slot = OpenHashSet.spread(oldTable[i].hashCode()) & mask;
+                while(table[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = oldTable[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * @return the set of every element added
+     */
+    <T> Set<T> toSet() {
+        if(size > HashArraySet.CAPACITY && size * 4 >= table.length && !(table[firstSlot()] instanceof Integer)) {
+            return OpenHashSet.wrap(table, size);
+        }
+        return toSet(0, 0);
+    }
+
+    /**
+     * @return the set of the elements added a number of times congruent to remainder modulo divisor, every element
+     * when divisor is 0
+     */
+    <T> Set<T> toSet(int divisor, int remainder) {
+        Object[] output = new Object[size];
+        int count = 0;
+        for(int slot = 0; slot < table.length; slot++) {
+            if(table[slot] != null && (divisor == 0 || counts[slot] % divisor == remainder)) {
+                output[count++] = table[slot];
+            }
+        }
+        return Representations.of(output, count);
+    }
+
+    /**
+     * @return the set of the elements added exactly once
+     */
+    <T> Set<T> once() {
+        Object[] output = new Object[size];
+        int count = 0;
+        for(int slot = 0; slot < table.length; slot++) {
+            if(counts[slot] == 1) {
+                output[count++] = table[slot];
+            }
+        }
+        return Representations.of(output, count);
+    }
+
+    private int firstSlot() {
+        int slot = 0;
+        while(table[slot] == null) {
+            slot++;
+        }
+        return slot;
+    }
+}
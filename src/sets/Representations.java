@@ -0,0 +1,87 @@
+package sets;
+
+import java.util.HashSet;
+
+/**
+ * Chooses how an immutable set is held from its size and contents:
+ *  empty           EmptySet
+ *  1 to 4          SmallSet, elements in fields
+ *  5 to 16         HashArraySet, an array sorted by hash
+ *  17 to OPEN_MAX  OpenHashSet, an open addressing table
+ *  larger          SetImp sharing the HashSet it was built in, copying millions of elements would cost more than
+ *                  the table saves
+ * Sets of at least 17 non negative Integers spanning fewer than 64 values per element are held as a DenseIntSet,
+ * whatever their size.
+ */
+final class Representations {
+    static final int OPEN_MAX = 1 << 16;
+    private static final int DENSE_MIN = HashArraySet.CAPACITY + 1;
+    private static final int DENSE_SPAN = 64;
+
+    private Representations() {}
+
+    /**
+     * @param elements distinct elements, the array may be kept
+     * @param size the number of elements at the start of the array
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Set<T> of(Object[] elements, int size) {
+        if(size == 0) {
+            return EmptySet.instance();
+        } else if(size <= SmallSet.CAPACITY) {
+            return new SmallSet<>(elements, size);
+        } else if(size <= HashArraySet.CAPACITY) {
+            return new HashArraySet<>(elements, size);
+        }
+
+        int maximum = denseMaximum(elements, size);
+        if(maximum >= 0) {
+            long[] words = new long[(maximum >> 6) + 1];
+            for(int i = 0; i < size; i++) {
+                int element = (Integer) elements[i];
+                words[element >> 6] |= 1L << element;
+            }
+            return (Set<T>) new DenseIntSet(words);
+        }
+        if(size <= OPEN_MAX) {
+            return OpenHashSet.of(elements, size);
+        }
+        HashSet<T> contents = new HashSet<>((int) (size / .75f) + 1);
+        for(int i = 0; i < size; i++) {
+            contents.add((T) elements[i]);
+        }
+        return new SetImp<>(contents);
+    }
+
+    /**
+     * @return the set of the elements of a HashSet, or null when it is best held by a SetImp sharing it
+     */
+    static <T> Set<T> copyOf(HashSet<T> contents) {
+        boolean integers = !contents.isEmpty() && contents.iterator().next() instanceof Integer;
+        if(!integers && contents.size() > HashArraySet.CAPACITY) {
+            return contents.size() > OPEN_MAX ? null : OpenHashSet.copyOf(contents, contents.size());
+        }
+        Object[] elements = contents.toArray();
+        if(elements.length > OPEN_MAX && denseMaximum(elements, elements.length) < 0) {
+            return null;
+        }
+        return of(elements, elements.length);
+    }
+
+    /**
+     * @return the largest element when the elements are non negative Integers dense enough for a bitmap, else -1
+     */
+    private static int denseMaximum(Object[] elements, int size) {
+        if(size < DENSE_MIN || !(elements[0] instanceof Integer)) {
+            return -1;
+        }
+        int maximum = -1;
+        for(int i = 0; i < size; i++) {
+            if(!(elements[i] instanceof Integer) || (Integer) elements[i] < 0) {
+                return -1;
+            }
+            maximum = Math.max(maximum, (Integer) elements[i]);
+        }
+        return maximum / DENSE_SPAN < size ? maximum : -1;
+    }
+}
@@ -1,8 +1,6 @@
 package sets;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 
 /**
  * An immutable unordered collection with no repetition
@@ -30,6 +28,13 @@ public abstract class Set<T>  implements Iterable<T>, Comparable<Set<T>> {
         return size() != 0;
     }
 
+    /**
+     * @return an estimate of the heap used by the set, excluding its elements
+     */
+    public long estimatedBytes() {
+        return SizeModel.object(1) + SizeModel.hashSet(size(), size());
+    }
+
     public int compareTo(Set<T> other) {
         return Integer.compare(this.size(), other.size());
     }
@@ -49,7 +54,12 @@ public abstract class Set<T>  implements Iterable<T>, Comparable<Set<T>> {
     }
 
     //********************************* Utility Methods ****************************************
+    @SuppressWarnings("unchecked")
     public static <T> Set<T> intersectAll(Set<Set<T>> sets) {
+        if(DenseIntSet.allDense(sets)) {
+            return (Set<T>) DenseIntSet.intersectionOf(sets);
+        }
+
         //Finds the smallest set in the set of sets
         Set<T> smallest = null;
 
@@ -65,11 +75,12 @@ public abstract class Set<T>  implements Iterable<T>, Comparable<Set<T>> {
         }
 
         if(smallest == null) {
-            return new EmptySet<>();
+            return EmptySet.instance();
         }
 
         //Iterates through each element of the smallest set checking if it is present in all other sets
-        SetBuilder<T> outputBuilder = new SetBuilder<>();
+        Object[] output = new Object[smallest.size()];
+        int count = 0;
         boolean containedInAll;
 
         for(T currentElement : smallest) {
@@ -78,48 +89,86 @@ public abstract class Set<T>  implements Iterable<T>, Comparable<Set<T>> {
             for(Set<T> otherSet: sets) {
                 if(!otherSet.contains(currentElement)) {
                     containedInAll = false;
+                    break;
                 }
             }
 
             if(containedInAll) {
-                outputBuilder.add(currentElement);
+                output[count++] = currentElement;
             }
         }
 
-        return outputBuilder.toSet();
+        return count == smallest.size() ? smallest : Representations.of(output, count);
     }
 
+    @SuppressWarnings("unchecked")
     public static <T> Set<T> unionAll(Set<Set<T>> sets) {
-        SetBuilder<T> builder = new SetBuilder<>();
+        if(DenseIntSet.allDense(sets)) {
+            return (Set<T>) DenseIntSet.unionOf(sets);
+        }
 
+        if(sets.size() == 1) {
+            return sets.iterator().next();
+        }
+
+        OpenTable table = new OpenTable(largestSize(sets));
         for(Set<T> someSet: sets) {
-            builder.addAll(someSet);
+            for(T element : someSet) {
+                table.add(element);
+            }
         }
 
-        return builder.toSet();
+        return table.toSet();
+    }
+
+    /**
+     * @return the size of the largest of the sets, which their union is at least as large as
+     */
+    private static int largestSize(Iterable<? extends Set<?>> sets) {
+        int largest = 0;
+        for(Set<?> set : sets) {
+            largest = Math.max(largest, set.size());
+        }
+        return largest;
     }
 
+    /**
+     * @param sets the given sets
+     * @return the elements present in exactly one of the sets
+     */
+    @SuppressWarnings("unchecked")
     public static <T> Set<T> differenceAll(Set<Set<T>> sets) {
-        Map<T,Integer> counts = new HashMap<>();
+        if(DenseIntSet.allDense(sets)) {
+            return (Set<T>) DenseIntSet.exactlyOnceOf(sets);
+        }
 
+        OpenTable table = new OpenTable(largestSize(sets));
         for(Set<T> set : sets) {
             for(T element : set) {
-                if(counts.containsKey(element)) {
-                    counts.put(element, counts.get(element)+1);
-                } else {
-                    counts.put(element, 1);
-                }
+                table.add(element);
             }
         }
 
-        SetBuilder<T> outputBuilder = new SetBuilder<>();
+        return table.once();
+    }
 
-        for(T element : counts.keySet()) {
-            if(counts.get(element) == 1) {
-                outputBuilder.add(element);
+    /**
+     * @param sets the given sets, a set given twice counts twice
+     * @return the elements present in an odd number of the sets
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Set<T> oddAll(Iterable<Set<T>> sets) {
+        if(DenseIntSet.allDense(sets)) {
+            return (Set<T>) DenseIntSet.oddOf(sets);
+        }
+
+        OpenTable table = new OpenTable(largestSize(sets));
+        for(Set<T> set : sets) {
+            for(T element : set) {
+                table.add(element);
             }
         }
 
-        return outputBuilder.toSet();
+        return table.toSet(2, 1);
     }
 }
@@ -4,8 +4,34 @@ import java.util.HashSet;
 import java.util.Iterator;
 
 public class SetBuilder<T> {
-    private HashSet<T> contents = new HashSet<>();
+    private HashSet<T> contents;
     private Set<T> lastSet = null;
+    /**
+     * Whether lastSet shares contents, which must then be copied before it changes
+     */
+    private boolean shared = false;
+    /**
+     * The most elements contents has held, its table is sized for this many
+     */
+    private int largestSize = 0;
+
+    public SetBuilder() {
+        contents = new HashSet<>();
+    }
+
+    /**
+     * The table is sized as adding the expected elements one at a time would have grown it, so the builder iterates
+     * in the same order
+     * @param expectedSize the number of elements the builder is expected to hold
+     */
+    public SetBuilder(int expectedSize) {
+        int capacity = 16;
+        while(capacity / 4 * 3 < expectedSize) {
+            capacity <<= 1;
+        }
+        contents = new HashSet<>(capacity);
+        largestSize = expectedSize;
+    }
 
     public static <U> SetBuilder<U> fromSet(Set<U> values) {
         SetBuilder<U> output = new SetBuilder<>();
@@ -19,7 +45,9 @@ public class SetBuilder<T> {
 
     public synchronized void add(T element) {
         rebuildReference();
-        contents.add(element);
+        if(contents.add(element) && contents.size() > largestSize) {
+            largestSize = contents.size();
+        }
     }
 
     public synchronized void remove(T element) {
@@ -32,27 +60,63 @@ public class SetBuilder<T> {
         for (T element : elements) {
             contents.add(element);
         }
+        largestSize = Math.max(largestSize, contents.size());
     }
 
     private void rebuildReference() {
-        if(lastSet != null) {
+        if(shared) {
             contents = new HashSet<>(contents);
-            lastSet = null;
+            shared = false;
         }
+        lastSet = null;
     }
 
     public synchronized void clear() {
         contents = new HashSet<>();
         lastSet = null;
+        shared = false;
+        largestSize = 0;
+    }
+
+    /**
+     * Copies the contents into a smaller table when removals have left it mostly empty
+     * @return whether the table was replaced
+     */
+    public synchronized boolean trim() {
+        if(largestSize <= 16 || contents.size() * 4 > largestSize) {
+            return false;
+        }
+        contents = new HashSet<>(contents);
+        shared = false;
+        largestSize = contents.size();
+        return true;
+    }
+
+    /**
+     * @return an estimate of the heap used by the builder and its last snapshot, excluding the elements
+     */
+    public synchronized long estimatedBytes() {
+        long bytes = SizeModel.object(3) + SizeModel.hashSet(contents.size(), largestSize);
+        if(lastSet != null) {
+            bytes += shared ? SizeModel.object(1) : lastSet.estimatedBytes();
+        }
+        return bytes;
     }
 
     public synchronized int size() {
         return contents.size();
     }
 
+    /**
+     * @return an immutable set of the contents, held in the representation Representations picks for them
+     */
     public synchronized Set<T> toSet() {
         if(lastSet == null) {
-            lastSet = new SetImp<>(contents);
+            lastSet = Representations.copyOf(contents);
+            if(lastSet == null) {
+                lastSet = new SetImp<>(contents);
+                shared = true;
+            }
         }
         return lastSet;
     }
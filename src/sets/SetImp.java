@@ -1,6 +1,6 @@
 package sets;
 
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 
@@ -8,13 +8,28 @@ public class SetImp<T> extends Set<T> {
     private final HashSet<T> contents;
 
     public SetImp(T... contents) {
-        this.contents = new HashSet<>(Arrays.asList(contents));
+        this.contents = new HashSet<>(Math.max((int) (contents.length / .75f) + 1, 16));
+        Collections.addAll(this.contents, contents);
     }
 
     SetImp(HashSet<T> contents) {
         this.contents = contents;
     }
 
+    /**
+     * @param elements the array holding the elements
+     * @param from the index of the first element
+     * @param to the index after the last element
+     * @return the set of the elements in the given range of the array
+     */
+    public static SetImp<Integer> ofRange(int[] elements, int from, int to) {
+        HashSet<Integer> contents = new HashSet<>((int) ((to - from) / .75f) + 1);
+        for(int i = from; i < to; i++) {
+            contents.add(elements[i]);
+        }
+        return new SetImp<>(contents);
+    }
+
     @Override
     public Set<T> union(Set<T> other) {
         SetBuilder<T> outputBuilder = new SetBuilder<>();
@@ -107,6 +122,11 @@ public class SetImp<T> extends Set<T> {
         return true;
     }
 
+    @Override
+    public long estimatedBytes() {
+        return SizeModel.object(1) + SizeModel.hashSet(contents.size(), contents.size());
+    }
+
     @Override
     public int hashCode() {
         return contents.hashCode();
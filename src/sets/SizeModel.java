@@ -0,0 +1,63 @@
+package sets;
+
+/**
+ * Estimates of the heap used by the collections the engine is built from, for a 64 bit JVM with compressed
+ * references. The elements themselves are not counted, nodes are shared by every structure which names them.
+ */
+public final class SizeModel {
+    public static final int HEADER = 12;
+    public static final int REFERENCE = 4;
+
+    private static final int HASH_MAP = 48;
+    private static final int HASH_SET = 16;
+    private static final int HASH_MAP_ENTRY = 32;
+
+    private SizeModel() {}
+
+    public static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    public static long object(int referenceFields) {
+        return align(HEADER + referenceFields * (long) REFERENCE);
+    }
+
+    public static long referenceArray(int length) {
+        return align(HEADER + 4 + length * (long) REFERENCE);
+    }
+
+    public static long intArray(int length) {
+        return align(HEADER + 4 + length * 4L);
+    }
+
+    public static long longArray(int length) {
+        return align(HEADER + 4 + length * 8L);
+    }
+
+    /**
+     * @param largestSize the most entries the table has held, tables grow but never shrink
+     * @return the number of buckets of a HashMap which held that many entries
+     */
+    public static int capacityFor(int largestSize) {
+        int capacity = 16;
+        while(capacity * 0.75 < largestSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * @return the bytes of a HashMap with its entries, excluding keys and values
+     */
+    public static long hashMap(int size, int largestSize) {
+        return HASH_MAP + referenceArray(capacityFor(largestSize)) + size * (long) HASH_MAP_ENTRY;
+    }
+
+    public static long hashMapEntry() {
+        return HASH_MAP_ENTRY;
+    }
+
+    public static long hashSet(int size, int largestSize) {
+        return HASH_SET + hashMap(size, largestSize);
+    }
+}
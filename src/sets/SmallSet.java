@@ -0,0 +1,79 @@
+package sets;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of one to four elements held in fields, searched linearly
+ *
+ * @param <T> The type of the elements of the set
+ */
+class SmallSet<T> extends CompactSet<T> {
+    static final int CAPACITY = 4;
+
+    private final T e0;
+    private final T e1;
+    private final T e2;
+    private final T e3;
+    private final int size;
+
+    /**
+     * @param elements distinct elements, iterated in the order given
+     */
+    @SuppressWarnings("unchecked")
+    SmallSet(Object[] elements, int size) {
+        this.size = size;
+        this.e0 = (T) elements[0];
+        this.e1 = size > 1 ? (T) elements[1] : null;
+        this.e2 = size > 2 ? (T) elements[2] : null;
+        this.e3 = size > 3 ? (T) elements[3] : null;
+    }
+
+    private T get(int index) {
+        switch (index) {
+            case 0: return e0;
+            case 1: return e1;
+            case 2: return e2;
+            default: return e3;
+        }
+    }
+
+    @Override
+    public boolean contains(T other) {
+        if(other == null) {
+            return false;
+        }
+        return other.equals(e0) || (size > 1 && other.equals(e1)) || (size > 2 && other.equals(e2))
+                || (size > 3 && other.equals(e3));
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public T next() {
+                if(index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return SizeModel.align(SizeModel.HEADER + CAPACITY * SizeModel.REFERENCE + 4);
+    }
+}
@@ -0,0 +1,70 @@
+package tests;
+
+import execution.AssignmentConflict;
+import execution.Execution;
+import execution.ExecutionException;
+import programs.StringProgramBuilder;
+import programs.Workload;
+import programs.Workloads;
+import sets.Set;
+import sets.SetImp;
+
+import java.util.Comparator;
+
+public class AssignmentConflictTest {
+    public static void main(String[] args) {
+        try {
+            //Two assignments give the node X different connections in the same step
+            StringProgramBuilder builder = new StringProgramBuilder();
+            builder.addNode("X", "Z");
+            String pointer = builder.literal("X");
+            builder.addAssignment(pointer, builder.literal("A"));
+            String second = builder.addAssignment(pointer, builder.literal("B"));
+
+            Execution<String> union = builder.getExecution();
+            union.setAssignmentConflict(AssignmentConflict.UNION);
+            union.executeStep();
+            printResult("Union", union.queryNode("X"), new SetImp<>("A", "B"));
+
+            Execution<String> priority = builder.getExecution();
+            priority.setAssignmentPriority(Comparator.comparing(second::equals));
+            priority.executeStep();
+            printResult("Priority", priority.queryNode("X"), new SetImp<>("B"));
+
+            Execution<String> error = builder.getExecution();
+            error.setAssignmentConflict(AssignmentConflict.ERROR);
+            boolean thrown = false;
+            try {
+                error.executeStep();
+            } catch (ExecutionException e) {
+                thrown = true;
+            }
+            System.out.println("Error" + (thrown && error.queryNode("X").equals(new SetImp<>("Z"))
+                    ? " - SUCCESS" : " - FAIL"));
+
+            //Enough assignments per step to be evaluated in parallel, every run must agree
+            Workload workload = Workloads.rewiring(20000, 2000, 20, 4);
+            Execution<String> first = workload.newExecution();
+            Execution<String> repeat = workload.newExecution();
+            workload.run(first);
+            workload.run(repeat);
+            boolean same = first.queryAll().size() == repeat.queryAll().size();
+            for(String node : first.queryAll().keySet()) {
+                same &= first.queryNode(node).equals(repeat.queryNode(node));
+            }
+            System.out.println("Parallel" + (same ? " - SUCCESS" : " - FAIL"));
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void printResult(String desc, Set<String> actual, Set<String> target) {
+        if(actual.equals(target)) {
+            System.out.println(desc + " - SUCCESS");
+        } else {
+            System.out.println(desc + " - FAIL");
+            System.out.println("> Actual: " + actual.toString());
+            System.out.println("> Target: " + target.toString());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import programs.StringProgramBuilder;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class AsynchronousTest {
+    public static void main(String[] args) {
+        try {
+            //A skewed monotone region, one deep chain beside many shallow unions, feeding difference and intersect
+            //regions which are evaluated synchronously, and a cycle of unions
+            StringProgramBuilder builder = new StringProgramBuilder();
+            List<String> sources = new ArrayList<>();
+            for(int i = 0; i < 16; i++) {
+                builder.addNode("n" + i, "n" + (i * 7 + 3) % 16);
+                sources.add(builder.literal("n" + i));
+            }
+            String deep = sources.get(0);
+            for(int i = 0; i < 200; i++) {
+                deep = builder.union(new SetImp<>(deep, sources.get(i % 16)));
+            }
+            List<String> shallow = new ArrayList<>();
+            for(int i = 0; i < 300; i++) {
+                shallow.add(builder.connectionsOf(builder.union(new SetImp<>(sources.get(i % 16),
+                        sources.get((i * 5) % 16)))));
+            }
+            String difference = builder.difference(new SetImp<>(deep, shallow.get(0)));
+            String intersect = builder.intersect(new SetImp<>(deep, shallow.get(1), difference));
+            builder.union(new SetImp<>(intersect, shallow.get(2)));
+            String cycleA = builder.union(new SetImp<>(sources.get(3), "UnionCycle"));
+            builder.node("UnionCycle", new SetImp<>(cycleA));
+            builder.connectionsOf(cycleA);
+
+            Execution<String> synchronous = builder.getExecution();
+            Execution<String> asynchronous = builder.getExecution();
+            asynchronous.setAsynchronous(4);
+
+            Random random = new Random(5);
+            boolean matching = true;
+            int step;
+            for(step = 0; step < 100 && matching; step++) {
+                for(int i = 0; i < 3; i++) {
+                    String source = sources.get(random.nextInt(16));
+                    SetImp<String> value = new SetImp<>("n" + random.nextInt(16), "n" + random.nextInt(16));
+                    synchronous.update(source, value);
+                    asynchronous.update(source, value);
+                }
+                synchronous.executeStep();
+                asynchronous.executeStep();
+                matching = same(synchronous.queryAllValues(), asynchronous.queryAllValues());
+            }
+            boolean success = matching && asynchronous.getAsynchronousEvaluations() > 0
+                    && synchronous.getAsynchronousEvaluations() == 0;
+            System.out.println("Asynchronous fixpoint" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + (matching ? "same" : "different values at step " + step) + ", "
+                        + asynchronous.getAsynchronousEvaluations() + " asynchronous evaluations");
+                System.out.println("> Target: same values, some asynchronous evaluations");
+            }
+            System.out.println("> " + asynchronous.getAsynchronousEvaluations() + " of "
+                    + asynchronous.getEvaluations() + " evaluations asynchronous, " + synchronous.getEvaluations()
+                    + " synchronous");
+
+            //A budget is kept to, the step is evaluated synchronously one node at a time
+            long evaluations = asynchronous.getEvaluations();
+            SetImp<String> budgeted = new SetImp<>("n2", "n9");
+            synchronous.update(sources.get(0), budgeted);
+            asynchronous.update(sources.get(0), budgeted);
+            synchronous.executeStep();
+            boolean paused = !asynchronous.executeNodes(1) && asynchronous.getEvaluations() - evaluations <= 1;
+            while(!asynchronous.executeNodes(1)) {}
+            success = paused && same(synchronous.queryAllValues(), asynchronous.queryAllValues());
+            System.out.println("Budgeted steps" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + (asynchronous.getEvaluations() - evaluations)
+                        + " evaluations in the first slice");
+                System.out.println("> Target: at most 1 evaluation, same values");
+            }
+
+            //Switching back evaluates synchronously again
+            asynchronous.setAsynchronous(0);
+            long before = asynchronous.getAsynchronousEvaluations();
+            SetImp<String> value = new SetImp<>("n1");
+            synchronous.update(sources.get(0), value);
+            asynchronous.update(sources.get(0), value);
+            synchronous.executeStep();
+            asynchronous.executeStep();
+            success = asynchronous.getAsynchronousEvaluations() == before
+                    && same(synchronous.queryAllValues(), asynchronous.queryAllValues());
+            System.out.println("Synchronous again" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + (asynchronous.getAsynchronousEvaluations() - before)
+                        + " asynchronous evaluations");
+                System.out.println("> Target: 0 asynchronous evaluations, same values");
+            }
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean same(Map<String, sets.Set<String>> first, Map<String, sets.Set<String>> second) {
+        for(Map.Entry<String, sets.Set<String>> entry : first.entrySet()) {
+            if(!entry.getValue().equals(second.getOrDefault(entry.getKey(), sets.EmptySet.instance()))) {
+                return false;
+            }
+        }
+        for(Map.Entry<String, sets.Set<String>> entry : second.entrySet()) {
+            if(!first.containsKey(entry.getKey()) && entry.getValue().hasContents()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,141 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import execution.BitSlicedExecution;
+import programs.StringProgramBuilder;
+import programs.Workload;
+import programs.Workloads;
+import sets.Set;
+import sets.SetBuilder;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class BitSlicedExecutionTest {
+    private static final int LANES = 64;
+
+    public static void main(String[] args) {
+        try {
+            //Every lane of a random operator DAG is given its own literal values
+            Workload workload = Workloads.randomDag(200, 3, 40, 64, 4, 20, 11);
+            StringProgramBuilder dag = workload.getBuilder();
+            List<String> literals = new ArrayList<>();
+            for(String node : dag.getExecution().queryAll().keySet()) {
+                if(node.startsWith("Literal")) {
+                    literals.add(node);
+                }
+            }
+            List<Execution<String>> executions = new ArrayList<>();
+            for(int lane = 0; lane < LANES; lane++) {
+                executions.add(dag.getExecution());
+            }
+            BitSlicedExecution<String> sliced = new BitSlicedExecution<>(dag.getClassTable(), dag.getConnections(), LANES);
+
+            long executionNanos = 0;
+            long slicedNanos = 0;
+            for(int step = 0; step < workload.getMaxSteps(); step++) {
+                for(int lane = 0; lane < LANES; lane++) {
+                    Random random = new Random(step * 1000L + lane);
+                    for(int i = 0; i < 4; i++) {
+                        String literal = literals.get(random.nextInt(literals.size()));
+                        Set<String> value = randomSubset(random, 64);
+                        executions.get(lane).update(literal, value);
+                        sliced.update(lane, literal, value);
+                    }
+                }
+                long start = System.nanoTime();
+                for(Execution<String> execution : executions) {
+                    execution.executeStep();
+                }
+                executionNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                sliced.executeStep();
+                slicedNanos += System.nanoTime() - start;
+            }
+            List<String> wrong = compare(executions, sliced);
+            boolean success = wrong.isEmpty();
+            System.out.println("Lanes of a DAG" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + wrong.size() + " differing, first " + wrong.get(0));
+                System.out.println("> Target: 0 differing");
+            }
+            System.out.println("> " + LANES + " lanes of " + workload.getMaxSteps() + " steps in "
+                    + slicedNanos / 1000000 + "ms sliced, " + executionNanos / 1000000 + "ms as Executions");
+
+            //Pointers start on different cells in every lane, so the lanes rewire the ring differently and pointers
+            //meeting on a cell give it conflicting connections
+            StringProgramBuilder ring = new StringProgramBuilder();
+            for(int i = 0; i < 20; i++) {
+                ring.addNode("cell" + i, "cell" + (i + 1) % 20);
+            }
+            List<String> pointers = new ArrayList<>();
+            for(int i = 0; i < 3; i++) {
+                String pointer = ring.literal("cell" + i);
+                ring.addAssignment(ring.literal(pointer), ring.connectionsOf(pointer));
+                ring.addAssignment(pointer, ring.literal("cell" + (i * 7 + 5) % 20));
+                pointers.add(pointer);
+            }
+            executions.clear();
+            for(int lane = 0; lane < LANES; lane++) {
+                executions.add(ring.getExecution());
+            }
+            sliced = new BitSlicedExecution<>(ring.getClassTable(), ring.getConnections(), LANES);
+            Random random = new Random(3);
+            for(int lane = 0; lane < LANES; lane++) {
+                for(String pointer : pointers) {
+                    SetImp<String> start = new SetImp<>("cell" + random.nextInt(20));
+                    executions.get(lane).update(pointer, start);
+                    sliced.update(lane, pointer, start);
+                }
+            }
+            for(int step = 0; step < 50; step++) {
+                for(Execution<String> execution : executions) {
+                    execution.executeStep();
+                }
+                sliced.executeStep();
+            }
+            wrong = compare(executions, sliced);
+            success = wrong.isEmpty() && sliced.getStep() == 50;
+            System.out.println("Divergent assignments" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + wrong.size() + " differing" + (wrong.isEmpty() ? "" : ", first "
+                        + wrong.get(0)));
+                System.out.println("> Target: 0 differing");
+            }
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the nodes whose connections or value differ between a lane and its Execution, with the lane
+     */
+    private static List<String> compare(List<Execution<String>> executions, BitSlicedExecution<String> sliced) {
+        List<String> wrong = new ArrayList<>();
+        for(int lane = 0; lane < executions.size(); lane++) {
+            Execution<String> execution = executions.get(lane);
+            java.util.Set<String> nodes = new HashSet<>(execution.queryAll().keySet());
+            nodes.addAll(execution.queryAllValues().keySet());
+            for(String node : nodes) {
+                if(!execution.queryNode(node).equals(sliced.queryNode(lane, node))
+                        || !execution.queryValue(node).equals(sliced.queryValue(lane, node))) {
+                    wrong.add(node + " in lane " + lane);
+                }
+            }
+        }
+        return wrong;
+    }
+
+    private static Set<String> randomSubset(Random random, int universe) {
+        SetBuilder<String> elements = new SetBuilder<>();
+        int size = 1 + random.nextInt(universe / 2);
+        for(int i = 0; i < size; i++) {
+            elements.add("e" + random.nextInt(universe));
+        }
+        return elements.toSet();
+    }
+}
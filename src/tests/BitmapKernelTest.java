@@ -0,0 +1,91 @@
+package tests;
+
+import sets.DenseIntSet;
+import sets.Set;
+import sets.SetBuilder;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BitmapKernelTest {
+    private static final int INPUTS = 300;
+    private static final int UNIVERSE = 100000;
+    private static final int REPEATS = 5;
+
+    public static void main(String[] args) {
+        Random random = new Random(34);
+
+        //Dense inputs, and sparse ones where most elements appear in one input at most
+        check("Dense", random, 0.5, UNIVERSE);
+        check("Sparse", random, 0.002, UNIVERSE);
+        check("Ragged", random, 0.3, 0);
+    }
+
+    private static void check(String name, Random random, double density, int length) {
+        SetBuilder<Set<Integer>> scalarInputs = new SetBuilder<>();
+        SetBuilder<Set<Integer>> denseInputs = new SetBuilder<>();
+        List<Set<Integer>> scalarList = new ArrayList<>();
+        List<Set<Integer>> denseList = new ArrayList<>();
+
+        for(int i = 0; i < INPUTS; i++) {
+            int size = length == 0 ? random.nextInt(UNIVERSE) : length;
+            List<Integer> elements = new ArrayList<>();
+            for(int element = 0; element < size; element++) {
+                if(random.nextDouble() < density) {
+                    elements.add(element);
+                }
+            }
+            Set<Integer> scalar = new SetImp<>(elements.toArray(new Integer[0]));
+            Set<Integer> dense = DenseIntSet.fromSet(scalar);
+            scalarInputs.add(scalar);
+            denseInputs.add(dense);
+            scalarList.add(scalar);
+            denseList.add(dense);
+        }
+
+        long[] scalarTimes = new long[4];
+        long[] denseTimes = new long[4];
+        List<Set<Integer>> scalarResults = new ArrayList<>();
+        List<Set<Integer>> denseResults = new ArrayList<>();
+        for(int repeat = 0; repeat < REPEATS; repeat++) {
+            scalarResults.clear();
+            denseResults.clear();
+            run(scalarInputs.toSet(), scalarList, scalarResults, scalarTimes);
+            run(denseInputs.toSet(), denseList, denseResults, denseTimes);
+        }
+
+        String[] operations = { "Union", "Intersect", "Difference", "Odd" };
+        for(int i = 0; i < operations.length; i++) {
+            Set<Integer> actual = denseResults.get(i);
+            Set<Integer> target = scalarResults.get(i);
+            boolean success = actual.equals(target) && actual instanceof DenseIntSet;
+            System.out.println(name + " " + operations[i] + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + actual.size() + " elements");
+                System.out.println("> Target: " + target.size() + " elements");
+            }
+            System.out.println("> Scalar " + scalarTimes[i] / REPEATS / 1000 + "us, Bitmap "
+                    + denseTimes[i] / REPEATS / 1000 + "us");
+        }
+    }
+
+    private static void run(Set<Set<Integer>> inputs, List<Set<Integer>> list, List<Set<Integer>> results, long[] times) {
+        long start = System.nanoTime();
+        results.add(Set.unionAll(inputs));
+        times[0] += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        results.add(Set.intersectAll(inputs));
+        times[1] += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        results.add(Set.differenceAll(inputs));
+        times[2] += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        results.add(Set.oddAll(list));
+        times[3] += System.nanoTime() - start;
+    }
+}
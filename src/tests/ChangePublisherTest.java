@@ -0,0 +1,112 @@
+package tests;
+
+import execution.*;
+import programs.StringProgramBuilder;
+import sets.Set;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+public class ChangePublisherTest {
+    public static void main(String[] args) throws InterruptedException {
+        StringProgramBuilder b = new StringProgramBuilder();
+        String cIndex = TuringMachineTest.buildMachine(b);
+
+        List<String> watched = new ArrayList<>();
+        watched.add(cIndex);
+        for(int i = 0; i < TuringMachineTest.TAPE_LENGTH; i++) {
+            watched.add("val"+i);
+        }
+
+        Execution<String> execution = b.getExecution();
+        Recorder fast = new Recorder(Long.MAX_VALUE, 0);
+        Recorder slow = new Recorder(1, 20);
+
+        try (ChangePublisher<String> publisher = new ChangePublisher<>(execution)) {
+            publisher.watch(watched).subscribe(fast);
+            publisher.watch(watched).subscribe(slow);
+
+            long start = System.nanoTime();
+            while(execution.executeStep());
+            System.out.println("Steps took " + (System.nanoTime() - start) / 1000 + "us");
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        Map<String, String> expected = new HashMap<>();
+        for(String node : watched) {
+            expected.put(node, execution.queryNode(node).toString());
+        }
+
+        printResult("Fast", fast, expected);
+        printResult("Slow", slow, expected);
+    }
+
+    private static void printResult(String desc, Recorder recorder, Map<String, String> target) throws InterruptedException {
+        boolean completed = recorder.done.await(10, TimeUnit.SECONDS);
+        if(completed && recorder.latest.equals(target)) {
+            System.out.println(desc + " - SUCCESS");
+            System.out.println("> Items: " + recorder.items + ", Steps: " + recorder.lastStep);
+        } else {
+            System.out.println(desc + " - FAIL");
+            System.out.println("> Completed: " + completed);
+            System.out.println("> Actual: " + recorder.latest);
+            System.out.println("> Target: " + target);
+        }
+    }
+
+    private static class Recorder implements Flow.Subscriber<NodeChanges<String>> {
+        private final long batch;
+        private final long delayMillis;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final Map<String, String> latest = new HashMap<>();
+        private Flow.Subscription subscription;
+        private int items = 0;
+        private long lastStep = 0;
+
+        Recorder(long batch, long delayMillis) {
+            this.batch = batch;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(NodeChanges<String> item) {
+            for(Map.Entry<String, Set<String>> entry : item.getConnections().entrySet()) {
+                latest.put(entry.getKey(), entry.getValue().toString());
+            }
+            items++;
+            lastStep = item.getLastStep();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if(batch != Long.MAX_VALUE) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package tests;
+
+import execution.ConnectionsCache;
+import execution.Execution;
+import execution.ExecutionException;
+import programs.StringProgramBuilder;
+import sets.Set;
+import sets.SetBuilder;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ConnectionsCacheTest {
+    public static void main(String[] args) {
+        try {
+            //Many connectionsOf nodes dereferencing the same hubs share a single union
+            StringProgramBuilder builder = new StringProgramBuilder();
+            builder.node("A", new SetImp<>("X", "Y"));
+            builder.node("B", new SetImp<>("Y", "Z"));
+            builder.addNode("C", "W");
+            List<String> readers = new ArrayList<>();
+            for(int i = 0; i < 100; i++) {
+                readers.add(builder.connectionsOf(builder.literal(new SetImp<>("A", "B"))));
+            }
+            String other = builder.connectionsOf(builder.literal(new SetImp<>("B", "C")));
+
+            Execution<String> execution = builder.getExecution();
+            execution.setConnectionsCache(16);
+            ConnectionsCache<String> cache = execution.getConnectionsCache();
+            while(execution.executeStep()) {}
+            boolean success = cache.getMisses() == 2 && cache.getHits() == readers.size() - 1
+                    && execution.queryValue(readers.get(42)).equals(new SetImp<>("X", "Y", "Z"));
+            printResult("Shared union", success, cache.toString(), "2 misses, " + (readers.size() - 1) + " hits");
+
+            //Changing a hub drops exactly the unions which read it, the next reader of the pair recomputes it
+            execution.update("A", new SetImp<>("V"));
+            boolean dropped = cache.getInvalidations() == 1 && cache.size() == 1;
+            execution.update(builder.getConnections().get(other).iterator().next(), new SetImp<>("A", "B"));
+            while(execution.executeStep()) {}
+            success = dropped && cache.getMisses() == 3 && execution.queryValue(other).equals(
+                    new SetImp<>("V", "Y", "Z"));
+            printResult("Invalidation", success, cache.toString(), "1 invalidation, 3 misses");
+
+            //Hubs and pointers rewired at random, a small cache computes the same values as no cache
+            success = true;
+            Random random = new Random(11);
+            StringProgramBuilder hubs = new StringProgramBuilder();
+            for(int i = 0; i < 20; i++) {
+                hubs.node("h" + i, subset(random, "e", 50, 4));
+            }
+            List<String> pointers = new ArrayList<>();
+            List<String> dereferences = new ArrayList<>();
+            for(int i = 0; i < 300; i++) {
+                String pointer = hubs.literal(subset(random, "h", 20, 3));
+                pointers.add(pointer);
+                dereferences.add(hubs.connectionsOf(pointer));
+            }
+            Execution<String> plain = hubs.getExecution();
+            Execution<String> cached = hubs.getExecution();
+            cached.setConnectionsCache(8);
+            for(int round = 0; round < 30; round++) {
+                for(int i = 0; i < 5; i++) {
+                    Set<String> connections = subset(random, "e", 50, 4);
+                    String hub = "h" + random.nextInt(20);
+                    plain.update(hub, connections);
+                    cached.update(hub, connections);
+                    Set<String> targets = subset(random, "h", 20, 3);
+                    String pointer = pointers.get(random.nextInt(pointers.size()));
+                    plain.update(pointer, targets);
+                    cached.update(pointer, targets);
+                }
+                while(plain.executeStep()) {}
+                while(cached.executeStep()) {}
+                for(String node : dereferences) {
+                    success &= plain.queryValue(node).equals(cached.queryValue(node));
+                }
+            }
+            printResult("Bounded cache", success && cached.getConnectionsCache().size() <= 8
+                            && cached.getConnectionsCache().getEvictions() > 0,
+                    cached.getConnectionsCache().toString(), "the values of the uncached run");
+            System.out.println("> " + cached.getConnectionsCache());
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Set<String> subset(Random random, String prefix, int universe, int size) {
+        SetBuilder<String> output = new SetBuilder<>();
+        while(output.size() < size) {
+            output.add(prefix + random.nextInt(universe));
+        }
+        return output.toSet();
+    }
+
+    private static void printResult(String desc, boolean success, String actual, String target) {
+        System.out.println(desc + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> Actual: " + actual);
+            System.out.println("> Target: " + target);
+        }
+    }
+}
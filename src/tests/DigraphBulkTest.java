@@ -0,0 +1,63 @@
+package tests;
+
+import execution.Digraph;
+import sets.Set;
+import sets.SetBuilder;
+
+import java.util.*;
+
+public class DigraphBulkTest {
+    public static void main(String[] args) {
+        //The reverse index built from a map matches the one built one edge at a time, in the same order
+        Random random = new Random(17);
+        int nodes = 100000;
+        Map<String, Set<String>> connections = new HashMap<>();
+        for(int node = 0; node < nodes; node++) {
+            SetBuilder<String> targets = new SetBuilder<>();
+            int degree = random.nextInt(8);
+            for(int i = 0; i < degree; i++) {
+                //A few hubs collect most of the edges
+                targets.add("n" + (random.nextInt(4) == 0 ? random.nextInt(20) : random.nextInt(nodes)));
+            }
+            connections.put("n" + node, targets.toSet());
+        }
+
+        long start = System.nanoTime();
+        Map<String, SetBuilder<String>> expected = new HashMap<>();
+        for(Map.Entry<String, Set<String>> entry : connections.entrySet()) {
+            for(String target : entry.getValue()) {
+                expected.computeIfAbsent(target, key -> new SetBuilder<>()).add(entry.getKey());
+            }
+        }
+        long edgeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Digraph<String> digraph = new Digraph<>(connections);
+        long mapNanos = System.nanoTime() - start;
+
+        List<String> wrong = new ArrayList<>();
+        for(int node = 0; node < nodes; node++) {
+            String name = "n" + node;
+            Set<String> target = expected.containsKey(name) ? expected.get(name).toSet() : sets.EmptySet.instance();
+            if(!order(digraph.getReverse(name)).equals(order(target))) {
+                wrong.add(name);
+            }
+        }
+        boolean success = wrong.isEmpty();
+        System.out.println("Reverse index" + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> Actual: " + wrong.size() + " reverse sets differ, first " + wrong.get(0));
+            System.out.println("> Target: 0 reverse sets differ");
+        }
+        System.out.println("> Reverse index built in " + mapNanos / 1000000 + "ms from the map with the forward copy, "
+                + edgeNanos / 1000000 + "ms one edge at a time");
+    }
+
+    private static List<String> order(Set<String> set) {
+        List<String> output = new ArrayList<>();
+        for(String element : set) {
+            output.add(element);
+        }
+        return output;
+    }
+}
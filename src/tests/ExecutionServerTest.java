@@ -0,0 +1,142 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import programs.StringProgramBuilder;
+import server.ExecutionServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ExecutionServerTest {
+    private static final int CLIENTS = 1000;
+    private static final int READS_PER_CLIENT = 20;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        StringProgramBuilder b = new StringProgramBuilder();
+        String cIndex = TuringMachineTest.buildMachine(b);
+
+        List<String> expected = new ArrayList<>();
+        try {
+            Execution<String> reference = b.getExecution();
+            while(reference.executeStep());
+            for(int i = 0; i < TuringMachineTest.TAPE_LENGTH; i++) {
+                expected.add(reference.queryNode("val"+i).toString());
+            }
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        try (ExecutionServer<String> server = new ExecutionServer<>(b.getExecution(), Function.identity())) {
+            int port = server.start(0);
+
+            AtomicInteger failures = new AtomicInteger();
+            List<Thread> readers = new ArrayList<>();
+            for(int i = 0; i < CLIENTS; i++) {
+                Thread reader = new Thread(() -> {
+                    try (Client client = new Client(port)) {
+                        for(int j = 0; j < READS_PER_CLIENT; j++) {
+                            if(!client.request("GET " + cIndex).startsWith("OK")) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+
+            List<String> actual = new ArrayList<>();
+            try (Client driver = new Client(port)) {
+                while(driver.request("STEP").endsWith("true"));
+                for(int i = 0; i < TuringMachineTest.TAPE_LENGTH; i++) {
+                    actual.add(driver.request("GET val" + i).split(" ", 3)[2]);
+                }
+
+                for(Thread reader : readers) {
+                    reader.join();
+                }
+
+                if(actual.equals(expected) && failures.get() == 0) {
+                    System.out.println("Server - SUCCESS");
+                } else {
+                    System.out.println("Server - FAIL");
+                    System.out.println("> Failures: " + failures.get());
+                    System.out.println("> Actual: " + actual);
+                    System.out.println("> Target: " + expected);
+                }
+
+                String set = driver.request("SET " + cIndex + " I3");
+                String step = driver.request("STEP");
+                String get = driver.request("GET " + cIndex);
+                printResult("Set", get.endsWith("{I3}"), set + " / " + step + " / " + get);
+                System.out.println(driver.request("STATS"));
+            }
+        }
+
+        attachedLater(b, cIndex);
+    }
+
+    /**
+     * A server attached to an execution which has already run serves the values it computed
+     */
+    private static void attachedLater(StringProgramBuilder b, String cIndex) throws IOException {
+        Execution<String> execution = b.getExecution();
+        String expected;
+        try {
+            for(int i = 0; i < 3; i++) {
+                execution.executeStep();
+            }
+            expected = "OK " + execution.getStep() + " " + execution.queryValue(cIndex);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        try (ExecutionServer<String> server = new ExecutionServer<>(execution, Function.identity());
+             Client client = new Client(server.start(0))) {
+            String value = client.request("VALUE " + cIndex);
+            printResult("Attached after steps", value.equals(expected), value + " / " + expected);
+        }
+    }
+
+    private static void printResult(String desc, boolean success, String detail) {
+        System.out.println(desc + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> " + detail);
+        }
+    }
+
+    private static class Client implements Closeable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        String request(String line) throws IOException {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+            return in.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
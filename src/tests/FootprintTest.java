@@ -0,0 +1,99 @@
+package tests;
+
+import execution.*;
+import programs.StringProgramBuilder;
+import sets.SetBuilder;
+import sets.SetImp;
+
+public class FootprintTest {
+    private static final int READERS = 20000;
+    private static final int KEPT = 10;
+
+    public static void main(String[] args) {
+        StringProgramBuilder b = new StringProgramBuilder();
+        String hubs = build(b);
+        String all = "Literal0";
+
+        try {
+            Execution<String> normal = b.getExecution();
+            Execution<String> compact = b.getExecution();
+            compact.setCompact(true);
+            normal.executeStep();
+            compact.executeStep();
+
+            Footprint before = normal.footprint();
+
+            //Disconnect almost every reader, as a large assignment would
+            for(int i = KEPT; i < READERS; i++) {
+                normal.update("Reader" + i, new SetImp<>());
+                compact.update("Reader" + i, new SetImp<>());
+            }
+            normal.update(all, new SetImp<>("Reader0"));
+            compact.update(all, new SetImp<>("Reader0"));
+            normal.executeStep();
+            compact.executeStep();
+
+            Footprint normalAfter = normal.footprint();
+            Footprint compactAfter = compact.footprint();
+
+            boolean sameValues = normal.queryValue(hubs).equals(compact.queryValue(hubs))
+                    && normal.queryValue(all).equals(compact.queryValue(all));
+            System.out.println("Compact Values" + (sameValues ? " - SUCCESS" : " - FAIL"));
+
+            boolean smaller = compactAfter.getTotal() < normalAfter.getTotal()
+                    && compactAfter.getBytes(Footprint.Structure.REVERSE_CONNECTIONS)
+                        < normalAfter.getBytes(Footprint.Structure.REVERSE_CONNECTIONS) / 10;
+            System.out.println("Compact Footprint" + (smaller ? " - SUCCESS" : " - FAIL"));
+            System.out.println("> Before:         " + before);
+            System.out.println("> After:          " + normalAfter);
+            System.out.println("> After, compact: " + compactAfter);
+
+            long classTotal = 0;
+            for(NodeClass nodeClass : NodeClass.values()) {
+                classTotal += compactAfter.getBytes(nodeClass);
+            }
+            boolean consistent = classTotal <= compactAfter.getTotal()
+                    && compactAfter.getBytes(NodeClass.LITERAL) > 0 && compactAfter.getBytes(NodeClass.SIMPLE) > 0;
+            System.out.println("Class Breakdown" + (consistent ? " - SUCCESS" : " - FAIL"));
+
+            System.out.println("> Estimated " + before.getTotal() / 1024 + "KiB, measured "
+                    + measuredBytes() / 1024 + "KiB including the nodes");
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A hub every reader connects to, and a literal holding every reader
+     * @return the connectionsOf node reading the literal
+     */
+    private static String build(StringProgramBuilder b) {
+        SetBuilder<String> readers = new SetBuilder<>();
+        for(int i = 0; i < READERS; i++) {
+            readers.add(b.addNode("Reader" + i, "Hub"));
+        }
+        String all = b.literal(readers.toSet());
+        return b.connectionsOf(new SetImp<>(all));
+    }
+
+    /**
+     * @return the growth of the heap after building and running an execution of the program
+     */
+    private static long measuredBytes() throws ExecutionException {
+        long start = usedHeap();
+        StringProgramBuilder b = new StringProgramBuilder();
+        build(b);
+        Execution<String> execution = b.getExecution();
+        execution.executeStep();
+        long end = usedHeap();
+        return execution.getStep() > 0 ? end - start : 0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,140 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import execution.StepListener;
+import programs.StringProgramBuilder;
+import sets.Set;
+import sets.SetBuilder;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class IngestionTest {
+    private static final int PRODUCERS = 4;
+    private static final int LITERALS = 5;
+    private static final int WRITES = 2000;
+
+    public static void main(String[] args) {
+        try {
+            coalescing();
+            producers();
+        } catch (ExecutionException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Repeated writes to a node keep the last, the batch is applied by the next step
+     */
+    private static void coalescing() throws ExecutionException {
+        StringProgramBuilder builder = new StringProgramBuilder();
+        String first = builder.literal("A");
+        String second = builder.literal("B");
+        String union = builder.union(new SetImp<>(first, second));
+        Execution<String> execution = builder.getExecution();
+        while(execution.executeStep()) {}
+
+        for(int i = 0; i < 5; i++) {
+            execution.ingest(first, new SetImp<>("A" + i));
+        }
+        execution.ingest(second, new SetImp<>("B0"));
+        execution.ingest(second, new SetImp<>("B1"));
+        boolean pending = execution.queryValue(union).equals(new SetImp<>("A", "B"));
+        boolean active = execution.executeStep();
+
+        boolean success = pending && !active && execution.queryValue(union).equals(new SetImp<>("A4", "B1"))
+                && execution.getCoalesced() == 5;
+        System.out.println("Coalesced ingestion" + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> Actual: " + execution.queryValue(union) + ", " + execution.getCoalesced()
+                    + " coalesced");
+            System.out.println("> Target: {A4,B1}, 5 coalesced");
+        }
+    }
+
+    /**
+     * Producers ingest while steps run. Each producer writes its literals in order, so a step which sees a write to
+     * the last literal sees the same write to the first, and the final values are the last writes.
+     */
+    private static void producers() throws ExecutionException, InterruptedException {
+        StringProgramBuilder builder = new StringProgramBuilder();
+        List<List<String>> literals = new ArrayList<>();
+        SetBuilder<String> all = new SetBuilder<>();
+        for(int producer = 0; producer < PRODUCERS; producer++) {
+            List<String> owned = new ArrayList<>();
+            for(int i = 0; i < LITERALS; i++) {
+                String literal = builder.literal("p" + producer + "v0");
+                owned.add(literal);
+                all.add(literal);
+            }
+            literals.add(owned);
+        }
+        String union = builder.union(all.toSet());
+        Execution<String> execution = builder.getExecution();
+
+        AtomicBoolean torn = new AtomicBoolean(false);
+        execution.addListener(new StepListener<String>() {
+            @Override
+            public void stepCompleted(long step) {
+                for(List<String> owned : literals) {
+                    int firstVersion = version(execution.queryNode(owned.get(0)));
+                    int lastVersion = version(execution.queryNode(owned.get(LITERALS - 1)));
+                    if(lastVersion > firstVersion) {
+                        torn.set(true);
+                    }
+                }
+            }
+        });
+
+        List<Thread> threads = new ArrayList<>();
+        for(int producer = 0; producer < PRODUCERS; producer++) {
+            int current = producer;
+            Thread thread = new Thread(() -> {
+                for(int write = 1; write <= WRITES; write++) {
+                    for(String literal : literals.get(current)) {
+                        execution.ingest(literal, new SetImp<>("p" + current + "v" + write));
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        int steps = 0;
+        while(threads.stream().anyMatch(Thread::isAlive)) {
+            execution.executeStep();
+            steps++;
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        while(execution.executeStep()) {
+            steps++;
+        }
+
+        SetBuilder<String> target = new SetBuilder<>();
+        boolean lastWrites = true;
+        for(int producer = 0; producer < PRODUCERS; producer++) {
+            target.add("p" + producer + "v" + WRITES);
+            for(String literal : literals.get(producer)) {
+                lastWrites &= version(execution.queryValue(literal)) == WRITES;
+            }
+        }
+        Set<String> value = execution.queryValue(union);
+        boolean success = lastWrites && !torn.get() && value.equals(target.toSet());
+        System.out.println("Concurrent producers" + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> Actual: " + value + (torn.get() ? ", torn batch" : ""));
+            System.out.println("> Target: " + target.toSet());
+        }
+        System.out.println("> " + PRODUCERS * LITERALS * WRITES + " writes over " + steps + " steps, "
+                + execution.getCoalesced() + " coalesced");
+    }
+
+    private static int version(Set<String> set) {
+        String element = set.iterator().next();
+        return Integer.parseInt(element.substring(element.indexOf('v') + 1));
+    }
+}
@@ -0,0 +1,176 @@
+package tests;
+
+import execution.Digraph;
+import execution.Execution;
+import execution.ExecutionException;
+import execution.NodeClass;
+import programs.IntProgramBuilder;
+import programs.StringProgramBuilder;
+import sets.SetBuilder;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IntProgramBuilderTest {
+    private static final int LENGTH = 200;
+    private static final int LARGE_LENGTH = 100000;
+
+    public static void main(String[] args) {
+        try {
+            List<String> expected = new ArrayList<>();
+            StringProgramBuilder stringBuilder = new StringProgramBuilder();
+            String stringIndex = buildIncrementer(stringBuilder, LENGTH);
+            Execution<String> stringExecution = stringBuilder.getExecution();
+            while(stringExecution.executeStep()) {
+                expected.add(stringExecution.queryNode(stringIndex).toString());
+            }
+
+            List<String> actual = new ArrayList<>();
+            IntProgramBuilder intBuilder = new IntProgramBuilder(true);
+            int intIndex = buildIncrementer(intBuilder, LENGTH);
+            Execution<Integer> intExecution = intBuilder.getExecution();
+            while(intExecution.executeStep()) {
+                StringBuilder names = new StringBuilder("{");
+                for(int node : intExecution.queryNode(intIndex)) {
+                    names.append(intBuilder.nameOf(node));
+                }
+                actual.add(names.append("}").toString());
+            }
+
+            if(actual.equals(expected)) {
+                System.out.println("Incrementer - SUCCESS");
+            } else {
+                System.out.println("Incrementer - FAIL");
+                System.out.println("> Actual: " + actual);
+                System.out.println("> Target: " + expected);
+            }
+
+            repeatedBuilds();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+
+        long start = System.nanoTime();
+        StringProgramBuilder largeStrings = new StringProgramBuilder();
+        buildIncrementer(largeStrings, LARGE_LENGTH);
+        largeStrings.getConnections();
+        System.out.println("StringProgramBuilder built " + LARGE_LENGTH + " cells in " + (System.nanoTime() - start) / 1000000 + "ms");
+
+        start = System.nanoTime();
+        IntProgramBuilder largeInts = new IntProgramBuilder();
+        buildIncrementer(largeInts, LARGE_LENGTH);
+        largeInts.getConnections();
+        System.out.println("IntProgramBuilder built " + LARGE_LENGTH + " cells in " + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+
+    /**
+     * Building twice gives the same program, nodes added after a build are part of the next one, and connections to
+     * nodes which do not exist are refused
+     */
+    private static void repeatedBuilds() throws ExecutionException {
+        IntProgramBuilder builder = new IntProgramBuilder();
+        int cIndex = buildIncrementer(builder, LENGTH);
+        String first = trace(builder.getExecution(), cIndex);
+        long firstEdges = edges(builder.getConnections());
+        String second = trace(builder.getExecution(), cIndex);
+        long secondEdges = edges(builder.getConnections());
+
+        int extra = builder.literal(cIndex);
+        long grownEdges = edges(builder.getConnections());
+        boolean member = builder.getConnections().get(builder.getClassTable().nodeFor(NodeClass.LITERAL)).contains(extra);
+
+        boolean refused = false;
+        try {
+            builder.node(extra, builder.size());
+        } catch (IllegalArgumentException e) {
+            refused = true;
+        }
+
+        boolean success = first.equals(second) && firstEdges == secondEdges && grownEdges == firstEdges + 2 && member
+                && refused;
+        System.out.println("Repeated builds" + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> Actual: " + firstEdges + ", " + secondEdges + ", " + grownEdges + " connections"
+                    + (refused ? "" : ", missing node accepted"));
+            System.out.println("> Target: " + firstEdges + ", " + firstEdges + ", " + (firstEdges + 2) + " connections");
+        }
+    }
+
+    private static String trace(Execution<Integer> execution, int cIndex) throws ExecutionException {
+        StringBuilder output = new StringBuilder();
+        while(execution.executeStep()) {
+            output.append(execution.queryNode(cIndex));
+        }
+        return output.toString();
+    }
+
+    private static long edges(Digraph<Integer> digraph) {
+        long output = 0;
+        for(sets.Set<Integer> connections : digraph.toMap().values()) {
+            output += connections.size();
+        }
+        return output;
+    }
+
+    private static String buildIncrementer(StringProgramBuilder builder, int length) {
+        SetBuilder<String> incrementerBuilder = new SetBuilder<>();
+
+        for(int i = 0; i < length; i++) {
+            if(i == length - 1) {
+                builder.addNode("I"+i, "dec"+i);
+            } else if(i == 0) {
+                builder.addNode("I"+i, "inc"+i);
+            } else {
+                builder.node("I"+i, new SetImp<>("inc"+i, "dec"+i));
+            }
+        }
+        for(int i = 0; i < length - 1; i++) {
+            incrementerBuilder.add(builder.addNode("inc"+i, "I"+(i+1)));
+        }
+        for(int i = 1; i < length; i++) {
+            builder.addNode("dec"+i, "I"+(i-1));
+        }
+
+        String Inc = builder.literal(incrementerBuilder.toSet());
+        String cIndex = builder.literal("I0");
+        builder.addAssignment(
+                builder.literal(cIndex),
+                builder.connectionsOf(builder.intersect(new SetImp<>(builder.connectionsOf(cIndex), Inc)))
+        );
+        return cIndex;
+    }
+
+    private static int buildIncrementer(IntProgramBuilder builder, int length) {
+        int[] index = new int[length];
+        int[] inc = new int[length - 1];
+        int[] dec = new int[length];
+
+        for(int i = 0; i < length; i++) {
+            index[i] = builder.newNode("I"+i);
+        }
+        for(int i = 0; i < length - 1; i++) {
+            inc[i] = builder.node(builder.newNode("inc"+i), index[i+1]);
+        }
+        for(int i = 1; i < length; i++) {
+            dec[i] = builder.node(builder.newNode("dec"+i), index[i-1]);
+        }
+        for(int i = 0; i < length; i++) {
+            if(i == length - 1) {
+                builder.node(index[i], dec[i]);
+            } else if(i == 0) {
+                builder.node(index[i], inc[i]);
+            } else {
+                builder.node(index[i], inc[i], dec[i]);
+            }
+        }
+
+        int Inc = builder.literal(inc);
+        int cIndex = builder.literal(index[0]);
+        builder.assignment(
+                builder.literal(cIndex),
+                builder.connectionsOf(builder.intersect(builder.connectionsOf(cIndex), Inc))
+        );
+        return cIndex;
+    }
+}
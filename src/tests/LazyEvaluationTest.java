@@ -0,0 +1,128 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import programs.StringProgramBuilder;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class LazyEvaluationTest {
+    private static final int SOURCES = 8;
+    private static final int BRANCHES = 30;
+    private static final int BRANCH_LENGTH = 20;
+
+    public static void main(String[] args) {
+        try {
+            //A short chain of interest fed by the same literals as many long side branches
+            StringProgramBuilder builder = new StringProgramBuilder();
+            List<String> sources = new ArrayList<>();
+            for(int i = 0; i < SOURCES; i++) {
+                sources.add(builder.literal("x" + i));
+            }
+            String output = builder.union(new SetImp<>(sources.get(0), sources.get(1)));
+            for(int i = 2; i < SOURCES; i++) {
+                output = builder.union(new SetImp<>(output, sources.get(i)));
+            }
+            List<String> branchEnds = new ArrayList<>();
+            for(int branch = 0; branch < BRANCHES; branch++) {
+                String node = builder.union(new SetImp<>(sources.get(branch % SOURCES), output));
+                for(int i = 1; i < BRANCH_LENGTH; i++) {
+                    String source = sources.get((branch + i) % SOURCES);
+                    node = i % 2 == 0 ? builder.union(new SetImp<>(node, source))
+                            : builder.intersect(new SetImp<>(node, builder.union(new SetImp<>(source, output))));
+                }
+                branchEnds.add(node);
+            }
+
+            //A pointer walking a ring through an assignment, which the cone keeps evaluating
+            for(int i = 0; i < 5; i++) {
+                builder.addNode("cell" + i, "cell" + (i + 1) % 5);
+            }
+            String pointer = builder.literal("cell0");
+            builder.addAssignment(builder.literal(pointer), builder.connectionsOf(pointer));
+
+            Execution<String> eager = builder.getExecution();
+            Execution<String> lazy = builder.getExecution();
+            lazy.setInterest(List.of(output));
+
+            int steps = 200;
+            boolean matching = true;
+            for(int step = 0; step < steps && matching; step++) {
+                String source = sources.get(step % SOURCES);
+                SetImp<String> value = new SetImp<>("x" + step % 13);
+                eager.update(source, value);
+                lazy.update(source, value);
+                eager.executeStep();
+                lazy.executeStep();
+                matching = eager.queryValue(output).equals(lazy.queryValue(output))
+                        && eager.queryValue(pointer).equals(lazy.queryValue(pointer));
+            }
+            boolean success = matching && lazy.getEvaluations() * 4 < eager.getEvaluations();
+            System.out.println("Cone of interest" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + (matching ? "matching" : "differing") + " outputs, "
+                        + lazy.getEvaluations() + " evaluations");
+                System.out.println("> Target: matching outputs, fewer than " + eager.getEvaluations() / 4
+                        + " evaluations");
+            }
+            System.out.println("> " + eager.getEvaluations() + " evaluations eager, " + lazy.getEvaluations()
+                    + " lazy");
+
+            //Side branches are evaluated when demanded, to the values eager steps gave them
+            List<String> wrong = new ArrayList<>();
+            for(String end : branchEnds) {
+                if(!lazy.demandValue(end).equals(eager.queryValue(end))) {
+                    wrong.add(end);
+                }
+            }
+            long demanded = lazy.getEvaluations();
+            lazy.demandValue(branchEnds.get(0));
+            success = wrong.isEmpty() && lazy.getEvaluations() == demanded;
+            System.out.println("Demanded values" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + wrong.size() + " differing, "
+                        + (lazy.getEvaluations() - demanded) + " evaluations demanding again");
+                System.out.println("> Target: 0 differing, 0 evaluations demanding again");
+            }
+
+            //Widening the interest and then leaving the mode brings every node up to date
+            lazy.setInterest(List.of(output, branchEnds.get(1)));
+            for(int step = 0; step < 20; step++) {
+                SetImp<String> value = new SetImp<>("y" + step % 5);
+                eager.update(sources.get(step % SOURCES), value);
+                lazy.update(sources.get(step % SOURCES), value);
+                eager.executeStep();
+                lazy.executeStep();
+            }
+            boolean interestMatches = lazy.queryValue(branchEnds.get(1)).equals(eager.queryValue(branchEnds.get(1)));
+            lazy.setInterest(null);
+            success = interestMatches && lazy.getCone() == null
+                    && same(lazy.queryAllValues(), eager.queryAllValues());
+            System.out.println("Leaving demand-driven mode" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + (interestMatches ? "" : "stale interest, ")
+                        + "values " + lazy.queryAllValues());
+                System.out.println("> Target: values " + eager.queryAllValues());
+            }
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean same(Map<String, sets.Set<String>> first, Map<String, sets.Set<String>> second) {
+        for(Map.Entry<String, sets.Set<String>> entry : first.entrySet()) {
+            if(!entry.getValue().equals(second.getOrDefault(entry.getKey(), sets.EmptySet.instance()))) {
+                return false;
+            }
+        }
+        for(Map.Entry<String, sets.Set<String>> entry : second.entrySet()) {
+            if(!first.containsKey(entry.getKey()) && entry.getValue().hasContents()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
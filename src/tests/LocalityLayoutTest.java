@@ -0,0 +1,65 @@
+package tests;
+
+import execution.*;
+import programs.LocalityLayout;
+import programs.StringProgramBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LocalityLayoutTest {
+    private static final int SHARDS = 4;
+
+    public static void main(String[] args) {
+        StringProgramBuilder b = new StringProgramBuilder();
+        String cIndex = TuringMachineTest.buildMachine(b);
+
+        Digraph<String> connections = b.getConnections();
+        LocalityLayout<String> layout = LocalityLayout.of(connections, b.getClassTable(), SHARDS);
+
+        System.out.println("Before: " + layout.before());
+        System.out.println("After:  " + layout.after());
+        System.out.println();
+
+        try {
+            List<String> expected = new ArrayList<>();
+            Execution<String> execution = b.getExecution();
+            while(execution.executeStep()) {
+                expected.add(execution.queryNode(cIndex).toString());
+            }
+
+            List<String> actual = new ArrayList<>();
+            Execution<Integer> renumbered = new Execution<>(
+                    layout.renumber(b.getClassTable()), layout.renumber(connections), new Digraph<>());
+            while(renumbered.executeStep()) {
+                StringBuilder names = new StringBuilder("{");
+                for(int id : renumbered.queryNode(layout.idOf(cIndex))) {
+                    names.append(layout.nodeAt(id));
+                }
+                actual.add(names.append("}").toString());
+            }
+            printResult("Renumbered", actual, expected);
+
+            actual = new ArrayList<>();
+            try (PartitionedExecution<String> partitioned = new PartitionedExecution<>(
+                    b.getClassTable(), connections, layout, new InProcessTransport<>(SHARDS))) {
+                while(partitioned.executeStep()) {
+                    actual.add(partitioned.queryNode(cIndex).toString());
+                }
+            }
+            printResult("Partitioned", actual, expected);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void printResult(String desc, List<String> actual, List<String> target) {
+        if(actual.equals(target)) {
+            System.out.println(desc + " - SUCCESS");
+        } else {
+            System.out.println(desc + " - FAIL");
+            System.out.println("> Actual: " + actual);
+            System.out.println("> Target: " + target);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import execution.NodeCollector;
+import programs.IntProgramBuilder;
+import programs.NodeIds;
+import programs.Workload;
+import programs.Workloads;
+import sets.EmptySet;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class NodeCollectorTest {
+    public static void main(String[] args) {
+        try {
+            //A detached chain is reclaimed in short pauses and its ids are reused lowest first
+            int length = 1000;
+            IntProgramBuilder builder = new IntProgramBuilder();
+            int[] chain = chain(builder, length);
+            int head = builder.literal(chain[0]);
+            int[] live = chain(builder, 10);
+            builder.literal(live[0]);
+
+            Execution<Integer> execution = builder.getExecution();
+            while(execution.executeStep()) {}
+            NodeIds ids = builder.getNodeIds();
+            NodeCollector<Integer> collector = new NodeCollector<>(execution);
+            collector.setReclaimListener(ids::release);
+
+            execution.update(head, EmptySet.instance());
+            while(execution.executeStep()) {}
+            int pauses = 1;
+            while(!collector.collect(16)) {
+                pauses++;
+            }
+
+            boolean success = collector.getReclaimed() == length && pauses > length / 16
+                    && execution.queryNode(chain[5]).isEmpty() && ids.getFree() == length
+                    && execution.queryNode(live[3]).equals(new SetImp<>(live[4])) && ids.allocate() == chain[0];
+            System.out.println("Detached chain" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + collector.getReclaimed() + " reclaimed over " + pauses + " pauses, "
+                        + ids.getFree() + " free ids");
+                System.out.println("> Target: " + length + " reclaimed over more than " + length / 16 + " pauses");
+            }
+
+            writeBarrier();
+            rewiring();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A node linked from a live one while the cycle is marking survives it, even though the path it was marked
+     * through was cut before the marking reached it
+     */
+    private static void writeBarrier() throws ExecutionException {
+        IntProgramBuilder builder = new IntProgramBuilder();
+        int[] chain = chain(builder, 100);
+        int tail = builder.node(builder.newNode());
+        builder.node(chain[99], tail);
+        int head = builder.literal(chain[0]);
+
+        Execution<Integer> execution = builder.getExecution();
+        while(execution.executeStep()) {}
+        NodeCollector<Integer> collector = new NodeCollector<>(execution);
+        List<Integer> reclaimed = new ArrayList<>();
+        collector.setReclaimListener(reclaimed::add);
+
+        collector.collect(1);
+        collector.collect(1);
+        execution.update(head, new SetImp<>(chain[99]));
+        while(execution.executeStep()) {}
+        while(!collector.collect(1)) {}
+        boolean kept = !reclaimed.contains(chain[99]) && !reclaimed.contains(tail)
+                && execution.queryNode(chain[99]).equals(new SetImp<>(tail));
+
+        collector.collectAll();
+        boolean success = kept && reclaimed.size() == 99 && !reclaimed.contains(chain[99]);
+        System.out.println("Write barrier" + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> Actual: " + reclaimed.size() + " reclaimed, last cell kept " + kept);
+            System.out.println("> Target: 99 reclaimed, last cell kept true");
+        }
+    }
+
+    /**
+     * Collecting between the steps of a program which keeps detaching cells does not change what it computes
+     */
+    private static void rewiring() throws ExecutionException {
+        Workload workload = Workloads.rewiring(2000, 50, 60, 5);
+        Execution<String> reference = workload.newExecution();
+        Execution<String> collected = workload.newExecution();
+        NodeCollector<String> collector = new NodeCollector<>(collected);
+
+        boolean same = true;
+        for(int step = 0; step < workload.getMaxSteps(); step++) {
+            workload.step(reference, step);
+            workload.step(collected, step);
+            collector.collect(256);
+            for(String pointer : workload.getObserved()) {
+                same &= reference.queryNode(pointer).equals(collected.queryNode(pointer))
+                        && reference.queryValue(pointer).equals(collected.queryValue(pointer));
+            }
+        }
+        boolean success = same && collector.getReclaimed() > 0;
+        System.out.println("Collect between steps" + (success ? " - SUCCESS" : " - FAIL"));
+        System.out.println("> " + collector.getReclaimed() + " nodes reclaimed in " + collector.getCycles() + " cycles");
+    }
+
+    private static int[] chain(IntProgramBuilder builder, int length) {
+        int[] nodes = new int[length];
+        for(int i = 0; i < length; i++) {
+            nodes[i] = builder.newNode();
+        }
+        for(int i = 0; i + 1 < length; i++) {
+            builder.node(nodes[i], nodes[i + 1]);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,48 @@
+package tests;
+
+import execution.*;
+import programs.StringProgramBuilder;
+import sets.Set;
+import sets.SetImp;
+
+public class OperatorTest {
+    public static void main(String[] args) {
+        NodeClassTable<String> classTable = NodeClassTable.getDefault()
+                .with("SymmetricDifference", Operators.symmetricDifference())
+                .with("AtLeastTwo", Operators.atLeast(2))
+                .with("ConnectionsWithinTwo", Operators.connectionsWithin(2));
+        StringProgramBuilder b = new StringProgramBuilder(classTable);
+
+        String first = b.literal(new SetImp<>("x", "y"));
+        String second = b.literal(new SetImp<>("y", "z"));
+        String third = b.literal(new SetImp<>("z", "w"));
+        String xor = b.operator("SymmetricDifference", new SetImp<>(first, second, third));
+        String atLeastTwo = b.operator("AtLeastTwo", new SetImp<>(first, second, third));
+
+        b.addNode("n1", "n2");
+        b.addNode("n2", "n3");
+        b.node("n3", new SetImp<>());
+        String within = b.operator("ConnectionsWithinTwo", new SetImp<>(b.literal("n1")));
+
+        Execution<String> execution = b.getExecution();
+        try {
+            while(execution.executeStep()) {}
+
+            check("SymmetricDifference", execution.queryValue(xor), new SetImp<>("x", "w"));
+            check("AtLeast", execution.queryValue(atLeastTwo), new SetImp<>("y", "z"));
+            check("ConnectionsWithin", execution.queryValue(within), new SetImp<>("n2", "n3"));
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void check(String name, Set<String> actual, Set<String> target) {
+        if(actual.equals(target)) {
+            System.out.println(name + " - SUCCESS");
+        } else {
+            System.out.println(name + " - FAIL");
+            System.out.println("> Actual: " + actual);
+            System.out.println("> Target: " + target);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package tests;
+
+import execution.*;
+import programs.StringProgramBuilder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class PartitionedExecutionTest {
+    private static final int[] WORKER_COUNTS = new int[]{ 1, 2, 3, 4 };
+
+    public static void main(String[] args) {
+        StringProgramBuilder b = new StringProgramBuilder();
+        String cIndex = TuringMachineTest.buildMachine(b);
+
+        try {
+            List<String> expected = run(b.getExecution(), cIndex);
+
+            for(int workers : WORKER_COUNTS) {
+                try (PartitionedExecution<String> inProcess = new PartitionedExecution<>(
+                        b.getClassTable(), b.getConnections(), Partitioner.byHash(), new InProcessTransport<>(workers))) {
+                    printResult("In Process x" + workers, run(inProcess, cIndex), expected);
+                }
+
+                try (PartitionedExecution<String> sockets = new PartitionedExecution<>(
+                        b.getClassTable(), b.getConnections(), Partitioner.byHash(), SocketTransport.local(workers))) {
+                    held(sockets, b, workers);
+                    printResult("Sockets x" + workers, run(sockets, cIndex), expected);
+                }
+            }
+
+            connected(b, expected.size() - TuringMachineTest.TAPE_LENGTH);
+            conflicts();
+        } catch (ExecutionException | IOException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Two assignments give the node X different connections in the same step, every policy must resolve them as an
+     * Execution does whichever workers evaluate them
+     */
+    private static void conflicts() throws ExecutionException, IOException {
+        StringProgramBuilder b = new StringProgramBuilder();
+        b.addNode("X", "Z");
+        String pointer = b.literal("X");
+        b.addAssignment(pointer, b.literal("A"));
+        b.addAssignment(pointer, b.literal("B"));
+
+        for(AssignmentConflict policy : AssignmentConflict.values()) {
+            Execution<String> reference = b.getExecution();
+            reference.setAssignmentConflict(policy);
+            String expected = conflict(reference::executeStep, () -> reference.queryNode("X"));
+
+            for(int workers : WORKER_COUNTS) {
+                try (PartitionedExecution<String> inProcess = new PartitionedExecution<>(
+                        b.getClassTable(), b.getConnections(), Partitioner.byHash(), new InProcessTransport<>(workers))) {
+                    inProcess.setAssignmentConflict(policy);
+                    printResult("Conflict " + policy + " In Process x" + workers,
+                            conflict(inProcess::executeStep, () -> inProcess.queryNode("X")), expected);
+                }
+
+                try (PartitionedExecution<String> sockets = new PartitionedExecution<>(
+                        b.getClassTable(), b.getConnections(), Partitioner.byHash(), SocketTransport.local(workers))) {
+                    sockets.setAssignmentConflict(policy);
+                    printResult("Conflict " + policy + " Sockets x" + workers,
+                            conflict(sockets::executeStep, () -> sockets.queryNode("X")), expected);
+                }
+            }
+        }
+    }
+
+    private interface Step {
+        boolean execute() throws ExecutionException;
+    }
+
+    /**
+     * @return the connections of X after one step, or the failure of the step
+     */
+    private static String conflict(Step step, Supplier<sets.Set<String>> query) {
+        try {
+            step.execute();
+        } catch (ExecutionException e) {
+            return e.getClass().getSimpleName();
+        }
+        return query.get().toString();
+    }
+
+    private static void printResult(String desc, String actual, String target) {
+        printResult(desc, List.of(actual), List.of(target));
+    }
+
+    private static List<String> run(Execution<String> execution, String cIndex) throws ExecutionException {
+        List<String> trace = new ArrayList<>();
+        while(execution.executeStep()) {
+            trace.add(execution.queryNode(cIndex).toString());
+        }
+        for(int i = 0; i < TuringMachineTest.TAPE_LENGTH; i++) {
+            trace.add(execution.queryNode("val"+i).toString());
+        }
+        return trace;
+    }
+
+    private static List<String> run(PartitionedExecution<String> execution, String cIndex) throws ExecutionException {
+        List<String> trace = new ArrayList<>();
+        while(execution.executeStep()) {
+            trace.add(execution.queryNode(cIndex).toString());
+        }
+        for(int i = 0; i < TuringMachineTest.TAPE_LENGTH; i++) {
+            trace.add(execution.queryNode("val"+i).toString());
+        }
+        return trace;
+    }
+
+    /**
+     * Workers hold their own nodes and the connections into them, not a copy of the whole program each
+     */
+    private static void held(PartitionedExecution<String> execution, StringProgramBuilder b, int workers) {
+        long program = 0;
+        for(sets.Set<String> targets : b.getConnections().toMap().values()) {
+            program += targets.size();
+        }
+        long held = 0;
+        for(long connections : execution.getHeldConnections()) {
+            held += connections;
+        }
+
+        boolean success = workers == 1 ? held == program : held < program * workers;
+        System.out.println("Held connections x" + workers + (success ? " - SUCCESS" : " - FAIL"));
+        System.out.println("> " + held + " connections held for a program of " + program);
+    }
+
+    /**
+     * Every worker with a transport of its own, as when each runs in a separate process
+     */
+    private static void connected(StringProgramBuilder b, int expectedSteps) throws IOException, InterruptedException {
+        int workers = 3;
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for(int i = 0; i < workers; i++) {
+            try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), probe.getLocalPort()));
+            }
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        List<Integer> steps = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        for(int i = 0; i < workers; i++) {
+            int index = i;
+            steps.add(0);
+            Thread thread = new Thread(() -> {
+                try (SocketTransport<String> transport = SocketTransport.connect(index, addresses)) {
+                    PartitionWorker<String> worker = new PartitionWorker<>(index, b.getClassTable(),
+                            b.getConnections().toMap(), Partitioner.byHash(), transport);
+                    int count = 0;
+                    while(worker.executeStep()) {
+                        count++;
+                    }
+                    synchronized (steps) {
+                        steps.set(index, count);
+                    }
+                } catch (IOException | ExecutionException e) {
+                    failures.incrementAndGet();
+                    e.printStackTrace();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        boolean success = failures.get() == 0;
+        for(int count : steps) {
+            success &= count == expectedSteps;
+        }
+        System.out.println("Connected workers x" + workers + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> Actual: " + steps + " steps, " + failures.get() + " failures");
+            System.out.println("> Target: " + expectedSteps + " steps on every worker");
+        }
+    }
+
+    private static void printResult(String desc, List<String> actual, List<String> target) {
+        if(actual.equals(target)) {
+            System.out.println(desc + " - SUCCESS");
+        } else {
+            System.out.println(desc + " - FAIL");
+            System.out.println("> Actual: " + actual);
+            System.out.println("> Target: " + target);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package tests;
+
+import execution.*;
+import programs.ProgramImage;
+import programs.StringProgramBuilder;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProgramImageTest {
+    private static final int TENANTS = 100;
+
+    public static void main(String[] args) {
+        StringProgramBuilder b = new StringProgramBuilder();
+        String cIndex = TuringMachineTest.buildMachine(b);
+        ProgramImage<String> image = b.getImage();
+
+        try {
+            boolean success = true;
+            long overlayEntries = 0;
+
+            for(int tenant = 0; tenant < TENANTS; tenant++) {
+                String start = "I" + (tenant % TuringMachineTest.TAPE_LENGTH);
+
+                Execution<String> reference = b.getExecution();
+                reference.update(cIndex, new SetImp<>(start));
+
+                OverlayDigraph<String> overlay = image.newConnections();
+                Execution<String> execution = new Execution<>(image.getClassTable(), overlay, new Digraph<>());
+                execution.update(cIndex, new SetImp<>(start));
+
+                List<String> expected = run(reference, cIndex);
+                List<String> actual = run(execution, cIndex);
+                if(!actual.equals(expected)) {
+                    success = false;
+                    System.out.println("> Tenant " + tenant + " Actual: " + actual);
+                    System.out.println("> Tenant " + tenant + " Target: " + expected);
+                }
+                overlayEntries += overlay.overlaySize();
+            }
+
+            System.out.println("Tenants" + (success ? " - SUCCESS" : " - FAIL"));
+            System.out.println("> Program nodes: " + image.size() + ", Average overlay entries: " + overlayEntries / TENANTS);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static List<String> run(Execution<String> execution, String cIndex) throws ExecutionException {
+        List<String> trace = new ArrayList<>();
+        while(execution.executeStep()) {
+            trace.add(execution.queryNode(cIndex).toString());
+        }
+        for(int i = 0; i < TuringMachineTest.TAPE_LENGTH; i++) {
+            trace.add(execution.queryNode("val"+i).toString());
+        }
+        return trace;
+    }
+}
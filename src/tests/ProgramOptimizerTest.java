@@ -0,0 +1,154 @@
+package tests;
+
+import execution.*;
+import programs.ProgramOptimizer;
+import programs.StringProgramBuilder;
+import sets.Set;
+import sets.SetImp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProgramOptimizerTest {
+    private static final int COPIES = 50;
+
+    public static void main(String[] args) {
+        try {
+            turingMachine();
+            redundantProgram();
+            observedTransients();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void turingMachine() throws ExecutionException {
+        StringProgramBuilder b = new StringProgramBuilder();
+        String cIndex = TuringMachineTest.buildMachine(b);
+
+        ProgramOptimizer<String> optimizer = new ProgramOptimizer<>(b.getClassTable()).pin(cIndex);
+        for(int i = 0; i < TuringMachineTest.TAPE_LENGTH; i++) {
+            optimizer.pin("val" + i);
+        }
+        Execution<String> optimized = new Execution<>(b.getClassTable(), optimizer.optimize(b.getConnections()), new Digraph<>());
+
+        List<String> expected = run(b.getExecution(), cIndex);
+        List<String> actual = run(optimized, cIndex);
+        report("Turing Machine", actual, expected);
+        System.out.println("> " + optimizer.getStatistics());
+    }
+
+    /**
+     * Many copies of a circuit holding a constant subgraph, duplicated and nested unions and unread operators over
+     * one input which is updated between steps
+     */
+    private static void redundantProgram() throws ExecutionException {
+        StringProgramBuilder b = new StringProgramBuilder();
+        String input = b.literal(new SetImp<>("a"));
+        List<String> outputs = new ArrayList<>();
+
+        for(int i = 0; i < COPIES; i++) {
+            String first = b.literal(new SetImp<>("a", "b"));
+            String second = b.literal(new SetImp<>("b", "c"));
+            String constant = b.intersect(new SetImp<>(b.union(new SetImp<>(first, second)), second));
+
+            String left = b.union(new SetImp<>(input, constant));
+            String right = b.union(new SetImp<>(input, constant));
+            String nested = b.union(new SetImp<>(b.union(new SetImp<>(left, first)), right));
+            b.difference(new SetImp<>(nested, second));
+
+            outputs.add(b.difference(new SetImp<>(nested, b.intersect(new SetImp<>(left, right)), first)));
+            outputs.add(b.connectionsOf(new SetImp<>(b.literal(new SetImp<>(input)))));
+        }
+
+        ProgramOptimizer<String> optimizer = new ProgramOptimizer<>(b.getClassTable()).pin(outputs).pin(input);
+        Execution<String> optimized = new Execution<>(b.getClassTable(), optimizer.optimize(b.getConnections()), new Digraph<>());
+        Execution<String> reference = b.getExecution();
+
+        List<Set<String>> inputs = new ArrayList<>();
+        inputs.add(new SetImp<>("c"));
+        inputs.add(new SetImp<>("a", "d"));
+        inputs.add(new SetImp<>());
+        List<String> expected = run(reference, outputs, input, inputs);
+        List<String> actual = run(optimized, outputs, input, inputs);
+        report("Redundant Program", actual, expected);
+
+        ProgramOptimizer.Statistics statistics = optimizer.getStatistics();
+        boolean allPasses = statistics.folded > 0 && statistics.flattened > 0 && statistics.merged > 0
+                && statistics.removed > 0;
+        System.out.println("All Passes" + (allPasses ? " - SUCCESS" : " - FAIL"));
+        System.out.println("> " + statistics);
+    }
+
+    /**
+     * A cycle accumulating a difference whose inputs arrive in different sub-steps, folding or flattening them would
+     * change what the cycle sees
+     */
+    private static void observedTransients() throws ExecutionException {
+        StringProgramBuilder b = new StringProgramBuilder();
+        String first = b.literal(new SetImp<>("x"));
+        String third = b.literal(new SetImp<>("z"));
+        String direct = b.addUnion(first);
+        String other = b.addUnion(third);
+        String nested = b.addUnion(b.union(new SetImp<>(first, third)));
+        String difference = b.difference(new SetImp<>(direct, other, nested));
+        String accumulator = b.addUnion(difference);
+        b.node(accumulator, new SetImp<>(difference, accumulator));
+
+        ProgramOptimizer<String> optimizer = new ProgramOptimizer<>(b.getClassTable()).pin(accumulator);
+        Execution<String> optimized = new Execution<>(b.getClassTable(), optimizer.optimize(b.getConnections()), new Digraph<>());
+
+        List<String> expected = run(b.getExecution(), accumulator);
+        List<String> actual = run(optimized, accumulator);
+        report("Observed Transients", actual, expected);
+    }
+
+    private static List<String> run(Execution<String> execution, String cIndex) throws ExecutionException {
+        List<String> trace = new ArrayList<>();
+        while(execution.executeStep()) {
+            trace.add(execution.queryNode(cIndex).toString());
+        }
+        for(int i = 0; i < TuringMachineTest.TAPE_LENGTH; i++) {
+            trace.add(execution.queryNode("val"+i).toString());
+        }
+        return trace;
+    }
+
+    private static List<String> run(Execution<String> execution, List<String> outputs, String input,
+                                    List<Set<String>> inputs) throws ExecutionException {
+        List<String> trace = new ArrayList<>();
+        execution.executeStep();
+        record(execution, outputs, trace);
+        for(Set<String> value : inputs) {
+            execution.update(input, value);
+            execution.executeStep();
+            record(execution, outputs, trace);
+        }
+        return trace;
+    }
+
+    private static void record(Execution<String> execution, List<String> outputs, List<String> trace) {
+        for(String output : outputs) {
+            trace.add(new SetImp<>(sortedArray(execution.queryValue(output))).toString());
+        }
+    }
+
+    private static String[] sortedArray(Set<String> set) {
+        List<String> elements = new ArrayList<>();
+        for(String element : set) {
+            elements.add(element);
+        }
+        elements.sort(null);
+        return elements.toArray(new String[0]);
+    }
+
+    private static void report(String name, List<String> actual, List<String> expected) {
+        if(actual.equals(expected)) {
+            System.out.println(name + " - SUCCESS");
+        } else {
+            System.out.println(name + " - FAIL");
+            System.out.println("> Actual: " + actual);
+            System.out.println("> Target: " + expected);
+        }
+    }
+}
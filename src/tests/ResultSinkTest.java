@@ -0,0 +1,99 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import execution.NodeCodec;
+import execution.ResultSink;
+import execution.StepListener;
+import programs.Workload;
+import programs.Workloads;
+import sets.Set;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ResultSinkTest {
+    public static void main(String[] args) {
+        try {
+            //The pointers exported while the ring is rewired, read back from several rotated files
+            Workload workload = Workloads.rewiring(5000, 200, 300, 5);
+            Path directory = Files.createTempDirectory("results");
+            Execution<String> execution = workload.newExecution();
+            ResultSink<String> sink = new ResultSink<>(execution, workload.getObserved(), directory,
+                    ResultSink.Format.BINARY, NodeCodec.strings(), 8192);
+            int steps = workload.run(execution);
+            sink.close();
+
+            Map<String, Set<String>> values = new HashMap<>();
+            Map<String, Set<String>> connections = new HashMap<>();
+            long[] records = new long[1];
+            ResultSink.replay(sink.getFiles(), NodeCodec.strings(), new StepListener<String>() {
+                @Override
+                public void valueChanged(String node, Set<String> newValues) {
+                    values.put(node, newValues);
+                }
+
+                @Override
+                public void connectionsChanged(String node, Set<String> newConnections) {
+                    connections.put(node, newConnections);
+                }
+
+                @Override
+                public void stepCompleted(long step) {
+                    records[0]++;
+                }
+            });
+            boolean success = sink.getFiles().size() > 1 && records[0] == sink.getSteps();
+            for(String output : workload.getObserved()) {
+                success &= values.get(output).equals(execution.queryValue(output))
+                        && connections.get(output).equals(execution.queryNode(output));
+            }
+            System.out.println("Binary export" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + records[0] + " records in " + sink.getFiles().size() + " files");
+                System.out.println("> Target: " + sink.getSteps() + " records, the final outputs");
+            }
+
+            //The same run as CSV, one line per change
+            Path csvDirectory = Files.createTempDirectory("results");
+            Execution<String> csvExecution = workload.newExecution();
+            ResultSink<String> csv = new ResultSink<>(csvExecution, workload.getObserved(), csvDirectory,
+                    ResultSink.Format.CSV, null, Long.MAX_VALUE);
+            workload.run(csvExecution);
+            csv.close();
+            List<String> lines = Files.readAllLines(csv.getFiles().get(0));
+            success = csv.getFiles().size() == 1 && lines.get(0).equals("step,node,kind,elements")
+                    && lines.size() > 2 * workload.getObserved().size();
+            System.out.println("CSV export" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + lines.size() + " lines");
+                System.out.println("> Target: a header and a line per change");
+            }
+
+            //Exporting costs the step thread little
+            long plain = Long.MAX_VALUE, exported = Long.MAX_VALUE;
+            for(int round = 0; round < 3; round++) {
+                Execution<String> reference = workload.newExecution();
+                long start = System.nanoTime();
+                workload.run(reference);
+                plain = Math.min(plain, System.nanoTime() - start);
+
+                Execution<String> timed = workload.newExecution();
+                ResultSink<String> timedSink = new ResultSink<>(timed, workload.getObserved(),
+                        Files.createTempDirectory("results"), ResultSink.Format.BINARY, NodeCodec.strings(), 1 << 20);
+                start = System.nanoTime();
+                workload.run(timed);
+                exported = Math.min(exported, System.nanoTime() - start);
+                timedSink.close();
+            }
+            System.out.println("> " + steps + " steps in " + plain / 1000000 + "ms, " + exported / 1000000
+                    + "ms exporting " + workload.getObserved().size() + " outputs");
+        } catch (IOException | ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package tests;
+
+import sets.Set;
+import sets.SetBuilder;
+import sets.SetImp;
+
+import java.util.*;
+
+public class SetRepresentationTest {
+    public static void main(String[] args) {
+        //The representation follows the size and density of the contents
+        check("Empty", build(strings(0, 0)), "EmptySet");
+        check("Inline", build(strings(3, 0)), "SmallSet");
+        check("Sorted array", build(strings(12, 0)), "HashArraySet");
+        check("Open addressing", build(strings(500, 0)), "OpenHashSet");
+        check("Bitmap", build(integers(500, 1000, 0)), "DenseIntSet");
+        check("Sparse integers", build(integers(500, 1000000, 0)), "OpenHashSet");
+
+        //Every pair of representations agrees with java.util.HashSet
+        int[] sizes = { 0, 1, 3, 4, 5, 16, 17, 200 };
+        List<String> wrong = new ArrayList<>();
+        Random random = new Random(3);
+        for(int a : sizes) {
+            for(int b : sizes) {
+                List<String> first = strings(a, random.nextInt(50));
+                List<String> second = strings(b, random.nextInt(50));
+                if(!agrees(first, second)) {
+                    wrong.add("strings " + a + "x" + b);
+                }
+                List<Integer> firstInts = integers(a, 4 * a + 1, random.nextInt(50));
+                List<Integer> secondInts = integers(b, 4 * b + 1, random.nextInt(50));
+                if(!agrees(firstInts, secondInts)) {
+                    wrong.add("integers " + a + "x" + b);
+                }
+            }
+        }
+        System.out.println("Algebra" + (wrong.isEmpty() ? " - SUCCESS" : " - FAIL"));
+        if(!wrong.isEmpty()) {
+            System.out.println("> Actual: wrong for " + wrong);
+            System.out.println("> Target: wrong for []");
+        }
+
+        //A singleton from a builder against the HashSet backed set it replaces
+        Set<String> singleton = build(strings(1, 0));
+        Set<String> hashed = new SetImp<>("s0");
+        System.out.println("> Singleton " + singleton.estimatedBytes() + " bytes, HashSet backed "
+                + hashed.estimatedBytes() + " bytes");
+    }
+
+    private static <T> boolean agrees(List<T> first, List<T> second) {
+        Set<T> a = build(first);
+        Set<T> b = build(second);
+        java.util.Set<T> union = new HashSet<>(first);
+        union.addAll(second);
+        java.util.Set<T> intersection = new HashSet<>(first);
+        intersection.retainAll(second);
+        java.util.Set<T> difference = new HashSet<>(union);
+        difference.removeAll(intersection);
+
+        boolean output = same(a.union(b), union) && same(a.intersect(b), intersection)
+                && same(a.difference(b), difference) && same(a, new HashSet<>(first));
+        output &= a.equals(build(new ArrayList<>(new HashSet<>(first))))
+                && a.hashCode() == new SetImp<>(new HashSet<>(first).toArray()).hashCode();
+        for(T element : second) {
+            output &= a.contains(element) == first.contains(element);
+        }
+        return output;
+    }
+
+    private static <T> boolean same(Set<T> actual, java.util.Set<T> target) {
+        java.util.Set<T> elements = new HashSet<>();
+        for(T element : actual) {
+            elements.add(element);
+        }
+        return actual.size() == target.size() && elements.equals(target);
+    }
+
+    private static <T> Set<T> build(List<T> elements) {
+        SetBuilder<T> builder = new SetBuilder<>();
+        for(T element : elements) {
+            builder.add(element);
+        }
+        return builder.toSet();
+    }
+
+    private static List<String> strings(int count, int offset) {
+        List<String> output = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            output.add("s" + (i + offset));
+        }
+        return output;
+    }
+
+    private static List<Integer> integers(int count, int span, int seed) {
+        Random random = new Random(seed);
+        java.util.Set<Integer> output = new LinkedHashSet<>();
+        while(output.size() < count) {
+            output.add(random.nextInt(span));
+        }
+        return new ArrayList<>(output);
+    }
+
+    private static void check(String desc, Set<?> set, String representation) {
+        String actual = set.getClass().getSimpleName();
+        if(actual.equals(representation)) {
+            System.out.println(desc + " - SUCCESS");
+        } else {
+            System.out.println(desc + " - FAIL");
+            System.out.println("> Actual: " + actual);
+            System.out.println("> Target: " + representation);
+        }
+    }
+}
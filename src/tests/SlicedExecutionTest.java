@@ -0,0 +1,137 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import programs.StringProgramBuilder;
+import programs.Workload;
+import programs.Workloads;
+import sets.SetImp;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SlicedExecutionTest {
+    public static void main(String[] args) {
+        try {
+            //Paused every few nodes, with queries between slices, steps match uninterrupted ones
+            Workload workload = Workloads.turingMachine(60, 5, 300, 3);
+            List<String> target = new ArrayList<>();
+            Execution<String> whole = workload.newExecution();
+            boolean active = true;
+            while(active) {
+                active = whole.executeStep();
+                target.add(state(whole));
+            }
+
+            List<String> actual = new ArrayList<>();
+            Execution<String> sliced = workload.newExecution();
+            int slices = 0;
+            for(int step = 0; step < target.size(); step++) {
+                while(!sliced.executeNodes(3)) {
+                    sliced.queryValue(workload.getObserved().get(0));
+                    slices++;
+                }
+                actual.add(state(sliced));
+            }
+            boolean success = actual.equals(target) && slices > target.size();
+            System.out.println("Sliced steps" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + slices + " pauses, " + actual.size() + " steps");
+                System.out.println("> Target: " + target.size() + " steps");
+            }
+
+            deferredUpdates();
+            interleaving();
+        } catch (ExecutionException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * An update made while a step is paused applies as if it was made once the step completed
+     */
+    private static void deferredUpdates() throws ExecutionException {
+        StringProgramBuilder builder = new StringProgramBuilder();
+        String first = builder.literal(new SetImp<>("A", "B"));
+        String second = builder.literal(new SetImp<>("C"));
+        String union = builder.union(new SetImp<>(first, second));
+        String outer = builder.union(new SetImp<>(union, builder.literal("D")));
+
+        Execution<String> reference = builder.getExecution();
+        reference.executeStep();
+        reference.update(first, new SetImp<>("E"));
+        String afterFirst = state(reference);
+        reference.executeStep();
+        String afterSecond = state(reference);
+
+        Execution<String> paused = builder.getExecution();
+        paused.executeNodes(1);
+        paused.update(first, new SetImp<>("E"));
+        boolean deferred = paused.isStepInProgress() && paused.queryNode(first).equals(new SetImp<>("A", "B"));
+        while(!paused.executeNodes(1)) {}
+        boolean success = deferred && state(paused).equals(afterFirst);
+        paused.executeStep();
+        success &= state(paused).equals(afterSecond) && paused.queryValue(outer).equals(new SetImp<>("E", "C", "D"));
+
+        System.out.println("Deferred update" + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> Actual: " + state(paused));
+            System.out.println("> Target: " + afterSecond);
+        }
+    }
+
+    /**
+     * Queries from another thread are answered while one large step runs in slices
+     */
+    private static void interleaving() throws ExecutionException, InterruptedException {
+        Workload workload = Workloads.incrementers(10, 3000);
+        Execution<String> reference = workload.newExecution();
+        reference.executeStep();
+
+        Execution<String> execution = workload.newExecution();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong queries = new AtomicLong();
+        String observed = workload.getObserved().get(0);
+        Thread reader = new Thread(() -> {
+            while(running.get()) {
+                execution.queryValue(observed);
+                queries.incrementAndGet();
+                Thread.yield();
+            }
+        });
+        reader.start();
+
+        int slices = 1;
+        while(!execution.executeFor(Duration.ofMillis(1))) {
+            slices++;
+            Thread.yield();
+        }
+        running.set(false);
+        reader.join();
+
+        boolean success = state(execution).equals(state(reference));
+        System.out.println("Time slices" + (success ? " - SUCCESS" : " - FAIL"));
+        System.out.println("> " + queries.get() + " queries answered over " + slices + " slices");
+    }
+
+    private static String state(Execution<String> execution) {
+        return sorted(execution.queryAllValues()) + sorted(execution.queryAll());
+    }
+
+    private static String sorted(Map<String, sets.Set<String>> map) {
+        Map<String, List<String>> output = new TreeMap<>();
+        for(Map.Entry<String, sets.Set<String>> entry : map.entrySet()) {
+            List<String> elements = new ArrayList<>();
+            for(String element : entry.getValue()) {
+                elements.add(element);
+            }
+            if(!elements.isEmpty()) {
+                Collections.sort(elements);
+                output.put(entry.getKey(), elements);
+            }
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import execution.StepMemo;
+import programs.StringProgramBuilder;
+import programs.Workload;
+import programs.Workloads;
+import sets.SetImp;
+
+import java.util.Map;
+
+public class StepMemoTest {
+    public static void main(String[] args) {
+        try {
+            //A pointer walking a ring repeats the same states, whole periods are skipped. States are only compared
+            //between memoized runs, so the period found may be a multiple of the ring's
+            int steps = 100000;
+            StringProgramBuilder ring = new StringProgramBuilder();
+            String pointer = ring(ring, 50);
+            Execution<String> plain = ring.getExecution();
+            long start = System.nanoTime();
+            for(int step = 0; step < steps; step++) {
+                plain.executeStep();
+            }
+            long plainNanos = System.nanoTime() - start;
+
+            Execution<String> execution = ring.getExecution();
+            StepMemo<String> memo = new StepMemo<>(execution, 8, 1024);
+            start = System.nanoTime();
+            long advanced = memo.run(steps);
+            long memoNanos = System.nanoTime() - start;
+
+            boolean success = advanced == steps && execution.getStep() == plain.getStep() && same(plain, execution)
+                    && memo.getPeriod() > 0 && memo.getPeriod() % 50 == 0 && memo.getSkipped() > steps * 9 / 10;
+            System.out.println("Cycle skip" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: period " + memo.getPeriod() + ", " + memo.getSkipped() + " skipped");
+                System.out.println("> Target: a multiple of 50, at least " + steps * 9 / 10 + " skipped");
+            }
+            System.out.println("> " + steps + " steps in " + plainNanos / 1000000 + "ms executed, "
+                    + memoNanos / 1000000 + "ms memoized");
+
+            //Updates between runs return the ring to a state whose runs were recorded
+            plain = ring.getExecution();
+            execution = ring.getExecution();
+            memo = new StepMemo<>(execution, 5, 1024);
+            for(int round = 0; round < 10; round++) {
+                String start0 = "cell" + (round % 3);
+                plain.update(pointer, new SetImp<>(start0));
+                execution.update(pointer, new SetImp<>(start0));
+                for(int step = 0; step < 20; step++) {
+                    plain.executeStep();
+                }
+                memo.run(20);
+            }
+            success = same(plain, execution) && memo.getMemoized() > 0 && memo.getSkipped() == 0;
+            System.out.println("Recorded runs" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + memo.getMemoized() + " memoized, " + memo.getSkipped() + " skipped");
+                System.out.println("> Target: some memoized, 0 skipped");
+            }
+
+            //A program which never repeats a state runs as it would without the memo
+            Workload workload = Workloads.turingMachine(60, 5, 300, 3);
+            Execution<String> reference = workload.newExecution();
+            workload.run(reference);
+            Execution<String> memoized = workload.newExecution();
+            new StepMemo<>(memoized, 4, 64).run(workload.getMaxSteps());
+            success = same(reference, memoized) && reference.getStep() == memoized.getStep();
+            System.out.println("Aperiodic" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + memoized.getStep() + " steps");
+                System.out.println("> Target: " + reference.getStep() + " steps");
+            }
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Builds a ring of cells and a pointer moving one cell per step
+     * @return the pointer
+     */
+    private static String ring(StringProgramBuilder builder, int cells) {
+        for(int i = 0; i < cells; i++) {
+            builder.addNode("cell" + i, "cell" + (i + 1) % cells);
+        }
+        String pointer = builder.literal("cell0");
+        builder.addAssignment(builder.literal(pointer), builder.connectionsOf(pointer));
+        return pointer;
+    }
+
+    private static boolean same(Execution<String> first, Execution<String> second) {
+        return same(first.queryAll(), second.queryAll()) && same(first.queryAllValues(), second.queryAllValues());
+    }
+
+    private static boolean same(Map<String, sets.Set<String>> first, Map<String, sets.Set<String>> second) {
+        for(Map.Entry<String, sets.Set<String>> entry : first.entrySet()) {
+            sets.Set<String> other = second.getOrDefault(entry.getKey(), sets.EmptySet.instance());
+            if(!entry.getValue().equals(other)) {
+                return false;
+            }
+        }
+        for(Map.Entry<String, sets.Set<String>> entry : second.entrySet()) {
+            if(!first.containsKey(entry.getKey()) && entry.getValue().hasContents()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
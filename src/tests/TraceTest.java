@@ -0,0 +1,109 @@
+package tests;
+
+import execution.Execution;
+import execution.ExecutionException;
+import execution.NodeCodec;
+import execution.TraceRecorder;
+import execution.TraceReplayer;
+import programs.Workload;
+import programs.Workloads;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class TraceTest {
+    public static void main(String[] args) {
+        try {
+            Path directory = Files.createTempDirectory("trace");
+            check(Workloads.rewiring(300, 10, 3000, 3), directory.resolve("rewiring.trace"));
+            check(Workloads.randomDag(200, 4, 20, 40, 3, 500, 5), directory.resolve("dag.trace"));
+        } catch (IOException | ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void check(Workload workload, Path path) throws IOException, ExecutionException {
+        Execution<String> execution = workload.newExecution();
+        Map<Long, String> expected = new HashMap<>();
+        expected.put(0L, state(execution.queryAllValues(), execution.queryAll()));
+
+        TraceRecorder<String> recorder = new TraceRecorder<>(execution, path, NodeCodec.strings(), 64);
+        boolean active = true;
+        for(int step = 0; active; step++) {
+            active = workload.step(execution, step);
+            if(step % 37 == 0 || !active) {
+                expected.put(execution.getStep(), state(execution.queryAllValues(), execution.queryAll()));
+            }
+        }
+        recorder.close();
+
+        //Seek the sampled steps out of order, forwards and backwards
+        List<Long> steps = new ArrayList<>(expected.keySet());
+        Collections.shuffle(steps, new Random(1));
+        List<Long> wrong = new ArrayList<>();
+        try(TraceReplayer<String> replayer = new TraceReplayer<>(path, NodeCodec.strings())) {
+            for(long step : steps) {
+                replayer.seek(step);
+                if(!state(replayer.getAllValues(), replayer.getAllConnections()).equals(expected.get(step))) {
+                    wrong.add(step);
+                }
+            }
+            boolean success = wrong.isEmpty() && replayer.getLastStep() == execution.getStep();
+            System.out.println("Replay " + workload.getName() + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: wrong at " + wrong + ", last step " + replayer.getLastStep());
+                System.out.println("> Target: wrong at [], last step " + execution.getStep());
+            }
+
+            long start = System.nanoTime();
+            replayer.seek(0);
+            replayer.seek(replayer.getLastStep());
+            System.out.println("> Seek to step " + replayer.getLastStep() + " of " + Files.size(path) + " bytes in "
+                    + (System.nanoTime() - start) / 1000 + "us");
+        }
+
+        //A trace cut short mid record and without its index ends at its last complete step
+        Path cut = path.resolveSibling("cut-" + path.getFileName());
+        Files.copy(path, cut);
+        try(FileChannel channel = FileChannel.open(cut, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try(TraceReplayer<String> replayer = new TraceReplayer<>(cut, NodeCodec.strings())) {
+            long last = replayer.getLastStep();
+            replayer.seek(last);
+            long sampled = expected.keySet().stream().filter(step -> step <= last).max(Long::compare).orElse(0L);
+            replayer.seek(sampled);
+            boolean success = last > 0 && last < execution.getStep()
+                    && state(replayer.getAllValues(), replayer.getAllConnections()).equals(expected.get(sampled));
+            System.out.println("Truncated " + workload.getName() + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: last step " + last);
+                System.out.println("> Target: last step below " + execution.getStep());
+            }
+        }
+    }
+
+    private static String state(Map<String, sets.Set<String>> values, Map<String, sets.Set<String>> connections) {
+        return sorted(values) + sorted(connections);
+    }
+
+    private static String sorted(Map<String, sets.Set<String>> map) {
+        Map<String, List<String>> output = new TreeMap<>();
+        for(Map.Entry<String, sets.Set<String>> entry : map.entrySet()) {
+            List<String> elements = new ArrayList<>();
+            for(String element : entry.getValue()) {
+                elements.add(element);
+            }
+            if(!elements.isEmpty()) {
+                Collections.sort(elements);
+                output.put(entry.getKey(), elements);
+            }
+        }
+        return output.toString();
+    }
+}
@@ -42,11 +42,38 @@ public class TuringMachineTest {
     };
 
     private static final String EMPTY_SYMBOL = SYMBOL[0];
-    private static final int TAPE_LENGTH = 10;
+    static final int TAPE_LENGTH = 10;
 
     public static void main(String[] args) {
         StringProgramBuilder b = new StringProgramBuilder();
+        String cIndex = buildMachine(b);
 
+        Execution<String> execution = b.getExecution();
+
+        try {
+//            System.out.println("Tape Result:");
+//            for(int i = 0; i< TAPE_LENGTH; i++) {
+//                System.out.println(execution.queryNode("val"+i));
+//            }
+//            System.out.println("Indexes:");
+            while(execution.executeStep()) {
+                System.out.println(execution.queryNode(cIndex));
+            }
+            System.out.println("Tape Result:");
+            for(int i = 0; i< TAPE_LENGTH; i++) {
+                System.out.println(execution.queryNode("val"+i));
+            }
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Adds the machine to the builder
+     * @param b the builder
+     * @return the literal node holding the current tape index
+     */
+    static String buildMachine(StringProgramBuilder b) {
         //Tape Construction
         SetBuilder<String> indexBuilder = new SetBuilder<>();
         SetBuilder<String> valueBuilder = new SetBuilder<>();
@@ -164,23 +191,6 @@ public class TuringMachineTest {
                 b.connectionsOf(b.intersect(new SetImp<>(b.connectionsOf(cIndex), b.connectionsOf(dShift))))
         );
 
-        Execution<String> execution = b.getExecution();
-
-        try {
-//            System.out.println("Tape Result:");
-//            for(int i = 0; i< TAPE_LENGTH; i++) {
-//                System.out.println(execution.queryNode("val"+i));
-//            }
-//            System.out.println("Indexes:");
-            while(execution.executeStep()) {
-                System.out.println(execution.queryNode(cIndex));
-            }
-            System.out.println("Tape Result:");
-            for(int i = 0; i< TAPE_LENGTH; i++) {
-                System.out.println(execution.queryNode("val"+i));
-            }
-        } catch (ExecutionException e) {
-            e.printStackTrace();
-        }
+        return cIndex;
     }
 }
@@ -0,0 +1,99 @@
+package tests;
+
+import benchmark.BenchmarkRunner;
+import benchmark.Json;
+import execution.Execution;
+import execution.ExecutionException;
+import programs.Workload;
+import programs.Workloads;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.*;
+
+public class WorkloadTest {
+    public static void main(String[] args) {
+        List<Workload> workloads = new ArrayList<>();
+        workloads.add(Workloads.turingMachine(40, 5, 200, 7));
+        workloads.add(Workloads.incrementers(30, 4));
+        workloads.add(Workloads.randomDag(300, 6, 20, 50, 3, 30, 7));
+        workloads.add(Workloads.rewiring(200, 20, 50, 7));
+
+        try {
+            for(Workload workload : workloads) {
+                List<String> first = trace(workload);
+                List<String> second = trace(workload);
+                boolean success = first.equals(second) && first.size() > 1;
+                System.out.println("Deterministic " + workload.getName() + (success ? " - SUCCESS" : " - FAIL"));
+                if(!success) {
+                    System.out.println("> Actual: " + second);
+                    System.out.println("> Target: " + first);
+                }
+            }
+
+            //The incrementers walk to the end of their chains, then off it
+            List<String> walk = trace(workloads.get(1));
+            String target = "[c3.I29]";
+            boolean reached = walk.contains(target) && walk.get(walk.size() - 1).equals("[]");
+            System.out.println("Incrementers" + (reached ? " - SUCCESS" : " - FAIL"));
+            if(!reached) {
+                System.out.println("> Actual: " + walk);
+                System.out.println("> Target: " + target + " then []");
+            }
+
+            report(workloads);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void report(List<Workload> workloads) throws ExecutionException {
+        Map<String, Object> baseline = BenchmarkRunner.run(workloads, 1);
+        Map<String, Object> reread = (Map<String, Object>) Json.read(Json.write(baseline));
+
+        //A candidate whose first workload runs at half the speed
+        Map<String, Object> candidate = (Map<String, Object>) Json.read(Json.write(baseline));
+        Map<String, Object> slowed = (Map<String, Object>) ((List<Object>) candidate.get("workloads")).get(0);
+        slowed.put("stepsPerSecond", ((Number) slowed.get("stepsPerSecond")).doubleValue() / 2);
+
+        PrintStream quiet = new PrintStream(new ByteArrayOutputStream());
+        List<String> none = BenchmarkRunner.compare(baseline, reread, 0.10, quiet);
+        List<String> flagged = BenchmarkRunner.compare(baseline, candidate, 0.10, quiet);
+
+        boolean success = none.isEmpty() && flagged.size() == 1 && flagged.get(0).contains("stepsPerSecond");
+        System.out.println("Compare" + (success ? " - SUCCESS" : " - FAIL"));
+        if(!success) {
+            System.out.println("> Actual: " + none + " " + flagged);
+            System.out.println("> Target: [] [one stepsPerSecond regression]");
+        }
+        for(Object workload : (List<Object>) baseline.get("workloads")) {
+            Map<String, Object> result = (Map<String, Object>) workload;
+            System.out.println("> " + result.get("name") + " " + result.get("steps") + " steps, "
+                    + String.format(Locale.ROOT, "%.0f", (Double) result.get("stepsPerSecond")) + " steps/s, p99 "
+                    + ((Map<String, Object>) result.get("latencyMicros")).get("p99") + "us");
+        }
+    }
+
+    private static List<String> trace(Workload workload) throws ExecutionException {
+        Execution<String> execution = workload.newExecution();
+        List<String> trace = new ArrayList<>();
+        boolean active = true;
+        for(int step = 0; active; step++) {
+            active = workload.step(execution, step);
+            for(String node : workload.getObserved()) {
+                trace.add(sorted(execution.queryValue(node)));
+            }
+        }
+        return trace;
+    }
+
+    private static String sorted(sets.Set<String> set) {
+        List<String> elements = new ArrayList<>();
+        for(String element : set) {
+            elements.add(element);
+        }
+        Collections.sort(elements);
+        return elements.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package tests;
+
+import execution.Digraph;
+import execution.Execution;
+import execution.ExecutionException;
+import execution.NodeCodec;
+import execution.WriteAheadLog;
+import programs.Workload;
+import programs.Workloads;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class WriteAheadLogTest {
+    public static void main(String[] args) {
+        try {
+            Path path = Files.createTempDirectory("wal").resolve("connections.wal");
+            Workload workload = Workloads.rewiring(500, 20, 200, 9);
+
+            //Run with the log, one force per step rather than one per assignment
+            Digraph<String> connections = workload.getBuilder().getConnections();
+            WriteAheadLog<String> log = WriteAheadLog.open(path, NodeCodec.strings(), connections);
+            Execution<String> execution = new Execution<>(workload.getBuilder().getClassTable(), connections,
+                    new Digraph<>());
+            execution.addListener(log);
+            long start = System.nanoTime();
+            int steps = workload.run(execution);
+            long logged = System.nanoTime() - start;
+            String expected = sorted(execution.queryAll());
+
+            boolean grouped = log.getCommits() <= steps && log.getAppended() > 2 * log.getCommits();
+            System.out.println("Group commit" + (grouped ? " - SUCCESS" : " - FAIL"));
+            if(!grouped) {
+                System.out.println("> Actual: " + log.getCommits() + " commits of " + log.getAppended() + " updates");
+                System.out.println("> Target: at most " + steps + " commits");
+            }
+            System.out.println("> " + steps + " steps, " + log.getAppended() + " updates, " + log.getCommits()
+                    + " forces in " + logged / 1000000 + "ms");
+
+            //A crash leaves a torn record at the end of the log
+            log.close();
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(new byte[]{ 0, 0, 0, 40, 1, 2, 3, 4, 5 }));
+            }
+
+            Digraph<String> recovered = workload.getBuilder().getConnections();
+            WriteAheadLog<String> reopened = WriteAheadLog.open(path, NodeCodec.strings(), recovered);
+            boolean success = sorted(recovered.toMap()).equals(expected) && reopened.getRecovered() == log.getAppended();
+            System.out.println("Recovery" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + reopened.getRecovered() + " records");
+                System.out.println("> Target: " + log.getAppended() + " records");
+            }
+
+            //The recovered program continues as the original would have
+            Execution<String> continued = new Execution<>(workload.getBuilder().getClassTable(), recovered,
+                    new Digraph<>());
+            continued.addListener(reopened);
+            continued.update("cell0", new sets.SetImp<>("cell1"));
+            continued.executeStep();
+            reopened.close();
+
+            Digraph<String> again = workload.getBuilder().getConnections();
+            WriteAheadLog.open(path, NodeCodec.strings(), again).close();
+            success = sorted(again.toMap()).equals(sorted(continued.queryAll()));
+            System.out.println("Append after recovery" + (success ? " - SUCCESS" : " - FAIL"));
+            if(!success) {
+                System.out.println("> Actual: " + sorted(again.toMap()));
+                System.out.println("> Target: " + sorted(continued.queryAll()));
+            }
+        } catch (IOException | ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String sorted(Map<String, sets.Set<String>> map) {
+        Map<String, List<String>> output = new TreeMap<>();
+        for(Map.Entry<String, sets.Set<String>> entry : map.entrySet()) {
+            List<String> elements = new ArrayList<>();
+            for(String element : entry.getValue()) {
+                elements.add(element);
+            }
+            if(!elements.isEmpty()) {
+                Collections.sort(elements);
+                output.put(entry.getKey(), elements);
+            }
+        }
+        return output.toString();
+    }
+}